@@ -1,8 +1,11 @@
 package com.jd.genie.agent.agent;
 
+import com.jd.genie.agent.dto.ArtifactRegistry;
 import com.jd.genie.agent.dto.File;
+import com.jd.genie.agent.dto.ObservationStore;
 import com.jd.genie.agent.printer.Printer;
 import com.jd.genie.agent.tool.ToolCollection;
+import com.jd.genie.agent.util.StringUtil;
 import com.jd.genie.model.dto.FileInformation;
 import com.jd.genie.model.req.AgentRequest;
 import lombok.AllArgsConstructor;
@@ -11,7 +14,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Data
 @Builder
@@ -26,11 +32,68 @@ public class AgentContext {
     Printer printer;
     ToolCollection toolCollection;
     String dateInfo;
-    List<File> productFiles;
+    ArtifactRegistry artifactRegistry; // 请求级产物注册表，各任务共享
+    String taskKey; // 任务维度产物的 key
+    ObservationStore observationStore; // 请求级超长工具结果存储，各任务共享
     Boolean isStream;
     String streamMessageType;
     String sopPrompt;
     String basePrompt;
     Integer agentType;
-    List<File> taskProductFiles;
-}
\ No newline at end of file
+    Long deadline; // 请求截止时间戳，用于模型路由
+    AtomicBoolean cancelled; // 请求级取消标识，各任务共享
+
+    /**
+     * 请求已被取消
+     */
+    public boolean isCancelled() {
+        return Objects.nonNull(cancelled) && cancelled.get();
+    }
+
+    /**
+     * 全部产物文件快照
+     */
+    public List<File> getProductFiles() {
+        return Objects.nonNull(artifactRegistry) ? artifactRegistry.list() : new ArrayList<>();
+    }
+
+    /**
+     * 当前任务产物文件快照
+     */
+    public List<File> getTaskProductFiles() {
+        return Objects.nonNull(artifactRegistry) ? artifactRegistry.listTask(taskKey) : new ArrayList<>();
+    }
+
+    /**
+     * 添加产物文件，内部文件不计入当前任务
+     */
+    public void addProductFile(File file) {
+        artifactRegistry.add(file, Boolean.TRUE.equals(file.getIsInternalFile()) ? null : taskKey);
+    }
+
+    /**
+     * 派生任务级上下文，共享请求级状态，工具视图与任务产物相互隔离
+     */
+    public AgentContext forTask(String task) {
+        AgentContext taskContext = AgentContext.builder()
+                .requestId(requestId)
+                .sessionId(sessionId)
+                .query(query)
+                .task(task)
+                .printer(printer)
+                .dateInfo(dateInfo)
+                .artifactRegistry(artifactRegistry)
+                .observationStore(observationStore)
+                .taskKey(StringUtil.getUUID())
+                .isStream(isStream)
+                .streamMessageType(streamMessageType)
+                .sopPrompt(sopPrompt)
+                .basePrompt(basePrompt)
+                .agentType(agentType)
+                .deadline(deadline)
+                .cancelled(cancelled)
+                .build();
+        taskContext.setToolCollection(toolCollection.forTask(taskContext));
+        return taskContext;
+    }
+}
@@ -3,13 +3,17 @@ package com.jd.genie.agent.agent;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jd.genie.agent.dto.Memory;
 import com.jd.genie.agent.dto.Message;
+import com.jd.genie.agent.dto.ObservationStore;
 import com.jd.genie.agent.dto.tool.ToolCall;
 import com.jd.genie.agent.enums.AgentState;
 import com.jd.genie.agent.enums.RoleType;
 import com.jd.genie.agent.llm.LLM;
 import com.jd.genie.agent.printer.Printer;
 import com.jd.genie.agent.tool.ToolCollection;
+import com.jd.genie.agent.tool.common.ReadObservationTool;
+import com.jd.genie.agent.util.SpringContextHolder;
 import com.jd.genie.agent.util.ThreadUtil;
+import com.jd.genie.config.GenieConfig;
 import lombok.Data;
 import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
@@ -69,6 +73,11 @@ public abstract class BaseAgent {
         List<String> results = new ArrayList<>();
         try {
             while (currentStep < maxSteps && state != AgentState.FINISHED) {
+                if (context.isCancelled()) {
+                    log.info("{} {} cancelled at step {}", context.getRequestId(), getName(), currentStep);
+                    results.add("Cancelled");
+                    break;
+                }
                 currentStep++;
                 log.info("{} {} Executing step {}/{}", context.getRequestId(), getName(), currentStep, maxSteps);
                 String stepResult = step();
@@ -136,6 +145,37 @@ public abstract class BaseAgent {
         return "Tool" + name + " Error.";
     }
 
+    /**
+     * 生成写入记忆的工具结果
+     * 超过旁路阈值时完整结果写入 ObservationStore，记忆中只保留预览与句柄，可通过 read_observation 分段读取；
+     * 否则按 maxObserve 截断
+     */
+    protected String observe(String toolName, String result, Integer maxObserve) {
+        if (Objects.isNull(result)) {
+            return null;
+        }
+        GenieConfig genieConfig = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class);
+        int threshold = genieConfig.getObservationSpillThreshold();
+        ObservationStore store = Objects.nonNull(context) ? context.getObservationStore() : null;
+        if (threshold > 0 && result.length() > threshold && Objects.nonNull(store)
+                && Objects.nonNull(availableTools.getTool(ReadObservationTool.NAME))) {
+            try {
+                String handle = store.put(toolName, result);
+                int previewLen = Math.min(genieConfig.getObservationPreviewChars(),
+                        Objects.nonNull(maxObserve) ? maxObserve : Integer.MAX_VALUE);
+                previewLen = Math.min(previewLen, result.length());
+                return result.substring(0, previewLen) + "\n...（完整结果共 " + result.length() + " 字符，已存储为 " + handle
+                        + "，如需更多内容可调用 " + ReadObservationTool.NAME + " 工具从 offset=" + previewLen + " 继续读取）";
+            } catch (Exception e) {
+                log.warn("{} spill observation of {} failed", context.getRequestId(), toolName, e);
+            }
+        }
+        if (Objects.nonNull(maxObserve)) {
+            return result.substring(0, Math.min(result.length(), maxObserve));
+        }
+        return result;
+    }
+
     /**
      * 并发执行多个工具调用命令并返回执行结果
      *
@@ -5,6 +5,7 @@ import com.jd.genie.agent.dto.Message;
 import com.jd.genie.agent.dto.tool.ToolCall;
 import com.jd.genie.agent.dto.tool.ToolChoice;
 import com.jd.genie.agent.enums.AgentState;
+import com.jd.genie.agent.enums.LLMCallType;
 import com.jd.genie.agent.enums.RoleType;
 import com.jd.genie.agent.llm.LLM;
 import com.jd.genie.agent.prompt.ToolCallPrompt;
@@ -68,7 +69,7 @@ public class ExecutorAgent extends ReActAgent {
 
         setPrinter(context.printer);
         setMaxSteps(genieConfig.getPlannerMaxSteps());
-        setLlm(new LLM(genieConfig.getExecutorModelName(), ""));
+        setLlm(new LLM(genieConfig.getExecutorModelName(), "", LLMCallType.EXECUTOR));
 
         setContext(context);
         setMaxObserve(Integer.parseInt(genieConfig.getMaxObserve()));
@@ -168,9 +169,7 @@ public class ExecutorAgent extends ReActAgent {
                                 .toolResult(result)
                                 .build(), null);
             }
-            if (maxObserve != null) {
-                result = result.substring(0, Math.min(result.length(), maxObserve));
-            }
+            result = observe(command.getFunction().getName(), result, maxObserve);
 
             // 添加工具响应到记忆
             if ("struct_parse".equals(llm.getFunctionCallType())) {
@@ -4,6 +4,7 @@ import com.jd.genie.agent.dto.Message;
 import com.jd.genie.agent.dto.tool.ToolCall;
 import com.jd.genie.agent.dto.tool.ToolChoice;
 import com.jd.genie.agent.enums.AgentState;
+import com.jd.genie.agent.enums.LLMCallType;
 import com.jd.genie.agent.enums.RoleType;
 import com.jd.genie.agent.llm.LLM;
 import com.jd.genie.agent.prompt.PlanningPrompt;
@@ -68,7 +69,7 @@ public class PlanningAgent extends ReActAgent {
 
         setPrinter(context.printer);
         setMaxSteps(genieConfig.getPlannerMaxSteps());
-        setLlm(new LLM(genieConfig.getPlannerModelName(), ""));
+        setLlm(new LLM(genieConfig.getPlannerModelName(), "", LLMCallType.PLAN));
 
         setContext(context);
         setIsColseUpdate("1".equals(genieConfig.getPlanningCloseUpdate()));
@@ -102,6 +103,8 @@ public class PlanningAgent extends ReActAgent {
             }
 
             context.setStreamMessageType("plan_thought");
+            // 已有计划时仅做更新，可路由到轻量模型
+            getLlm().setCallType(Objects.isNull(planningTool.getPlan()) ? LLMCallType.PLAN : LLMCallType.PLAN_UPDATE);
             CompletableFuture<LLM.ToolCallResponse> future = getLlm().askTool(context,
                     getMemory().getMessages(),
                     Message.systemMessage(getSystemPrompt(), null),
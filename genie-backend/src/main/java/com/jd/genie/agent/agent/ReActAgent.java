@@ -3,6 +3,7 @@ package com.jd.genie.agent.agent;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.jd.genie.agent.dto.Message;
+import com.jd.genie.agent.enums.LLMCallType;
 import com.jd.genie.agent.tool.BaseTool;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -55,7 +56,7 @@ public abstract class ReActAgent extends BaseAgent {
             Message userMessage = Message.userMessage(formattedPrompt, null);
 
             // 3. 调用LLM并处理结果
-            CompletableFuture<String> summaryFuture = getLlm().ask(
+            CompletableFuture<String> summaryFuture = getLlm().withCallType(LLMCallType.DIGITAL_EMPLOYEE).ask(
                     context,
                     Collections.singletonList(userMessage),
                     Collections.emptyList(),
@@ -5,6 +5,7 @@ import com.jd.genie.agent.dto.Message;
 import com.jd.genie.agent.dto.tool.ToolCall;
 import com.jd.genie.agent.dto.tool.ToolChoice;
 import com.jd.genie.agent.enums.AgentState;
+import com.jd.genie.agent.enums.LLMCallType;
 import com.jd.genie.agent.enums.RoleType;
 import com.jd.genie.agent.llm.LLM;
 import com.jd.genie.agent.prompt.ToolCallPrompt;
@@ -64,7 +65,7 @@ public class ReactImplAgent extends ReActAgent {
 
         setPrinter(context.printer);
         setMaxSteps(genieConfig.getReactMaxSteps());
-        setLlm(new LLM(genieConfig.getReactModelName(), ""));
+        setLlm(new LLM(genieConfig.getReactModelName(), "", LLMCallType.REACT));
         setContext(context);
 
         // 初始化工具集合
@@ -145,9 +146,7 @@ public class ReactImplAgent extends ReActAgent {
                         .build(), null);
             }
 
-            if (maxObserve != null) {
-                result = result.substring(0, Math.min(result.length(), maxObserve));
-            }
+            result = observe(command.getFunction().getName(), result, maxObserve);
 
             // 添加工具响应到记忆
             if ("struct_parse".equals(llm.getFunctionCallType())) {
@@ -3,6 +3,7 @@ package com.jd.genie.agent.agent;
 import com.jd.genie.agent.dto.File;
 import com.jd.genie.agent.dto.Message;
 import com.jd.genie.agent.dto.TaskSummaryResult;
+import com.jd.genie.agent.enums.LLMCallType;
 import com.jd.genie.agent.llm.LLM;
 import com.jd.genie.agent.util.SpringContextHolder;
 import com.jd.genie.config.GenieConfig;
@@ -34,7 +35,7 @@ public class SummaryAgent extends BaseAgent {
 
         setContext(context);
         setRequestId(context.getRequestId());
-        setLlm(new LLM(context.getAgentType() == 3 ? genieConfig.getPlannerModelName() : genieConfig.getReactModelName(), ""));
+        setLlm(new LLM(context.getAgentType() == 3 ? genieConfig.getPlannerModelName() : genieConfig.getReactModelName(), "", LLMCallType.SUMMARY));
         setMessageSizeLimit(genieConfig.getMessageSizeLimit());
     }
 
@@ -0,0 +1,85 @@
+package com.jd.genie.agent.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 产物文件注册表 - 请求级共享，支持并发写入
+ * 文件写入少、读取多（每轮 think 都会格式化文件列表），读取无锁
+ */
+public class ArtifactRegistry {
+    // 按写入顺序保存的全部产物
+    private final List<File> files = new CopyOnWriteArrayList<>();
+    // 文件名索引，同名文件以最后写入为准
+    private final Map<String, File> nameIndex = new ConcurrentHashMap<>();
+    // 按任务划分的产物
+    private final Map<String, List<File>> taskFiles = new ConcurrentHashMap<>();
+
+    /**
+     * 添加产物文件，taskKey 为空时仅记录到全局
+     */
+    public void add(File file, String taskKey) {
+        if (Objects.isNull(file)) {
+            return;
+        }
+        files.add(file);
+        if (Objects.nonNull(file.getFileName())) {
+            nameIndex.put(file.getFileName(), file);
+        }
+        if (Objects.nonNull(taskKey)) {
+            taskFiles.computeIfAbsent(taskKey, k -> new CopyOnWriteArrayList<>()).add(file);
+        }
+    }
+
+    /**
+     * 按文件名获取产物
+     */
+    public File get(String fileName) {
+        return Objects.isNull(fileName) ? null : nameIndex.get(fileName);
+    }
+
+    /**
+     * 全部产物快照
+     */
+    public List<File> list() {
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * 指定任务的产物快照
+     */
+    public List<File> listTask(String taskKey) {
+        List<File> list = Objects.isNull(taskKey) ? null : taskFiles.get(taskKey);
+        return Objects.isNull(list) ? new ArrayList<>() : new ArrayList<>(list);
+    }
+
+    /**
+     * 全部产物文件名
+     */
+    public List<String> fileNames() {
+        List<String> names = new ArrayList<>();
+        for (File file : files) {
+            names.add(file.getFileName());
+        }
+        return names;
+    }
+
+    /**
+     * 清空所有任务维度的产物，全局产物保留
+     */
+    public void clearTasks() {
+        taskFiles.clear();
+    }
+
+    public int size() {
+        return files.size();
+    }
+
+    public boolean isEmpty() {
+        return files.isEmpty();
+    }
+}
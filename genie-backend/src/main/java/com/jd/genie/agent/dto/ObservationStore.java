@@ -0,0 +1,122 @@
+package com.jd.genie.agent.dto;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 工具结果旁路存储 - 请求级共享
+ * 超长的工具结果完整写入临时文件，记忆中只保留预览与句柄，按需分段读取；
+ * 以 UTF-16 定长编码存储，字符偏移可直接换算为文件偏移
+ */
+@Slf4j
+public class ObservationStore implements AutoCloseable {
+    private static final String HANDLE_PREFIX = "obs_";
+
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private Path path;
+    private FileChannel channel;
+    private long position = 0;
+    private boolean closed = false;
+
+    /**
+     * 写入完整结果，返回句柄
+     */
+    public synchronized String put(String toolName, String content) throws IOException {
+        if (closed) {
+            throw new IOException("observation store closed");
+        }
+        if (Objects.isNull(channel)) {
+            path = Files.createTempFile("genie-observation-", ".bin");
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_16BE));
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        String handle = HANDLE_PREFIX + sequence.incrementAndGet();
+        segments.put(handle, new Segment(toolName, offset, content.length()));
+        return handle;
+    }
+
+    /**
+     * 按字符范围读取，越界部分截断，句柄不存在返回 null
+     */
+    public String read(String handle, int offset, int length) throws IOException {
+        Segment segment = Objects.isNull(handle) ? null : segments.get(handle);
+        if (Objects.isNull(segment)) {
+            return null;
+        }
+        int start = Math.min(Math.max(offset, 0), segment.chars);
+        int len = Math.min(Math.max(length, 0), segment.chars - start);
+        ByteBuffer buffer = ByteBuffer.allocate(len * 2);
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("observation store closed");
+            }
+            long filePosition = segment.offset + start * 2L;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, filePosition);
+                if (read < 0) {
+                    break;
+                }
+                filePosition += read;
+            }
+        }
+        buffer.flip();
+        return StandardCharsets.UTF_16BE.decode(buffer).toString();
+    }
+
+    /**
+     * 结果总字符数，句柄不存在返回 -1
+     */
+    public int length(String handle) {
+        Segment segment = Objects.isNull(handle) ? null : segments.get(handle);
+        return Objects.isNull(segment) ? -1 : segment.chars;
+    }
+
+    public String getToolName(String handle) {
+        Segment segment = Objects.isNull(handle) ? null : segments.get(handle);
+        return Objects.isNull(segment) ? null : segment.toolName;
+    }
+
+    /**
+     * 请求结束时关闭并删除临时文件
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        segments.clear();
+        if (Objects.nonNull(channel)) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("close observation store {} failed", path, e);
+            }
+        }
+    }
+
+    private static class Segment {
+        private final String toolName;
+        private final long offset;
+        private final int chars;
+
+        Segment(String toolName, long offset, int chars) {
+            this.toolName = toolName;
+            this.offset = offset;
+            this.chars = chars;
+        }
+    }
+}
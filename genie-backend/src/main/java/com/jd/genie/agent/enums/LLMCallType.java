@@ -0,0 +1,13 @@
+package com.jd.genie.agent.enums;
+
+/**
+ * LLM 调用场景枚举，用于模型路由
+ */
+public enum LLMCallType {
+    PLAN,               // 首次规划
+    PLAN_UPDATE,        // 规划更新（mark_step 等）
+    EXECUTOR,           // 任务执行
+    REACT,              // ReAct 执行
+    SUMMARY,            // 结果总结
+    DIGITAL_EMPLOYEE    // 数字员工命名
+}
@@ -11,6 +11,9 @@ import com.jd.genie.agent.dto.Message;
 import com.jd.genie.agent.dto.tool.McpToolInfo;
 import com.jd.genie.agent.dto.tool.ToolCall;
 import com.jd.genie.agent.dto.tool.ToolChoice;
+import com.jd.genie.agent.enums.LLMCallType;
+import com.jd.genie.agent.printer.StreamFlushConfig;
+import com.jd.genie.agent.printer.StreamFlushPolicy;
 import com.jd.genie.agent.tool.BaseTool;
 import com.jd.genie.agent.tool.ToolCollection;
 import com.jd.genie.agent.util.SpringContextHolder;
@@ -43,6 +46,7 @@ import java.util.regex.Pattern;
 public class LLM {
     private static final Map<String, LLM> instances = new ConcurrentHashMap<>();
 
+    private final String modelName;
     private final String model;
     private final String llmErp;
     private final int maxTokens;
@@ -57,9 +61,17 @@ public class LLM {
 
     private int totalInputTokens;
     private Integer maxInputTokens;
+    // 调用场景，非空时由 ModelRouter 选择实际模型
+    private LLMCallType callType;
 
     public LLM(String modelName, String llmErp) {
+        this(modelName, llmErp, null);
+    }
+
+    public LLM(String modelName, String llmErp, LLMCallType callType) {
+        this.modelName = modelName;
         this.llmErp = llmErp;
+        this.callType = callType;
 
         LLMSettings config = Config.getLLMConfig(modelName);
         this.model = config.getModel();
@@ -200,6 +212,36 @@ public class LLM {
         return truncatedMessages;
     }
 
+    /**
+     * 以指定调用场景创建 LLM，用于同一 agent 内的轻量调用
+     */
+    public LLM withCallType(LLMCallType callType) {
+        return new LLM(modelName, llmErp, callType);
+    }
+
+    /**
+     * 估算本次调用的输入 token 数
+     */
+    private int estimatePromptTokens(List<Message> messages, List<Message> systemMsgs) {
+        int tokens = 0;
+        for (Message message : messages) {
+            tokens += tokenCounter.countText(message.getContent());
+        }
+        if (Objects.nonNull(systemMsgs)) {
+            for (Message message : systemMsgs) {
+                tokens += tokenCounter.countText(message.getContent());
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 路由到实际调用的模型
+     */
+    private LLM routeTarget(ModelRouter.RouteDecision decision) {
+        return decision.isRouted() ? new LLM(decision.getModel(), llmErp) : this;
+    }
+
     /**
      * 向 LLM 发送请求并获取响应
      */
@@ -209,6 +251,22 @@ public class LLM {
             List<Message> systemMsgs,
             boolean stream,
             Double temperature
+    ) {
+        if (Objects.isNull(callType)) {
+            return doAsk(context, messages, systemMsgs, stream, temperature);
+        }
+        ModelRouter.RouteDecision decision = ModelRouter.route(context, callType, modelName, estimatePromptTokens(messages, systemMsgs));
+        return ModelRouter.track(decision,
+                routeTarget(decision).doAsk(context, messages, systemMsgs, stream, temperature),
+                tokenCounter::countText);
+    }
+
+    private CompletableFuture<String> doAsk(
+            AgentContext context,
+            List<Message> messages,
+            List<Message> systemMsgs,
+            boolean stream,
+            Double temperature
     ) {
         try {
             List<Map<String, Object>> formattedMessages;
@@ -366,6 +424,26 @@ public class LLM {
             Double temperature,
             boolean stream,
             int timeout
+    ) {
+        if (Objects.isNull(callType)) {
+            return doAskTool(context, messages, systemMsgs, tools, toolChoice, temperature, stream, timeout);
+        }
+        ModelRouter.RouteDecision decision = ModelRouter.route(context, callType, modelName,
+                estimatePromptTokens(messages, Objects.nonNull(systemMsgs) ? Collections.singletonList(systemMsgs) : null));
+        return ModelRouter.track(decision,
+                routeTarget(decision).doAskTool(context, messages, systemMsgs, tools, toolChoice, temperature, stream, timeout),
+                response -> tokenCounter.countText(response.getContent()));
+    }
+
+    private CompletableFuture<ToolCallResponse> doAskTool(
+            AgentContext context,
+            List<Message> messages,
+            Message systemMsgs,
+            ToolCollection tools,
+            ToolChoice toolChoice,
+            Double temperature,
+            boolean stream,
+            int timeout
     ) {
         try {
             // 验证 toolChoice
@@ -631,10 +709,10 @@ public class LLM {
             requestBuilder.addHeader("Authorization", "Bearer " + apiKey);
             Request request = requestBuilder.build();
 
-            GenieConfig genieConfig = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class);
-            String[] interval = genieConfig.getMessageInterval().getOrDefault("llm", "1,3").split(",");
-            int firstInterval = "struct_parse".equals(functionCallType) ? Math.max(3, Integer.parseInt(interval[0])) : Integer.parseInt(interval[0]);
-            int sendInterval = Integer.parseInt(interval[1]);
+            // struct_parse 模式首个增量不立即输出，避免 json 开头被当作正文推送
+            StreamFlushConfig flushConfig = StreamFlushPolicy.getConfig("llm");
+            StreamFlushPolicy flushPolicy = new StreamFlushPolicy(flushConfig.getMaxDelayMs(), flushConfig.getMaxBytes(),
+                    flushConfig.getFlushFirst() && !"struct_parse".equals(functionCallType));
 
             client.newCall(request).enqueue(new Callback() {
                 @Override
@@ -656,7 +734,6 @@ public class LLM {
                         String messageId = StringUtil.getUUID();
                         StringBuilder stringBuilder = new StringBuilder();
                         StringBuilder stringBuilderAll = new StringBuilder();
-                        int index = 1;
                         Map<Integer, OpenAIToolCall> openToolCallsMap = new HashMap<>();
                         String line;
                         BufferedReader reader = new BufferedReader(
@@ -691,11 +768,11 @@ public class LLM {
                                                         isContent = false;
                                                     }
                                                 }
-                                                if (index == firstInterval || index % sendInterval == 0) {
+                                                if (flushPolicy.append(content)) {
                                                     context.getPrinter().send(messageId, context.getStreamMessageType(), stringBuilder.toString(), false);
                                                     stringBuilder.setLength(0);
+                                                    flushPolicy.flushed();
                                                 }
-                                                index++;
                                             }
                                             // tool call
                                             if (Objects.nonNull(choice.delta.tool_calls)) {
@@ -823,10 +900,10 @@ public class LLM {
             requestBuilder.addHeader("Authorization", "Bearer " + apiKey);
             Request request = requestBuilder.build();
 
-            GenieConfig genieConfig = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class);
-            String[] interval = genieConfig.getMessageInterval().getOrDefault("llm", "1,3").split(",");
-            int firstInterval = "struct_parse".equals(functionCallType) ? Math.max(3, Integer.parseInt(interval[0])) : Integer.parseInt(interval[0]);
-            int sendInterval = Integer.parseInt(interval[1]);
+            // struct_parse 模式首个增量不立即输出，避免 json 开头被当作正文推送
+            StreamFlushConfig flushConfig = StreamFlushPolicy.getConfig("llm");
+            StreamFlushPolicy flushPolicy = new StreamFlushPolicy(flushConfig.getMaxDelayMs(), flushConfig.getMaxBytes(),
+                    flushConfig.getFlushFirst() && !"struct_parse".equals(functionCallType));
 
             client.newCall(request).enqueue(new Callback() {
                 @Override
@@ -850,7 +927,6 @@ public class LLM {
                         StringBuilder stringBuilderAll = new StringBuilder();
                         StringBuilder stringBuilderTool = new StringBuilder();
 
-                        Integer index = 1;
                         Map<Integer, OpenAIToolCall> openToolCallsMap = new HashMap<>();
                         String line;
                         BufferedReader reader = new BufferedReader(
@@ -893,11 +969,11 @@ public class LLM {
                                                 isContent = false;
                                             }
                                         }
-                                        if (index == firstInterval || index % sendInterval == 0) {
+                                        if (flushPolicy.append(content)) {
                                             context.getPrinter().send(messageId, context.getStreamMessageType(), stringBuilder.toString(), false);
                                             stringBuilder.setLength(0);
+                                            flushPolicy.flushed();
                                         }
-                                        index++;
                                     }
                                     // tool call
                                     if ("input_json_delta".equals(claudeResponse.delta.type)) {
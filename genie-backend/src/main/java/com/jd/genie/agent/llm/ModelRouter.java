@@ -0,0 +1,185 @@
+package com.jd.genie.agent.llm;
+
+import com.jd.genie.agent.agent.AgentContext;
+import com.jd.genie.agent.enums.LLMCallType;
+import com.jd.genie.agent.util.SpringContextHolder;
+import com.jd.genie.config.GenieConfig;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 模型路由
+ * 根据调用场景、输入大小、剩余时间、模型并发数选择实际调用的模型，并记录路由结果
+ */
+@Slf4j
+public class ModelRouter {
+    /**
+     * 每个模型当前的并发请求数
+     */
+    private static final Map<String, AtomicInteger> inflight = new ConcurrentHashMap<>();
+
+    /**
+     * 路由统计，key 为 callType:model
+     */
+    private static final Map<String, RouteStats> stats = new ConcurrentHashMap<>();
+
+    private ModelRouter() {
+    }
+
+    /**
+     * 选择模型
+     */
+    public static RouteDecision route(AgentContext context, LLMCallType callType, String defaultModel, int promptTokens) {
+        long remainingMs = Objects.nonNull(context) && Objects.nonNull(context.getDeadline())
+                ? context.getDeadline() - System.currentTimeMillis() : Long.MAX_VALUE;
+        String model = defaultModel;
+        String reason = "default";
+        for (RoutingPolicy policy : getPolicies()) {
+            if (matches(policy, callType, defaultModel, promptTokens, remainingMs)) {
+                model = policy.getModel();
+                reason = "policy:" + policy.getCallType();
+                break;
+            }
+        }
+        RouteDecision decision = RouteDecision.builder()
+                .requestId(Objects.nonNull(context) ? context.getRequestId() : "")
+                .callType(callType)
+                .defaultModel(defaultModel)
+                .model(model)
+                .reason(reason)
+                .promptTokens(promptTokens)
+                .remainingMs(remainingMs)
+                .build();
+        log.info("{} llm route callType:{} promptTokens:{} remainingMs:{} model:{} -> {} ({})", decision.getRequestId(),
+                callType, promptTokens, remainingMs == Long.MAX_VALUE ? -1 : remainingMs, defaultModel, model, reason);
+        return decision;
+    }
+
+    /**
+     * 跟踪一次调用，结束后记录耗时与 token 消耗
+     */
+    public static <T> CompletableFuture<T> track(RouteDecision decision, CompletableFuture<T> future, Function<T, Integer> tokenCounter) {
+        AtomicInteger counter = inflight.computeIfAbsent(decision.getModel(), k -> new AtomicInteger());
+        counter.incrementAndGet();
+        long startTime = System.currentTimeMillis();
+        return future.whenComplete((result, error) -> {
+            counter.decrementAndGet();
+            long latency = System.currentTimeMillis() - startTime;
+            int tokens = decision.getPromptTokens();
+            if (Objects.isNull(error) && Objects.nonNull(result)) {
+                Integer outputTokens = tokenCounter.apply(result);
+                tokens += Objects.nonNull(outputTokens) ? outputTokens : 0;
+            }
+            stats.computeIfAbsent(decision.getCallType() + ":" + decision.getModel(), k -> new RouteStats())
+                    .record(latency, tokens, Objects.isNull(error));
+            log.info("{} llm route outcome callType:{} model:{} latency:{}ms tokens:{} success:{}", decision.getRequestId(),
+                    decision.getCallType(), decision.getModel(), latency, tokens, Objects.isNull(error));
+        });
+    }
+
+    /**
+     * 获取路由统计快照
+     */
+    public static Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> snapshot = new HashMap<>();
+        stats.forEach((key, value) -> snapshot.put(key, value.snapshot()));
+        return snapshot;
+    }
+
+    /**
+     * 获取模型当前并发数
+     */
+    public static int getInflight(String model) {
+        AtomicInteger counter = inflight.get(model);
+        return Objects.nonNull(counter) ? counter.get() : 0;
+    }
+
+    private static boolean matches(RoutingPolicy policy, LLMCallType callType, String defaultModel, int promptTokens, long remainingMs) {
+        if (StringUtils.isEmpty(policy.getModel()) || policy.getModel().equals(defaultModel)) {
+            return false;
+        }
+        if (StringUtils.isNotEmpty(policy.getCallType()) && !policy.getCallType().equalsIgnoreCase(callType.name())) {
+            return false;
+        }
+        if (Objects.nonNull(policy.getMaxPromptTokens()) && promptTokens > policy.getMaxPromptTokens()) {
+            return false;
+        }
+        if (Objects.nonNull(policy.getMaxRemainingMs()) && remainingMs > policy.getMaxRemainingMs()) {
+            return false;
+        }
+        if (Objects.nonNull(policy.getMinDefaultInflight()) && getInflight(defaultModel) < policy.getMinDefaultInflight()) {
+            return false;
+        }
+        return Objects.isNull(policy.getMaxInflight()) || getInflight(policy.getModel()) < policy.getMaxInflight();
+    }
+
+    private static List<RoutingPolicy> getPolicies() {
+        GenieConfig genieConfig = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class);
+        return Objects.nonNull(genieConfig.getLlmRoutingPolicies()) ? genieConfig.getLlmRoutingPolicies() : Collections.emptyList();
+    }
+
+    /**
+     * 路由决策
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RouteDecision {
+        private String requestId;
+        private LLMCallType callType;
+        private String defaultModel;
+        private String model;
+        private String reason;
+        private int promptTokens;
+        private long remainingMs;
+
+        public boolean isRouted() {
+            return !model.equals(defaultModel);
+        }
+    }
+
+    /**
+     * 路由统计
+     */
+    private static class RouteStats {
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalLatency = new AtomicLong();
+        private final AtomicLong totalTokens = new AtomicLong();
+
+        void record(long latency, int tokens, boolean success) {
+            calls.incrementAndGet();
+            totalLatency.addAndGet(latency);
+            totalTokens.addAndGet(tokens);
+            if (!success) {
+                failures.incrementAndGet();
+            }
+        }
+
+        Map<String, Long> snapshot() {
+            Map<String, Long> map = new HashMap<>();
+            long count = calls.get();
+            map.put("calls", count);
+            map.put("failures", failures.get());
+            map.put("totalTokens", totalTokens.get());
+            map.put("avgLatency", count == 0 ? 0 : totalLatency.get() / count);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.jd.genie.agent.llm;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 模型路由策略，按配置顺序匹配，命中第一条即生效
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoutingPolicy {
+    /**
+     * 调用场景，对应 LLMCallType，为空表示匹配所有场景
+     */
+    private String callType;
+
+    /**
+     * 路由目标模型，对应 llm.settings 中的 key
+     */
+    private String model;
+
+    /**
+     * 输入 token 上限，超过则不命中，为空表示不限制
+     */
+    private Integer maxPromptTokens;
+
+    /**
+     * 请求剩余时间低于该值（毫秒）时才命中，为空表示不限制
+     */
+    private Long maxRemainingMs;
+
+    /**
+     * 默认模型并发数达到该值时才命中，为空表示不限制
+     */
+    private Integer minDefaultInflight;
+
+    /**
+     * 目标模型并发上限，达到后不再路由到该模型，为空表示不限制
+     */
+    private Integer maxInflight;
+}
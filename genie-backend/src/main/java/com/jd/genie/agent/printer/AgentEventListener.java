@@ -0,0 +1,17 @@
+package com.jd.genie.agent.printer;
+
+import com.jd.genie.model.response.AgentResponse;
+
+/**
+ * agent 输出事件订阅方，回调在 agent 线程中执行，耗时操作需自行异步
+ */
+public interface AgentEventListener {
+
+    void onEvent(AgentResponse response);
+
+    /**
+     * agent 输出结束
+     */
+    default void onClose() {
+    }
+}
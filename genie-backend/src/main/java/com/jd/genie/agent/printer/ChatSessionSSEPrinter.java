@@ -3,7 +3,6 @@ package com.jd.genie.agent.printer;
 import com.jd.genie.model.req.AgentRequest;
 import com.jd.genie.service.ChatSessionService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Slf4j
 public class ChatSessionSSEPrinter extends SSEPrinter {
@@ -12,8 +11,8 @@ public class ChatSessionSSEPrinter extends SSEPrinter {
     private final StringBuilder responseContent;
     private final String sessionId;
     
-    public ChatSessionSSEPrinter(SseEmitter emitter, AgentRequest request, Integer agentType, ChatSessionService chatSessionService) {
-        super(emitter, request, agentType);
+    public ChatSessionSSEPrinter(SseStreamSession session, AgentRequest request, Integer agentType, ChatSessionService chatSessionService) {
+        super(session, request, agentType);
         this.chatSessionService = chatSessionService;
         this.responseContent = new StringBuilder();
         this.sessionId = request.getSessionId();
@@ -51,6 +50,8 @@ public class ChatSessionSSEPrinter extends SSEPrinter {
             if (responseContent.length() > 0 && sessionId != null) {
                 String finalResponse = responseContent.toString().trim();
                 if (!finalResponse.isEmpty()) {
+                    // 先清空，避免 close 时重复保存；确认超时时消息已在写入队列中，同样不能再保存一次
+                    responseContent.setLength(0);
                     chatSessionService.saveAssistantMessage(sessionId, finalResponse);
                     log.info("Assistant response saved to session: {}", sessionId);
                 }
@@ -0,0 +1,176 @@
+package com.jd.genie.agent.printer;
+
+import com.alibaba.fastjson.JSON;
+import com.jd.genie.agent.enums.AgentType;
+import com.jd.genie.agent.util.StringUtil;
+import com.jd.genie.model.req.AgentRequest;
+import com.jd.genie.model.response.AgentResponse;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.BeanUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内事件输出：每条消息只构建一次 AgentResponse，依次交给订阅方处理，
+ * SSE 输出、多智能体增量协议等均作为订阅方接入，无需序列化或网络往返
+ */
+@Slf4j
+@Setter
+public class EventPrinter implements Printer {
+    protected AgentRequest request;
+    protected Integer agentType;
+    private final List<AgentEventListener> listeners = new CopyOnWriteArrayList<>();
+
+    public EventPrinter(AgentRequest request, Integer agentType) {
+        this.request = request;
+        this.agentType = agentType;
+    }
+
+    /**
+     * 订阅事件，按订阅顺序回调
+     */
+    public void subscribe(AgentEventListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void send(String messageId, String messageType, Object message, String digitalEmployee, Boolean isFinal) {
+        try {
+            if (Objects.isNull(messageId)) {
+                messageId = StringUtil.getUUID();
+            }
+            log.debug("{} event send {} {} {}", request.getRequestId(), messageType, message, digitalEmployee);
+            boolean finish = "result".equals(messageType) || "error".equals(messageType);
+            Map<String, Object> resultMap = new HashMap<>();
+            resultMap.put("agentType", agentType);
+            AgentResponse response = AgentResponse.builder()
+                    .requestId(request.getRequestId())
+                    .messageId(messageId)
+                    .messageType(messageType)
+                    .messageTime(String.valueOf(System.currentTimeMillis()))
+                    .resultMap(resultMap)
+                    .finish(finish)
+                    .isFinal(isFinal)
+                    .build();
+            if (!StringUtils.isEmpty(digitalEmployee)) {
+                response.setDigitalEmployee(digitalEmployee);
+            }
+            switch (messageType) {
+                case "tool_thought":
+                    response.setToolThought((String) message);
+                    break;
+                case "task":
+                    response.setTask(((String) message).replaceAll("^执行顺序(\\d+)\\.\\s?", ""));
+                    break;
+                case "task_summary":
+                    if (message instanceof Map) {
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> taskSummary = (Map<String, Object>) message;
+                        Object summary = taskSummary.get("taskSummary");
+                        response.setResultMap(taskSummary);
+                        response.setTaskSummary(summary != null ? summary.toString() : null);
+                    } else {
+                        log.error("ssePrinter task_summary format is illegal");
+                    }
+                    break;
+                case "plan_thought":
+                    response.setPlanThought((String) message);
+                    break;
+                case "plan":
+                    AgentResponse.Plan plan = new AgentResponse.Plan();
+                    BeanUtils.copyProperties(message, plan);
+                    response.setPlan(AgentResponse.formatSteps(plan));
+                    break;
+                case "tool_result":
+                    response.setToolResult((AgentResponse.ToolResult) message);
+                    break;
+                case "browser":
+                case "code":
+                case "html":
+                case "markdown":
+                case "ppt":
+                case "file":
+                case "knowledge":
+                case "deep_search":
+                    response.setResultMap(JSON.parseObject(JSON.toJSONString(message)));
+                    response.getResultMap().put("agentType", agentType);
+                    break;
+                case "agent_stream":
+                case "status":
+                case "error":
+                    response.setResult((String) message);
+                    break;
+                case "result":
+                    if (message instanceof String) {
+                        response.setResult((String) message);
+                    } else if (message instanceof Map) {
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> taskResult = (Map<String, Object>) message;
+                        Object summary = taskResult.get("taskSummary");
+                        response.setResultMap(taskResult);
+                        response.setResult(summary != null ? summary.toString() : null);
+                    } else {
+                        Map<String, Object> taskResult = JSON.parseObject(JSON.toJSONString(message));
+                        response.setResultMap(taskResult);
+                        response.setResult(taskResult.get("taskSummary").toString());
+                    }
+                    response.getResultMap().put("agentType", agentType);
+                    break;
+                default:
+                    break;
+            }
+
+            publish(response);
+
+        } catch (Exception e) {
+            log.error("{} event send error ", request.getRequestId(), e);
+        }
+    }
+
+    @Override
+    public void send(String messageType, Object message, String digitalEmployee) {
+        send(null, messageType, message, digitalEmployee, true);
+    }
+
+    @Override
+    public void send(String messageType, Object message) {
+        send(null, messageType, message, null, true);
+    }
+
+    @Override
+    public void send(String messageId, String messageType, Object message, Boolean isFinal) {
+        send(messageId, messageType, message, null, isFinal);
+    }
+
+    @Override
+    public void close() {
+        for (AgentEventListener listener : listeners) {
+            try {
+                listener.onClose();
+            } catch (Exception e) {
+                log.error("{} event listener close error", request.getRequestId(), e);
+            }
+        }
+    }
+
+    @Override
+    public void updateAgentType(AgentType agentType) {
+        this.agentType = agentType.getValue();
+    }
+
+    private void publish(AgentResponse response) {
+        for (AgentEventListener listener : listeners) {
+            try {
+                listener.onEvent(response);
+            } catch (Exception e) {
+                log.error("{} event listener error", request.getRequestId(), e);
+            }
+        }
+    }
+}
\ No newline at end of file
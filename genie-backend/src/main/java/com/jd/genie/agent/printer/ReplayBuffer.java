@@ -0,0 +1,214 @@
+package com.jd.genie.agent.printer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * SSE 事件回放缓冲 - 请求级
+ * 1、每个事件分配单调递增的 id，编码为带 id 的完整 SSE 帧
+ * 2、最近的事件保存在内存环形数组中，超出帧数或字节上限的旧事件溢出到临时文件
+ * 3、溢出文件超过上限时整体丢弃，只保留内存中的事件
+ */
+@Slf4j
+public class ReplayBuffer implements AutoCloseable {
+    private final int maxFrames;
+    private final long maxMemoryBytes;
+    private final long maxSpillBytes;
+    private final Path spillDir;
+
+    // 内存中保存 id 区间 [memoryFirstId, nextId)，下标为 id % maxFrames
+    private final byte[][] ring;
+    private long memoryFirstId = 1;
+    private long memoryBytes = 0;
+    private long nextId = 1;
+
+    // 溢出文件保存 id 区间 [spillFirstId, memoryFirstId)，offsets[i] 为 spillFirstId + i 的起始位置
+    private Path spillPath;
+    private FileChannel spill;
+    private long spillFirstId = 1;
+    private long[] offsets = new long[64];
+    private int spillCount = 0;
+    private long spillEnd = 0;
+    private boolean closed = false;
+
+    public ReplayBuffer(int maxFrames, long maxMemoryBytes, long maxSpillBytes, Path spillDir) {
+        this.maxFrames = Math.max(maxFrames, 1);
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxSpillBytes = maxSpillBytes;
+        this.spillDir = spillDir;
+        this.ring = new byte[this.maxFrames][];
+    }
+
+    /**
+     * 追加一帧 data 数据（"data:...\n\n"），返回分配的事件 id
+     */
+    public synchronized long append(byte[] dataFrame) {
+        long id = nextId++;
+        byte[] frame = withId(id, dataFrame);
+        if (closed) {
+            return id;
+        }
+        while (nextId - 1 - memoryFirstId >= maxFrames || (memoryFirstId < id && memoryBytes + frame.length > maxMemoryBytes)) {
+            evictOldest();
+        }
+        ring[(int) (id % maxFrames)] = frame;
+        memoryBytes += frame.length;
+        return id;
+    }
+
+    /**
+     * 读取 id 大于 afterId 的事件，最多 max 条；早于最早可用事件的部分跳过
+     */
+    public synchronized List<Frame> read(long afterId, int max) {
+        List<Frame> frames = new ArrayList<>();
+        if (closed) {
+            return frames;
+        }
+        long id = Math.max(afterId + 1, spillCount > 0 ? spillFirstId : memoryFirstId);
+        while (id < nextId && frames.size() < max) {
+            byte[] frame = id < memoryFirstId ? readSpilled(id) : ring[(int) (id % maxFrames)];
+            if (Objects.isNull(frame)) {
+                // 溢出文件读取失败，从内存部分继续
+                id = memoryFirstId;
+                continue;
+            }
+            frames.add(new Frame(id, frame));
+            id++;
+        }
+        return frames;
+    }
+
+    /**
+     * 最后分配的事件 id，尚无事件时为 0
+     */
+    public synchronized long lastId() {
+        return nextId - 1;
+    }
+
+    public synchronized long getSpillBytes() {
+        return spillEnd;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        Arrays.fill(ring, null);
+        memoryBytes = 0;
+        resetSpill();
+    }
+
+    /**
+     * 内存中最旧的一帧移入溢出文件
+     */
+    private void evictOldest() {
+        int slot = (int) (memoryFirstId % maxFrames);
+        byte[] frame = ring[slot];
+        ring[slot] = null;
+        memoryFirstId++;
+        if (Objects.isNull(frame)) {
+            return;
+        }
+        memoryBytes -= frame.length;
+        try {
+            if (spillEnd + frame.length > maxSpillBytes) {
+                // 溢出文件已满，丢弃已溢出的全部事件
+                resetSpill();
+            }
+            if (Objects.isNull(spill)) {
+                spillPath = Files.createTempFile(spillDir, "sse-replay-", ".bin");
+                spill = FileChannel.open(spillPath, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            if (spillCount == 0) {
+                spillFirstId = memoryFirstId - 1;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(frame);
+            long position = spillEnd;
+            while (buffer.hasRemaining()) {
+                position += spill.write(buffer, position);
+            }
+            if (spillCount == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[spillCount++] = spillEnd;
+            spillEnd = position;
+        } catch (IOException e) {
+            log.warn("sse replay spill failed, drop spilled frames: {}", e.getMessage());
+            resetSpill();
+        }
+    }
+
+    private byte[] readSpilled(long id) {
+        int index = (int) (id - spillFirstId);
+        long start = offsets[index];
+        long end = index + 1 < spillCount ? offsets[index + 1] : spillEnd;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        try {
+            long position = start;
+            while (buffer.hasRemaining()) {
+                int read = spill.read(buffer, position);
+                if (read < 0) {
+                    return null;
+                }
+                position += read;
+            }
+            return buffer.array();
+        } catch (IOException e) {
+            log.warn("sse replay read spilled frame {} failed: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    private void resetSpill() {
+        if (Objects.nonNull(spill)) {
+            try {
+                spill.close();
+            } catch (IOException e) {
+                log.warn("close sse replay spill {} failed", spillPath, e);
+            }
+        }
+        spill = null;
+        spillPath = null;
+        spillCount = 0;
+        spillEnd = 0;
+        spillFirstId = memoryFirstId;
+    }
+
+    private static byte[] withId(long id, byte[] dataFrame) {
+        byte[] prefix = ("id:" + id + "\n").getBytes(StandardCharsets.UTF_8);
+        byte[] frame = Arrays.copyOf(prefix, prefix.length + dataFrame.length);
+        System.arraycopy(dataFrame, 0, frame, prefix.length, dataFrame.length);
+        return frame;
+    }
+
+    /**
+     * 带 id 的完整 SSE 帧
+     */
+    public static class Frame {
+        private final long id;
+        private final byte[] bytes;
+
+        Frame(long id, byte[] bytes) {
+            this.id = id;
+            this.bytes = bytes;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+    }
+}
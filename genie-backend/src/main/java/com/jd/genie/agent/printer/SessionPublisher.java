@@ -0,0 +1,75 @@
+package com.jd.genie.agent.printer;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 输出会话的 Flow 发布者，按订阅方的 request(n) 从回放缓冲读取，无需求时不读取也不占用发送线程
+ */
+public class SessionPublisher implements Flow.Publisher<ReplayBuffer.Frame> {
+    private final SseStreamSession session;
+    private final long lastEventId;
+
+    public SessionPublisher(SseStreamSession session, long lastEventId) {
+        this.session = session;
+        this.lastEventId = lastEventId;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ReplayBuffer.Frame> subscriber) {
+        Objects.requireNonNull(subscriber);
+        FlowSink sink = new FlowSink(subscriber);
+        subscriber.onSubscribe(sink);
+        session.attach(sink, lastEventId);
+    }
+
+    private class FlowSink implements StreamSink, Flow.Subscription {
+        private final Flow.Subscriber<? super ReplayBuffer.Frame> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private volatile boolean cancelled = false;
+
+        FlowSink(Flow.Subscriber<? super ReplayBuffer.Frame> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void send(ReplayBuffer.Frame frame) {
+            demand.decrementAndGet();
+            subscriber.onNext(frame);
+        }
+
+        @Override
+        public boolean writable() {
+            return !cancelled && demand.get() > 0;
+        }
+
+        @Override
+        public void complete() {
+            if (!cancelled) {
+                cancelled = true;
+                subscriber.onComplete();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (cancelled) {
+                return;
+            }
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("request must be positive: " + n));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            session.wake(this);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            session.detach(this);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.jd.genie.agent.printer;
+
+import com.jd.genie.agent.util.SpringContextHolder;
+import com.jd.genie.config.GenieConfig;
+import com.jd.genie.util.EncodedSseEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个请求的 SSE 输出会话
+ * 事件先写入回放缓冲，每个连接（首次连接、断线重连或 WebSocket 通道）按各自游标从缓冲读取发送，
+ * 连接断开不影响任务继续执行，重连时携带 Last-Event-ID 从断点续传
+ */
+@Slf4j
+public class SseStreamSession {
+    private static final int READ_BATCH = 64;
+    private static volatile ExecutorService senders;
+
+    private final String requestId;
+    private final String owner;
+    private final ReplayBuffer buffer;
+    private final long createdAt = System.currentTimeMillis();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private volatile long finishedAt = 0;
+
+    public SseStreamSession(String requestId, String owner, ReplayBuffer buffer) {
+        this.requestId = requestId;
+        this.owner = owner;
+        this.buffer = buffer;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * 发布一帧 data 数据，返回事件 id
+     */
+    public long publish(byte[] dataFrame) {
+        long id = buffer.append(dataFrame);
+        subscribers.forEach(Subscriber::schedule);
+        return id;
+    }
+
+    /**
+     * 任务输出结束，连接追上最后一个事件后关闭
+     */
+    public void finish() {
+        finishedAt = System.currentTimeMillis();
+        subscribers.forEach(Subscriber::schedule);
+    }
+
+    public boolean isFinished() {
+        return finishedAt > 0;
+    }
+
+    /**
+     * 挂载 SSE 连接，从 lastEventId 之后开始发送
+     */
+    public void attach(SseEmitter emitter, long lastEventId) {
+        attach(new EmitterSink(emitter), lastEventId);
+    }
+
+    /**
+     * 挂载下游连接，从 lastEventId 之后开始发送
+     */
+    public void attach(StreamSink sink, long lastEventId) {
+        Subscriber subscriber = new Subscriber(sink, lastEventId);
+        subscribers.add(subscriber);
+        subscriber.schedule();
+    }
+
+    public void detach(SseEmitter emitter) {
+        subscribers.removeIf(subscriber -> subscriber.sink instanceof EmitterSink
+                && ((EmitterSink) subscriber.sink).emitter == emitter);
+    }
+
+    public void detach(StreamSink sink) {
+        subscribers.removeIf(subscriber -> subscriber.sink == sink);
+    }
+
+    /**
+     * 连接空闲时发送保活帧，由该连接的发送任务写出，调用方不做 IO
+     */
+    public void heartbeat(SseEmitter emitter) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.sink instanceof EmitterSink && ((EmitterSink) subscriber.sink).emitter == emitter) {
+                subscriber.heartbeat();
+            }
+        }
+    }
+
+    /**
+     * 下游恢复可写，继续发送
+     */
+    public void wake(StreamSink sink) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.sink == sink) {
+                subscriber.schedule();
+            }
+        }
+    }
+
+    public long getLastId() {
+        return buffer.lastId();
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getSpillBytes() {
+        return buffer.getSpillBytes();
+    }
+
+    /**
+     * 结束后超过宽限期，或存活超过最长时间
+     */
+    public boolean isExpired(long now, long graceMs, long maxAgeMs) {
+        return (finishedAt > 0 && now - finishedAt > graceMs) || now - createdAt > maxAgeMs;
+    }
+
+    /**
+     * 释放缓冲，仍挂载的连接直接结束
+     */
+    public void close() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.completeQuietly();
+        }
+        subscribers.clear();
+        buffer.close();
+    }
+
+    /**
+     * 所有连接共用的定长发送线程池，每个连接至多一个排队任务，队列长度不超过连接数
+     */
+    private static ExecutorService getSenders() {
+        if (Objects.isNull(senders)) {
+            synchronized (SseStreamSession.class) {
+                if (Objects.isNull(senders)) {
+                    int threads = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class).getSseSenderThreads();
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                            new BasicThreadFactory.Builder().namingPattern("sse-writer-%d").daemon(true).build());
+                    executor.allowCoreThreadTimeOut(true);
+                    senders = executor;
+                }
+            }
+        }
+        return senders;
+    }
+
+    /**
+     * SSE 连接
+     */
+    private static class EmitterSink implements StreamSink {
+        private static final EncodedSseEvent HEARTBEAT = EncodedSseEvent.of("data:heartbeat\n\n".getBytes(StandardCharsets.UTF_8));
+
+        private final SseEmitter emitter;
+
+        EmitterSink(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void send(ReplayBuffer.Frame frame) throws Exception {
+            emitter.send(EncodedSseEvent.of(frame.getBytes()));
+        }
+
+        @Override
+        public void heartbeat() throws Exception {
+            emitter.send(HEARTBEAT);
+        }
+
+        @Override
+        public void complete() {
+            emitter.complete();
+        }
+    }
+
+    /**
+     * 单个连接，同一时间至多一个发送任务
+     */
+    private class Subscriber {
+        private final StreamSink sink;
+        private long cursor;
+        private boolean draining = false;
+        private boolean pending = false;
+        private boolean beat = false;
+        private boolean completed = false;
+
+        Subscriber(StreamSink sink, long cursor) {
+            this.sink = sink;
+            this.cursor = cursor;
+        }
+
+        synchronized void schedule() {
+            if (draining) {
+                pending = true;
+                return;
+            }
+            draining = true;
+            getSenders().execute(this::drain);
+        }
+
+        synchronized void heartbeat() {
+            beat = true;
+            schedule();
+        }
+
+        private synchronized boolean takeHeartbeat() {
+            boolean take = beat;
+            beat = false;
+            return take;
+        }
+
+        private void drain() {
+            while (true) {
+                if (takeHeartbeat()) {
+                    try {
+                        sink.heartbeat();
+                    } catch (Exception e) {
+                        detached(e);
+                        return;
+                    }
+                }
+                if (!sink.writable()) {
+                    // 下游积压，暂停读取
+                    synchronized (this) {
+                        if (pending) {
+                            pending = false;
+                            continue;
+                        }
+                        draining = false;
+                        return;
+                    }
+                }
+                List<ReplayBuffer.Frame> frames = buffer.read(cursor, READ_BATCH);
+                if (frames.isEmpty()) {
+                    synchronized (this) {
+                        if (pending) {
+                            pending = false;
+                            continue;
+                        }
+                        draining = false;
+                        if (!isFinished() || cursor < buffer.lastId() || completed) {
+                            return;
+                        }
+                        completed = true;
+                    }
+                    subscribers.remove(this);
+                    completeQuietly();
+                    return;
+                }
+                for (ReplayBuffer.Frame frame : frames) {
+                    try {
+                        sink.send(frame);
+                        cursor = frame.getId();
+                        if (!sink.writable()) {
+                            break;
+                        }
+                    } catch (Exception e) {
+                        detached(e);
+                        return;
+                    }
+                }
+                if (frames.size() == READ_BATCH) {
+                    // 积压较多时每批之后重新排队，让其他连接轮到发送线程，draining 保持为 true
+                    getSenders().execute(this::drain);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 连接已断开，等待客户端重连
+         */
+        private void detached(Exception e) {
+            log.info("{} sse subscriber detached at event {}: {}", requestId, cursor, e.getMessage());
+            synchronized (this) {
+                draining = false;
+                completed = true;
+            }
+            subscribers.remove(this);
+        }
+
+        void completeQuietly() {
+            try {
+                sink.complete();
+            } catch (Exception e) {
+                log.debug("{} sse complete failed", requestId, e);
+            }
+        }
+    }
+}
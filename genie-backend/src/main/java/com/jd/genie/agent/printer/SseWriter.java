@@ -0,0 +1,252 @@
+package com.jd.genie.agent.printer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jd.genie.agent.util.SpringContextHolder;
+import com.jd.genie.config.GenieConfig;
+import com.jd.genie.model.response.AgentResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.springframework.beans.BeanUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 请求级 SSE 输出
+ * 1、agent 线程只入队，序列化在独立线程完成，编码后的帧发布到输出会话，由会话异步写给各连接，慢客户端不阻塞模型解码
+ * 2、同一 messageId 连续的 agent_stream/tool_thought 增量在队列中合并为一帧
+ * 3、队列写满时丢弃增量（最终消息携带完整内容）；其他事件最多积压到容量的两倍，
+ *    超出时视为输出已无法跟上，丢弃积压并结束输出会话
+ */
+@Slf4j
+public class SseWriter implements AgentEventListener {
+    private static final byte[] DATA_PREFIX = "data:".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FRAME_END = "\n\n".getBytes(StandardCharsets.UTF_8);
+
+    // 单次调度最多编码的帧数，之后让出线程，避免持续输出的请求独占编码线程
+    private static final int DRAIN_BATCH = 64;
+
+    private static volatile ExecutorService encoders;
+    private static volatile ObjectMapper objectMapper;
+
+    private static final AtomicLong enqueued = new AtomicLong();
+    private static final AtomicLong coalesced = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final AtomicLong overflowed = new AtomicLong();
+    private static final AtomicLong published = new AtomicLong();
+    private static final AtomicLong publishedBytes = new AtomicLong();
+    private static final AtomicLong encodeErrors = new AtomicLong();
+
+    private final SseStreamSession session;
+    private final String requestId;
+    private final int capacity;
+    // 读写均在 this 锁内
+    private final ArrayDeque<Frame> queue = new ArrayDeque<>();
+    private boolean draining = false;
+    private boolean closing = false;
+    private boolean closed = false;
+
+    public SseWriter(SseStreamSession session) {
+        this.session = session;
+        this.requestId = session.getRequestId();
+        this.capacity = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class).getSseWriterQueueSize();
+    }
+
+    /**
+     * 事件入队，立即返回
+     */
+    @Override
+    public void onEvent(AgentResponse response) {
+        boolean delta = isDelta(response);
+        synchronized (this) {
+            if (closing || closed) {
+                return;
+            }
+            Frame tail = queue.peekLast();
+            if (delta && Objects.nonNull(tail) && tail.accepts(response)) {
+                tail.text.append(deltaText(response));
+                coalesced.incrementAndGet();
+                return;
+            }
+            if (queue.size() >= capacity) {
+                if (delta) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                if (queue.size() >= capacity * 2) {
+                    overflow();
+                    return;
+                }
+            }
+            queue.addLast(new Frame(response, delta));
+            enqueued.incrementAndGet();
+            schedule();
+        }
+    }
+
+    /**
+     * 已入队的事件发布完后结束会话
+     */
+    @Override
+    public synchronized void onClose() {
+        if (closing || closed) {
+            return;
+        }
+        closing = true;
+        schedule();
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enqueued", enqueued.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("dropped", dropped.get());
+        stats.put("overflowed", overflowed.get());
+        stats.put("published", published.get());
+        stats.put("publishedBytes", publishedBytes.get());
+        stats.put("encodeErrors", encodeErrors.get());
+        return stats;
+    }
+
+    /**
+     * 积压超过硬上限：丢弃未发布的事件，已发布的事件发完后结束会话，之后的事件不再入队
+     */
+    private void overflow() {
+        log.warn("{} sse writer overflow, {} queued events dropped, closing stream", requestId, queue.size());
+        overflowed.incrementAndGet();
+        dropped.addAndGet(queue.size() + 1);
+        queue.clear();
+        closing = true;
+        schedule();
+    }
+
+    private void schedule() {
+        if (!draining) {
+            draining = true;
+            getEncoders().execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        for (int n = 0; ; n++) {
+            if (n == DRAIN_BATCH) {
+                // 队列仍有数据，重新排队，draining 保持为 true
+                getEncoders().execute(this::drain);
+                return;
+            }
+            Frame frame;
+            boolean finish = false;
+            synchronized (this) {
+                frame = queue.pollFirst();
+                if (Objects.isNull(frame)) {
+                    draining = false;
+                    if (closing && !closed) {
+                        closed = true;
+                        finish = true;
+                    }
+                }
+            }
+            if (Objects.isNull(frame)) {
+                if (finish) {
+                    session.finish();
+                }
+                return;
+            }
+            try {
+                byte[] bytes = frame.encode();
+                session.publish(bytes);
+                published.incrementAndGet();
+                publishedBytes.addAndGet(bytes.length);
+            } catch (Exception e) {
+                encodeErrors.incrementAndGet();
+                log.error("{} sse encode error", requestId, e);
+            }
+        }
+    }
+
+    private static boolean isDelta(AgentResponse response) {
+        return !Boolean.TRUE.equals(response.getIsFinal())
+                && ("agent_stream".equals(response.getMessageType()) || "tool_thought".equals(response.getMessageType()));
+    }
+
+    private static String deltaText(AgentResponse response) {
+        String text = "tool_thought".equals(response.getMessageType()) ? response.getToolThought() : response.getResult();
+        return Objects.isNull(text) ? "" : text;
+    }
+
+    /**
+     * 所有请求共用的定长编码线程池，每个请求至多一个排队任务，队列长度不超过活跃请求数
+     */
+    private static ExecutorService getEncoders() {
+        if (Objects.isNull(encoders)) {
+            synchronized (SseWriter.class) {
+                if (Objects.isNull(encoders)) {
+                    int threads = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class).getSseEncoderThreads();
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                            new BasicThreadFactory.Builder().namingPattern("sse-encoder-%d").daemon(true).build());
+                    executor.allowCoreThreadTimeOut(true);
+                    encoders = executor;
+                }
+            }
+        }
+        return encoders;
+    }
+
+    private static ObjectMapper getObjectMapper() {
+        if (Objects.isNull(objectMapper)) {
+            // 与 SseEmitter 默认的消息转换器使用同一个 ObjectMapper，保证输出格式一致
+            objectMapper = SpringContextHolder.getApplicationContext().getBeanProvider(ObjectMapper.class).getIfAvailable(ObjectMapper::new);
+        }
+        return objectMapper;
+    }
+
+    /**
+     * 待发送事件，增量事件的文本在出队前可继续追加
+     */
+    private static class Frame {
+        private final AgentResponse response;
+        private final StringBuilder text;
+
+        Frame(AgentResponse response, boolean delta) {
+            this.response = response;
+            this.text = delta ? new StringBuilder(deltaText(response)) : null;
+        }
+
+        boolean accepts(AgentResponse next) {
+            return Objects.nonNull(text)
+                    && Objects.equals(response.getMessageId(), next.getMessageId())
+                    && Objects.equals(response.getMessageType(), next.getMessageType());
+        }
+
+        /**
+         * 合并后的文本写在副本上，入队的事件对象仍被其他监听器持有，不做修改
+         */
+        byte[] encode() throws IOException {
+            AgentResponse payload = response;
+            if (Objects.nonNull(text)) {
+                payload = new AgentResponse();
+                BeanUtils.copyProperties(response, payload);
+                if ("tool_thought".equals(response.getMessageType())) {
+                    payload.setToolThought(text.toString());
+                } else {
+                    payload.setResult(text.toString());
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            out.write(DATA_PREFIX);
+            getObjectMapper().writeValue(out, payload);
+            out.write(FRAME_END);
+            return out.toByteArray();
+        }
+    }
+}
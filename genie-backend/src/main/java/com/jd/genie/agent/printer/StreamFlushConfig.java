@@ -0,0 +1,47 @@
+package com.jd.genie.agent.printer;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 流式输出刷新配置，未配置的字段依次取 default 及内置默认值
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StreamFlushConfig {
+    /**
+     * 距上次刷新的最大延迟（毫秒）
+     */
+    private Long maxDelayMs;
+
+    /**
+     * 缓冲字节数上限，0 表示不限
+     */
+    private Integer maxBytes;
+
+    /**
+     * 首个增量是否立即输出
+     */
+    private Boolean flushFirst;
+
+    static final StreamFlushConfig DEFAULT = StreamFlushConfig.builder()
+            .maxDelayMs(100L)
+            .maxBytes(1024)
+            .flushFirst(true)
+            .build();
+
+    /**
+     * 以 fallback 补齐未配置的字段
+     */
+    StreamFlushConfig merge(StreamFlushConfig fallback) {
+        return StreamFlushConfig.builder()
+                .maxDelayMs(maxDelayMs != null ? maxDelayMs : fallback.maxDelayMs)
+                .maxBytes(maxBytes != null ? maxBytes : fallback.maxBytes)
+                .flushFirst(flushFirst != null ? flushFirst : fallback.flushFirst)
+                .build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.jd.genie.agent.printer;
+
+import com.jd.genie.agent.util.SpringContextHolder;
+import com.jd.genie.config.GenieConfig;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * 流式增量输出的刷新策略，按时间与字节数做微批
+ * 满足以下任一条件即刷新：首个增量（可关闭）、距上次刷新超过最大延迟、缓冲字节数超过上限；
+ * 条件在增量到达时判断，流结束时由调用方输出剩余内容
+ */
+public class StreamFlushPolicy {
+    public static final String DEFAULT_KEY = "default";
+
+    private final long maxDelayMs;
+    private final int maxBytes;
+    private final LongSupplier clock;
+    private boolean pendingFirst;
+    private int bufferedBytes = 0;
+    private long lastFlushTime;
+
+    public StreamFlushPolicy(long maxDelayMs, int maxBytes, boolean flushFirst) {
+        this(maxDelayMs, maxBytes, flushFirst, System::currentTimeMillis);
+    }
+
+    StreamFlushPolicy(long maxDelayMs, int maxBytes, boolean flushFirst, LongSupplier clock) {
+        this.maxDelayMs = maxDelayMs;
+        this.maxBytes = maxBytes;
+        this.pendingFirst = flushFirst;
+        this.clock = clock;
+        this.lastFlushTime = clock.getAsLong();
+    }
+
+    /**
+     * 按流类型（llm、search、report）创建，配置查找顺序：类型、default、内置默认值
+     */
+    public static StreamFlushPolicy of(String streamType) {
+        StreamFlushConfig config = getConfig(streamType);
+        return new StreamFlushPolicy(config.getMaxDelayMs(), config.getMaxBytes(), config.getFlushFirst());
+    }
+
+    public static StreamFlushConfig getConfig(String streamType) {
+        Map<String, StreamFlushConfig> configs = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class).getStreamFlush();
+        StreamFlushConfig config = StreamFlushConfig.DEFAULT;
+        for (String key : new String[]{DEFAULT_KEY, streamType}) {
+            StreamFlushConfig configured = Objects.isNull(key) ? null : configs.get(key);
+            if (Objects.nonNull(configured)) {
+                config = configured.merge(config);
+            }
+        }
+        return config;
+    }
+
+    /**
+     * 记录一个增量，返回是否需要刷新
+     */
+    public boolean append(String delta) {
+        bufferedBytes += utf8Length(delta);
+        if (bufferedBytes == 0) {
+            return false;
+        }
+        return pendingFirst
+                || (maxBytes > 0 && bufferedBytes >= maxBytes)
+                || clock.getAsLong() - lastFlushTime >= maxDelayMs;
+    }
+
+    /**
+     * 记录一次刷新
+     */
+    public void flushed() {
+        pendingFirst = false;
+        bufferedBytes = 0;
+        lastFlushTime = clock.getAsLong();
+    }
+
+    private static int utf8Length(String text) {
+        if (Objects.isNull(text)) {
+            return 0;
+        }
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800 || Character.isSurrogate(c)) {
+                // 代理对两个 char 合计 4 字节
+                bytes += 2;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,30 @@
+package com.jd.genie.agent.printer;
+
+/**
+ * 输出会话的下游连接，SSE 连接与 WebSocket 通道均以此接入
+ */
+public interface StreamSink {
+
+    /**
+     * 发送一帧，帧数据为带 id 的完整 SSE 帧
+     */
+    void send(ReplayBuffer.Frame frame) throws Exception;
+
+    /**
+     * 连接空闲时的保活帧，与数据帧在同一发送任务中串行写出；自带保活机制的下游无需实现
+     */
+    default void heartbeat() throws Exception {
+    }
+
+    /**
+     * 是否可继续发送，返回 false 时暂停读取，待下游调用 {@link SseStreamSession#wake(StreamSink)} 后继续
+     */
+    default boolean writable() {
+        return true;
+    }
+
+    /**
+     * 已追上最后一个事件且任务结束
+     */
+    void complete();
+}
@@ -1,5 +1,7 @@
 package com.jd.genie.agent.tool;
 
+import com.jd.genie.agent.agent.AgentContext;
+
 import java.util.Map;
 
 /**
@@ -13,4 +15,18 @@ public interface BaseTool {
     Map<String, Object> toParams();
 
     Object execute(Object input);
+
+    /**
+     * 绑定到任务级上下文，无上下文状态的工具直接复用自身
+     */
+    default BaseTool bindContext(AgentContext agentContext) {
+        return this;
+    }
+
+    /**
+     * 是否调用远程服务，远程工具经 ToolGuard 做舱壁隔离、超时与熔断，本地工具直接执行
+     */
+    default boolean isRemote() {
+        return false;
+    }
 }
\ No newline at end of file
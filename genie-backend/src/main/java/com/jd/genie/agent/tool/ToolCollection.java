@@ -3,13 +3,16 @@ package com.jd.genie.agent.tool;
 import com.alibaba.fastjson.JSONObject;
 import com.jd.genie.agent.agent.AgentContext;
 import com.jd.genie.agent.dto.tool.McpToolInfo;
+import com.jd.genie.agent.tool.guard.ToolGuard;
 import com.jd.genie.agent.tool.mcp.McpTool;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * 工具集合类 - 管理可用的工具
@@ -23,9 +26,8 @@ public class ToolCollection {
 
     /**
      * 数字员工列表
-     * task未并发的情况下
      * 1、每一个task，执行时，数字员工列表就会更新
-     * TODO 并发情况下需要处理
+     * 2、并发task通过 forTask 派生各自的工具视图，互不覆盖
      */
     private String currentTask;
     private JSONObject digitalEmployees;
@@ -35,6 +37,24 @@ public class ToolCollection {
         this.mcpToolMap = new HashMap<>();
     }
 
+    /**
+     * 派生任务级工具视图
+     * 工具定义共享且只读，数字员工、当前任务等状态归视图独有
+     */
+    public ToolCollection forTask(AgentContext taskContext) {
+        Map<String, BaseTool> taskToolMap = new HashMap<>();
+        for (Map.Entry<String, BaseTool> entry : toolMap.entrySet()) {
+            taskToolMap.put(entry.getKey(), entry.getValue().bindContext(taskContext));
+        }
+        ToolCollection view = new ToolCollection();
+        view.setToolMap(Collections.unmodifiableMap(taskToolMap));
+        view.setMcpToolMap(Collections.unmodifiableMap(mcpToolMap));
+        view.setAgentContext(taskContext);
+        view.setCurrentTask(taskContext.getTask());
+        view.setDigitalEmployees(digitalEmployees);
+        return view;
+    }
+
     /**
      * 添加工具
      */
@@ -70,17 +90,22 @@ public class ToolCollection {
 
 
     /**
-     * 执行工具
+     * 执行工具，远程工具与 MCP 工具经 ToolGuard 做舱壁隔离、超时与熔断保护，本地工具直接执行
      */
     public Object execute(String name, Object toolInput) {
+        String requestId = Objects.nonNull(agentContext) ? agentContext.getRequestId() : null;
         if (toolMap.containsKey(name)) {
             BaseTool tool = getTool(name);
-            return tool.execute(toolInput);
+            if (!tool.isRemote()) {
+                return tool.execute(toolInput);
+            }
+            return ToolGuard.execute(name, null, requestId, () -> tool.execute(toolInput));
         } else if (mcpToolMap.containsKey(name)) {
             McpToolInfo toolInfo = mcpToolMap.get(name);
             McpTool mcpTool = new McpTool();
             mcpTool.setAgentContext(agentContext);
-            return mcpTool.callTool(toolInfo.getMcpServerUrl(), name, toolInput);
+            return ToolGuard.execute(name, ToolGuard.MCP_GROUP, requestId,
+                    () -> mcpTool.callTool(toolInfo.getMcpServerUrl(), name, toolInput));
         } else {
             log.error("Error: Unknown tool {}", name);
         }
@@ -0,0 +1,302 @@
+package com.jd.genie.agent.tool.common;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.jd.genie.agent.agent.AgentContext;
+import com.jd.genie.agent.dto.CodeInterpreterResponse;
+import com.jd.genie.agent.dto.File;
+import com.jd.genie.agent.dto.FileRequest;
+import com.jd.genie.agent.dto.FileResponse;
+import com.jd.genie.agent.util.LatencyHistogram;
+import com.jd.genie.agent.util.SpringContextHolder;
+import com.jd.genie.agent.util.StringUtil;
+import com.jd.genie.agent.util.ThreadUtil;
+import com.jd.genie.config.GenieConfig;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 产物异步上传管道
+ * 1、上传请求写入有界队列，调用方立即返回 future，不阻塞流式读取
+ * 2、后台线程在短窗口内合并为批量请求，文件服务不支持批量接口时退化为逐个上传
+ *    批量请求中途失败时整批逐个重传：文件服务按 requestId + 文件名确定文件 id 并覆盖写入，已写入的文件重传结果不变
+ * 3、共享连接池的 OkHttpClient，FileTool 的读写请求同样复用
+ * 4、文件服务确认后再登记到 AgentContext 并按需通知前端
+ */
+@Slf4j
+public class ArtifactUploader {
+    private static final MediaType JSON_TYPE = MediaType.get("application/json; charset=utf-8");
+    private static final String TOOL_NAME = "file_tool";
+    private static final long UPLOAD_TIMEOUT = 300L;
+
+    private static final OkHttpClient client = new OkHttpClient.Builder()
+            .connectTimeout(60, TimeUnit.SECONDS)
+            .readTimeout(300, TimeUnit.SECONDS)
+            .writeTimeout(300, TimeUnit.SECONDS)
+            .callTimeout(300, TimeUnit.SECONDS)
+            .connectionPool(new ConnectionPool(16, 5, TimeUnit.MINUTES))
+            .build();
+
+    private static volatile BlockingQueue<UploadTask> queue;
+    // 文件服务不支持批量接口时不再尝试合并
+    private static volatile boolean batchUnsupported = false;
+
+    private static final LatencyHistogram latency = new LatencyHistogram();
+    private static final AtomicLong submitted = new AtomicLong();
+    private static final AtomicLong uploaded = new AtomicLong();
+    private static final AtomicLong failed = new AtomicLong();
+    private static final AtomicLong overflow = new AtomicLong();
+    private static final AtomicLong batches = new AtomicLong();
+
+    private ArtifactUploader() {
+    }
+
+    /**
+     * 文件服务共享客户端
+     */
+    static OkHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * 提交上传，返回文件服务确认后的结果；队列写满时溢出为单独上传，调用方始终不阻塞
+     */
+    public static CompletableFuture<FileResponse> submit(AgentContext agentContext, FileRequest fileRequest,
+                                                         Boolean isNoticeFe, Boolean isInternalFile) {
+        GenieConfig genieConfig = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class);
+        fileRequest.setRequestId(agentContext.getSessionId());
+        fileRequest.setFileName(StringUtil.removeSpecialChars(fileRequest.getFileName()));
+        UploadTask task = new UploadTask(agentContext, fileRequest, isNoticeFe, isInternalFile,
+                agentContext.getToolCollection().getDigitalEmployee(TOOL_NAME));
+        if (fileRequest.getFileName().isEmpty()) {
+            task.future.completeExceptionally(new IllegalArgumentException("上传文件失败 文件名为空"));
+            return task.future;
+        }
+        submitted.incrementAndGet();
+        if (!getQueue(genieConfig).offer(task)) {
+            overflow.incrementAndGet();
+            log.warn("{} artifact upload queue full, upload directly {}", agentContext.getRequestId(), fileRequest.getFileName());
+            ThreadUtil.execute(() -> uploadSingle(genieConfig, task));
+        }
+        return task.future;
+    }
+
+    /**
+     * 上传统计
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("submitted", submitted.get());
+        stats.put("uploaded", uploaded.get());
+        stats.put("failed", failed.get());
+        stats.put("overflow", overflow.get());
+        stats.put("batches", batches.get());
+        stats.put("pending", Objects.isNull(queue) ? 0 : queue.size());
+        stats.put("latency", latency.snapshot());
+        return stats;
+    }
+
+    private static BlockingQueue<UploadTask> getQueue(GenieConfig genieConfig) {
+        if (Objects.isNull(queue)) {
+            synchronized (ArtifactUploader.class) {
+                if (Objects.isNull(queue)) {
+                    BlockingQueue<UploadTask> uploadQueue = new ArrayBlockingQueue<>(genieConfig.getArtifactUploadQueueSize());
+                    new BasicThreadFactory.Builder().namingPattern("artifact-upload-%d").daemon(true).build()
+                            .newThread(() -> drain(uploadQueue, genieConfig))
+                            .start();
+                    queue = uploadQueue;
+                }
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * 后台线程：首个请求到达后等待一个窗口期或攒满一批再发送
+     */
+    private static void drain(BlockingQueue<UploadTask> uploadQueue, GenieConfig genieConfig) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<UploadTask> batch = new ArrayList<>();
+                batch.add(uploadQueue.take());
+                long deadline = System.currentTimeMillis() + genieConfig.getArtifactUploadBatchWindowMs();
+                while (batch.size() < genieConfig.getArtifactUploadBatchSize()) {
+                    long wait = deadline - System.currentTimeMillis();
+                    UploadTask task = wait > 0 ? uploadQueue.poll(wait, TimeUnit.MILLISECONDS) : uploadQueue.poll();
+                    if (Objects.isNull(task)) {
+                        break;
+                    }
+                    batch.add(task);
+                }
+                ThreadUtil.execute(() -> dispatch(genieConfig, batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("artifact upload drain error", e);
+            }
+        }
+    }
+
+    private static void dispatch(GenieConfig genieConfig, List<UploadTask> batch) {
+        if (batch.size() == 1 || batchUnsupported) {
+            batch.forEach(task -> uploadSingle(genieConfig, task));
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        List<FileRequest> files = new ArrayList<>();
+        for (UploadTask task : batch) {
+            files.add(task.fileRequest);
+        }
+        Map<String, Object> body = new HashMap<>();
+        body.put("files", files);
+        try {
+            String response = post(genieConfig.getCodeInterpreterUrl() + "/v1/file_tool/upload_files", JSON.toJSONString(body));
+            JSONArray results = JSON.parseObject(response).getJSONArray("results");
+            if (Objects.isNull(results) || results.size() != batch.size()) {
+                throw new IOException("batch upload response size mismatch");
+            }
+            batches.incrementAndGet();
+            log.info("artifact batch upload size:{} cost:{}ms", batch.size(), System.currentTimeMillis() - startTime);
+            for (int i = 0; i < batch.size(); i++) {
+                ack(batch.get(i), results.getObject(i, FileResponse.class), startTime);
+            }
+        } catch (Exception e) {
+            log.warn("artifact batch upload failed, fallback to single upload", e);
+            if (e instanceof FileServiceException && isBatchUnsupported(((FileServiceException) e).getCode())) {
+                batchUnsupported = true;
+            }
+            // 重传整批：中途失败时部分文件可能已写入，单文件上传按文件 id 覆盖，重复写入无副作用
+            batch.forEach(task -> ThreadUtil.execute(() -> uploadSingle(genieConfig, task)));
+        }
+    }
+
+    private static void uploadSingle(GenieConfig genieConfig, UploadTask task) {
+        long startTime = System.currentTimeMillis();
+        String requestId = task.agentContext.getRequestId();
+        try {
+            log.info("{} file tool upload request {}", requestId, JSON.toJSONString(task.fileRequest));
+            String result = post(genieConfig.getCodeInterpreterUrl() + "/v1/file_tool/upload_file", JSON.toJSONString(task.fileRequest));
+            log.info("{} file tool upload response {}", requestId, result);
+            ack(task, JSON.parseObject(result, FileResponse.class), startTime);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.error("{} upload file error {}", requestId, task.fileRequest.getFileName(), e);
+            task.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 文件服务确认后登记产物并通知前端
+     */
+    private static void ack(UploadTask task, FileResponse fileResponse, long startTime) {
+        AgentContext agentContext = task.agentContext;
+        FileRequest fileRequest = task.fileRequest;
+        try {
+            File file = File.builder()
+                    .ossUrl(fileResponse.getOssUrl())
+                    .domainUrl(fileResponse.getDomainUrl())
+                    .fileName(fileRequest.getFileName())
+                    .fileSize(fileResponse.getFileSize())
+                    .description(fileRequest.getDescription() + " [传统上传-可能有分析]")
+                    .isInternalFile(task.isInternalFile)
+                    .build();
+            agentContext.addProductFile(file);
+
+            if (Boolean.TRUE.equals(task.isNoticeFe)) {
+                Map<String, Object> resultMap = new HashMap<>();
+                resultMap.put("command", "写入文件");
+                List<CodeInterpreterResponse.FileInfo> fileInfo = new ArrayList<>();
+                fileInfo.add(CodeInterpreterResponse.FileInfo.builder()
+                        .fileName(fileRequest.getFileName())
+                        .ossUrl(fileResponse.getOssUrl())
+                        .domainUrl(fileResponse.getDomainUrl())
+                        .fileSize(fileResponse.getFileSize())
+                        .build());
+                resultMap.put("fileInfo", fileInfo);
+                agentContext.getPrinter().send("file", resultMap, task.digitalEmployee);
+            }
+            uploaded.incrementAndGet();
+            latency.record(System.currentTimeMillis() - startTime);
+            task.future.complete(fileResponse);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.error("{} register upload file error", agentContext.getRequestId(), e);
+            task.future.completeExceptionally(e);
+        }
+    }
+
+    private static String post(String url, String json) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(json, JSON_TYPE))
+                .build();
+        Call call = client.newCall(request);
+        call.timeout().timeout(UPLOAD_TIMEOUT, TimeUnit.SECONDS);
+        try (Response response = call.execute()) {
+            if (response.isSuccessful() && response.body() != null) {
+                return response.body().string();
+            }
+            throw new FileServiceException(response.code());
+        }
+    }
+
+    /**
+     * 批量接口不存在或不允许 POST，说明文件服务版本不支持批量上传
+     */
+    private static boolean isBatchUnsupported(int code) {
+        return code == 404 || code == 405;
+    }
+
+    /**
+     * 文件服务返回非成功状态码
+     */
+    private static class FileServiceException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int code;
+
+        FileServiceException(int code) {
+            super("file service response code: " + code);
+            this.code = code;
+        }
+
+        int getCode() {
+            return code;
+        }
+    }
+
+    /**
+     * 待上传的产物
+     */
+    private static class UploadTask {
+        private final AgentContext agentContext;
+        private final FileRequest fileRequest;
+        private final Boolean isNoticeFe;
+        private final Boolean isInternalFile;
+        private final String digitalEmployee;
+        private final CompletableFuture<FileResponse> future = new CompletableFuture<>();
+
+        UploadTask(AgentContext agentContext, FileRequest fileRequest, Boolean isNoticeFe,
+                   Boolean isInternalFile, String digitalEmployee) {
+            this.agentContext = agentContext;
+            this.fileRequest = fileRequest;
+            this.isNoticeFe = isNoticeFe;
+            this.isInternalFile = isInternalFile;
+            this.digitalEmployee = digitalEmployee;
+        }
+    }
+}
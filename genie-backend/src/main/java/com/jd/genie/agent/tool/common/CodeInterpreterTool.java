@@ -6,21 +6,18 @@ import com.jd.genie.agent.dto.CodeInterpreterRequest;
 import com.jd.genie.agent.dto.CodeInterpreterResponse;
 import com.jd.genie.agent.dto.File;
 import com.jd.genie.agent.tool.BaseTool;
+import com.jd.genie.agent.tool.guard.ToolGuard;
+import com.jd.genie.agent.tool.stream.StreamEventHandler;
+import com.jd.genie.agent.tool.stream.StreamRequest;
+import com.jd.genie.agent.tool.stream.StreamToolClient;
 import com.jd.genie.agent.util.SpringContextHolder;
 import com.jd.genie.config.GenieConfig;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.*;
-import org.springframework.context.ApplicationContext;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Data
@@ -28,11 +25,23 @@ public class CodeInterpreterTool implements BaseTool {
 
     private AgentContext agentContext;
 
+    @Override
+    public BaseTool bindContext(AgentContext agentContext) {
+        CodeInterpreterTool tool = new CodeInterpreterTool();
+        tool.setAgentContext(agentContext);
+        return tool;
+    }
+
     @Override
     public String getName() {
         return "code_interpreter";
     }
 
+    @Override
+    public boolean isRemote() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         String desc = "这是一个代码工具，可以通过编写代码完成数据处理、数据分析、图表生成等任务";
@@ -66,7 +75,7 @@ public class CodeInterpreterTool implements BaseTool {
         try {
             Map<String, Object> params = (Map<String, Object>) input;
             String task = (String) params.get("task");
-            List<String> fileNames = agentContext.getProductFiles().stream().map(File::getFileName).collect(Collectors.toList());
+            List<String> fileNames = agentContext.getArtifactRegistry().fileNames();
             CodeInterpreterRequest request = CodeInterpreterRequest.builder()
                     .requestId(agentContext.getSessionId()) // 适配多轮对话
                     .query(agentContext.getQuery())
@@ -90,111 +99,62 @@ public class CodeInterpreterTool implements BaseTool {
      * 调用 CodeAgent
      */
     public CompletableFuture<String> callCodeAgentStream(CodeInterpreterRequest codeRequest) {
-        CompletableFuture<String> future = new CompletableFuture<>();
-        try {
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .connectTimeout(60, TimeUnit.SECONDS) // 设置连接超时时间为 60 秒
-                    .readTimeout(300, TimeUnit.SECONDS)    // 设置读取超时时间为 60 秒
-                    .writeTimeout(300, TimeUnit.SECONDS)   // 设置写入超时时间为 60 秒
-                    .callTimeout(300, TimeUnit.SECONDS)    // 设置调用超时时间为 60 秒
+        GenieConfig genieConfig = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class);
+        log.info("{} code_interpreter request {}", agentContext.getRequestId(), JSONObject.toJSONString(codeRequest));
+        StreamRequest streamRequest = StreamRequest.builder()
+                .requestId(agentContext.getRequestId())
+                .toolName(getName())
+                .url(genieConfig.getCodeInterpreterUrl() + "/v1/tool/code_interpreter")
+                .body(codeRequest)
+                .timeout(ToolGuard.getPolicy(getName()).getTimeoutSeconds())
+                .build();
+
+        return StreamToolClient.stream(streamRequest, CodeInterpreterResponse.class, new StreamEventHandler<CodeInterpreterResponse, String>() {
+            private CodeInterpreterResponse codeResponse = CodeInterpreterResponse.builder()
+                    .codeOutput("code_interpreter执行失败") // 默认输出
                     .build();
 
-            ApplicationContext applicationContext = SpringContextHolder.getApplicationContext();
-            GenieConfig genieConfig = applicationContext.getBean(GenieConfig.class);
-            String url = genieConfig.getCodeInterpreterUrl() + "/v1/tool/code_interpreter";
-            RequestBody body = RequestBody.create(
-                    MediaType.parse("application/json"),
-                    JSONObject.toJSONString(codeRequest)
-            );
-
-            log.info("{} code_interpreter request {}", agentContext.getRequestId(), JSONObject.toJSONString(codeRequest));
-            Request.Builder requestBuilder = new Request.Builder()
-                    .url(url)
-                    .post(body);
-            Request request = requestBuilder.build();
-
-            client.newCall(request).enqueue(new Callback() {
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    log.error("{} code_interpreter on failure", agentContext.getRequestId(), e);
-                    future.completeExceptionally(e);
-                }
-
-                @Override
-                public void onResponse(Call call, Response response) {
-
-                    log.info("{} code_interpreter response {} {} {}", agentContext.getRequestId(), response, response.code(), response.body());
-                    CodeInterpreterResponse codeResponse = CodeInterpreterResponse.builder()
-                            .codeOutput("code_interpreter执行失败") // 默认输出
-                            .build();
-                    try (ResponseBody responseBody = response.body()) {
-                        if (!response.isSuccessful() || responseBody == null) {
-                            log.error("{} code_interpreter request error", agentContext.getRequestId());
-                            future.completeExceptionally(new IOException("Unexpected response code: " + response));
-                            return;
-                        }
-
-                        String line;
-                        BufferedReader reader = new BufferedReader(new InputStreamReader(responseBody.byteStream()));
-                        while ((line = reader.readLine()) != null) {
-                            if (line.startsWith("data: ")) {
-                                String data = line.substring(6);
-                                if (data.equals("[DONE]")) {
-                                    break;
-                                }
-                                if (data.startsWith("heartbeat")) {
-                                    continue;
-                                }
-                                log.info("{} code_interpreter recv data: {}", agentContext.getRequestId(), data);
-                                codeResponse = JSONObject.parseObject(data, CodeInterpreterResponse.class);
-                                if (Objects.nonNull(codeResponse.getFileInfo()) && !codeResponse.getFileInfo().isEmpty()) {
-                                    for (CodeInterpreterResponse.FileInfo fileInfo : codeResponse.getFileInfo()) {
-                                        File file = File.builder()
-                                                .fileName(fileInfo.getFileName())
-                                                .ossUrl(fileInfo.getOssUrl())
-                                                .domainUrl(fileInfo.getDomainUrl())
-                                                .fileSize(fileInfo.getFileSize())
-                                                .description(fileInfo.getFileName()) // fileName用作描述
-                                                .isInternalFile(false)
-                                                .build();
-                                        agentContext.getProductFiles().add(file);
-                                        agentContext.getTaskProductFiles().add(file);
-                                    }
-                                }
-                                String digitalEmployee = agentContext.getToolCollection().getDigitalEmployee(getName());
-                                log.info("requestId:{} task:{} toolName:{} digitalEmployee:{}", agentContext.getRequestId(),
-                                        agentContext.getToolCollection().getCurrentTask(), getName(), digitalEmployee);
-                                agentContext.getPrinter().send("code", codeResponse, digitalEmployee);
-                            }
-                        }
-
-                    } catch (Exception e) {
-                        log.error("{} code_interpreter request error", agentContext.getRequestId(), e);
-                        future.completeExceptionally(e);
-                        return;
+            @Override
+            public boolean onEvent(CodeInterpreterResponse event) {
+                codeResponse = event;
+                if (Objects.nonNull(codeResponse.getFileInfo()) && !codeResponse.getFileInfo().isEmpty()) {
+                    for (CodeInterpreterResponse.FileInfo fileInfo : codeResponse.getFileInfo()) {
+                        File file = File.builder()
+                                .fileName(fileInfo.getFileName())
+                                .ossUrl(fileInfo.getOssUrl())
+                                .domainUrl(fileInfo.getDomainUrl())
+                                .fileSize(fileInfo.getFileSize())
+                                .description(fileInfo.getFileName()) // fileName用作描述
+                                .isInternalFile(false)
+                                .build();
+                        agentContext.addProductFile(file);
                     }
-                    /**
-                     * {{输出内容}}
-                     * \n\n
-                     * 其中保存了文件：
-                     * {{文件名}}
-                     */
-                    StringBuilder output = new StringBuilder();
-                    output.append(codeResponse.getCodeOutput());
-                    if (Objects.nonNull(codeResponse.getFileInfo()) && !codeResponse.getFileInfo().isEmpty()) {
-                        output.append("\n\n其中保存了文件: ");
-                        for (CodeInterpreterResponse.FileInfo fileInfo : codeResponse.getFileInfo()) {
-                            output.append(fileInfo.getFileName()).append("\n");
-                        }
+                }
+                String digitalEmployee = agentContext.getToolCollection().getDigitalEmployee(getName());
+                log.info("requestId:{} task:{} toolName:{} digitalEmployee:{}", agentContext.getRequestId(),
+                        agentContext.getToolCollection().getCurrentTask(), getName(), digitalEmployee);
+                agentContext.getPrinter().send("code", codeResponse, digitalEmployee);
+                return true;
+            }
+
+            @Override
+            public String onComplete() {
+                /**
+                 * {{输出内容}}
+                 * \n\n
+                 * 其中保存了文件：
+                 * {{文件名}}
+                 */
+                StringBuilder output = new StringBuilder();
+                output.append(codeResponse.getCodeOutput());
+                if (Objects.nonNull(codeResponse.getFileInfo()) && !codeResponse.getFileInfo().isEmpty()) {
+                    output.append("\n\n其中保存了文件: ");
+                    for (CodeInterpreterResponse.FileInfo fileInfo : codeResponse.getFileInfo()) {
+                        output.append(fileInfo.getFileName()).append("\n");
                     }
-                    future.complete(output.toString());
                 }
-            });
-        } catch (Exception e) {
-            log.error("{} code_interpreter request error", agentContext.getRequestId(), e);
-            future.completeExceptionally(e);
-        }
-
-        return future;
+                return output.toString();
+            }
+        });
     }
 }
\ No newline at end of file
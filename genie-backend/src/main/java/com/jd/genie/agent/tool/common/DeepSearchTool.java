@@ -6,37 +6,54 @@ import com.jd.genie.agent.agent.AgentContext;
 import com.jd.genie.agent.dto.DeepSearchRequest;
 import com.jd.genie.agent.dto.DeepSearchrResponse;
 import com.jd.genie.agent.dto.FileRequest;
+import com.jd.genie.agent.dto.FileResponse;
 import com.jd.genie.agent.tool.BaseTool;
+import com.jd.genie.agent.printer.StreamFlushPolicy;
+import com.jd.genie.agent.tool.guard.ToolGuard;
+import com.jd.genie.agent.tool.stream.StreamEventHandler;
+import com.jd.genie.agent.tool.stream.StreamRequest;
+import com.jd.genie.agent.tool.stream.StreamToolClient;
 import com.jd.genie.agent.util.SpringContextHolder;
 import com.jd.genie.agent.util.StringUtil;
 import com.jd.genie.config.GenieConfig;
+import com.jd.genie.service.SearchCacheService;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.*;
-import org.springframework.context.ApplicationContext;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Data
 
 public class DeepSearchTool implements BaseTool {
+    private static final long UPLOAD_WAIT_SECONDS = 60L;
 
     private AgentContext agentContext;
 
+    @Override
+    public BaseTool bindContext(AgentContext agentContext) {
+        DeepSearchTool tool = new DeepSearchTool();
+        tool.setAgentContext(agentContext);
+        return tool;
+    }
+
     @Override
     public String getName() {
         return "deep_search";
     }
 
+    @Override
+    public boolean isRemote() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         String desc = "这是一个搜索工具，可以通过搜索内外网知识";
@@ -88,9 +105,21 @@ public class DeepSearchTool implements BaseTool {
                     .content_stream(agentContext.getIsStream())
                     .build();
 
+            // 语义缓存命中时回放历史事件，前端表现与实时搜索一致
+            SearchCacheService searchCacheService = SpringContextHolder.getApplicationContext().getBean(SearchCacheService.class);
+            String scope = JSON.toJSONString(srcConfig) + ":" + agentContext.getIsStream();
+            SearchCacheService.Lookup lookup = searchCacheService.lookup(query, scope);
+            if (Objects.nonNull(lookup.getHit())) {
+                log.info("{} deep_search cache hit {}", agentContext.getRequestId(), query);
+                return replay(lookup.getHit());
+            }
+
             // 调用流式 API
-            Future future = callDeepSearchStream(request);
-            Object object = future.get();
+            DeepSearchHandler handler = newHandler();
+            Object object = callDeepSearchStream(request, handler).get();
+            if (handler.isAnswered()) {
+                searchCacheService.put(lookup, query, new ArrayList<>(srcConfig.keySet()), (String) object, handler.getEvents());
+            }
 
             return object;
         } catch (Exception e) {
@@ -103,150 +132,147 @@ public class DeepSearchTool implements BaseTool {
     /**
      * 调用 DeepSearch
      */
-    public CompletableFuture<String> callDeepSearchStream(DeepSearchRequest searchRequest) {
-        CompletableFuture<String> future = new CompletableFuture<>();
-        try {
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .connectTimeout(60, TimeUnit.SECONDS) // 设置连接超时时间为 60 秒
-                    .readTimeout(300, TimeUnit.SECONDS)    // 设置读取超时时间为 300 秒
-                    .writeTimeout(300, TimeUnit.SECONDS)   // 设置写入超时时间为 300 秒
-                    .callTimeout(300, TimeUnit.SECONDS)    // 设置调用超时时间为 300 秒
-                    .build();
+    private CompletableFuture<String> callDeepSearchStream(DeepSearchRequest searchRequest, DeepSearchHandler handler) {
+        GenieConfig genieConfig = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class);
+        log.info("{} deep_search request {}", agentContext.getRequestId(), JSONObject.toJSONString(searchRequest));
+        StreamRequest streamRequest = StreamRequest.builder()
+                .requestId(agentContext.getRequestId())
+                .toolName(getName())
+                .url(genieConfig.getDeepSearchUrl() + "/v1/tool/deepsearch")
+                .body(searchRequest)
+                .timeout(ToolGuard.getPolicy(getName()).getTimeoutSeconds())
+                .build();
+        return StreamToolClient.stream(streamRequest, DeepSearchrResponse.class, handler);
+    }
+
+    /**
+     * 回放缓存的搜索事件
+     */
+    private String replay(SearchCacheService.SearchCacheEntry entry) {
+        DeepSearchHandler handler = newHandler();
+        for (String event : entry.getEvents()) {
+            DeepSearchrResponse searchResponse = JSON.parseObject(event, DeepSearchrResponse.class);
+            searchResponse.setRequestId(agentContext.getRequestId());
+            if (!handler.onEvent(searchResponse)) {
+                break;
+            }
+        }
+        return handler.onComplete();
+    }
+
+    private DeepSearchHandler newHandler() {
+        GenieConfig genieConfig = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class);
+        StreamFlushPolicy flushPolicy = StreamFlushPolicy.of("search");
+        return new DeepSearchHandler(genieConfig, flushPolicy, agentContext.getToolCollection().getDigitalEmployee(getName()));
+    }
+
+    /**
+     * DeepSearch 事件处理，同时记录原始事件供缓存回放
+     */
+    private class DeepSearchHandler implements StreamEventHandler<DeepSearchrResponse, String> {
+        private final GenieConfig genieConfig;
+        private final StreamFlushPolicy flushPolicy;
+        private final String digitalEmployee;
+        private final StringBuilder stringBuilderIncr = new StringBuilder();
+        private final StringBuilder stringBuilderAll = new StringBuilder();
+        // 异步上传中的产物，流结束后等待确认
+        private final List<CompletableFuture<FileResponse>> uploads = new ArrayList<>();
+        private final List<String> events = new ArrayList<>();
+        private String result = "搜索结果为空"; // 默认输出
+        private String messageId = "";
+        private int index = 1;
+        private boolean answered = false;
+
+        DeepSearchHandler(GenieConfig genieConfig, StreamFlushPolicy flushPolicy, String digitalEmployee) {
+            this.genieConfig = genieConfig;
+            this.flushPolicy = flushPolicy;
+            this.digitalEmployee = digitalEmployee;
+        }
+
+        List<String> getEvents() {
+            return events;
+        }
 
-            ApplicationContext applicationContext = SpringContextHolder.getApplicationContext();
-            GenieConfig genieConfig = applicationContext.getBean(GenieConfig.class);
-            String url = genieConfig.getDeepSearchUrl() + "/v1/tool/deepsearch";
-            RequestBody body = RequestBody.create(
-                    MediaType.parse("application/json"),
-                    JSONObject.toJSONString(searchRequest)
-            );
-
-            log.info("{} deep_search request {}", agentContext.getRequestId(), JSONObject.toJSONString(searchRequest));
-            Request.Builder requestBuilder = new Request.Builder()
-                    .url(url)
-                    .post(body);
-            Request request = requestBuilder.build();
-
-            String[] interval = genieConfig.getMessageInterval().getOrDefault("search", "5,20").split(",");
-            int firstInterval = Integer.parseInt(interval[0]);
-            int sendInterval = Integer.parseInt(interval[1]);
-
-            client.newCall(request).enqueue(new Callback() {
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    log.error("{} deep_search on failure", agentContext.getRequestId(), e);
-                    future.completeExceptionally(e);
+        boolean isAnswered() {
+            return answered;
+        }
+
+        @Override
+        public boolean onEvent(DeepSearchrResponse searchResponse) {
+            // 先于处理记录，处理过程会改写事件
+            events.add(JSON.toJSONString(searchResponse));
+            // 上传搜索内容到文件中
+            if (Boolean.TRUE.equals(searchResponse.getIsFinal())) {
+                if (agentContext.getIsStream()) {
+                    searchResponse.setAnswer(stringBuilderAll.toString());
                 }
+                if (searchResponse.getAnswer().isEmpty()) {
+                    log.error("{} deep search answer empty", agentContext.getRequestId());
+                    return false;
+                }
+                String fileName = StringUtil.removeSpecialChars(searchResponse.getQuery() + "的搜索结果.md");
+                String fileDesc = searchResponse.getAnswer()
+                        .substring(0, Math.min(searchResponse.getAnswer().length(), genieConfig.getDeepSearchToolFileDescTruncateLen())) + "...";
+                FileRequest fileRequest = FileRequest.builder()
+                        .requestId(agentContext.getRequestId())
+                        .fileName(fileName)
+                        .description(fileDesc)
+                        .content(searchResponse.getAnswer())
+                        .build();
+                uploads.add(ArtifactUploader.submit(agentContext, fileRequest, false, false));
+                result = searchResponse.getAnswer().
+                        substring(0, Math.min(searchResponse.getAnswer().length(), genieConfig.getDeepSearchToolMessageTruncateLen()));
+                answered = true;
+
+                agentContext.getPrinter().send(messageId, "deep_search", searchResponse, digitalEmployee, true);
+                return true;
+            }
 
-                @Override
-                public void onResponse(Call call, Response response) {
-
-                    log.info("{} deep_search response {} {} {}", agentContext.getRequestId(), response, response.code(), response.body());
-                    try (ResponseBody responseBody = response.body()) {
-                        if (!response.isSuccessful() || responseBody == null) {
-                            log.error("{} deep_search request error", agentContext.getRequestId());
-                            future.completeExceptionally(new IOException("Unexpected response code: " + response));
-                            return;
-                        }
-
-                        int index = 1;
-                        StringBuilder stringBuilderIncr = new StringBuilder();
-                        StringBuilder stringBuilderAll = new StringBuilder();
-                        String line;
-                        BufferedReader reader = new BufferedReader(new InputStreamReader(responseBody.byteStream()));
-                        String digitalEmployee = agentContext.getToolCollection().getDigitalEmployee(getName());
-                        String result = "搜索结果为空"; // 默认输出
-                        String messageId = "";
-                        while ((line = reader.readLine()) != null) {
-                            if (line.startsWith("data: ")) {
-                                String data = line.substring(6);
-                                if (data.equals("[DONE]")) {
-                                    break;
-                                }
-                                if (data.startsWith("heartbeat")) {
-                                    continue;
-                                }
-                                if (index == 1 || index % 100 == 0) {
-                                    log.info("{} deep_search recv data: {}", agentContext.getRequestId(), data);
-                                }
-                                DeepSearchrResponse searchResponse = JSONObject.parseObject(data, DeepSearchrResponse.class);
-                                FileTool fileTool = new FileTool();
-                                fileTool.setAgentContext(agentContext);
-                                // 上传搜索内容到文件中
-                                if (searchResponse.getIsFinal()) {
-                                    if (agentContext.getIsStream()) {
-                                        searchResponse.setAnswer(stringBuilderAll.toString());
-                                    }
-                                    if (searchResponse.getAnswer().isEmpty()) {
-                                        log.error("{} deep search answer empty", agentContext.getRequestId());
-                                        break;
-                                    }
-                                    String fileName = StringUtil.removeSpecialChars(searchResponse.getQuery() + "的搜索结果.md");
-                                    String fileDesc = searchResponse.getAnswer()
-                                            .substring(0, Math.min(searchResponse.getAnswer().length(), genieConfig.getDeepSearchToolFileDescTruncateLen())) + "...";
-                                    FileRequest fileRequest = FileRequest.builder()
-                                            .requestId(agentContext.getRequestId())
-                                            .fileName(fileName)
-                                            .description(fileDesc)
-                                            .content(searchResponse.getAnswer())
-                                            .build();
-                                    // Using uploadFileLegacy for text content (search answers)
-                                    fileTool.uploadFileLegacy(fileRequest, false, false);
-                                    result = searchResponse.getAnswer().
-                                            substring(0, Math.min(searchResponse.getAnswer().length(), genieConfig.getDeepSearchToolMessageTruncateLen()));
-
-                                    agentContext.getPrinter().send(messageId, "deep_search", searchResponse, digitalEmployee, true);
-
-                                } else {
-                                    Map<String, Object> contentMap = new HashMap<>();
-                                    for (int idx = 0; idx < searchResponse.getSearchResult().getQuery().size(); idx++) {
-                                        contentMap.put(searchResponse.getSearchResult().getQuery().get(idx), searchResponse.getSearchResult().getDocs().get(idx));
-                                    }
-
-                                    if ("extend".equals(searchResponse.getMessageType())) {
-                                        messageId = StringUtil.getUUID();
-                                        searchResponse.setSearchFinish(false);
-                                        agentContext.getPrinter().send(messageId, "deep_search", searchResponse, digitalEmployee, true);
-                                    } else if ("search".equals(searchResponse.getMessageType())) {
-                                        searchResponse.setSearchFinish(true);
-                                        agentContext.getPrinter().send(messageId, "deep_search", searchResponse, digitalEmployee, true);
-                                        FileRequest fileRequest = FileRequest.builder()
-                                                .requestId(agentContext.getRequestId())
-                                                .fileName(searchResponse.getQuery() + "_search_result.txt")
-                                                .description(searchResponse.getQuery() + "...")
-                                                .content(JSON.toJSONString(contentMap))
-                                                .build();
-                                        // Using uploadFileLegacy for text content (search results)
-                                        fileTool.uploadFileLegacy(fileRequest, false, true);
-                                    } else if ("report".equals(searchResponse.getMessageType())) {
-                                        if (index == 1) {
-                                            messageId = StringUtil.getUUID();
-                                        }
-                                        stringBuilderIncr.append(searchResponse.getAnswer());
-                                        stringBuilderAll.append(searchResponse.getAnswer());
-                                        if (index == firstInterval || index % sendInterval == 0) {
-                                            searchResponse.setAnswer(stringBuilderIncr.toString());
-                                            agentContext.getPrinter().send(messageId, "deep_search", searchResponse, digitalEmployee, false);
-                                            stringBuilderIncr.setLength(0);
-                                        }
-                                        index++;
-                                    }
-                                }
-                            }
-                        }
-                        future.complete(result);
-
-                    } catch (Exception e) {
-                        log.error("{} deep_search request error", agentContext.getRequestId(), e);
-                        future.completeExceptionally(e);
-                    }
+            Map<String, Object> contentMap = new HashMap<>();
+            for (int idx = 0; idx < searchResponse.getSearchResult().getQuery().size(); idx++) {
+                contentMap.put(searchResponse.getSearchResult().getQuery().get(idx), searchResponse.getSearchResult().getDocs().get(idx));
+            }
+
+            if ("extend".equals(searchResponse.getMessageType())) {
+                messageId = StringUtil.getUUID();
+                searchResponse.setSearchFinish(false);
+                agentContext.getPrinter().send(messageId, "deep_search", searchResponse, digitalEmployee, true);
+            } else if ("search".equals(searchResponse.getMessageType())) {
+                searchResponse.setSearchFinish(true);
+                agentContext.getPrinter().send(messageId, "deep_search", searchResponse, digitalEmployee, true);
+                FileRequest fileRequest = FileRequest.builder()
+                        .requestId(agentContext.getRequestId())
+                        .fileName(searchResponse.getQuery() + "_search_result.txt")
+                        .description(searchResponse.getQuery() + "...")
+                        .content(JSON.toJSONString(contentMap))
+                        .build();
+                uploads.add(ArtifactUploader.submit(agentContext, fileRequest, false, true));
+            } else if ("report".equals(searchResponse.getMessageType())) {
+                if (index == 1) {
+                    messageId = StringUtil.getUUID();
                 }
-            });
-        } catch (Exception e) {
-            log.error("{} deep_search request error", agentContext.getRequestId(), e);
-            future.completeExceptionally(e);
+                stringBuilderIncr.append(searchResponse.getAnswer());
+                stringBuilderAll.append(searchResponse.getAnswer());
+                if (flushPolicy.append(searchResponse.getAnswer())) {
+                    searchResponse.setAnswer(stringBuilderIncr.toString());
+                    agentContext.getPrinter().send(messageId, "deep_search", searchResponse, digitalEmployee, false);
+                    stringBuilderIncr.setLength(0);
+                    flushPolicy.flushed();
+                }
+                index++;
+            }
+            return true;
         }
 
-        return future;
+        @Override
+        public String onComplete() {
+            // 保证工具返回前产物已登记，上传失败不影响搜索结果
+            try {
+                CompletableFuture.allOf(uploads.toArray(new CompletableFuture<?>[0])).get(UPLOAD_WAIT_SECONDS, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.error("{} deep search upload file error", agentContext.getRequestId(), e);
+            }
+            return result;
+        }
     }
-}
\ No newline at end of file
+}
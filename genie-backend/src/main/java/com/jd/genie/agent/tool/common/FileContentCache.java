@@ -0,0 +1,350 @@
+package com.jd.genie.agent.tool.common;
+
+import com.jd.genie.agent.util.SpringContextHolder;
+import com.jd.genie.config.GenieConfig;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 文件内容本地缓存
+ * 1、按内容 sha256 寻址存储，相同内容只保存一份，文件以内存映射方式读取
+ * 2、内容按字节数、url 索引按条数做 LRU 淘汰
+ * 3、超过重新校验间隔后携带 ETag 发起条件请求，未变化时直接复用本地内容
+ * 4、支持按字节范围和按行读取文件头部，避免整文件加载
+ */
+@Slf4j
+public class FileContentCache {
+    private static final long FETCH_TIMEOUT = 60L;
+
+    // url -> 内容摘要，按访问顺序淘汰，读写均在 urls 锁内
+    private static final LinkedHashMap<String, UrlEntry> urls = new LinkedHashMap<>(16, 0.75f, true);
+    // 内容摘要 -> 映射内容，按访问顺序淘汰，读写均在 blobs 锁内
+    private static final LinkedHashMap<String, Content> blobs = new LinkedHashMap<>(16, 0.75f, true);
+    private static long totalBytes = 0;
+    private static volatile Path cacheDir;
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong revalidated = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private FileContentCache() {
+    }
+
+    /**
+     * 获取文件内容，本地缓存有效时不访问文件服务
+     */
+    public static Content open(String url) throws IOException {
+        GenieConfig genieConfig = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class);
+        UrlEntry entry = getUrl(url);
+        Content cached = Objects.isNull(entry) ? null : getBlob(entry.hash);
+        long now = System.currentTimeMillis();
+        if (Objects.nonNull(cached) && now - entry.validatedAt < genieConfig.getFileCacheRevalidateMs()) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        Request.Builder builder = new Request.Builder().url(url);
+        if (Objects.nonNull(cached) && Objects.nonNull(entry.etag)) {
+            builder.header("If-None-Match", entry.etag);
+        }
+        Call call = ArtifactUploader.getClient().newCall(builder.build());
+        call.timeout().timeout(FETCH_TIMEOUT, TimeUnit.SECONDS);
+        try (Response response = call.execute()) {
+            String etag = response.header("ETag");
+            // 304 或服务端未处理条件请求但 ETag 未变
+            if (Objects.nonNull(cached) && (response.code() == 304 || (Objects.nonNull(etag) && etag.equals(entry.etag)))) {
+                entry.validatedAt = now;
+                revalidated.incrementAndGet();
+                return cached;
+            }
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("file cache fetch failed, code: " + response.code());
+            }
+            Content content = store(genieConfig, response.body().byteStream());
+            putUrl(url, new UrlEntry(content.hash, etag, now), genieConfig.getFileCacheMaxUrls());
+            misses.incrementAndGet();
+            return content;
+        }
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (blobs) {
+            stats.put("blobs", blobs.size());
+            stats.put("bytes", totalBytes);
+        }
+        synchronized (urls) {
+            stats.put("urls", urls.size());
+        }
+        stats.put("hits", hits.get());
+        stats.put("revalidated", revalidated.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    private static UrlEntry getUrl(String url) {
+        synchronized (urls) {
+            return urls.get(url);
+        }
+    }
+
+    /**
+     * 超出条数上限时淘汰最久未访问的 url，对应内容由内容缓存自行淘汰
+     */
+    private static void putUrl(String url, UrlEntry entry, int maxUrls) {
+        synchronized (urls) {
+            urls.put(url, entry);
+            Iterator<String> iterator = urls.keySet().iterator();
+            while (urls.size() > Math.max(maxUrls, 1) && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    private static Content getBlob(String hash) {
+        synchronized (blobs) {
+            return blobs.get(hash);
+        }
+    }
+
+    /**
+     * 边下载边计算摘要，落盘后映射到内存
+     */
+    private static Content store(GenieConfig genieConfig, InputStream inputStream) throws IOException {
+        Path dir = getCacheDir(genieConfig);
+        Path tmp = Files.createTempFile(dir, "download", ".tmp");
+        String hash;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = inputStream; OutputStream out = Files.newOutputStream(tmp)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            hash = hex.toString();
+        } catch (Exception e) {
+            Files.deleteIfExists(tmp);
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+
+        synchronized (blobs) {
+            Content existing = blobs.get(hash);
+            if (Objects.nonNull(existing)) {
+                Files.deleteIfExists(tmp);
+                return existing;
+            }
+            Path target = dir.resolve(hash);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            Content content = new Content(hash, buffer);
+            blobs.put(hash, content);
+            totalBytes += content.size();
+            evict(dir, genieConfig.getFileCacheMaxBytes());
+            return content;
+        }
+    }
+
+    /**
+     * 超出容量时从最久未访问的内容开始淘汰，保留刚写入的内容
+     */
+    private static void evict(Path dir, long maxBytes) {
+        Iterator<Map.Entry<String, Content>> iterator = blobs.entrySet().iterator();
+        while (totalBytes > maxBytes && blobs.size() > 1 && iterator.hasNext()) {
+            Content content = iterator.next().getValue();
+            iterator.remove();
+            totalBytes -= content.size();
+            evictions.incrementAndGet();
+            try {
+                Files.deleteIfExists(dir.resolve(content.hash));
+            } catch (IOException e) {
+                log.warn("file cache delete failed {}", content.hash, e);
+            }
+        }
+    }
+
+    /**
+     * 首次使用时创建目录并清理上次运行遗留的文件（url 索引不落盘，旧文件无法命中）
+     */
+    private static Path getCacheDir(GenieConfig genieConfig) throws IOException {
+        if (Objects.isNull(cacheDir)) {
+            synchronized (FileContentCache.class) {
+                if (Objects.isNull(cacheDir)) {
+                    Path dir = Paths.get(genieConfig.getFileCacheDir());
+                    Files.createDirectories(dir);
+                    try (Stream<Path> files = Files.list(dir)) {
+                        files.forEach(file -> {
+                            try {
+                                Files.deleteIfExists(file);
+                            } catch (IOException e) {
+                                log.warn("file cache cleanup failed {}", file, e);
+                            }
+                        });
+                    }
+                    cacheDir = dir;
+                }
+            }
+        }
+        return cacheDir;
+    }
+
+    /**
+     * 已缓存的文件内容，只读映射，可并发读取
+     */
+    public static class Content {
+        private final String hash;
+        private final MappedByteBuffer buffer;
+
+        Content(String hash, MappedByteBuffer buffer) {
+            this.hash = hash;
+            this.buffer = buffer;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public long size() {
+            return buffer.capacity();
+        }
+
+        /**
+         * 按字节范围读取，最多 maxBytes 字节、maxChars 个字符（按 UTF-16 计）
+         * 起点落在多字节字符中间时后移到下一个字符，终点不切断字符，返回实际读取的字节范围
+         */
+        public Slice read(long offset, int maxBytes, int maxChars) {
+            int start = (int) Math.min(Math.max(offset, 0), size());
+            while (start < size() && isContinuation(buffer.get(start))) {
+                start++;
+            }
+            return slice(start, maxBytes, maxChars, Integer.MAX_VALUE);
+        }
+
+        /**
+         * 读取前 lines 行，最多 maxBytes 字节、maxChars 个字符
+         */
+        public Slice head(int lines, int maxBytes, int maxChars) {
+            return slice(0, maxBytes, maxChars, lines);
+        }
+
+        private Slice slice(int start, int maxBytes, int maxChars, int lines) {
+            int limit = (int) Math.min(size(), (long) start + Math.max(maxBytes, 0));
+            int end = start;
+            int chars = 0;
+            int count = 0;
+            while (end < limit && count < lines) {
+                byte lead = buffer.get(end);
+                int next = (int) Math.min(end + charBytes(lead), size());
+                int width = next - end == 4 ? 2 : 1;
+                // 首个字符总是完整读出，保证分段读取能前进
+                if ((next > limit || chars + width > maxChars) && end > start) {
+                    break;
+                }
+                end = next;
+                chars += width;
+                if (lead == '\n') {
+                    count++;
+                }
+            }
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes, 0, bytes.length);
+            return new Slice(new String(bytes, StandardCharsets.UTF_8), start, end);
+        }
+
+        private static boolean isContinuation(byte b) {
+            return (b & 0xC0) == 0x80;
+        }
+
+        /**
+         * 按首字节判断字符的 UTF-8 字节数，非法首字节按单字节处理
+         */
+        private static int charBytes(byte lead) {
+            if ((lead & 0x80) == 0) {
+                return 1;
+            }
+            if ((lead & 0xE0) == 0xC0) {
+                return 2;
+            }
+            if ((lead & 0xF0) == 0xE0) {
+                return 3;
+            }
+            if ((lead & 0xF8) == 0xF0) {
+                return 4;
+            }
+            return 1;
+        }
+    }
+
+    /**
+     * 读取结果及其在文件中的字节范围 [start, end)
+     */
+    public static class Slice {
+        private final String text;
+        private final long start;
+        private final long end;
+
+        Slice(String text, long start, long end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+    }
+
+    private static class UrlEntry {
+        private final String hash;
+        private final String etag;
+        private volatile long validatedAt;
+
+        UrlEntry(String hash, String etag, long validatedAt) {
+            this.hash = hash;
+            this.etag = etag;
+            this.validatedAt = validatedAt;
+        }
+    }
+}
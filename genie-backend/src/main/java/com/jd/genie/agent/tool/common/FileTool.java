@@ -1,6 +1,7 @@
 package com.jd.genie.agent.tool.common;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
 import com.jd.genie.agent.agent.AgentContext;
 import com.jd.genie.agent.dto.CodeInterpreterResponse;
 import com.jd.genie.agent.dto.File;
@@ -26,11 +27,23 @@ import java.util.concurrent.TimeUnit;
 public class FileTool implements BaseTool {
     private AgentContext agentContext;
 
+    @Override
+    public BaseTool bindContext(AgentContext agentContext) {
+        FileTool tool = new FileTool();
+        tool.setAgentContext(agentContext);
+        return tool;
+    }
+
     @Override
     public String getName() {
         return "file_tool";
     }
 
+    @Override
+    public boolean isRemote() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         String desc = "这是一个文件工具，专门用于原始文档上传。默认直接将原始文档内容发送给LLM进行处理，不进行任何后端文本提取或分析。这确保了LLM完全负责文档的解读和分析。";
@@ -65,6 +78,18 @@ public class FileTool implements BaseTool {
         rawBytes.put("type", "string");
         rawBytes.put("description", "原始文件字节数据的base64编码");
 
+        Map<String, Object> offset = new HashMap<>();
+        offset.put("type", "integer");
+        offset.put("description", "读取文件的起始字节位置，仅在get时使用，用于分段读取大文件");
+
+        Map<String, Object> length = new HashMap<>();
+        length.put("type", "integer");
+        length.put("description", "读取文件的字节数，仅在get时使用");
+
+        Map<String, Object> lines = new HashMap<>();
+        lines.put("type", "integer");
+        lines.put("description", "仅读取文件前若干行，仅在get时使用，适合预览csv等大文件");
+
         Map<String, Object> parameters = new HashMap<>();
         parameters.put("type", "object");
         Map<String, Object> properties = new HashMap<>();
@@ -73,6 +98,9 @@ public class FileTool implements BaseTool {
         properties.put("description", fileDesc);
         properties.put("content", fileContent);
         properties.put("rawBytes", rawBytes);
+        properties.put("offset", offset);
+        properties.put("length", length);
+        properties.put("lines", lines);
         parameters.put("properties", properties);
         parameters.put("required", Arrays.asList("command", "filename"));
 
@@ -112,7 +140,8 @@ public class FileTool implements BaseTool {
             } else if ("get".equals(command)) {
                 FileRequest fileRequest = JSON.parseObject(JSON.toJSONString(input), FileRequest.class);
                 fileRequest.setRequestId(agentContext.getRequestId());
-                return getFile(fileRequest, true);
+                JSONObject range = JSON.parseObject(JSON.toJSONString(input));
+                return getFile(fileRequest, true, range.getLong("offset"), range.getInteger("length"), range.getInteger("lines"));
             }
         } catch (Exception e) {
             log.error("{} file tool error", agentContext.getRequestId(), e);
@@ -171,11 +200,7 @@ public class FileTool implements BaseTool {
                     .description(rawFileRequest.getDescription() + " [原始上传-无后端分析]")
                     .isInternalFile(isInternalFile)
                     .build();
-            agentContext.getProductFiles().add(file);
-
-            if (!isInternalFile) {
-                agentContext.getTaskProductFiles().add(file);
-            }
+            agentContext.addProductFile(file);
 
             log.info("{} ✅ 原始文件 {} 已直接发送给LLM处理完成，耗时: {}ms（无后端分析）", 
                     agentContext.getRequestId(), rawFileRequest.getFileName(), 
@@ -191,83 +216,21 @@ public class FileTool implements BaseTool {
 
     /**
      * 传统上传方法（带分析），已标记为废弃
-     * 保留此方法仅用于兼容性
+     * 保留此方法仅用于兼容性，经异步上传管道提交并等待文件服务确认
      */
     @Deprecated
     public String uploadFileLegacy(FileRequest fileRequest, Boolean isNoticeFe, Boolean isInternalFile) {
         log.warn("{} ⚠️ 使用传统文件上传方法（会进行分析），建议使用原始上传避免后端分析", agentContext.getRequestId());
-        
-        long startTime = System.currentTimeMillis();
-        OkHttpClient client = new OkHttpClient.Builder()
-                .connectTimeout(60, TimeUnit.SECONDS)
-                .readTimeout(300, TimeUnit.SECONDS)
-                .writeTimeout(300, TimeUnit.SECONDS)
-                .callTimeout(300, TimeUnit.SECONDS)
-                .build();
-
-        ApplicationContext applicationContext = SpringContextHolder.getApplicationContext();
-        GenieConfig genieConfig = applicationContext.getBean(GenieConfig.class);
-        MediaType mediaType = MediaType.get("application/json; charset=utf-8");
-        String url = genieConfig.getCodeInterpreterUrl() + "/v1/file_tool/upload_file";
 
-        fileRequest.setRequestId(agentContext.getSessionId());
-        fileRequest.setFileName(StringUtil.removeSpecialChars(fileRequest.getFileName()));
-        if (fileRequest.getFileName().isEmpty()) {
+        if (StringUtil.removeSpecialChars(fileRequest.getFileName()).isEmpty()) {
             String errorMessage = "上传文件失败 文件名为空";
             log.error("{} {}", agentContext.getRequestId(), errorMessage);
             return null;
         }
-        
-        RequestBody body = RequestBody.create(JSON.toJSONString(fileRequest), mediaType);
-        Request request = new Request.Builder()
-                .url(url)
-                .post(body)
-                .addHeader("Content-Type", "application/json")
-                .build();
         try {
-            log.info("{} file tool upload request {}", agentContext.getRequestId(), JSON.toJSONString(fileRequest));
-            Response response = client.newCall(request).execute();
-            if (!response.isSuccessful() || response.body() == null) {
-                log.error("{} upload file faied", agentContext.getRequestId());
-                return null;
-            }
-            String result = response.body().string();
-            FileResponse fileResponse = JSON.parseObject(result, FileResponse.class);
-            log.info("{} file tool upload response {}", agentContext.getRequestId(), result);
-            
-            Map<String, Object> resultMap = new HashMap<>();
-            resultMap.put("command", "写入文件");
-            List<CodeInterpreterResponse.FileInfo> fileInfo = new ArrayList<>();
-            fileInfo.add(CodeInterpreterResponse.FileInfo.builder()
-                    .fileName(fileRequest.getFileName())
-                    .ossUrl(fileResponse.getOssUrl())
-                    .domainUrl(fileResponse.getDomainUrl())
-                    .fileSize(fileResponse.getFileSize())
-                    .build());
-            resultMap.put("fileInfo", fileInfo);
-            
-            String digitalEmployee = agentContext.getToolCollection().getDigitalEmployee(getName());
-            log.info("requestId:{} task:{} toolName:{} digitalEmployee:{}", agentContext.getRequestId(),
-                    agentContext.getToolCollection().getCurrentTask(), getName(), digitalEmployee);
-            
-            File file = File.builder()
-                    .ossUrl(fileResponse.getOssUrl())
-                    .domainUrl(fileResponse.getDomainUrl())
-                    .fileName(fileRequest.getFileName())
-                    .fileSize(fileResponse.getFileSize())
-                    .description(fileRequest.getDescription() + " [传统上传-可能有分析]")
-                    .isInternalFile(isInternalFile)
-                    .build();
-            agentContext.getProductFiles().add(file);
-            if (isNoticeFe) {
-                agentContext.getPrinter().send("file", resultMap, digitalEmployee);
-            }
-            if (!isInternalFile) {
-                agentContext.getTaskProductFiles().add(file);
-            }
-            
+            FileResponse fileResponse = ArtifactUploader.submit(agentContext, fileRequest, isNoticeFe, isInternalFile)
+                    .get(300, TimeUnit.SECONDS);
             return fileRequest.getFileName() + " 写入到文件链接: " + fileResponse.getOssUrl();
-
         } catch (Exception e) {
             log.error("{} upload file error", agentContext.getRequestId(), e);
         }
@@ -276,41 +239,22 @@ public class FileTool implements BaseTool {
 
     // 保留原有的getFile方法
     public String getFile(FileRequest fileRequest, Boolean noticeFe) {
-        long startTime = System.currentTimeMillis();
-        OkHttpClient client = new OkHttpClient.Builder()
-                .connectTimeout(60, TimeUnit.SECONDS)
-                .readTimeout(300, TimeUnit.SECONDS)
-                .writeTimeout(300, TimeUnit.SECONDS)
-                .callTimeout(300, TimeUnit.SECONDS)
-                .build();
+        return getFile(fileRequest, noticeFe, null, null, null);
+    }
 
+    /**
+     * 读取文件，offset/length 按字节范围读取，lines 读取前若干行，均为空时从头读取至截断长度
+     */
+    public String getFile(FileRequest fileRequest, Boolean noticeFe, Long offset, Integer length, Integer lines) {
         ApplicationContext applicationContext = SpringContextHolder.getApplicationContext();
         GenieConfig genieConfig = applicationContext.getBean(GenieConfig.class);
-        MediaType mediaType = MediaType.get("application/json; charset=utf-8");
-        String url = genieConfig.getCodeInterpreterUrl() + "/v1/file_tool/get_file";
-        
-        FileRequest getFileRequest = FileRequest.builder()
-                .requestId(agentContext.getRequestId())
-                .fileName(fileRequest.getFileName())
-                .build();
-        getFileRequest.setRequestId(agentContext.getSessionId());
-        RequestBody body = RequestBody.create(JSON.toJSONString(getFileRequest), mediaType);
-        Request request = new Request.Builder()
-                .url(url)
-                .post(body)
-                .addHeader("Content-Type", "application/json")
-                .build();
         try {
-            log.info("{} file tool get request {}", agentContext.getRequestId(), JSON.toJSONString(getFileRequest));
-            Response response = client.newCall(request).execute();
-            if (!response.isSuccessful() || response.body() == null) {
+            FileResponse fileResponse = resolveFile(genieConfig, fileRequest.getFileName());
+            if (Objects.isNull(fileResponse)) {
                 String errMessage = "获取文件失败 " + fileRequest.getFileName();
                 return errMessage;
             }
-            String result = response.body().string();
-            FileResponse fileResponse = JSON.parseObject(result, FileResponse.class);
-            log.info("{} file tool get response {}", agentContext.getRequestId(), result);
-            
+
             Map<String, Object> resultMap = new HashMap<>();
             resultMap.put("command", "读取文件");
             List<CodeInterpreterResponse.FileInfo> fileInfo = new ArrayList<>();
@@ -329,41 +273,61 @@ public class FileTool implements BaseTool {
             if (noticeFe) {
                 agentContext.getPrinter().send("file", resultMap, digitalEmployee);
             }
-            
-            String fileContent = getUrlContent(fileResponse.getOssUrl());
-            if (Objects.nonNull(fileContent)) {
-                if (fileContent.length() > genieConfig.getFileToolContentTruncateLen()) {
-                    fileContent = fileContent.substring(0, genieConfig.getFileToolContentTruncateLen());
-                }
-                return "文件内容 " + fileContent;
+
+            FileContentCache.Content content = FileContentCache.open(fileResponse.getOssUrl());
+            int truncateLen = genieConfig.getFileToolContentTruncateLen();
+            // UTF-8 单字符最多 4 字节，按字节读取并按字符截断，范围不切断多字节字符
+            int maxBytes = truncateLen * 4;
+            FileContentCache.Slice slice = Objects.nonNull(lines)
+                    ? content.head(lines, maxBytes, truncateLen)
+                    : content.read(Objects.nonNull(offset) ? offset : 0,
+                    Objects.nonNull(length) ? Math.min(length, maxBytes) : maxBytes, truncateLen);
+            String fileContent = slice.getText();
+            if (slice.getStart() > 0 || slice.getEnd() < content.size()) {
+                return "文件内容 " + fileContent + "\n（文件共 " + content.size() + " 字节，本次读取第 " + slice.getStart() + "-" + slice.getEnd()
+                        + " 字节，可通过 offset/length 继续分段读取）";
             }
+            return "文件内容 " + fileContent;
         } catch (Exception e) {
             log.error("{} get file error", agentContext.getRequestId(), e);
         }
         return null;
     }
 
-    private String getUrlContent(String url) {
-        OkHttpClient client = new OkHttpClient.Builder()
-                .connectTimeout(60, TimeUnit.SECONDS)
-                .readTimeout(60, TimeUnit.SECONDS)
-                .writeTimeout(60, TimeUnit.SECONDS)
-                .callTimeout(60, TimeUnit.SECONDS)
+    /**
+     * 获取文件地址，本次请求已登记的产物直接使用登记信息
+     */
+    private FileResponse resolveFile(GenieConfig genieConfig, String fileName) throws IOException {
+        File file = Objects.isNull(agentContext.getArtifactRegistry()) ? null : agentContext.getArtifactRegistry().get(fileName);
+        if (Objects.nonNull(file) && Objects.nonNull(file.getOssUrl())) {
+            return FileResponse.builder()
+                    .fileName(fileName)
+                    .ossUrl(file.getOssUrl())
+                    .domainUrl(file.getDomainUrl())
+                    .fileSize(file.getFileSize())
+                    .build();
+        }
+
+        MediaType mediaType = MediaType.get("application/json; charset=utf-8");
+        String url = genieConfig.getCodeInterpreterUrl() + "/v1/file_tool/get_file";
+        FileRequest getFileRequest = FileRequest.builder()
+                .requestId(agentContext.getSessionId())
+                .fileName(fileName)
                 .build();
+        RequestBody body = RequestBody.create(JSON.toJSONString(getFileRequest), mediaType);
         Request request = new Request.Builder()
                 .url(url)
+                .post(body)
+                .addHeader("Content-Type", "application/json")
                 .build();
-        try (Response response = client.newCall(request).execute()) {
-            if (response.isSuccessful() && response.body() != null) {
-                return response.body().string();
-            } else {
-                String errMsg = String.format("获取文件失败, 状态码:%d", response.code());
-                log.error("{} 获取文件失败 {}", agentContext.getRequestId(), response.code());
+        log.info("{} file tool get request {}", agentContext.getRequestId(), JSON.toJSONString(getFileRequest));
+        try (Response response = ArtifactUploader.getClient().newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
                 return null;
             }
-        } catch (IOException e) {
-            log.error("{} 获取文件异常", agentContext.getRequestId(), e);
-            return null;
+            String result = response.body().string();
+            log.info("{} file tool get response {}", agentContext.getRequestId(), result);
+            return JSON.parseObject(result, FileResponse.class);
         }
     }
 }
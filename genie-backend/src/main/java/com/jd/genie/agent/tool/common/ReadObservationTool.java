@@ -0,0 +1,109 @@
+package com.jd.genie.agent.tool.common;
+
+import com.jd.genie.agent.agent.AgentContext;
+import com.jd.genie.agent.tool.BaseTool;
+import com.jd.genie.agent.util.SpringContextHolder;
+import com.jd.genie.config.GenieConfig;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 分段读取被旁路存储的超长工具结果
+ */
+@Slf4j
+@Data
+public class ReadObservationTool implements BaseTool {
+    public static final String NAME = "read_observation";
+
+    private AgentContext agentContext;
+
+    @Override
+    public BaseTool bindContext(AgentContext agentContext) {
+        ReadObservationTool tool = new ReadObservationTool();
+        tool.setAgentContext(agentContext);
+        return tool;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getDescription() {
+        return "读取超长工具执行结果的后续内容。当工具执行结果中提示结果已存储并给出句柄（如 obs_1）时，可使用该工具按字符偏移分段读取完整结果，仅在预览内容不足以完成任务时使用。";
+    }
+
+    @Override
+    public Map<String, Object> toParams() {
+        Map<String, Object> handle = new HashMap<>();
+        handle.put("type", "string");
+        handle.put("description", "工具结果句柄，如 obs_1");
+
+        Map<String, Object> offset = new HashMap<>();
+        offset.put("type", "integer");
+        offset.put("description", "起始字符位置，通常为上次读取的结束位置");
+
+        Map<String, Object> length = new HashMap<>();
+        length.put("type", "integer");
+        length.put("description", "读取字符数");
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("type", "object");
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("handle", handle);
+        properties.put("offset", offset);
+        properties.put("length", length);
+        parameters.put("properties", properties);
+        parameters.put("required", Arrays.asList("handle", "offset"));
+        return parameters;
+    }
+
+    @Override
+    public Object execute(Object input) {
+        if (!(input instanceof Map)) {
+            return "参数错误：需要 handle 与 offset";
+        }
+        Map<?, ?> params = (Map<?, ?>) input;
+        Object handleValue = params.get("handle");
+        if (!(handleValue instanceof String)) {
+            return "参数错误：缺少工具结果句柄 handle";
+        }
+        String handle = (String) handleValue;
+        if (Objects.isNull(agentContext.getObservationStore())) {
+            return "工具结果存储不可用";
+        }
+        try {
+            GenieConfig genieConfig = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class);
+            int offset = params.get("offset") instanceof Number ? ((Number) params.get("offset")).intValue() : 0;
+            int maxChars = genieConfig.getObservationReadMaxChars();
+            int length = params.get("length") instanceof Number ? Math.min(((Number) params.get("length")).intValue(), maxChars) : maxChars;
+
+            int total = agentContext.getObservationStore().length(handle);
+            if (total < 0) {
+                return "未找到工具结果 " + handle;
+            }
+            if (offset < 0 || offset > total) {
+                return "offset 超出范围：" + handle + " 共 " + total + " 字符，offset 应在 0-" + total + " 之间";
+            }
+            if (length <= 0) {
+                return "length 必须大于 0";
+            }
+            String content = agentContext.getObservationStore().read(handle, offset, length);
+            if (Objects.isNull(content)) {
+                return "未找到工具结果 " + handle;
+            }
+            int end = offset + content.length();
+            return content + "\n（" + handle + " 第 " + offset + "-" + end + " 字符，共 " + total + " 字符"
+                    + (end < total ? "，可从 offset=" + end + " 继续读取）" : "，已读取完毕）");
+        } catch (Exception e) {
+            log.error("{} read observation error", agentContext.getRequestId(), e);
+            return "读取工具结果 " + handle + " 失败：" + e.getMessage();
+        }
+    }
+}
@@ -6,22 +6,20 @@ import com.jd.genie.agent.dto.CodeInterpreterRequest;
 import com.jd.genie.agent.dto.CodeInterpreterResponse;
 import com.jd.genie.agent.dto.File;
 import com.jd.genie.agent.tool.BaseTool;
+import com.jd.genie.agent.printer.StreamFlushPolicy;
+import com.jd.genie.agent.tool.guard.ToolGuard;
+import com.jd.genie.agent.tool.stream.StreamEventHandler;
+import com.jd.genie.agent.tool.stream.StreamRequest;
+import com.jd.genie.agent.tool.stream.StreamToolClient;
 import com.jd.genie.agent.util.SpringContextHolder;
 import com.jd.genie.agent.util.StringUtil;
 import com.jd.genie.config.GenieConfig;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.*;
-import org.springframework.context.ApplicationContext;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Data
@@ -29,11 +27,23 @@ import java.util.stream.Collectors;
 public class ReportTool implements BaseTool {
     private AgentContext agentContext;
 
+    @Override
+    public BaseTool bindContext(AgentContext agentContext) {
+        ReportTool tool = new ReportTool();
+        tool.setAgentContext(agentContext);
+        return tool;
+    }
+
     @Override
     public String getName() {
         return "report_tool";
     }
 
+    @Override
+    public boolean isRemote() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         String desc = "这是一个报告工具，可以通过编写HTML、MarkDown报告";
@@ -80,7 +90,7 @@ public class ReportTool implements BaseTool {
                 return null;
             }
 
-            List<String> fileNames = agentContext.getProductFiles().stream().map(File::getFileName).collect(Collectors.toList());
+            List<String> fileNames = agentContext.getArtifactRegistry().fileNames();
             Map<String, Object> streamMode = new HashMap<>();
             streamMode.put("mode", "token");
             streamMode.put("token", 10);
@@ -112,117 +122,62 @@ public class ReportTool implements BaseTool {
      * 调用 CodeAgent
      */
     public CompletableFuture<String> callCodeAgentStream(CodeInterpreterRequest codeRequest) {
-        CompletableFuture<String> future = new CompletableFuture<>();
-        try {
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .connectTimeout(60, TimeUnit.SECONDS) // 设置连接超时时间为 1 分钟
-                    .readTimeout(600, TimeUnit.SECONDS)    // 设置读取超时时间为 10 分钟
-                    .writeTimeout(600, TimeUnit.SECONDS)   // 设置写入超时时间为 10 分钟
-                    .callTimeout(600, TimeUnit.SECONDS)    // 设置调用超时时间为 10 分钟
+        GenieConfig genieConfig = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class);
+        log.info("{} report_tool request {}", agentContext.getRequestId(), JSONObject.toJSONString(codeRequest));
+        StreamRequest streamRequest = StreamRequest.builder()
+                .requestId(agentContext.getRequestId())
+                .toolName(getName())
+                .url(genieConfig.getCodeInterpreterUrl() + "/v1/tool/report")
+                .body(codeRequest)
+                .timeout(ToolGuard.getPolicy(getName()).getTimeoutSeconds())
+                .build();
+        StreamFlushPolicy flushPolicy = StreamFlushPolicy.of("report");
+        String messageId = StringUtil.getUUID();
+        // 获取数字人名称
+        String digitalEmployee = agentContext.getToolCollection().getDigitalEmployee(getName());
+
+        return StreamToolClient.stream(streamRequest, CodeInterpreterResponse.class, new StreamEventHandler<CodeInterpreterResponse, String>() {
+            private CodeInterpreterResponse codeResponse = CodeInterpreterResponse.builder()
+                    .codeOutput("report_tool 执行失败") // 默认输出
                     .build();
-
-            ApplicationContext applicationContext = SpringContextHolder.getApplicationContext();
-            GenieConfig genieConfig = applicationContext.getBean(GenieConfig.class);
-            String url = genieConfig.getCodeInterpreterUrl() + "/v1/tool/report";
-            RequestBody body = RequestBody.create(
-                    MediaType.parse("application/json"),
-                    JSONObject.toJSONString(codeRequest)
-            );
-
-            log.info("{} report_tool request {}", agentContext.getRequestId(), JSONObject.toJSONString(codeRequest));
-            Request.Builder requestBuilder = new Request.Builder()
-                    .url(url)
-                    .post(body);
-            Request request = requestBuilder.build();
-
-            String[] interval = genieConfig.getMessageInterval().getOrDefault("report", "1,4").split(",");
-            int firstInterval = Integer.parseInt(interval[0]);
-            int sendInterval = Integer.parseInt(interval[1]);
-            client.newCall(request).enqueue(new Callback() {
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    log.error("{} report_tool on failure", agentContext.getRequestId(), e);
-                    future.completeExceptionally(e);
-                }
-
-                @Override
-                public void onResponse(Call call, Response response) {
-
-                    log.info("{} report_tool response {} {} {}", agentContext.getRequestId(), response, response.code(), response.body());
-                    CodeInterpreterResponse codeResponse = CodeInterpreterResponse.builder()
-                            .codeOutput("report_tool 执行失败") // 默认输出
-                            .build();
-                    try {
-                        ResponseBody responseBody = response.body();
-                        if (!response.isSuccessful() || responseBody == null) {
-                            log.error("{} report_tool request error.", agentContext.getRequestId());
-                            future.completeExceptionally(new IOException("Unexpected response code: " + response));
-                            return;
+            private final StringBuilder stringBuilderIncr = new StringBuilder();
+
+            @Override
+            public boolean onEvent(CodeInterpreterResponse event) {
+                codeResponse = event;
+                if (Boolean.TRUE.equals(codeResponse.getIsFinal())) {
+                    // report_tool 只会输出一个文件，使用模型输出的文件名和描述
+                    if (Objects.nonNull(codeResponse.getFileInfo())) {
+                        for (CodeInterpreterResponse.FileInfo fileInfo : codeResponse.getFileInfo()) {
+                            File file = File.builder()
+                                    .fileName(codeRequest.getFileName())
+                                    .fileSize(fileInfo.getFileSize())
+                                    .ossUrl(fileInfo.getOssUrl())
+                                    .domainUrl(fileInfo.getDomainUrl())
+                                    .description(codeRequest.getFileDescription())
+                                    .isInternalFile(false)
+                                    .build();
+                            agentContext.addProductFile(file);
                         }
-
-                        int index = 1;
-                        StringBuilder stringBuilderIncr = new StringBuilder();
-                        String line;
-                        String messageId = StringUtil.getUUID();
-                        // 获取数字人名称
-                        String digitalEmployee = agentContext.getToolCollection().getDigitalEmployee(getName());
-                        BufferedReader reader = new BufferedReader(new InputStreamReader(responseBody.byteStream()));
-                        while ((line = reader.readLine()) != null) {
-                            if (line.startsWith("data: ")) {
-                                String data = line.substring(6);
-                                if (data.equals("[DONE]")) {
-                                    break;
-                                }
-                                if (index == 1 || index % 100 == 0) {
-                                    log.info("{} report_tool recv data: {}", agentContext.getRequestId(), data);
-                                }
-                                if (data.startsWith("heartbeat")) {
-                                    continue;
-                                }
-                                codeResponse = JSONObject.parseObject(data, CodeInterpreterResponse.class);
-                                if (codeResponse.getIsFinal()) {
-                                    // report_tool 只会输出一个文件，使用模型输出的文件名和描述
-                                    if (Objects.nonNull(codeResponse.getFileInfo())) {
-                                        for (CodeInterpreterResponse.FileInfo fileInfo : codeResponse.getFileInfo()) {
-                                            File file = File.builder()
-                                                    .fileName(codeRequest.getFileName())
-                                                    .fileSize(fileInfo.getFileSize())
-                                                    .ossUrl(fileInfo.getOssUrl())
-                                                    .domainUrl(fileInfo.getDomainUrl())
-                                                    .description(codeRequest.getFileDescription())
-                                                    .isInternalFile(false)
-                                                    .build();
-                                            agentContext.getProductFiles().add(file);
-                                            agentContext.getTaskProductFiles().add(file);
-                                        }
-                                    }
-                                    agentContext.getPrinter().send(messageId, codeRequest.getFileType(), codeResponse, digitalEmployee, true);
-                                } else {
-                                    stringBuilderIncr.append(codeResponse.getData());
-                                    if (index == firstInterval || index % sendInterval == 0) {
-                                        codeResponse.setData(stringBuilderIncr.toString());
-                                        agentContext.getPrinter().send(messageId, codeRequest.getFileType(), codeResponse, digitalEmployee, false);
-                                        stringBuilderIncr.setLength(0);
-                                    }
-                                }
-                                index++;
-                            }
-                        }
-                    } catch (Exception e) {
-                        log.error("{} report_tool request error", agentContext.getRequestId(), e);
-                        future.completeExceptionally(e);
-                        return;
                     }
-                    // 统一使用data字段，兼容历史codeOutput逻辑
-                    String result = Objects.nonNull(codeResponse.getData()) && !codeResponse.getData().isEmpty() ? codeResponse.getData() : codeResponse.getCodeOutput();
-                    future.complete(result);
+                    agentContext.getPrinter().send(messageId, codeRequest.getFileType(), codeResponse, digitalEmployee, true);
+                } else {
+                    stringBuilderIncr.append(codeResponse.getData());
+                    if (flushPolicy.append(codeResponse.getData())) {
+                        codeResponse.setData(stringBuilderIncr.toString());
+                        agentContext.getPrinter().send(messageId, codeRequest.getFileType(), codeResponse, digitalEmployee, false);
+                        stringBuilderIncr.setLength(0);
+                        flushPolicy.flushed();
+                    }
                 }
-            });
-        } catch (Exception e) {
-            log.error("{} report_tool request error", agentContext.getRequestId(), e);
-            future.completeExceptionally(e);
-        }
+                return true;
+            }
 
-        return future;
+            @Override
+            public String onComplete() {
+                // 统一使用data字段，兼容历史codeOutput逻辑
+                return Objects.nonNull(codeResponse.getData()) && !codeResponse.getData().isEmpty() ? codeResponse.getData() : codeResponse.getCodeOutput();
+            }
+        });
     }
 }
\ No newline at end of file
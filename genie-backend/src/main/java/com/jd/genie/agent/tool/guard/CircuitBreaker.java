@@ -0,0 +1,121 @@
+package com.jd.genie.agent.tool.guard;
+
+import java.util.Arrays;
+
+/**
+ * 基于调用次数滑动窗口的熔断器
+ * CLOSED 统计失败率，超过阈值进入 OPEN；OPEN 期间直接拒绝，到期后进入 HALF_OPEN 放行一次试探，
+ * 试探成功恢复 CLOSED，失败重新 OPEN
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final double failureRateThreshold;
+    private final int minCalls;
+    private final long openMillis;
+    private final boolean[] window;
+
+    private State state = State.CLOSED;
+    private int position = 0;
+    private int calls = 0;
+    private int failures = 0;
+    private long openUntil = 0;
+    private boolean trialInFlight = false;
+
+    public CircuitBreaker(double failureRateThreshold, int minCalls, int windowSize, long openSeconds) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.minCalls = minCalls;
+        this.openMillis = openSeconds * 1000;
+        this.window = new boolean[Math.max(windowSize, 1)];
+    }
+
+    /**
+     * 是否放行本次调用
+     */
+    public synchronized boolean allow() {
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    /**
+     * 记录调用结果
+     */
+    public synchronized void record(boolean success) {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            if (success) {
+                reset();
+            } else {
+                open();
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        if (calls == window.length) {
+            if (window[position]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        window[position] = !success;
+        if (!success) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+        if (calls >= minCalls && (double) failures / calls >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * 放行后未实际执行（如舱壁拒绝），归还试探名额
+     */
+    public synchronized void cancel() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * 距离下次试探的剩余时间（毫秒）
+     */
+    public synchronized long remainingOpenMs() {
+        return state == State.OPEN ? Math.max(0, openUntil - System.currentTimeMillis()) : 0;
+    }
+
+    public synchronized double failureRate() {
+        return calls == 0 ? 0 : (double) failures / calls;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + openMillis;
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        position = 0;
+        calls = 0;
+        failures = 0;
+        Arrays.fill(window, false);
+    }
+}
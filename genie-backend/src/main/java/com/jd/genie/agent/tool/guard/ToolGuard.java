@@ -0,0 +1,181 @@
+package com.jd.genie.agent.tool.guard;
+
+import com.jd.genie.agent.util.LatencyHistogram;
+import com.jd.genie.agent.util.SpringContextHolder;
+import com.jd.genie.config.GenieConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 工具调用保护
+ * 1、按工具舱壁隔离：独立线程池 + 并发上限 + 有界排队，许可在工具真正结束后才释放，后端卡住时新调用快速失败
+ * 2、按工具配置超时，超时后立即向 agent 返回结果，不再占用调用线程
+ * 3、熔断：失败率超过阈值后直接返回不可用提示，agent 可据此改用其他工具
+ * 4、按工具统计健康状况
+ */
+@Slf4j
+public class ToolGuard {
+    public static final String DEFAULT_KEY = "default";
+    public static final String MCP_GROUP = "mcp";
+    // 外层超时在工具自身超时基础上的宽限，保证工具内部超时先触发
+    private static final long TIMEOUT_GRACE_SECONDS = 5L;
+
+    private static final Map<String, Guard> guards = new ConcurrentHashMap<>();
+
+    private ToolGuard() {
+    }
+
+    /**
+     * 获取工具策略，查找顺序：工具名、分组、default、内置默认值
+     */
+    public static ToolGuardPolicy getPolicy(String toolName, String group) {
+        Map<String, ToolGuardPolicy> policies = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class).getToolGuardPolicies();
+        ToolGuardPolicy policy = ToolGuardPolicy.DEFAULT;
+        for (String key : new String[]{DEFAULT_KEY, group, toolName}) {
+            ToolGuardPolicy configured = Objects.isNull(key) ? null : policies.get(key);
+            if (Objects.nonNull(configured)) {
+                policy = configured.merge(policy);
+            }
+        }
+        return policy;
+    }
+
+    public static ToolGuardPolicy getPolicy(String toolName) {
+        return getPolicy(toolName, null);
+    }
+
+    /**
+     * 受保护地执行工具，熔断、排队已满、超时时返回提示文本
+     */
+    public static Object execute(String toolName, String group, String requestId, Supplier<Object> action) {
+        Guard guard = guards.computeIfAbsent(toolName, k -> new Guard(getPolicy(toolName, group)));
+        if (!guard.breaker.allow()) {
+            guard.circuitRejected.incrementAndGet();
+            log.warn("{} tool {} circuit open, reject", requestId, toolName);
+            return String.format("工具 %s 暂时不可用（近期调用失败率过高，约 %d 秒后恢复），请改用其他工具或基于已有信息继续完成任务",
+                    toolName, TimeUnit.MILLISECONDS.toSeconds(guard.breaker.remainingOpenMs()) + 1);
+        }
+
+        boolean acquired;
+        try {
+            acquired = guard.bulkhead.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            guard.breaker.cancel();
+            guard.bulkheadRejected.incrementAndGet();
+            log.warn("{} tool {} bulkhead full, reject", requestId, toolName);
+            return String.format("工具 %s 当前繁忙（并发已满），请稍后重试或改用其他工具", toolName);
+        }
+
+        long startTime = System.currentTimeMillis();
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        try {
+            guard.executor.execute(() -> {
+                try {
+                    future.complete(action.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    guard.bulkhead.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            guard.bulkhead.release();
+            guard.breaker.cancel();
+            guard.bulkheadRejected.incrementAndGet();
+            return String.format("工具 %s 当前繁忙（并发已满），请稍后重试或改用其他工具", toolName);
+        }
+        try {
+            Object result = future.get(guard.policy.getTimeoutSeconds() + TIMEOUT_GRACE_SECONDS, TimeUnit.SECONDS);
+            guard.record(Objects.nonNull(result), System.currentTimeMillis() - startTime);
+            return result;
+        } catch (TimeoutException e) {
+            guard.timeouts.incrementAndGet();
+            guard.record(false, System.currentTimeMillis() - startTime);
+            log.error("{} tool {} timeout after {}s", requestId, toolName, guard.policy.getTimeoutSeconds());
+            return String.format("工具 %s 执行超时（%d 秒），请缩小输入范围后重试或改用其他工具", toolName, guard.policy.getTimeoutSeconds());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            guard.record(false, System.currentTimeMillis() - startTime);
+            return null;
+        } catch (Exception e) {
+            guard.record(false, System.currentTimeMillis() - startTime);
+            log.error("{} tool {} execute error", requestId, toolName, e);
+            return null;
+        }
+    }
+
+    /**
+     * 各工具健康状况
+     */
+    public static Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new HashMap<>();
+        guards.forEach((tool, guard) -> stats.put(tool, guard.snapshot()));
+        return stats;
+    }
+
+    /**
+     * 单个工具的保护状态
+     */
+    private static class Guard {
+        private final ToolGuardPolicy policy;
+        private final Bulkhead bulkhead;
+        private final CircuitBreaker breaker;
+        private final ExecutorService executor;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong successes = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong bulkheadRejected = new AtomicLong();
+        private final AtomicLong circuitRejected = new AtomicLong();
+
+        Guard(ToolGuardPolicy policy) {
+            this.policy = policy;
+            this.bulkhead = new Bulkhead(policy.getMaxConcurrent(), policy.getMaxQueue(), policy.getQueueTimeoutMs());
+            this.breaker = new CircuitBreaker(policy.getFailureRateThreshold(), policy.getMinCalls(),
+                    policy.getWindowSize(), policy.getOpenSeconds());
+            // 并发由舱壁控制，线程数留出余量，避免线程归还前的瞬时拒绝
+            this.executor = new ThreadPoolExecutor(0, policy.getMaxConcurrent() * 2, 60L, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), new BasicThreadFactory.Builder().namingPattern("tool-guard-%d").daemon(true).build());
+        }
+
+        void record(boolean success, long millis) {
+            (success ? successes : failures).incrementAndGet();
+            latency.record(millis);
+            breaker.record(success);
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("state", breaker.getState().name());
+            map.put("failureRate", breaker.failureRate());
+            map.put("inflight", bulkhead.getInflight());
+            map.put("waiting", bulkhead.getWaiting());
+            map.put("successes", successes.get());
+            map.put("failures", failures.get());
+            map.put("timeouts", timeouts.get());
+            map.put("bulkheadRejected", bulkheadRejected.get());
+            map.put("circuitRejected", circuitRejected.get());
+            map.put("latency", latency.snapshot());
+            return map;
+        }
+    }
+}
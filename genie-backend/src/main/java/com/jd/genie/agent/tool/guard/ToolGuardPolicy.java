@@ -0,0 +1,82 @@
+package com.jd.genie.agent.tool.guard;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 工具隔离与熔断策略，未配置的字段依次取分组（如 mcp）、default 及内置默认值
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToolGuardPolicy {
+    /**
+     * 最大并发执行数
+     */
+    private Integer maxConcurrent;
+
+    /**
+     * 并发占满后允许排队等待的调用数，超出直接拒绝
+     */
+    private Integer maxQueue;
+
+    /**
+     * 排队最长等待时间（毫秒）
+     */
+    private Long queueTimeoutMs;
+
+    /**
+     * 调用超时（秒），流式工具同时作为上游请求超时
+     */
+    private Long timeoutSeconds;
+
+    /**
+     * 滑动窗口内失败率达到该值时熔断
+     */
+    private Double failureRateThreshold;
+
+    /**
+     * 窗口内调用数达到该值才计算失败率
+     */
+    private Integer minCalls;
+
+    /**
+     * 滑动窗口大小（调用次数）
+     */
+    private Integer windowSize;
+
+    /**
+     * 熔断持续时间（秒），之后放行一次试探调用
+     */
+    private Long openSeconds;
+
+    static final ToolGuardPolicy DEFAULT = ToolGuardPolicy.builder()
+            .maxConcurrent(16)
+            .maxQueue(32)
+            .queueTimeoutMs(30000L)
+            .timeoutSeconds(300L)
+            .failureRateThreshold(0.5)
+            .minCalls(5)
+            .windowSize(20)
+            .openSeconds(30L)
+            .build();
+
+    /**
+     * 以 fallback 补齐未配置的字段
+     */
+    ToolGuardPolicy merge(ToolGuardPolicy fallback) {
+        return ToolGuardPolicy.builder()
+                .maxConcurrent(maxConcurrent != null ? maxConcurrent : fallback.maxConcurrent)
+                .maxQueue(maxQueue != null ? maxQueue : fallback.maxQueue)
+                .queueTimeoutMs(queueTimeoutMs != null ? queueTimeoutMs : fallback.queueTimeoutMs)
+                .timeoutSeconds(timeoutSeconds != null ? timeoutSeconds : fallback.timeoutSeconds)
+                .failureRateThreshold(failureRateThreshold != null ? failureRateThreshold : fallback.failureRateThreshold)
+                .minCalls(minCalls != null ? minCalls : fallback.minCalls)
+                .windowSize(windowSize != null ? windowSize : fallback.windowSize)
+                .openSeconds(openSeconds != null ? openSeconds : fallback.openSeconds)
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.jd.genie.agent.tool.mcp;
+
+import com.alibaba.fastjson.JSON;
+import com.jd.genie.agent.tool.guard.ToolGuard;
+import com.jd.genie.agent.util.LatencyHistogram;
+import com.jd.genie.agent.util.SpringContextHolder;
+import com.jd.genie.config.GenieConfig;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MCP 调用客户端
+ * 1、按 MCP server 维护长连接池，连接复用
+ * 2、调用超时取 ToolGuard 策略（工具名、mcp 分组、default 逐级继承），与外层保护共用一个期限
+ * 3、按工具记录耗时直方图
+ */
+@Slf4j
+public class McpClient {
+    private static final MediaType JSON_TYPE = MediaType.get("application/json; charset=utf-8");
+
+    private static final OkHttpClient baseClient = new OkHttpClient.Builder()
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(0, TimeUnit.SECONDS)
+            .writeTimeout(30, TimeUnit.SECONDS)
+            .build();
+    private static final Map<String, OkHttpClient> serverClients = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> toolLatency = new ConcurrentHashMap<>();
+
+    private McpClient() {
+    }
+
+    /**
+     * 调用 MCP 工具
+     */
+    public static String callTool(String mcpServerUrl, String toolName, Map<String, Object> arguments) throws IOException {
+        GenieConfig genieConfig = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class);
+        long timeout = ToolGuard.getPolicy(toolName, ToolGuard.MCP_GROUP).getTimeoutSeconds();
+        long startTime = System.currentTimeMillis();
+        try {
+            McpTool.McpToolRequest mcpToolRequest = McpTool.McpToolRequest.builder()
+                    .name(toolName)
+                    .server_url(mcpServerUrl)
+                    .arguments(arguments)
+                    .build();
+            return post(mcpServerUrl, genieConfig.getMcpClientUrl() + "/v1/tool/call", JSON.toJSONString(mcpToolRequest), timeout);
+        } finally {
+            toolLatency.computeIfAbsent(toolName, k -> new LatencyHistogram()).record(System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * 各工具耗时直方图
+     */
+    public static Map<String, Map<String, Object>> getLatencySnapshot() {
+        Map<String, Map<String, Object>> snapshot = new HashMap<>();
+        toolLatency.forEach((tool, histogram) -> snapshot.put(tool, histogram.snapshot()));
+        return snapshot;
+    }
+
+    private static String post(String mcpServerUrl, String url, String json, long timeout) throws IOException {
+        OkHttpClient client = serverClients.computeIfAbsent(mcpServerUrl, k -> baseClient.newBuilder()
+                .connectionPool(new ConnectionPool(8, 5, TimeUnit.MINUTES))
+                .build());
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(json, JSON_TYPE))
+                .build();
+        Call call = client.newCall(request);
+        call.timeout().timeout(timeout, TimeUnit.SECONDS);
+        try (Response response = call.execute()) {
+            if (response.isSuccessful() && response.body() != null) {
+                return response.body().string();
+            }
+            throw new IOException("mcp client response code: " + response.code());
+        }
+    }
+}
@@ -13,6 +13,7 @@ import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Map;
+import java.util.Objects;
 
 @Slf4j
 @Data
@@ -70,27 +71,21 @@ public class McpTool implements BaseTool {
             log.info("list tool request: {} response: {}", JSON.toJSONString(mcpToolRequest), response);
             return response;
         } catch (Exception e) {
-            log.error("{} list tool error", agentContext.getRequestId(), e);
+            log.error("{} list tool error", Objects.nonNull(agentContext) ? agentContext.getRequestId() : mcpServerUrl, e);
         }
         return "";
     }
 
     public String callTool(String mcpServerUrl, String toolName, Object input) {
         try {
-            GenieConfig genieConfig = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class);
-            String mcpClientUrl = genieConfig.getMcpClientUrl() + "/v1/tool/call";
             Map<String, Object> params = (Map<String, Object>) input;
-            McpToolRequest mcpToolRequest = McpToolRequest.builder()
-                    .name(toolName)
-                    .server_url(mcpServerUrl)
-                    .arguments(params)
-                    .build();
-            String response = OkHttpUtil.postJson(mcpClientUrl, JSON.toJSONString(mcpToolRequest), null, 30L);
-            log.info("call tool request: {} response: {}", JSON.toJSONString(mcpToolRequest), response);
+            String response = McpClient.callTool(mcpServerUrl, toolName, params);
+            log.info("{} call tool server: {} name: {} response: {}", agentContext.getRequestId(), mcpServerUrl, toolName, response);
             return response;
         } catch (Exception e) {
             log.error("{} call tool error ", agentContext.getRequestId(), e);
         }
-        return "";
+        // 调用失败返回 null，计入熔断统计
+        return null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.jd.genie.agent.tool.stream;
+
+import okio.BufferedSource;
+import okio.ByteString;
+
+import java.io.IOException;
+
+/**
+ * 字节级 SSE 分帧
+ * 直接在响应缓冲区上按行切分，心跳与结束标记按字节比较，只把 data 负载交给解码，不为每行构造字符串
+ * 工具服务每个 data 行即一个完整事件，因此按行分发
+ */
+public class SseFramer {
+    private static final ByteString DATA = ByteString.encodeUtf8("data:");
+    private static final ByteString DONE = ByteString.encodeUtf8("[DONE]");
+    private static final ByteString HEARTBEAT = ByteString.encodeUtf8("heartbeat");
+    private static final byte NEW_LINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte SPACE = ' ';
+
+    private SseFramer() {
+    }
+
+    /**
+     * 读取 SSE 流直至 [DONE]、流结束或 consumer 返回 false
+     */
+    public static void read(BufferedSource source, PayloadConsumer consumer) throws IOException {
+        while (true) {
+            long newLine = source.indexOf(NEW_LINE);
+            ByteString line;
+            if (newLine == -1) {
+                if (source.exhausted()) {
+                    return;
+                }
+                line = source.readByteString();
+            } else {
+                line = source.readByteString(newLine);
+                source.skip(1);
+            }
+            ByteString payload = payload(line);
+            if (payload == null || payload.size() == 0 || payload.startsWith(HEARTBEAT)) {
+                continue;
+            }
+            if (payload.equals(DONE) || !consumer.accept(payload)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 提取 data 负载，非 data 行返回 null
+     */
+    static ByteString payload(ByteString line) {
+        int end = line.size();
+        if (end > 0 && line.getByte(end - 1) == CARRIAGE_RETURN) {
+            end--;
+        }
+        if (!line.startsWith(DATA)) {
+            return null;
+        }
+        int start = DATA.size();
+        if (start < end && line.getByte(start) == SPACE) {
+            start++;
+        }
+        return line.substring(start, end);
+    }
+
+    /**
+     * data 负载消费者
+     */
+    public interface PayloadConsumer {
+        /**
+         * @return false 表示停止读取
+         */
+        boolean accept(ByteString payload) throws IOException;
+    }
+}
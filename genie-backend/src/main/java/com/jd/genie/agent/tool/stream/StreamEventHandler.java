@@ -0,0 +1,21 @@
+package com.jd.genie.agent.tool.stream;
+
+/**
+ * 流式工具事件处理器，事件按到达顺序在同一线程中回调
+ *
+ * @param <T> 事件类型
+ * @param <R> 结果类型
+ */
+public interface StreamEventHandler<T, R> {
+    /**
+     * 处理一个事件
+     *
+     * @return false 表示停止读取后续事件
+     */
+    boolean onEvent(T event) throws Exception;
+
+    /**
+     * 流结束，返回工具结果
+     */
+    R onComplete() throws Exception;
+}
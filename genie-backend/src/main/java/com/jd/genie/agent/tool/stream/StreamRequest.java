@@ -0,0 +1,22 @@
+package com.jd.genie.agent.tool.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 流式工具请求
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StreamRequest {
+    private String requestId;
+    private String toolName;
+    private String url;
+    private Object body;
+    // 整体调用超时（秒）
+    private long timeout;
+}
@@ -0,0 +1,185 @@
+package com.jd.genie.agent.tool.stream;
+
+import com.alibaba.fastjson.JSON;
+import com.jd.genie.agent.util.LatencyHistogram;
+import com.jd.genie.agent.util.SpringContextHolder;
+import com.jd.genie.agent.util.ThreadUtil;
+import com.jd.genie.config.GenieConfig;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式工具客户端
+ * 1、共享连接池的 OkHttpClient
+ * 2、字节级 SSE 分帧 + 按类型解码
+ * 3、读取与处理解耦：读线程解码后写入有界队列，处理线程按序回调 handler（输出到 Printer）；
+ * 前端 SSE 写入变慢时队列写满，读线程阻塞，停止从上游读取，形成背压
+ * 4、按工具统计首事件耗时、总耗时、事件数与字节数
+ */
+@Slf4j
+public class StreamToolClient {
+    private static final MediaType JSON_TYPE = MediaType.get("application/json; charset=utf-8");
+    private static final Object END = new Object();
+
+    private static final OkHttpClient client = new OkHttpClient.Builder()
+            .connectTimeout(60, TimeUnit.SECONDS)
+            .readTimeout(600, TimeUnit.SECONDS)
+            .writeTimeout(600, TimeUnit.SECONDS)
+            .connectionPool(new ConnectionPool(32, 5, TimeUnit.MINUTES))
+            .build();
+
+    private static final Map<String, ToolStreamStats> stats = new ConcurrentHashMap<>();
+
+    private StreamToolClient() {
+    }
+
+    /**
+     * 发起流式请求
+     */
+    public static <T, R> CompletableFuture<R> stream(StreamRequest streamRequest, Class<T> eventType, StreamEventHandler<T, R> handler) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        GenieConfig genieConfig = SpringContextHolder.getApplicationContext().getBean(GenieConfig.class);
+        ToolStreamStats toolStats = stats.computeIfAbsent(streamRequest.getToolName(), k -> new ToolStreamStats());
+        long startTime = System.currentTimeMillis();
+        try {
+            Request request = new Request.Builder()
+                    .url(streamRequest.getUrl())
+                    .post(RequestBody.create(JSON.toJSONString(streamRequest.getBody()), JSON_TYPE))
+                    .build();
+            Call call = client.newCall(request);
+            call.timeout().timeout(streamRequest.getTimeout(), TimeUnit.SECONDS);
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    log.error("{} {} on failure", streamRequest.getRequestId(), streamRequest.getToolName(), e);
+                    future.completeExceptionally(e);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    log.info("{} {} response {} {}", streamRequest.getRequestId(), streamRequest.getToolName(), response, response.code());
+                    BlockingQueue<Object> queue = new ArrayBlockingQueue<>(genieConfig.getStreamBufferSize());
+                    AtomicBoolean stopped = new AtomicBoolean(false);
+                    try (ResponseBody responseBody = response.body()) {
+                        if (!response.isSuccessful() || responseBody == null) {
+                            log.error("{} {} request error", streamRequest.getRequestId(), streamRequest.getToolName());
+                            future.completeExceptionally(new IOException("Unexpected response code: " + response));
+                            return;
+                        }
+                        ThreadUtil.execute(() -> consume(streamRequest, queue, stopped, handler, future, toolStats, startTime));
+
+                        AtomicLong events = new AtomicLong();
+                        SseFramer.read(responseBody.source(), payload -> {
+                            if (events.incrementAndGet() == 1) {
+                                toolStats.firstEvent.record(System.currentTimeMillis() - startTime);
+                            }
+                            toolStats.bytes.addAndGet(payload.size());
+                            T event = JSON.parseObject(payload.toByteArray(), eventType);
+                            return put(queue, event, stopped);
+                        });
+                        toolStats.events.addAndGet(events.get());
+                        put(queue, END, stopped);
+                        if (stopped.get()) {
+                            call.cancel();
+                        }
+                    } catch (Exception e) {
+                        log.error("{} {} request error", streamRequest.getRequestId(), streamRequest.getToolName(), e);
+                        future.completeExceptionally(e);
+                        // 通知处理线程结束
+                        stopped.set(true);
+                        queue.clear();
+                        queue.offer(END);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            log.error("{} {} request error", streamRequest.getRequestId(), streamRequest.getToolName(), e);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 各工具流式统计
+     */
+    public static Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> snapshot = new HashMap<>();
+        stats.forEach((tool, toolStats) -> snapshot.put(tool, toolStats.snapshot()));
+        return snapshot;
+    }
+
+    /**
+     * 写入队列，队列满时阻塞等待，处理端已停止时放弃
+     */
+    private static boolean put(BlockingQueue<Object> queue, Object item, AtomicBoolean stopped) {
+        try {
+            while (!stopped.get()) {
+                if (queue.offer(item, 1, TimeUnit.SECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped.set(true);
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, R> void consume(StreamRequest streamRequest, BlockingQueue<Object> queue, AtomicBoolean stopped,
+                                       StreamEventHandler<T, R> handler, CompletableFuture<R> future,
+                                       ToolStreamStats toolStats, long startTime) {
+        try {
+            while (true) {
+                Object item = queue.poll(streamRequest.getTimeout(), TimeUnit.SECONDS);
+                if (item == null) {
+                    throw new IOException("stream consume timeout");
+                }
+                if (item == END) {
+                    break;
+                }
+                if (!handler.onEvent((T) item)) {
+                    break;
+                }
+            }
+            stopped.set(true);
+            future.complete(handler.onComplete());
+        } catch (Exception e) {
+            stopped.set(true);
+            log.error("{} {} stream handle error", streamRequest.getRequestId(), streamRequest.getToolName(), e);
+            future.completeExceptionally(e);
+        } finally {
+            toolStats.duration.record(System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * 单个工具的流式统计
+     */
+    private static class ToolStreamStats {
+        private final LatencyHistogram firstEvent = new LatencyHistogram();
+        private final LatencyHistogram duration = new LatencyHistogram();
+        private final AtomicLong events = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("firstEvent", firstEvent.snapshot());
+            map.put("duration", duration.snapshot());
+            map.put("events", events.get());
+            map.put("bytes", bytes.get());
+            return map;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.jd.genie.agent.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定分桶的耗时直方图，无锁记录
+ */
+public class LatencyHistogram {
+    // 分桶上界（毫秒），最后一个桶收纳超出上界的耗时
+    private static final long[] BOUNDS = {10, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     */
+    public void record(long millis) {
+        int idx = 0;
+        while (idx < BOUNDS.length && millis > BOUNDS[idx]) {
+            idx++;
+        }
+        buckets.incrementAndGet(idx);
+        count.incrementAndGet();
+        sum.addAndGet(millis);
+        max.accumulateAndGet(millis, Math::max);
+    }
+
+    /**
+     * 估算分位数，返回所在桶的上界
+     */
+    public long percentile(double p) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * p);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return i < BOUNDS.length ? BOUNDS[i] : max.get();
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * 直方图快照
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        long total = count.get();
+        result.put("count", total);
+        result.put("avg", total == 0 ? 0 : sum.get() / total);
+        result.put("max", max.get());
+        result.put("p50", percentile(0.5));
+        result.put("p90", percentile(0.9));
+        result.put("p99", percentile(0.99));
+        Map<String, Long> bucketMap = new LinkedHashMap<>();
+        for (int i = 0; i < buckets.length(); i++) {
+            bucketMap.put(i < BOUNDS.length ? "le_" + BOUNDS[i] : "gt_" + BOUNDS[BOUNDS.length - 1], buckets.get(i));
+        }
+        result.put("buckets", bucketMap);
+        return result;
+    }
+}
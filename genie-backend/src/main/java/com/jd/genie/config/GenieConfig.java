@@ -4,6 +4,9 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.TypeReference;
 import com.jd.genie.agent.llm.LLMSettings;
+import com.jd.genie.agent.llm.RoutingPolicy;
+import com.jd.genie.agent.printer.StreamFlushConfig;
+import com.jd.genie.agent.tool.guard.ToolGuardPolicy;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,6 +14,7 @@ import org.springframework.context.annotation.Configuration;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Slf4j
@@ -177,6 +181,16 @@ public class GenieConfig {
         });
     }
 
+    /**
+     * LLM 路由策略
+     */
+    private List<RoutingPolicy> llmRoutingPolicies = new ArrayList<>();
+    @Value("${llm.routing:[]}")
+    public void setLlmRoutingPolicies(String jsonStr) {
+        this.llmRoutingPolicies = JSON.parseObject(jsonStr, new TypeReference<List<RoutingPolicy>>() {
+        });
+    }
+
     @Value("${autobots.autoagent.planner.max_steps:40}")
     private Integer plannerMaxSteps;
 
@@ -189,6 +203,15 @@ public class GenieConfig {
     @Value("${autobots.autoagent.executor.max_observe:10000}")
     private String maxObserve;
 
+    @Value("${autobots.autoagent.executor.observation_spill_threshold:4000}")
+    private Integer observationSpillThreshold;
+
+    @Value("${autobots.autoagent.executor.observation_preview_chars:2000}")
+    private Integer observationPreviewChars;
+
+    @Value("${autobots.autoagent.executor.observation_read_max_chars:8000}")
+    private Integer observationReadMaxChars;
+
     @Value("${autobots.autoagent.code_interpreter_url:}")
     private String CodeInterpreterUrl;
 
@@ -201,6 +224,22 @@ public class GenieConfig {
     @Value("${autobots.autoagent.mcp_server_url:}")
     private String[] mcpServerUrlArr;
 
+    @Value("${autobots.autoagent.mcp_tool_refresh_ttl:300}")
+    private Long mcpToolRefreshTtl;
+
+    @Value("${autobots.autoagent.mcp_tool_refresh_jitter:30}")
+    private Long mcpToolRefreshJitter;
+
+    /**
+     * 工具隔离与熔断策略，key 为工具名、mcp 或 default
+     */
+    private Map<String, ToolGuardPolicy> toolGuardPolicies = new HashMap<>();
+    @Value("${autobots.autoagent.tool_guard:{}}")
+    public void setToolGuardPolicies(String jsonStr) {
+        this.toolGuardPolicies = JSON.parseObject(jsonStr, new TypeReference<Map<String, ToolGuardPolicy>>() {
+        });
+    }
+
     @Value("${autobots.autoagent.summary.system_prompt:}")
     private String summarySystemPrompt;
 
@@ -224,13 +263,121 @@ public class GenieConfig {
         });
     }
 
-    private Map<String, String> messageInterval = new HashMap<>();
-    @Value("${autobots.autoagent.message_interval:{}}")
-    public void setMessageInterval(String jsonStr) {
-        this.messageInterval = JSON.parseObject(jsonStr, new TypeReference<Map<String, String>>() {
+    /**
+     * 流式输出刷新配置，key 为 llm、search、report 或 default
+     */
+    private Map<String, StreamFlushConfig> streamFlush = new HashMap<>();
+    @Value("${autobots.autoagent.stream_flush:{}}")
+    public void setStreamFlush(String jsonStr) {
+        this.streamFlush = JSON.parseObject(jsonStr, new TypeReference<Map<String, StreamFlushConfig>>() {
         });
     }
 
+    @Value("${autobots.autoagent.stream.buffer_size:256}")
+    private Integer streamBufferSize;
+
+    @Value("${autobots.autoagent.artifact_upload.queue_size:512}")
+    private Integer artifactUploadQueueSize;
+
+    @Value("${autobots.autoagent.artifact_upload.batch_size:8}")
+    private Integer artifactUploadBatchSize;
+
+    @Value("${autobots.autoagent.artifact_upload.batch_window_ms:20}")
+    private Long artifactUploadBatchWindowMs;
+
+    @Value("${autobots.autoagent.deep_search_cache.enabled:true}")
+    private Boolean deepSearchCacheEnabled;
+
+    @Value("${autobots.autoagent.deep_search_cache.similarity_threshold:0.95}")
+    private Double deepSearchCacheSimilarityThreshold;
+
+    @Value("${autobots.autoagent.deep_search_cache.ttl_seconds:86400}")
+    private Long deepSearchCacheTtlSeconds;
+
+    @Value("${autobots.autoagent.deep_search_cache.max_entries:10000}")
+    private Integer deepSearchCacheMaxEntries;
+
+    @Value("${autobots.autoagent.deep_search_cache.hot_entries:256}")
+    private Integer deepSearchCacheHotEntries;
+
+    @Value("${autobots.autoagent.deep_search_cache.dir:./search_cache}")
+    private String deepSearchCacheDir;
+
+    @Value("${autobots.autoagent.deep_search_cache.admin_users:}")
+    private String deepSearchCacheAdminUsers;
+
+    @Value("${autobots.autoagent.file_cache.dir:./file_cache}")
+    private String fileCacheDir;
+
+    @Value("${autobots.autoagent.file_cache.max_bytes:536870912}")
+    private Long fileCacheMaxBytes;
+
+    @Value("${autobots.autoagent.file_cache.revalidate_ms:30000}")
+    private Long fileCacheRevalidateMs;
+
+    @Value("${autobots.autoagent.file_cache.max_urls:10000}")
+    private Integer fileCacheMaxUrls;
+
+    @Value("${autobots.autoagent.sse.heartbeat_interval_ms:10000}")
+    private Long sseHeartbeatIntervalMs;
+
+    @Value("${autobots.autoagent.sse.heartbeat_tick_ms:500}")
+    private Long sseHeartbeatTickMs;
+
+    @Value("${autobots.autoagent.sse.heartbeat_sender_threads:8}")
+    private Integer sseHeartbeatSenderThreads;
+
+    @Value("${autobots.autoagent.sse.write_timeout_ms:30000}")
+    private Long sseWriteTimeoutMs;
+
+    @Value("${autobots.autoagent.sse.writer_queue_size:1024}")
+    private Integer sseWriterQueueSize;
+
+    @Value("${autobots.autoagent.sse.encoder_threads:4}")
+    private Integer sseEncoderThreads;
+
+    @Value("${autobots.autoagent.sse.sender_threads:32}")
+    private Integer sseSenderThreads;
+
+    @Value("${autobots.autoagent.sse.replay_max_frames:2048}")
+    private Integer sseReplayMaxFrames;
+
+    @Value("${autobots.autoagent.sse.replay_max_memory_bytes:8388608}")
+    private Long sseReplayMaxMemoryBytes;
+
+    @Value("${autobots.autoagent.sse.replay_max_spill_bytes:67108864}")
+    private Long sseReplayMaxSpillBytes;
+
+    @Value("${autobots.autoagent.sse.replay_dir:./sse_replay}")
+    private String sseReplayDir;
+
+    @Value("${autobots.autoagent.sse.replay_grace_ms:300000}")
+    private Long sseReplayGraceMs;
+
+    @Value("${autobots.autoagent.sse.replay_max_age_ms:7200000}")
+    private Long sseReplayMaxAgeMs;
+
+    @Value("${autobots.autoagent.chat_store.flush_interval_ms:200}")
+    private Long chatStoreFlushIntervalMs;
+
+    @Value("${autobots.autoagent.chat_store.batch_size:200}")
+    private Integer chatStoreBatchSize;
+
+    @Value("${autobots.autoagent.chat_store.max_retries:3}")
+    private Integer chatStoreMaxRetries;
+
+    @Value("${autobots.autoagent.chat_store.await_timeout_ms:5000}")
+    private Long chatStoreAwaitTimeoutMs;
+
+    @Value("${autobots.autoagent.ws.max_channels:16}")
+    private Integer wsMaxChannels;
+
+    @Value("${autobots.autoagent.ws.max_pending_bytes:1048576}")
+    private Long wsMaxPendingBytes;
+
+    @Value("${autobots.autoagent.ws.max_text_message_bytes:1048576}")
+    private Integer wsMaxTextMessageBytes;
+
     private String structParseToolSystemPrompt = "";
     @Value("${autobots.autoagent.struct_parse_tool_system_prompt:}")
     public void setStructParseToolSystemPrompt(String str) {
@@ -26,11 +26,35 @@ public class VectorConfig {
     
     @Data
     public static class Database {
-        private String type = "chroma"; // chroma, qdrant, milvus
+        private String type = "chroma"; // chroma, qdrant, milvus, file, hnsw
         private String host = "localhost";
         private Integer port = 8000;
         private String collection = "genie_documents";
         private String apiKey;
+        private Hnsw hnsw = new Hnsw();
+        private Quantization quantization = new Quantization();
+    }
+
+    /**
+     * 进程内 HNSW 索引配置（type: hnsw）
+     */
+    @Data
+    public static class Hnsw {
+        private Integer m = 16; // 每层邻居数，第 0 层为 2M
+        private Integer efConstruction = 200; // 建图候选集大小
+        private Integer efSearch = 64; // 搜索候选集大小，越大召回越高、越慢
+        private Long saveIntervalMs = 60000L; // 图文件保存间隔
+    }
+    
+    /**
+     * 本地向量库量化配置（type: file），float32 原值保留用于精确重排
+     */
+    @Data
+    public static class Quantization {
+        private String mode = "none"; // none, int8, pq
+        private Integer rerankFactor = 10; // 精确重排的候选数为 topK 的倍数
+        private Integer pqSubDimension = 8; // pq 子向量维度，需整除 embedding.dimension，否则取不超过它的最大约数
+        private Integer pqTrainSize = 10000; // 向量数达到该值时抽样训练 pq 码本
     }
     
     @Data
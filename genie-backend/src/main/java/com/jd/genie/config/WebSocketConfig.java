@@ -0,0 +1,59 @@
+package com.jd.genie.config;
+
+import com.jd.genie.websocket.AgentSocketEndpoint;
+import com.jd.genie.websocket.AgentSocketHub;
+import jakarta.servlet.ServletContext;
+import jakarta.websocket.server.ServerContainer;
+import jakarta.websocket.server.ServerEndpointConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.ServletContextAware;
+
+import java.util.Objects;
+
+/**
+ * WebSocket 传输（可选）
+ * 直接使用容器自带的 jakarta.websocket 注册端点；容器的 WebSocket 初始化晚于 Spring 的 ServletContextInitializer，
+ * 因此在单例初始化完成后注册
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "autobots.autoagent.ws.enabled", havingValue = "true")
+public class WebSocketConfig implements ServletContextAware, SmartInitializingSingleton {
+    private final AgentSocketHub agentSocketHub;
+    private ServletContext servletContext;
+
+    @Override
+    public void setServletContext(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ServerContainer container = Objects.isNull(servletContext) ? null
+                : (ServerContainer) servletContext.getAttribute(ServerContainer.class.getName());
+        if (Objects.isNull(container)) {
+            log.warn("websocket server container not available, {} disabled", AgentSocketEndpoint.PATH);
+            return;
+        }
+        ServerEndpointConfig config = ServerEndpointConfig.Builder.create(AgentSocketEndpoint.class, AgentSocketEndpoint.PATH)
+                .configurator(new ServerEndpointConfig.Configurator() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <T> T getEndpointInstance(Class<T> endpointClass) {
+                        return (T) new AgentSocketEndpoint(agentSocketHub);
+                    }
+                })
+                .build();
+        try {
+            container.addEndpoint(config);
+            log.info("websocket endpoint registered: {}", AgentSocketEndpoint.PATH);
+        } catch (Exception e) {
+            log.error("websocket endpoint register failed", e);
+        }
+    }
+}
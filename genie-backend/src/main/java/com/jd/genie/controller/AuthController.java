@@ -4,6 +4,7 @@ import com.jd.genie.dto.auth.AuthResponse;
 import com.jd.genie.dto.auth.LoginRequest;
 import com.jd.genie.dto.auth.RegisterRequest;
 import com.jd.genie.entity.User;
+import com.jd.genie.security.AuthCache;
 import com.jd.genie.security.JwtUtil;
 import com.jd.genie.service.UserService;
 import jakarta.validation.Valid;
@@ -30,6 +31,7 @@ public class AuthController {
     private final UserService userService;
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
+    private final AuthCache authCache;
 
     @PostMapping("/register")
     public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest request) {
@@ -100,20 +102,53 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<?> logout() {
-        // JWT是无状态的，前端删除token即可
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        // 吊销当前令牌，令牌过期前不再通过认证
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            authCache.revokeToken(authHeader.substring(7));
+        }
         Map<String, String> response = new HashMap<>();
         response.put("message", "注销成功");
         return ResponseEntity.ok(response);
     }
 
+    @PutMapping("/password")
+    public ResponseEntity<?> changePassword(@RequestBody Map<String, String> request, Authentication authentication) {
+        Map<String, String> response = new HashMap<>();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserDetails)) {
+            response.put("message", "请先登录");
+            return ResponseEntity.status(401).body(response);
+        }
+        String oldPassword = request.get("oldPassword");
+        String newPassword = request.get("newPassword");
+        if (oldPassword == null || newPassword == null || newPassword.length() < 6 || newPassword.length() > 50) {
+            response.put("message", "密码长度必须在6-50字符之间");
+            return ResponseEntity.badRequest().body(response);
+        }
+        try {
+            String username = ((UserDetails) authentication.getPrincipal()).getUsername();
+            if (!userService.changePassword(username, oldPassword, newPassword)) {
+                response.put("message", "原密码错误");
+                return ResponseEntity.badRequest().body(response);
+            }
+            log.info("User changed password: {}", username);
+            // 原有令牌已全部失效，需重新登录
+            response.put("message", "密码修改成功，请重新登录");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Change password failed", e);
+            response.put("message", "修改密码失败");
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     @GetMapping("/validate")
     public ResponseEntity<?> validateToken(@RequestHeader("Authorization") String authHeader) {
         try {
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String token = authHeader.substring(7);
-                if (jwtUtil.validateToken(token)) {
-                    String username = jwtUtil.extractUsername(token);
+                String username = authCache.verify(token);
+                if (username != null) {
                     User user = userService.findByUsername(username).orElseThrow();
                     
                     Map<String, Object> response = new HashMap<>();
@@ -0,0 +1,63 @@
+package com.jd.genie.controller;
+
+import com.jd.genie.config.GenieConfig;
+import com.jd.genie.service.SearchCacheService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 工具结果缓存管理
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/cache")
+@CrossOrigin(origins = "*")
+public class CacheController {
+
+    @Autowired
+    private SearchCacheService searchCacheService;
+
+    @Autowired
+    private GenieConfig genieConfig;
+
+    /**
+     * deep_search 缓存统计
+     */
+    @GetMapping("/deep_search")
+    public ResponseEntity<?> getDeepSearchCache() {
+        return ResponseEntity.ok(searchCacheService.getStats());
+    }
+
+    /**
+     * 失效 deep_search 缓存，指定 source 时仅失效该搜索源的结果
+     * 缓存为全部用户共享，仅 deep_search_cache.admin_users 中的用户可调用
+     */
+    @DeleteMapping("/deep_search")
+    public ResponseEntity<?> invalidateDeepSearchCache(@RequestParam(required = false) String source,
+                                                       Authentication authentication) {
+        if (!isAdmin(authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "无权失效缓存"));
+        }
+        int count = Objects.isNull(source) ? searchCacheService.invalidateAll() : searchCacheService.invalidateSource(source);
+        log.info("deep search cache invalidated by {}, source:{} count:{}", authentication.getName(), source, count);
+        return ResponseEntity.ok(Map.of("invalidated", count));
+    }
+
+    private boolean isAdmin(Authentication authentication) {
+        String admins = genieConfig.getDeepSearchCacheAdminUsers();
+        if (Objects.isNull(authentication) || Objects.isNull(admins)) {
+            return false;
+        }
+        return Arrays.stream(admins.split(","))
+                .map(String::trim)
+                .anyMatch(name -> !name.isEmpty() && name.equals(authentication.getName()));
+    }
+}
@@ -1,30 +1,24 @@
 package com.jd.genie.controller;
 
 import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONArray;
-import com.alibaba.fastjson.JSONObject;
-import com.jd.genie.agent.agent.AgentContext;
-import com.jd.genie.agent.printer.Printer;
-import com.jd.genie.agent.printer.ChatSessionSSEPrinter;
-import com.jd.genie.agent.tool.ToolCollection;
-import com.jd.genie.agent.tool.common.CodeInterpreterTool;
-import com.jd.genie.agent.tool.common.DeepSearchTool;
-import com.jd.genie.agent.tool.common.FileTool;
-import com.jd.genie.agent.tool.common.ReportTool;
-import com.jd.genie.agent.tool.mcp.McpTool;
-import com.jd.genie.agent.util.DateUtil;
-import com.jd.genie.agent.util.ThreadUtil;
+import com.jd.genie.agent.printer.SessionPublisher;
+import com.jd.genie.agent.printer.SseStreamSession;
 import com.jd.genie.config.GenieConfig;
 import com.jd.genie.model.req.AgentRequest;
 import com.jd.genie.model.req.GptQueryReq;
 import com.jd.genie.entity.ChatSession;
 import com.jd.genie.entity.User;
-import com.jd.genie.service.AgentHandlerService;
+import com.jd.genie.service.AgentRunService;
 import com.jd.genie.service.ChatSessionService;
 import com.jd.genie.service.IGptProcessService;
 import com.jd.genie.service.UserService;
-import com.jd.genie.service.RAGService;
-import com.jd.genie.service.impl.AgentHandlerFactory;
+import com.jd.genie.util.SseHeartbeatScheduler;
+import com.jd.genie.util.ServletFlowWriter;
+import com.jd.genie.util.SseSessionRegistry;
+import com.jd.genie.util.TrackedSseEmitter;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,22 +34,17 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @RestController
 @RequestMapping("/")
 public class GenieController {
-    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(5);
-    private static final long HEARTBEAT_INTERVAL = 10_000L; // 10秒心跳间隔
     @Autowired
     protected GenieConfig genieConfig;
     @Autowired
-    private AgentHandlerFactory agentHandlerFactory;
+    private AgentRunService agentRunService;
     @Autowired
     private IGptProcessService gptProcessService;
     @Autowired
@@ -63,52 +52,37 @@ public class GenieController {
     @Autowired
     private ChatSessionService chatSessionService;
     @Autowired
-    private RAGService ragService;
-
-    /**
-     * 开启SSE心跳
-     * @param emitter
-     * @param requestId
-     * @return
-     */
-    private ScheduledFuture<?> startHeartbeat(SseEmitter emitter, String requestId) {
-        return executor.scheduleAtFixedRate(() -> {
-            try {
-                // 发送心跳消息
-                log.info("{} send heartbeat", requestId);
-                emitter.send("heartbeat");
-            } catch (Exception e) {
-                // 发送心跳失败，关闭连接
-                log.error("{} heartbeat failed, closing connection", requestId, e);
-                emitter.completeWithError(e);
-            }
-        }, HEARTBEAT_INTERVAL, HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS);
-    }
+    private SseHeartbeatScheduler sseHeartbeatScheduler;
+    @Autowired
+    private SseSessionRegistry sseSessionRegistry;
 
     /**
      * 注册SSE事件
      * @param emitter
      * @param requestId
-     * @param heartbeatFuture
+     * @param session
      */
-    private void registerSSEMonitor(SseEmitter emitter, String requestId, ScheduledFuture<?> heartbeatFuture) {
+    private void registerSSEMonitor(SseEmitter emitter, String requestId, SseStreamSession session) {
         // 监听SSE异常事件
         emitter.onCompletion(() -> {
             log.info("{} SSE connection completed normally", requestId);
-            heartbeatFuture.cancel(true);
+            sseHeartbeatScheduler.unregister(emitter);
+            session.detach(emitter);
         });
 
         // 监听连接超时事件
         emitter.onTimeout(() -> {
             log.info("{} SSE connection timed out", requestId);
-            heartbeatFuture.cancel(true);
+            sseHeartbeatScheduler.unregister(emitter);
+            session.detach(emitter);
             emitter.complete();
         });
 
         // 监听连接错误事件
         emitter.onError((ex) -> {
             log.info("{} SSE connection error: ", requestId, ex);
-            heartbeatFuture.cancel(true);
+            sseHeartbeatScheduler.unregister(emitter);
+            session.detach(emitter);
             emitter.completeWithError(ex);
         });
     }
@@ -124,182 +98,80 @@ public class GenieController {
     public SseEmitter AutoAgent(@RequestBody AgentRequest request, Authentication authentication) throws UnsupportedEncodingException {
 
         log.info("{} auto agent request: {}", request.getRequestId(), JSON.toJSONString(request));
+        String username = ((UserDetails) authentication.getPrincipal()).getUsername();
 
-        // 获取当前用户
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        User currentUser = userService.findByUsername(userDetails.getUsername())
-                .orElseThrow(() -> new RuntimeException("用户不存在"));
-
-        // 验证会话存在性（用户消息应已通过单独API保存）
-        String sessionId = request.getSessionId();
-        if (sessionId == null || sessionId.trim().isEmpty()) {
-            throw new RuntimeException("会话ID不能为空，请先保存用户消息");
-        }
-        
-        ChatSession chatSession = chatSessionService.getSessionByIdAndUser(sessionId, currentUser).orElse(null);
-        if (chatSession == null) {
-            throw new RuntimeException("会话不存在或无权限访问");
-        }
-
-        Long AUTO_AGENT_SSE_TIMEOUT = 60 * 60 * 1000L;
-
-        SseEmitter emitter = new SseEmitter(AUTO_AGENT_SSE_TIMEOUT);
-        // SSE心跳
-        ScheduledFuture<?> heartbeatFuture = startHeartbeat(emitter, request.getRequestId());
+        TrackedSseEmitter emitter = new TrackedSseEmitter(AgentRunService.AGENT_TIMEOUT_MS);
+        // 输出会话，断线后可通过 /AutoAgent/resume 重连
+        SseStreamSession session = sseSessionRegistry.open(request.getRequestId(), username);
+        // SSE心跳，由时间轮统一调度
+        sseHeartbeatScheduler.register(emitter, request.getRequestId(), session);
         // 监听SSE事件
-        registerSSEMonitor(emitter, request.getRequestId(), heartbeatFuture);
-        // 拼接输出类型
-        request.setQuery(handleOutputStyle(request));
-        
-        // RAG增强查询处理
-        if (request.getKnowledgeBaseId() != null) {
-            try {
-                RAGService.EnhancedQuery enhancedResult = ragService.enhanceQuery(
-                        request.getKnowledgeBaseId(), 
-                        currentUser, 
-                        request.getQuery(), 
-                        3,  // topK: 检索前3个最相关的文档片段
-                        request.getDocumentIds()  // 指定文档ID列表
-                );
-                request.setQuery(enhancedResult.getEnhancedPrompt());
-                
-                String documentInfo = request.getDocumentIds() != null && !request.getDocumentIds().isEmpty() 
-                    ? String.format(" from %d specific documents", request.getDocumentIds().size())
-                    : " from entire knowledge base";
-                log.info("{} RAG enhanced query for knowledge base {}{} with {} relevant chunks", 
-                        request.getRequestId(), request.getKnowledgeBaseId(), documentInfo, enhancedResult.getRelevantChunksCount());
-            } catch (Exception e) {
-                log.error("{} RAG query enhancement failed for knowledge base {}", request.getRequestId(), request.getKnowledgeBaseId(), e);
-            }
-        }
-        
-        // 执行调度引擎
-        ThreadUtil.execute(() -> {
-            try {
-                Printer printer = new ChatSessionSSEPrinter(emitter, request, request.getAgentType(), chatSessionService);
-                AgentContext agentContext = AgentContext.builder()
-                        .requestId(request.getRequestId())
-                        .sessionId(request.getSessionId())  // 使用实际的会话ID
-                        .printer(printer)
-                        .query(request.getQuery())
-                        .task("")
-                        .dateInfo(DateUtil.CurrentDateInfo())
-                        .productFiles(new ArrayList<>())
-                        .taskProductFiles(new ArrayList<>())
-                        .sopPrompt(request.getSopPrompt())
-                        .basePrompt(request.getBasePrompt())
-                        .agentType(request.getAgentType())
-                        .isStream(Objects.nonNull(request.getIsStream()) ? request.getIsStream() : false)
-                        .build();
-
-                // 构建工具列表
-                agentContext.setToolCollection(buildToolCollection(agentContext, request));
-                // 根据数据类型获取对应的处理器
-                AgentHandlerService handler = agentHandlerFactory.getHandler(agentContext, request);
-                // 执行处理逻辑
-                handler.handle(agentContext, request);
-                // 关闭连接
-                emitter.complete();
-
-            } catch (Exception e) {
-                log.error("{} auto agent error", request.getRequestId(), e);
-            }
-        });
+        registerSSEMonitor(emitter, request.getRequestId(), session);
+        session.attach(emitter, 0);
+        // 用户与会话校验、RAG 增强并行准备后执行调度引擎，准备期间先输出状态事件
+        agentRunService.start(request, username, session);
 
         return emitter;
     }
 
-
     /**
-     * html模式： query+以 html展示
-     * docs模式：query+以 markdown展示
-     * table 模式: query+以 excel 展示
+     * 执行智能体调度（非阻塞版本，与 /AutoAgent 并存用于对比吞吐）
+     * 用户、会话校验与 RAG 增强在业务线程池中并行准备，不占用 servlet 线程；
+     * 输出以 Flow 背压方式从回放缓冲读取，经 Servlet 非阻塞 IO 写出
+     * @param request
+     * @param authentication
+     * @param httpRequest
      */
-    private String handleOutputStyle(AgentRequest request) {
-        String query = request.getQuery();
-        Map<String, String> outputStyleMap = genieConfig.getOutputStylePrompts();
-        if (!StringUtils.isEmpty(request.getOutputStyle())) {
-            query += outputStyleMap.computeIfAbsent(request.getOutputStyle(), k -> "");
-        }
-        return query;
+    @PostMapping(value = "/AutoAgent/flow", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void autoAgentFlow(@RequestBody AgentRequest request, Authentication authentication,
+                              HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
+        log.info("{} auto agent flow request: {}", request.getRequestId(), JSON.toJSONString(request));
+        String username = ((UserDetails) authentication.getPrincipal()).getUsername();
+
+        httpResponse.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        httpResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        httpResponse.setHeader("Cache-Control", "no-cache");
+        AsyncContext asyncContext = httpRequest.startAsync();
+        asyncContext.setTimeout(AgentRunService.AGENT_TIMEOUT_MS);
+
+        SseStreamSession session = sseSessionRegistry.open(request.getRequestId(), username);
+        new SessionPublisher(session, 0).subscribe(
+                new ServletFlowWriter(asyncContext, request.getRequestId(), genieConfig.getSseHeartbeatIntervalMs()));
+        agentRunService.start(request, username, session);
     }
 
-
     /**
-     * 构建工具列表
-     *
-     * @param agentContext
-     * @param request
+     * 断线重连：从 Last-Event-ID 之后继续输出，任务已结束时回放剩余事件后关闭
+     * @param requestId
+     * @param lastEventId
+     * @param authentication
      * @return
      */
-    private ToolCollection buildToolCollection(AgentContext agentContext, AgentRequest request) {
-
-        ToolCollection toolCollection = new ToolCollection();
-        toolCollection.setAgentContext(agentContext);
-        // file
-        FileTool fileTool = new FileTool();
-        fileTool.setAgentContext(agentContext);
-        toolCollection.addTool(fileTool);
-
-        // default tool
-        List<String> agentToolList = Arrays.asList(genieConfig.getMultiAgentToolListMap()
-                .getOrDefault("default", "search,code,report").split(","));
-        if (!agentToolList.isEmpty()) {
-            if (agentToolList.contains("code")) {
-                CodeInterpreterTool codeTool = new CodeInterpreterTool();
-                codeTool.setAgentContext(agentContext);
-                toolCollection.addTool(codeTool);
-            }
-            if (agentToolList.contains("report")) {
-                ReportTool htmlTool = new ReportTool();
-                htmlTool.setAgentContext(agentContext);
-                toolCollection.addTool(htmlTool);
-            }
-            if (agentToolList.contains("search")) {
-                DeepSearchTool deepSearchTool = new DeepSearchTool();
-                deepSearchTool.setAgentContext(agentContext);
-                toolCollection.addTool(deepSearchTool);
-            }
+    @GetMapping(value = "/AutoAgent/resume", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter resumeAutoAgent(@RequestParam String requestId,
+                                      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                      @RequestParam(value = "lastEventId", required = false) String lastEventIdParam,
+                                      Authentication authentication) {
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        SseStreamSession session = sseSessionRegistry.resume(requestId, userDetails.getUsername());
+        if (session == null) {
+            throw new RuntimeException("会话不存在或已过期");
         }
-
-        // mcp tool
-        try {
-            McpTool mcpTool = new McpTool();
-            mcpTool.setAgentContext(agentContext);
-            for (String mcpServer : genieConfig.getMcpServerUrlArr()) {
-                String listToolResult = mcpTool.listTool(mcpServer);
-                if (listToolResult.isEmpty()) {
-                    log.error("{} mcp server {} invalid", agentContext.getRequestId(), mcpServer);
-                    continue;
-                }
-
-                JSONObject resp = JSON.parseObject(listToolResult);
-                if (resp.getIntValue("code") != 200) {
-                    log.error("{} mcp serve {} code: {}, message: {}", agentContext.getRequestId(), mcpServer,
-                            resp.getIntValue("code"), resp.getString("message"));
-                    continue;
-                }
-                JSONArray data = resp.getJSONArray("data");
-                if (data.isEmpty()) {
-                    log.error("{} mcp serve {} code: {}, message: {}", agentContext.getRequestId(), mcpServer,
-                            resp.getIntValue("code"), resp.getString("message"));
-                    continue;
-                }
-                for (int i = 0; i < data.size(); i++) {
-                    JSONObject tool = data.getJSONObject(i);
-                    String method = tool.getString("name");
-                    String description = tool.getString("description");
-                    String inputSchema = tool.getString("inputSchema");
-                    toolCollection.addMcpTool(method, description, inputSchema, mcpServer);
-                }
-            }
-        } catch (Exception e) {
-            log.error("{} add mcp tool failed", agentContext.getRequestId(), e);
+        String cursor = StringUtils.isNotBlank(lastEventId) ? lastEventId : lastEventIdParam;
+        long afterId = 0;
+        if (StringUtils.isNumeric(cursor)) {
+            afterId = Long.parseLong(cursor);
         }
+        log.info("{} auto agent resume after event {}", requestId, afterId);
 
-        return toolCollection;
+        TrackedSseEmitter emitter = new TrackedSseEmitter(AgentRunService.AGENT_TIMEOUT_MS);
+        sseHeartbeatScheduler.register(emitter, requestId, session);
+        registerSSEMonitor(emitter, requestId, session);
+        session.attach(emitter, afterId);
+        return emitter;
     }
 
+
     /**
      * 从查询文本中提取标题
      * @param query
@@ -356,8 +228,7 @@ public class GenieController {
             }
 
             // 保存用户消息
-            int messageOrder = chatSessionService.getSessionMessages(chatSession).size();
-            chatSessionService.saveMessage(chatSession, "user", request.getQuery(), messageOrder);
+            chatSessionService.saveMessage(chatSession, "user", request.getQuery());
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -0,0 +1,155 @@
+package com.jd.genie.controller;
+
+import com.jd.genie.agent.llm.ModelRouter;
+import com.jd.genie.agent.printer.SseWriter;
+import com.jd.genie.agent.tool.common.ArtifactUploader;
+import com.jd.genie.agent.tool.common.FileContentCache;
+import com.jd.genie.agent.tool.guard.ToolGuard;
+import com.jd.genie.agent.tool.mcp.McpClient;
+import com.jd.genie.agent.tool.stream.StreamToolClient;
+import com.jd.genie.security.AuthCache;
+import com.jd.genie.service.ChatMessageWriter;
+import com.jd.genie.service.FileVectorDatabaseService;
+import com.jd.genie.service.HnswVectorDatabaseService;
+import com.jd.genie.util.ServletFlowWriter;
+import com.jd.genie.util.SseHeartbeatScheduler;
+import com.jd.genie.util.SseSessionRegistry;
+import com.jd.genie.util.StageTimer;
+import com.jd.genie.websocket.AgentSocketHub;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 运行指标查询
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/metrics")
+@CrossOrigin(origins = "*")
+public class MetricsController {
+    @Autowired
+    private SseHeartbeatScheduler sseHeartbeatScheduler;
+    @Autowired
+    private SseSessionRegistry sseSessionRegistry;
+    @Autowired
+    private ObjectProvider<AgentSocketHub> agentSocketHub;
+    @Autowired
+    private ChatMessageWriter chatMessageWriter;
+    @Autowired
+    private AuthCache authCache;
+    @Autowired
+    private FileVectorDatabaseService fileVectorDatabaseService;
+    @Autowired
+    private HnswVectorDatabaseService hnswVectorDatabaseService;
+
+    /**
+     * MCP 工具调用耗时直方图
+     */
+    @GetMapping("/mcp")
+    public ResponseEntity<?> getMcpMetrics() {
+        return ResponseEntity.ok(McpClient.getLatencySnapshot());
+    }
+
+    /**
+     * 流式工具统计
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<?> getStreamMetrics() {
+        return ResponseEntity.ok(StreamToolClient.getStats());
+    }
+
+    /**
+     * 产物上传统计
+     */
+    @GetMapping("/artifact")
+    public ResponseEntity<?> getArtifactMetrics() {
+        return ResponseEntity.ok(ArtifactUploader.getStats());
+    }
+
+    /**
+     * 文件内容缓存统计
+     */
+    @GetMapping("/file_cache")
+    public ResponseEntity<?> getFileCacheMetrics() {
+        return ResponseEntity.ok(FileContentCache.getStats());
+    }
+
+    /**
+     * 工具健康状况：熔断状态、并发、拒绝与耗时
+     */
+    @GetMapping("/tools")
+    public ResponseEntity<?> getToolMetrics() {
+        return ResponseEntity.ok(ToolGuard.getStats());
+    }
+
+    /**
+     * LLM 路由统计
+     */
+    @GetMapping("/llm")
+    public ResponseEntity<?> getLlmMetrics() {
+        return ResponseEntity.ok(ModelRouter.getStats());
+    }
+
+    /**
+     * SSE 连接与心跳统计
+     */
+    @GetMapping("/sse")
+    public ResponseEntity<?> getSseMetrics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("heartbeat", sseHeartbeatScheduler.getStats());
+        stats.put("writer", SseWriter.getStats());
+        stats.put("sessions", sseSessionRegistry.getStats());
+        stats.put("flow", ServletFlowWriter.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * 请求准备各阶段耗时
+     */
+    @GetMapping("/setup")
+    public ResponseEntity<?> getSetupMetrics() {
+        return ResponseEntity.ok(StageTimer.getStats());
+    }
+
+    /**
+     * WebSocket 传输统计，未开启时为空
+     */
+    @GetMapping("/ws")
+    public ResponseEntity<?> getWebSocketMetrics() {
+        AgentSocketHub hub = agentSocketHub.getIfAvailable();
+        return ResponseEntity.ok(hub != null ? hub.getStats() : new LinkedHashMap<>());
+    }
+
+    /**
+     * 聊天消息批量写入统计
+     */
+    @GetMapping("/chat_store")
+    public ResponseEntity<?> getChatStoreMetrics() {
+        return ResponseEntity.ok(chatMessageWriter.getStats());
+    }
+
+    /**
+     * 认证缓存命中统计
+     */
+    @GetMapping("/auth")
+    public ResponseEntity<?> getAuthMetrics() {
+        return ResponseEntity.ok(authCache.getStats());
+    }
+
+    /**
+     * 本地向量段存储（含量化）与 HNSW 索引统计
+     */
+    @GetMapping("/vector")
+    public ResponseEntity<?> getVectorMetrics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("file", fileVectorDatabaseService.getStats());
+        stats.put("hnsw", hnswVectorDatabaseService.getStats());
+        return ResponseEntity.ok(stats);
+    }
+}
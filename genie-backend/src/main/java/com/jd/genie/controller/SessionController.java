@@ -1,6 +1,7 @@
 package com.jd.genie.controller;
 
 import com.jd.genie.dto.session.ChatSessionDto;
+import com.jd.genie.entity.ChatMessage;
 import com.jd.genie.entity.ChatSession;
 import com.jd.genie.entity.User;
 import com.jd.genie.service.ChatSessionService;
@@ -15,7 +16,7 @@ import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 @Slf4j
 @RestController
@@ -24,26 +25,29 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*")
 public class SessionController {
 
+    /**
+     * 分页时下一页游标通过响应头返回，响应体保持为列表
+     */
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ChatSessionService chatSessionService;
     private final UserService userService;
 
     @GetMapping
-    public ResponseEntity<?> getUserSessions(Authentication authentication) {
+    public ResponseEntity<?> getUserSessions(@RequestParam(required = false) String cursor,
+                                             @RequestParam(required = false) Integer limit,
+                                             Authentication authentication) {
         try {
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
             User user = userService.findByUsername(userDetails.getUsername()).orElseThrow();
 
-            List<ChatSession> sessions = chatSessionService.getUserSessions(user);
-            List<ChatSessionDto> sessionDtos = sessions.stream()
-                    .map(session -> new ChatSessionDto(
-                            session.getSessionId(),
-                            session.getTitle(),
-                            session.getCreatedAt(),
-                            session.getUpdatedAt(),
-                            session.getMessages().size()
-                    ))
-                    .collect(Collectors.toList());
-
+            Integer pageSize = Objects.isNull(limit) ? null : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            List<ChatSessionDto> sessionDtos = chatSessionService.getSessionSummaries(user, cursor, pageSize);
+            String nextCursor = chatSessionService.nextSessionCursor(sessionDtos, pageSize);
+            if (Objects.nonNull(nextCursor)) {
+                return ResponseEntity.ok().header(NEXT_CURSOR_HEADER, nextCursor).body(sessionDtos);
+            }
             return ResponseEntity.ok(sessionDtos);
         } catch (Exception e) {
             log.error("Failed to get user sessions", e);
@@ -62,13 +66,7 @@ public class SessionController {
             String title = request.get("title");
             ChatSession session = chatSessionService.createSession(user, title);
 
-            ChatSessionDto sessionDto = new ChatSessionDto(
-                    session.getSessionId(),
-                    session.getTitle(),
-                    session.getCreatedAt(),
-                    session.getUpdatedAt(),
-                    0
-            );
+            ChatSessionDto sessionDto = chatSessionService.toDto(session);
 
             return ResponseEntity.ok(sessionDto);
         } catch (Exception e) {
@@ -114,13 +112,7 @@ public class SessionController {
             ChatSession session = chatSessionService.getSessionByIdAndUser(sessionId, user)
                     .orElseThrow(() -> new RuntimeException("会话不存在或无权限访问"));
 
-            ChatSessionDto sessionDto = new ChatSessionDto(
-                    session.getSessionId(),
-                    session.getTitle(),
-                    session.getCreatedAt(),
-                    session.getUpdatedAt(),
-                    session.getMessages().size()
-            );
+            ChatSessionDto sessionDto = chatSessionService.toDto(session);
 
             return ResponseEntity.ok(sessionDto);
         } catch (Exception e) {
@@ -132,7 +124,10 @@ public class SessionController {
     }
 
     @GetMapping("/{sessionId}/messages")
-    public ResponseEntity<?> getSessionMessages(@PathVariable String sessionId, Authentication authentication) {
+    public ResponseEntity<?> getSessionMessages(@PathVariable String sessionId,
+                                                @RequestParam(required = false) Integer before,
+                                                @RequestParam(required = false) Integer limit,
+                                                Authentication authentication) {
         try {
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
             User user = userService.findByUsername(userDetails.getUsername()).orElseThrow();
@@ -140,7 +135,18 @@ public class SessionController {
             ChatSession session = chatSessionService.getSessionByIdAndUser(sessionId, user)
                     .orElseThrow(() -> new RuntimeException("会话不存在或无权限访问"));
 
-            return ResponseEntity.ok(chatSessionService.getSessionMessages(session));
+            if (Objects.isNull(limit)) {
+                return ResponseEntity.ok(chatSessionService.getSessionMessages(session));
+            }
+            int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            List<ChatMessage> messages = chatSessionService.getSessionMessages(session, before, pageSize);
+            Integer oldest = messages.isEmpty() ? null : messages.get(0).getMessageOrder();
+            if (messages.size() == pageSize && Objects.nonNull(oldest) && oldest > 0) {
+                // 下一页（更早的消息）从本页最小序号之前开始
+                return ResponseEntity.ok().header(NEXT_CURSOR_HEADER, String.valueOf(oldest))
+                        .body(messages);
+            }
+            return ResponseEntity.ok(messages);
         } catch (Exception e) {
             log.error("Failed to get session messages", e);
             Map<String, String> error = new HashMap<>();
@@ -165,13 +171,7 @@ public class SessionController {
             ChatSession updatedSession = chatSessionService.renameSession(sessionId, user, newTitle)
                     .orElseThrow(() -> new RuntimeException("会话不存在或无权限修改"));
 
-            ChatSessionDto sessionDto = new ChatSessionDto(
-                    updatedSession.getSessionId(),
-                    updatedSession.getTitle(),
-                    updatedSession.getCreatedAt(),
-                    updatedSession.getUpdatedAt(),
-                    updatedSession.getMessages().size()
-            );
+            ChatSessionDto sessionDto = chatSessionService.toDto(updatedSession);
 
             return ResponseEntity.ok(sessionDto);
         } catch (Exception e) {
@@ -14,5 +14,6 @@ public class ChatSessionDto {
     private String title;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
-    private int messageCount;
+    private Integer messageCount;
+    private LocalDateTime lastMessageAt;
 }
\ No newline at end of file
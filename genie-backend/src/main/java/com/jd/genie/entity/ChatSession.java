@@ -12,7 +12,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "chat_sessions")
+@Table(name = "chat_sessions", indexes = {
+        @Index(name = "idx_chat_sessions_user_updated", columnList = "user_id, is_active, updated_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -43,6 +45,15 @@ public class ChatSession {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * 消息数与最后消息时间由 ChatMessageWriter 随消息写入维护，实体更新时不覆盖
+     */
+    @Column(name = "message_count", updatable = false)
+    private Integer messageCount = 0;
+
+    @Column(name = "last_message_at", updatable = false)
+    private LocalDateTime lastMessageAt;
+
     @Column(name = "is_active")
     private Boolean isActive = true;
 
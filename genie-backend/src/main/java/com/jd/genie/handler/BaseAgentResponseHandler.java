@@ -1,9 +1,8 @@
 package com.jd.genie.handler;
 
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONObject;
 import com.jd.genie.agent.enums.ResponseTypeEnum;
 import com.jd.genie.model.multi.EventMessage;
+import com.jd.genie.model.multi.EventPayload;
 import com.jd.genie.model.multi.EventResult;
 import com.jd.genie.model.req.AgentRequest;
 import com.jd.genie.model.response.AgentResponse;
@@ -53,9 +52,9 @@ public class BaseAgentResponseHandler {
             case "plan_thought":
                 message.setMessageType(agentResponse.getMessageType());
                 message.setMessageOrder(eventResult.getAndIncrOrder(agentResponse.getMessageType()));
-                message.setResultMap(JSON.parseObject(JSONObject.toJSONString(agentResponse)));
-                if (isFinal && !eventResult.getResultMap().containsKey("plan_thought")) {
-                    eventResult.getResultMap().put("plan_thought", agentResponse.getPlanThought());
+                message.setResultMap(EventPayload.of(agentResponse));
+                if (isFinal && Objects.isNull(eventResult.getPlanThought())) {
+                    eventResult.setPlanThought(agentResponse.getPlanThought());
                 }
                 break;
             case "plan":
@@ -65,7 +64,7 @@ public class BaseAgentResponseHandler {
                     message.setMessageOrder(1);
                     message.setResultMap(agentResponse.getPlan());
                     if (isFinal) {
-                        eventResult.getResultMap().put("plan", agentResponse.getPlan());
+                        eventResult.setPlan(agentResponse.getPlan());
                     }
                 } else {
                     // plan 更新，需要关联 task
@@ -73,7 +72,7 @@ public class BaseAgentResponseHandler {
                     message.setTaskOrder(eventResult.getTaskOrder().getAndIncrement());
                     message.setMessageType("task");
                     message.setMessageOrder(1);
-                    message.setResultMap(JSON.parseObject(JSONObject.toJSONString(agentResponse)));
+                    message.setResultMap(EventPayload.of(agentResponse));
                     if (isFinal) {
                         eventResult.setResultMapSubTask(message.getResultMap());
                     }
@@ -84,11 +83,9 @@ public class BaseAgentResponseHandler {
                 message.setTaskOrder(eventResult.getTaskOrder().getAndIncrement());
                 message.setMessageType(agentResponse.getMessageType());
                 message.setMessageOrder(1);
-                message.setResultMap(JSON.parseObject(JSONObject.toJSONString(agentResponse)));
+                message.setResultMap(EventPayload.of(agentResponse));
                 if (isFinal) {
-                    List<Object> task = new ArrayList<>();
-                    task.add(message.getResultMap());
-                    eventResult.setResultMapTask(task);
+                    eventResult.setResultMapTask(Collections.singletonList(message.getResultMap()));
                 }
                 break;
             default:
@@ -100,15 +97,15 @@ public class BaseAgentResponseHandler {
                     String orderKey = eventResult.getTaskId() + ":" + agentResponse.getMessageType();
                     message.setMessageOrder(eventResult.getAndIncrOrder(orderKey));
                 }
-                message.setResultMap(JSON.parseObject(JSONObject.toJSONString(agentResponse)));
+                message.setResultMap(EventPayload.of(agentResponse));
                 if (isFinal && !isFilterFinal) {
                     eventResult.setResultMapSubTask(message.getResultMap());
                 }
                 break;
         }
 
-        // 增量缓存
-        resultMap.put("eventData", JSONObject.parseObject(JSON.toJSONString(message)));
+        // 增量缓存，按字段直接映射，无需序列化往返
+        resultMap.put("eventData", message);
         streamResult.setResultMap(resultMap);
         return streamResult;
     }
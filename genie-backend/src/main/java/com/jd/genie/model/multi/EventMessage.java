@@ -1,5 +1,7 @@
 package com.jd.genie.model.multi;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -11,6 +13,7 @@ import java.io.Serializable;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class EventMessage implements Serializable {
     private static final long serialVersionUID = 1L;
 
@@ -19,5 +22,6 @@ public class EventMessage implements Serializable {
     private String messageId;
     private String messageType;// task、tool、html、file、
     private Integer messageOrder;
-    private Object resultMap;
+    @JsonSerialize(using = NonNullSerializer.class)
+    private Object resultMap;// EventPayload 或 Plan
 }
@@ -0,0 +1,67 @@
+package com.jd.genie.model.multi;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.jd.genie.model.response.AgentResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 增量消息内容，由 AgentResponse 直接按字段映射，空字段不输出
+ * 嵌套对象与 Map 中的空字段同样不输出，与原先经 fastjson 转换后的结果一致
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EventPayload implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String requestId;
+    private String messageId;
+    private Boolean isFinal;
+    private String messageType;
+    private String digitalEmployee;
+    private String messageTime;
+    private String planThought;
+    @JsonSerialize(using = NonNullSerializer.class)
+    private AgentResponse.Plan plan;
+    private String task;
+    private String taskSummary;
+    private String toolThought;
+    @JsonSerialize(using = NonNullSerializer.class)
+    private AgentResponse.ToolResult toolResult;
+    @JsonSerialize(using = NonNullSerializer.class)
+    private Map<String, Object> resultMap;
+    private String result;
+    private Boolean finish;
+    @JsonSerialize(using = NonNullSerializer.class)
+    private Map<String, String> ext;
+
+    public static EventPayload of(AgentResponse response) {
+        return EventPayload.builder()
+                .requestId(response.getRequestId())
+                .messageId(response.getMessageId())
+                .isFinal(response.getIsFinal())
+                .messageType(response.getMessageType())
+                .digitalEmployee(response.getDigitalEmployee())
+                .messageTime(response.getMessageTime())
+                .planThought(response.getPlanThought())
+                .plan(response.getPlan())
+                .task(response.getTask())
+                .taskSummary(response.getTaskSummary())
+                .toolThought(response.getToolThought())
+                .toolResult(response.getToolResult())
+                .resultMap(response.getResultMap())
+                .result(response.getResult())
+                .finish(response.getFinish())
+                .ext(response.getExt())
+                .build();
+    }
+}
@@ -17,21 +17,17 @@ public class EventResult {
     /**
      * 增量消息计数
      */
+    @Builder.Default
     private AtomicInteger messageCount = new AtomicInteger(0);
 
     /**
      * 增量消息偏移量（从 1 开始）
      */
+    @Builder.Default
     private Map<String, Integer> orderMapping = new HashMap<>();
 
     public Integer getAndIncrOrder(String key) {
-        Integer order = orderMapping.get(key);
-        if (Objects.isNull(order)) {
-            orderMapping.put(key, 1);
-            return 1;
-        }
-        orderMapping.put(key, order + 1);
-        return order + 1;
+        return orderMapping.merge(key, 1, Integer::sum);
     }
 
     /**
@@ -51,6 +47,7 @@ public class EventResult {
      * 增量任务
      */
     private String taskId;
+    @Builder.Default
     private AtomicInteger taskOrder = new AtomicInteger(1);
 
     public String getTaskId() {
@@ -69,6 +66,7 @@ public class EventResult {
     /**
      * 增量任务-流式消息类型
      */
+    @Builder.Default
     private List<String> streamTaskMessageType = new ArrayList<String>() {{
         add("html");
         add("markdown");
@@ -78,44 +76,67 @@ public class EventResult {
 
     /**
      * 全量结果（回放）
+     * 任务与子任务按到达顺序追加到同一列表，taskStarts 记录每个任务的起始下标，需要时再还原为嵌套结构
      */
-    private Map<String, Object> resultMap = new HashMap<>();
+    private String planThought;
+    private Object plan;
+    @Builder.Default
+    private List<Object> replayItems = new ArrayList<>();
+    @Builder.Default
+    private int[] taskStarts = new int[8];
+    @Builder.Default
+    private int taskCount = 0;
+
+    private void startTask() {
+        if (taskCount == taskStarts.length) {
+            taskStarts = Arrays.copyOf(taskStarts, taskCount << 1);
+        }
+        taskStarts[taskCount++] = replayItems.size();
+    }
 
     public List<Object> getResulMapTask() {
-        if (this.resultMap.containsKey("tasks")) {
-            Object obj = this.resultMap.get("tasks");
-            return (List<Object>) obj;
+        if (taskCount == 0) {
+            return null;
         }
-        return null;
+        List<Object> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            int end = i + 1 < taskCount ? taskStarts[i + 1] : replayItems.size();
+            tasks.add(new ArrayList<>(replayItems.subList(taskStarts[i], end)));
+        }
+        return tasks;
     }
 
     public void setResultMapTask(List<Object> task) {
-        List<Object> tasks = this.getResulMapTask();
-        if (Objects.isNull(tasks)) {
-            tasks = new ArrayList<Object>() {{
-                add(task);
-            }};
-            this.resultMap.put("tasks", tasks);
-            return;
-        }
-        tasks.add(task);
+        startTask();
+        replayItems.addAll(task);
     }
 
     public void setResultMapSubTask(Object subTask) {
-        List<Object> tasks = this.getResulMapTask();
-        if (Objects.isNull(tasks)) {
-            tasks = new ArrayList<Object>() {{
-                add(new ArrayList<>());
-            }};
-            this.resultMap.put("tasks", tasks);
+        if (taskCount == 0) {
+            startTask();
+        }
+        replayItems.add(subTask);
+    }
+
+    public Map<String, Object> getResultMap() {
+        Map<String, Object> resultMap = new HashMap<>();
+        if (Objects.nonNull(planThought)) {
+            resultMap.put("plan_thought", planThought);
+        }
+        if (Objects.nonNull(plan)) {
+            resultMap.put("plan", plan);
+        }
+        List<Object> tasks = getResulMapTask();
+        if (Objects.nonNull(tasks)) {
+            resultMap.put("tasks", tasks);
         }
-        List<Object> subTasks = (List<Object>) tasks.get(tasks.size() - 1);
-        subTasks.add(subTask);
+        return resultMap;
     }
 
     /**
      * 全量结果（重连）
      */
+    @Builder.Default
     private List<Object> resultList = new ArrayList<>();
 
     public static void main(String[] args) {
@@ -0,0 +1,26 @@
+package com.jd.genie.model.multi;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+/**
+ * 嵌套对象按 fastjson 默认规则输出：各层字段及 Map 中的 null 值均不输出
+ * 类上的 NON_NULL 只作用于本类字段，Plan、ToolResult 等嵌套类型由该序列化器处理
+ */
+public class NonNullSerializer extends JsonSerializer<Object> {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setDefaultPropertyInclusion(JsonInclude.Value.construct(JsonInclude.Include.NON_NULL, JsonInclude.Include.NON_NULL))
+            // 写在外层输出流中，不单独 flush
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    @Override
+    public void serialize(Object value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        MAPPER.writeValue(gen, value);
+    }
+}
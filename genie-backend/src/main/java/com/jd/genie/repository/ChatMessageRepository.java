@@ -2,7 +2,11 @@ package com.jd.genie.repository;
 
 import com.jd.genie.entity.ChatMessage;
 import com.jd.genie.entity.ChatSession;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,4 +17,22 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     List<ChatMessage> findByChatSessionOrderByMessageOrderAsc(ChatSession chatSession);
     
     List<ChatMessage> findByChatSessionOrderByCreatedAtAsc(ChatSession chatSession);
-}
\ No newline at end of file
+
+    @Query("SELECT MAX(m.messageOrder) FROM ChatMessage m WHERE m.chatSession.id = :sessionId")
+    Integer findMaxMessageOrder(@Param("sessionId") Long sessionId);
+
+    /**
+     * 按序号倒序取 beforeOrder 之前的消息，用于历史消息分页
+     */
+    List<ChatMessage> findByChatSessionAndMessageOrderLessThanOrderByMessageOrderDesc(ChatSession chatSession,
+                                                                                      Integer beforeOrder, Limit limit);
+
+    /**
+     * 回填历史会话的消息数与最后消息时间
+     */
+    @Modifying
+    @Query(value = "UPDATE chat_sessions s SET message_count = (SELECT COUNT(*) FROM chat_messages m WHERE m.session_id = s.id), "
+            + "last_message_at = (SELECT MAX(m.created_at) FROM chat_messages m WHERE m.session_id = s.id) "
+            + "WHERE s.message_count IS NULL", nativeQuery = true)
+    int backfillSessionCounters();
+}
@@ -1,10 +1,15 @@
 package com.jd.genie.repository;
 
+import com.jd.genie.dto.session.ChatSessionDto;
 import com.jd.genie.entity.ChatSession;
 import com.jd.genie.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +21,23 @@ public interface ChatSessionRepository extends JpaRepository<ChatSession, Long>
     Optional<ChatSession> findBySessionIdAndUser(String sessionId, User user);
     
     Optional<ChatSession> findBySessionId(String sessionId);
-}
\ No newline at end of file
+
+    /**
+     * 会话列表投影，只查询列表展示字段，不加载消息
+     */
+    @Query("SELECT new com.jd.genie.dto.session.ChatSessionDto(s.sessionId, s.title, s.createdAt, s.updatedAt, "
+            + "COALESCE(s.messageCount, 0), s.lastMessageAt) FROM ChatSession s "
+            + "WHERE s.user = :user AND s.isActive = true ORDER BY s.updatedAt DESC, s.sessionId DESC")
+    List<ChatSessionDto> findSummaries(@Param("user") User user, Limit limit);
+
+    /**
+     * 按游标（updatedAt, sessionId）取下一页会话列表投影
+     */
+    @Query("SELECT new com.jd.genie.dto.session.ChatSessionDto(s.sessionId, s.title, s.createdAt, s.updatedAt, "
+            + "COALESCE(s.messageCount, 0), s.lastMessageAt) FROM ChatSession s "
+            + "WHERE s.user = :user AND s.isActive = true "
+            + "AND (s.updatedAt < :updatedAt OR (s.updatedAt = :updatedAt AND s.sessionId < :sessionId)) "
+            + "ORDER BY s.updatedAt DESC, s.sessionId DESC")
+    List<ChatSessionDto> findSummariesAfter(@Param("user") User user, @Param("updatedAt") LocalDateTime updatedAt,
+                                            @Param("sessionId") String sessionId, Limit limit);
+}
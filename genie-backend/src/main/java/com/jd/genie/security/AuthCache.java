@@ -0,0 +1,250 @@
+package com.jd.genie.security;
+
+import com.jd.genie.entity.User;
+import com.jd.genie.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * 认证热路径缓存，稳态下每个请求的身份解析不访问数据库、不重复验签
+ * 1、令牌缓存：令牌 sha256 -> 用户名、签发时间、过期时间，有效期取令牌过期时间与缓存 TTL 的较小值
+ * 2、用户缓存：用户名 -> User（同时是 UserDetails，携带实体 id），供过滤器与各接口复用
+ * 3、注销时吊销单个令牌；修改密码时吊销该用户此前签发的全部令牌并清除用户缓存
+ * 两类缓存均按条数 LRU 淘汰；吊销记录保存在进程内，多实例部署时需配合较短的 TTL
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuthCache {
+    private final JwtUtil jwtUtil;
+    private final UserRepository userRepository;
+
+    @Value("${jwt.cache.token_ttl_ms:300000}")
+    private long tokenTtlMs;
+
+    @Value("${jwt.cache.user_ttl_ms:60000}")
+    private long userTtlMs;
+
+    @Value("${jwt.cache.max_entries:10000}")
+    private int maxEntries;
+
+    private final Lru<VerifiedToken> tokens = new Lru<>();
+    private final Lru<CachedUser> users = new Lru<>();
+    // 令牌摘要 -> 令牌过期时间，过期后清理
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // 用户名 -> 此时间（毫秒）及之前签发的令牌无效
+    private final Map<String, Long> notBefore = new ConcurrentHashMap<>();
+    // 用户缓存版本，清除用户缓存时递增；查库前后版本不一致说明期间有写入，结果不放入缓存
+    private final AtomicLong userGeneration = new AtomicLong();
+
+    private final AtomicLong tokenHits = new AtomicLong();
+    private final AtomicLong tokenMisses = new AtomicLong();
+    private final AtomicLong tokenRejected = new AtomicLong();
+    private final AtomicLong userHits = new AtomicLong();
+    private final AtomicLong userMisses = new AtomicLong();
+
+    /**
+     * 校验令牌，返回用户名；令牌无效、过期或已吊销时返回 null
+     */
+    public String verify(String token) {
+        String key = digest(token);
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = tokens.get(key);
+        if (Objects.nonNull(cached) && now < cached.expiresAt && isAccepted(key, cached)) {
+            tokenHits.incrementAndGet();
+            return cached.username;
+        }
+        tokenMisses.incrementAndGet();
+        VerifiedToken verified;
+        try {
+            Claims claims = jwtUtil.parseClaims(token);
+            long expiration = claims.getExpiration().getTime();
+            long issuedAt = issuedAtMillis(claims);
+            verified = new VerifiedToken(claims.getSubject(), issuedAt, Math.min(expiration, now + tokenTtlMs));
+        } catch (Exception e) {
+            tokenRejected.incrementAndGet();
+            log.debug("JWT token verification failed: {}", e.getMessage());
+            return null;
+        }
+        if (Objects.isNull(verified.username) || !isAccepted(key, verified)) {
+            tokenRejected.incrementAndGet();
+            return null;
+        }
+        tokens.put(key, verified, maxEntries);
+        return verified.username;
+    }
+
+    /**
+     * 按用户名获取用户，缓存未命中时查库
+     */
+    public Optional<User> getUser(String username) {
+        CachedUser cached = users.get(username);
+        long now = System.currentTimeMillis();
+        if (Objects.nonNull(cached) && now - cached.loadedAt < userTtlMs) {
+            userHits.incrementAndGet();
+            return Optional.of(cached.user);
+        }
+        userMisses.incrementAndGet();
+        long generation = userGeneration.get();
+        Optional<User> user = userRepository.findByUsername(username);
+        // 查库期间用户被修改（如修改密码）时读到的可能是旧数据，只返回不缓存
+        user.ifPresent(u -> users.putIf(username, new CachedUser(u, now), maxEntries,
+                () -> userGeneration.get() == generation));
+        return user;
+    }
+
+    /**
+     * 吊销单个令牌（注销）
+     */
+    public void revokeToken(String token) {
+        String key = digest(token);
+        long expiration;
+        try {
+            expiration = jwtUtil.parseClaims(token).getExpiration().getTime();
+        } catch (Exception e) {
+            // 无效或已过期的令牌无需吊销
+            return;
+        }
+        long now = System.currentTimeMillis();
+        revokedTokens.entrySet().removeIf(entry -> entry.getValue() <= now);
+        revokedTokens.put(key, expiration);
+        tokens.remove(key);
+    }
+
+    /**
+     * 吊销用户此前签发的全部令牌并清除用户缓存（修改密码、禁用用户）
+     */
+    public void invalidateUser(String username) {
+        notBefore.put(username, System.currentTimeMillis());
+        userGeneration.incrementAndGet();
+        users.remove(username);
+        tokens.removeIf(token -> username.equals(token.username));
+    }
+
+    /**
+     * 清除用户缓存，下次访问重新查库
+     */
+    public void evictUser(String username) {
+        userGeneration.incrementAndGet();
+        users.remove(username);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tokens", tokens.size());
+        stats.put("users", users.size());
+        stats.put("revokedTokens", revokedTokens.size());
+        stats.put("tokenHits", tokenHits.get());
+        stats.put("tokenMisses", tokenMisses.get());
+        stats.put("tokenRejected", tokenRejected.get());
+        stats.put("userHits", userHits.get());
+        stats.put("userMisses", userMisses.get());
+        return stats;
+    }
+
+    private boolean isAccepted(String key, VerifiedToken token) {
+        if (revokedTokens.containsKey(key)) {
+            return false;
+        }
+        Long since = notBefore.get(token.username);
+        return Objects.isNull(since) || token.issuedAt > since;
+    }
+
+    /**
+     * 签发时间（毫秒），优先取毫秒声明；只有秒级 iat 时按该秒的起点计，与吊销同一秒签发的令牌视为吊销前签发
+     */
+    private static long issuedAtMillis(Claims claims) {
+        Object millis = claims.get(JwtUtil.ISSUED_AT_MS);
+        if (millis instanceof Number) {
+            return ((Number) millis).longValue();
+        }
+        return Objects.isNull(claims.getIssuedAt()) ? 0 : claims.getIssuedAt().getTime();
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class VerifiedToken {
+        private final String username;
+        // 签发时间（毫秒）
+        private final long issuedAt;
+        private final long expiresAt;
+
+        VerifiedToken(String username, long issuedAt, long expiresAt) {
+            this.username = username;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class CachedUser {
+        private final User user;
+        private final long loadedAt;
+
+        CachedUser(User user, long loadedAt) {
+            this.user = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * 按访问顺序淘汰的有界缓存，读写均在 this 锁内
+     */
+    private static class Lru<V> {
+        private final LinkedHashMap<String, V> map = new LinkedHashMap<>(16, 0.75f, true);
+
+        synchronized V get(String key) {
+            return map.get(key);
+        }
+
+        synchronized void put(String key, V value, int maxEntries) {
+            map.put(key, value);
+            while (map.size() > maxEntries) {
+                map.remove(map.keySet().iterator().next());
+            }
+        }
+
+        /**
+         * 条件成立时才放入，条件在锁内判断，与 remove 互斥
+         */
+        synchronized void putIf(String key, V value, int maxEntries, BooleanSupplier condition) {
+            if (condition.getAsBoolean()) {
+                put(key, value, maxEntries);
+            }
+        }
+
+        synchronized void remove(String key) {
+            map.remove(key);
+        }
+
+        synchronized void removeIf(Predicate<V> predicate) {
+            map.values().removeIf(predicate);
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+    }
+}
@@ -15,16 +15,30 @@ import java.util.function.Function;
 @Component
 public class JwtUtil {
 
+    /**
+     * 毫秒级签发时间声明，iat 只精确到秒，按签发时间吊销令牌时使用
+     */
+    public static final String ISSUED_AT_MS = "iat_ms";
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    private volatile JwtParser parser;
+
     private SecretKey getSigningKey() {
         return Keys.hmacShaKeyFor(secret.getBytes());
     }
 
+    private JwtParser getParser() {
+        if (parser == null) {
+            parser = Jwts.parserBuilder().setSigningKey(getSigningKey()).build();
+        }
+        return parser;
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -39,11 +53,14 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return getParser().parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * 验签并解析令牌，令牌无效或已过期时抛出 JwtException
+     */
+    public Claims parseClaims(String token) {
+        return extractAllClaims(token);
     }
 
     private Boolean isTokenExpired(String token) {
@@ -56,11 +73,13 @@ public class JwtUtil {
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
+        long now = System.currentTimeMillis();
+        claims.put(ISSUED_AT_MS, now);
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiration))
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
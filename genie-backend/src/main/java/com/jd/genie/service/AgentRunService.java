@@ -0,0 +1,279 @@
+package com.jd.genie.service;
+
+import com.jd.genie.agent.agent.AgentContext;
+import com.jd.genie.agent.dto.tool.McpToolInfo;
+import com.jd.genie.agent.dto.ArtifactRegistry;
+import com.jd.genie.agent.dto.ObservationStore;
+import com.jd.genie.agent.printer.ChatSessionSSEPrinter;
+import com.jd.genie.agent.printer.Printer;
+import com.jd.genie.agent.printer.SseStreamSession;
+import com.jd.genie.agent.tool.ToolCollection;
+import com.jd.genie.agent.tool.common.CodeInterpreterTool;
+import com.jd.genie.agent.tool.common.DeepSearchTool;
+import com.jd.genie.agent.tool.common.FileTool;
+import com.jd.genie.agent.tool.common.ReadObservationTool;
+import com.jd.genie.agent.tool.common.ReportTool;
+import com.jd.genie.agent.util.DateUtil;
+import com.jd.genie.agent.util.ThreadUtil;
+import com.jd.genie.config.GenieConfig;
+import com.jd.genie.entity.ChatSession;
+import com.jd.genie.entity.User;
+import com.jd.genie.model.req.AgentRequest;
+import com.jd.genie.service.impl.AgentHandlerFactory;
+import com.jd.genie.util.StageTimer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 智能体执行：构建上下文与工具并调度执行，输出统一交给 Printer
+ * /AutoAgent 与多智能体增量接口共用，均在进程内执行
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AgentRunService {
+    public static final long AGENT_TIMEOUT_MS = 60 * 60 * 1000L;
+
+    private final GenieConfig genieConfig;
+    private final AgentHandlerFactory agentHandlerFactory;
+    private final McpToolRegistryService mcpToolRegistryService;
+    private final ChatSessionService chatSessionService;
+    private final RAGService ragService;
+    private final UserService userService;
+
+    // 执行中的请求，requestId -> 发起用户与取消标识
+    private final Map<String, Run> running = new ConcurrentHashMap<>();
+
+    /**
+     * html模式： query+以 html展示
+     * docs模式：query+以 markdown展示
+     * table 模式: query+以 excel 展示
+     */
+    public String handleOutputStyle(AgentRequest request) {
+        String query = request.getQuery();
+        Map<String, String> outputStyleMap = genieConfig.getOutputStylePrompts();
+        if (!StringUtils.isEmpty(request.getOutputStyle())) {
+            query += outputStyleMap.computeIfAbsent(request.getOutputStyle(), k -> "");
+        }
+        return query;
+    }
+
+    /**
+     * 校验会话存在且属于当前用户（用户消息应已通过单独API保存）
+     */
+    private ChatSession checkChatSession(AgentRequest request, User currentUser) {
+        String sessionId = request.getSessionId();
+        if (sessionId == null || sessionId.trim().isEmpty()) {
+            throw new RuntimeException("会话ID不能为空，请先保存用户消息");
+        }
+        return chatSessionService.getSessionByIdAndUser(sessionId, currentUser)
+                .orElseThrow(() -> new RuntimeException("会话不存在或无权限访问"));
+    }
+
+    /**
+     * 请求准备与执行，输出写入会话
+     * 准备阶段按依赖关系并行：用户 -> {会话校验, RAG 增强}，MCP 工具快照独立；全部完成后开始执行智能体
+     * 调用方挂载连接后即可返回，准备过程中先输出状态事件，任一阶段失败时输出 error 事件并结束
+     */
+    public CompletableFuture<Void> start(AgentRequest request, String username, SseStreamSession session) {
+        StageTimer timer = new StageTimer();
+        Printer printer = new ChatSessionSSEPrinter(session, request, request.getAgentType(), chatSessionService);
+        Run current = running.computeIfAbsent(request.getRequestId(), k -> new Run(username));
+        if (!Objects.equals(current.owner, username)) {
+            log.warn("{} auto agent request id already running for another user", request.getRequestId());
+            printer.send("error", "请求ID已被占用");
+            printer.close();
+            return CompletableFuture.completedFuture(null);
+        }
+        printer.send("status", "任务准备中");
+        // 拼接输出类型
+        request.setQuery(handleOutputStyle(request));
+
+        CompletableFuture<User> user = timer.stage("user", () -> userService.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("用户不存在")), ThreadUtil::execute);
+        CompletableFuture<ChatSession> chatSession = user.thenCompose(currentUser ->
+                timer.stage("chat_session", () -> checkChatSession(request, currentUser), ThreadUtil::execute));
+        CompletableFuture<String> query = user.thenCompose(currentUser ->
+                timer.stage("rag", () -> enhanceQuery(request, currentUser, printer), ThreadUtil::execute));
+        CompletableFuture<Map<String, McpToolInfo>> mcpTools =
+                timer.stage("mcp_tools", mcpToolRegistryService::getSnapshot, ThreadUtil::execute);
+
+        return CompletableFuture.allOf(chatSession, query, mcpTools)
+                .thenRunAsync(() -> {
+                    request.setQuery(query.join());
+                    log.info("{} auto agent setup {}", request.getRequestId(), timer);
+                    // 执行调度引擎
+                    run(request, username, printer, mcpTools.join());
+                }, ThreadUtil::execute)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && Objects.nonNull(e.getCause()) ? e.getCause() : e;
+                    log.error("{} auto agent setup failed after {}", request.getRequestId(), timer, cause);
+                    running.remove(request.getRequestId(), current);
+                    printer.send("error", cause.getMessage());
+                    printer.close();
+                    return null;
+                });
+    }
+
+    /**
+     * RAG增强查询处理，失败时使用原始查询
+     */
+    private String enhanceQuery(AgentRequest request, User currentUser, Printer printer) {
+        if (request.getKnowledgeBaseId() == null) {
+            return request.getQuery();
+        }
+        printer.send("status", "正在检索知识库…");
+        try {
+            RAGService.EnhancedQuery enhancedResult = ragService.enhanceQuery(
+                    request.getKnowledgeBaseId(),
+                    currentUser,
+                    request.getQuery(),
+                    3,  // topK: 检索前3个最相关的文档片段
+                    request.getDocumentIds()  // 指定文档ID列表
+            );
+            String documentInfo = request.getDocumentIds() != null && !request.getDocumentIds().isEmpty()
+                ? String.format(" from %d specific documents", request.getDocumentIds().size())
+                : " from entire knowledge base";
+            log.info("{} RAG enhanced query for knowledge base {}{} with {} relevant chunks",
+                    request.getRequestId(), request.getKnowledgeBaseId(), documentInfo, enhancedResult.getRelevantChunksCount());
+            return enhancedResult.getEnhancedPrompt();
+        } catch (Exception e) {
+            log.error("{} RAG query enhancement failed for knowledge base {}", request.getRequestId(), request.getKnowledgeBaseId(), e);
+            return request.getQuery();
+        }
+    }
+
+    /**
+     * 取消执行中的请求，只能取消本人发起的请求，智能体在下一步开始前结束
+     */
+    public boolean cancel(String requestId, String owner) {
+        Run current = running.get(requestId);
+        if (Objects.isNull(current) || !Objects.equals(current.owner, owner)) {
+            return false;
+        }
+        current.cancelled.set(true);
+        log.info("{} auto agent cancel requested", requestId);
+        return true;
+    }
+
+    /**
+     * 同步执行，结束后关闭 printer
+     */
+    public void run(AgentRequest request, Printer printer) {
+        run(request, null, printer, mcpToolRegistryService.getSnapshot());
+    }
+
+    private void run(AgentRequest request, String owner, Printer printer, Map<String, McpToolInfo> mcpTools) {
+        ObservationStore observationStore = new ObservationStore();
+        // 准备阶段已登记时沿用，准备期间的取消同样生效；requestId 被其他用户占用时不登记，不可取消
+        Run registered = running.computeIfAbsent(request.getRequestId(), k -> new Run(owner));
+        Run current = Objects.equals(registered.owner, owner) ? registered : new Run(owner);
+        try {
+            AgentContext agentContext = AgentContext.builder()
+                    .requestId(request.getRequestId())
+                    .sessionId(request.getSessionId())  // 使用实际的会话ID
+                    .printer(printer)
+                    .query(request.getQuery())
+                    .task("")
+                    .dateInfo(DateUtil.CurrentDateInfo())
+                    .artifactRegistry(new ArtifactRegistry())
+                    .observationStore(observationStore)
+                    .taskKey(request.getRequestId())
+                    .sopPrompt(request.getSopPrompt())
+                    .basePrompt(request.getBasePrompt())
+                    .agentType(request.getAgentType())
+                    .isStream(Objects.nonNull(request.getIsStream()) ? request.getIsStream() : false)
+                    .deadline(System.currentTimeMillis() + AGENT_TIMEOUT_MS)
+                    .cancelled(current.cancelled)
+                    .build();
+
+            // 构建工具列表
+            agentContext.setToolCollection(buildToolCollection(agentContext, mcpTools));
+            // 根据数据类型获取对应的处理器
+            AgentHandlerService handler = agentHandlerFactory.getHandler(agentContext, request);
+            // 执行处理逻辑
+            handler.handle(agentContext, request);
+            // 关闭输出，待已入队的事件写完后结束
+            printer.close();
+
+        } catch (Exception e) {
+            log.error("{} auto agent error", request.getRequestId(), e);
+            printer.send("error", e.getMessage());
+            printer.close();
+        } finally {
+            running.remove(request.getRequestId(), current);
+            observationStore.close();
+        }
+    }
+
+    /**
+     * 构建工具列表
+     *
+     * @param agentContext
+     * @param mcpTools
+     * @return
+     */
+    private ToolCollection buildToolCollection(AgentContext agentContext, Map<String, McpToolInfo> mcpTools) {
+
+        ToolCollection toolCollection = new ToolCollection();
+        toolCollection.setAgentContext(agentContext);
+        // file
+        FileTool fileTool = new FileTool();
+        fileTool.setAgentContext(agentContext);
+        toolCollection.addTool(fileTool);
+
+        // 超长工具结果分段读取
+        ReadObservationTool readObservationTool = new ReadObservationTool();
+        readObservationTool.setAgentContext(agentContext);
+        toolCollection.addTool(readObservationTool);
+
+        // default tool
+        List<String> agentToolList = Arrays.asList(genieConfig.getMultiAgentToolListMap()
+                .getOrDefault("default", "search,code,report").split(","));
+        if (!agentToolList.isEmpty()) {
+            if (agentToolList.contains("code")) {
+                CodeInterpreterTool codeTool = new CodeInterpreterTool();
+                codeTool.setAgentContext(agentContext);
+                toolCollection.addTool(codeTool);
+            }
+            if (agentToolList.contains("report")) {
+                ReportTool htmlTool = new ReportTool();
+                htmlTool.setAgentContext(agentContext);
+                toolCollection.addTool(htmlTool);
+            }
+            if (agentToolList.contains("search")) {
+                DeepSearchTool deepSearchTool = new DeepSearchTool();
+                deepSearchTool.setAgentContext(agentContext);
+                toolCollection.addTool(deepSearchTool);
+            }
+        }
+
+        // mcp tool，使用注册中心缓存的快照
+        toolCollection.setMcpToolMap(mcpTools);
+
+        return toolCollection;
+    }
+
+    /**
+     * 执行中的请求
+     */
+    private static class Run {
+        private final String owner;
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+        Run(String owner) {
+            this.owner = owner;
+        }
+    }
+}
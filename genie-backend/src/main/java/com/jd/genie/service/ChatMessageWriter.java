@@ -0,0 +1,357 @@
+package com.jd.genie.service;
+
+import com.jd.genie.config.GenieConfig;
+import com.jd.genie.repository.ChatMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 聊天消息异步批量写入（write-behind）
+ * 1、消息序号由会话级计数器分配，首次使用时从库中取最大序号初始化，不再读取整个消息列表
+ * 2、写入线程按时间窗口或批量大小攒批，单个事务内批量插入消息，并按会话合并更新 updated_at、message_count、last_message_at
+ * 3、每条消息返回写入确认，事务提交后才完成；调用方等待确认即获得持久化保证，等待期间并发写入合并为同一批
+ * 4、批量写入失败时按次数重试，仍失败则逐条写入，失败的消息以异常完成
+ * 5、关闭时由写入线程写完队列中的全部消息，关闭方只等待，不与写入线程并发写入
+ * 序号计数器在进程内维护，同一会话的消息需由同一实例写入
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatMessageWriter {
+    private static final String INSERT_MESSAGE =
+            "INSERT INTO chat_messages (session_id, role, content, message_order, created_at) VALUES (?, ?, ?, ?, ?)";
+    // updated_at 与 last_message_at 只前进不后退：不覆盖重命名等操作写入的更晚时间，重试或逐条写入的旧消息也不会回拨，
+    // 保证 (updated_at, id) 游标分页稳定
+    private static final String UPDATE_SESSION = "UPDATE chat_sessions SET message_count = COALESCE(message_count, 0) + ?, "
+            + "last_message_at = CASE WHEN last_message_at IS NULL OR last_message_at < ? THEN ? ELSE last_message_at END, "
+            + "updated_at = CASE WHEN updated_at IS NULL OR updated_at < ? THEN ? ELSE updated_at END "
+            + "WHERE id = ?";
+    private static final long IDLE_EVICT_MS = 10 * 60 * 1000L;
+    private static final long SHUTDOWN_WAIT_MS = 10_000L;
+
+    private final GenieConfig genieConfig;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ChatMessageRepository chatMessageRepository;
+
+    private final LinkedBlockingQueue<PendingMessage> queue = new LinkedBlockingQueue<>();
+    private final Map<Long, SessionState> sessions = new ConcurrentHashMap<>();
+    private final Object lingerLock = new Object();
+    private volatile boolean running = true;
+    private volatile boolean urgent = false;
+    private Thread flusher;
+    private long lastEvictAt = System.currentTimeMillis();
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong sessionUpdates = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        Integer backfilled = transactionTemplate.execute(status -> chatMessageRepository.backfillSessionCounters());
+        if (Objects.nonNull(backfilled) && backfilled > 0) {
+            log.info("chat message writer backfilled counters of {} sessions", backfilled);
+        }
+        flusher = new Thread(this::flushLoop, "chat-message-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        wakeUp();
+        try {
+            flusher.join(SHUTDOWN_WAIT_MS);
+            while (flusher.isAlive()) {
+                log.warn("chat message writer still flushing on shutdown, {} messages pending", queue.size());
+                flusher.join(SHUTDOWN_WAIT_MS);
+            }
+        } catch (InterruptedException e) {
+            // 写入线程仍在写，不在当前线程并发写入
+            Thread.currentThread().interrupt();
+            log.warn("chat message writer shutdown interrupted, {} messages pending", queue.size());
+            return;
+        }
+        // 写入线程已退出（如被中断）仍有剩余时，在当前线程写完
+        List<PendingMessage> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            log.info("chat message writer flushing {} messages on shutdown", rest.size());
+            write(rest);
+        }
+    }
+
+    /**
+     * 追加一条消息，返回写入确认
+     */
+    public CompletableFuture<Void> append(Long sessionId, String role, String content) {
+        while (true) {
+            SessionState state = sessions.get(sessionId);
+            if (Objects.isNull(state)) {
+                // 查询在映射外完成，不占用 ConcurrentHashMap 的桶锁；并发初始化时以先放入的为准
+                SessionState loaded = loadState(sessionId);
+                SessionState existing = sessions.putIfAbsent(sessionId, loaded);
+                state = Objects.isNull(existing) ? loaded : existing;
+            }
+            synchronized (state) {
+                if (state.evicted) {
+                    // 取到后被淘汰，重新加载，避免沿用旧计数器与新计数器重复分配序号
+                    continue;
+                }
+                PendingMessage message = new PendingMessage(sessionId, role, content, state.nextOrder++, LocalDateTime.now());
+                state.lastWrite = message.ack;
+                state.lastUsedAt = System.currentTimeMillis();
+                queue.add(message);
+                appended.incrementAndGet();
+                return message.ack;
+            }
+        }
+    }
+
+    /**
+     * 等待写入确认；超时或被中断时抛出异常，调用方不得视为已保存（消息仍在队列中，之后仍会写入）
+     */
+    public void await(CompletableFuture<Void> ack) {
+        try {
+            if (Objects.nonNull(ack) && !ack.isDone()) {
+                // 有调用方在等待，不再攒批
+                urgent = true;
+                wakeUp();
+            }
+            if (Objects.nonNull(ack)) {
+                ack.get(genieConfig.getChatStoreAwaitTimeoutMs(), TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException e) {
+            log.warn("chat message write not confirmed within {}ms", genieConfig.getChatStoreAwaitTimeoutMs());
+            throw new RuntimeException("消息保存超时，写入尚未确认", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("消息保存被中断，写入尚未确认", e);
+        } catch (Exception e) {
+            throw new RuntimeException("消息保存失败", e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * 等待会话已追加的消息写入，读取消息列表前调用，保证读到自己的写入
+     */
+    public void awaitSession(Long sessionId) {
+        SessionState state = sessions.get(sessionId);
+        if (Objects.nonNull(state) && Objects.nonNull(state.lastWrite) && !state.lastWrite.isDone()) {
+            try {
+                await(state.lastWrite);
+            } catch (Exception e) {
+                log.warn("{} chat message pending write failed: {}", sessionId, e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", queue.size());
+        stats.put("sessions", sessions.size());
+        stats.put("appended", appended.get());
+        stats.put("written", written.get());
+        stats.put("batches", batches.get());
+        stats.put("sessionUpdates", sessionUpdates.get());
+        stats.put("retries", retries.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    private SessionState loadState(Long sessionId) {
+        Integer maxOrder = chatMessageRepository.findMaxMessageOrder(sessionId);
+        return new SessionState(Objects.isNull(maxOrder) ? 0 : maxOrder + 1);
+    }
+
+    private void flushLoop() {
+        int batchSize = genieConfig.getChatStoreBatchSize();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(1, TimeUnit.SECONDS);
+                if (Objects.isNull(first)) {
+                    evictIdle();
+                    continue;
+                }
+                linger(batchSize);
+                List<PendingMessage> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+                evictIdle();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("chat message writer error", e);
+            }
+        }
+    }
+
+    /**
+     * 攒批：等待时间窗口结束、队列达到批量大小、有调用方等待确认或正在关闭
+     */
+    private void linger(int batchSize) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + genieConfig.getChatStoreFlushIntervalMs();
+        synchronized (lingerLock) {
+            while (running && !urgent && queue.size() + 1 < batchSize) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    break;
+                }
+                lingerLock.wait(wait);
+            }
+        }
+        urgent = false;
+    }
+
+    private void wakeUp() {
+        synchronized (lingerLock) {
+            lingerLock.notifyAll();
+        }
+    }
+
+    private void write(List<PendingMessage> batch) {
+        int maxRetries = genieConfig.getChatStoreMaxRetries();
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(batch));
+                batches.incrementAndGet();
+                written.addAndGet(batch.size());
+                batch.forEach(message -> message.ack.complete(null));
+                return;
+            } catch (Exception e) {
+                retries.incrementAndGet();
+                log.warn("chat message batch write failed, attempt {}/{}: {}", attempt + 1, maxRetries + 1, e.getMessage());
+                sleepBackoff(attempt);
+            }
+        }
+        // 逐条写入，隔离出错的消息
+        for (PendingMessage message : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(List.of(message)));
+                written.incrementAndGet();
+                message.ack.complete(null);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.error("{} chat message write failed, role={}, order={}, length={}", message.sessionId, message.role,
+                        message.order, message.content.length(), e);
+                message.ack.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void insert(List<PendingMessage> batch) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        Map<Long, SessionTouch> touched = new HashMap<>();
+        for (PendingMessage message : batch) {
+            rows.add(new Object[]{message.sessionId, message.role, message.content, message.order, Timestamp.valueOf(message.createdAt)});
+            touched.computeIfAbsent(message.sessionId, k -> new SessionTouch()).add(message.createdAt);
+        }
+        jdbcTemplate.batchUpdate(INSERT_MESSAGE, rows);
+        // 同一批内的会话只更新一次
+        List<Object[]> updates = new ArrayList<>(touched.size());
+        touched.forEach((sessionId, touch) -> {
+            Timestamp timestamp = Timestamp.valueOf(touch.lastAt);
+            updates.add(new Object[]{touch.count, timestamp, timestamp, timestamp, timestamp, sessionId});
+        });
+        jdbcTemplate.batchUpdate(UPDATE_SESSION, updates);
+        sessionUpdates.addAndGet(updates.size());
+    }
+
+    private void sleepBackoff(int attempt) {
+        try {
+            Thread.sleep(Math.min(100L << attempt, 2000L));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 释放长时间未写入且没有待写消息的会话计数器
+     */
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        if (now - lastEvictAt < IDLE_EVICT_MS / 10) {
+            return;
+        }
+        lastEvictAt = now;
+        sessions.forEach((sessionId, state) -> {
+            // 在会话锁内复查，与 append 互斥，淘汰后 append 不会再使用该计数器
+            synchronized (state) {
+                if (now - state.lastUsedAt > IDLE_EVICT_MS
+                        && (Objects.isNull(state.lastWrite) || state.lastWrite.isDone())
+                        && sessions.remove(sessionId, state)) {
+                    state.evicted = true;
+                }
+            }
+        });
+    }
+
+    /**
+     * 会话序号计数器，nextOrder 与 evicted 在 this 锁内读写
+     */
+    private static class SessionState {
+        private int nextOrder;
+        private boolean evicted = false;
+        private volatile CompletableFuture<Void> lastWrite;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+
+        SessionState(int nextOrder) {
+            this.nextOrder = nextOrder;
+        }
+    }
+
+    private static class SessionTouch {
+        private int count;
+        private LocalDateTime lastAt;
+
+        void add(LocalDateTime createdAt) {
+            count++;
+            if (Objects.isNull(lastAt) || createdAt.isAfter(lastAt)) {
+                lastAt = createdAt;
+            }
+        }
+    }
+
+    private static class PendingMessage {
+        private final Long sessionId;
+        private final String role;
+        private final String content;
+        private final int order;
+        private final LocalDateTime createdAt;
+        private final CompletableFuture<Void> ack = new CompletableFuture<>();
+
+        PendingMessage(Long sessionId, String role, String content, int order, LocalDateTime createdAt) {
+            this.sessionId = sessionId;
+            this.role = role;
+            this.content = content;
+            this.order = order;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -1,15 +1,24 @@
 package com.jd.genie.service;
 
+import com.jd.genie.dto.session.ChatSessionDto;
 import com.jd.genie.entity.ChatMessage;
 import com.jd.genie.entity.ChatSession;
 import com.jd.genie.entity.User;
 import com.jd.genie.repository.ChatMessageRepository;
 import com.jd.genie.repository.ChatSessionRepository;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -19,11 +28,44 @@ public class ChatSessionService {
 
     private final ChatSessionRepository chatSessionRepository;
     private final ChatMessageRepository chatMessageRepository;
+    private final ChatMessageWriter chatMessageWriter;
 
     public List<ChatSession> getUserSessions(User user) {
         return chatSessionRepository.findByUserAndIsActiveTrueOrderByUpdatedAtDesc(user);
     }
 
+    /**
+     * 会话列表（投影查询，不加载消息），cursor 为上一页返回的游标，limit 为空时返回全部
+     */
+    public List<ChatSessionDto> getSessionSummaries(User user, String cursor, Integer limit) {
+        Limit pageLimit = Objects.isNull(limit) ? Limit.unlimited() : Limit.of(limit);
+        if (StringUtils.isBlank(cursor)) {
+            return chatSessionRepository.findSummaries(user, pageLimit);
+        }
+        String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        return chatSessionRepository.findSummariesAfter(user, LocalDateTime.parse(parts[0]), parts[1], pageLimit);
+    }
+
+    /**
+     * 会话列表下一页的游标，由本页最后一条的 (updatedAt, sessionId) 组成
+     */
+    public String nextSessionCursor(List<ChatSessionDto> page, Integer limit) {
+        if (Objects.isNull(limit) || page.size() < limit) {
+            return null;
+        }
+        ChatSessionDto last = page.get(page.size() - 1);
+        String raw = last.getUpdatedAt() + "|" + last.getSessionId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ChatSessionDto toDto(ChatSession session) {
+        return new ChatSessionDto(session.getSessionId(), session.getTitle(), session.getCreatedAt(), session.getUpdatedAt(),
+                Objects.isNull(session.getMessageCount()) ? 0 : session.getMessageCount(), session.getLastMessageAt());
+    }
+
     public Optional<ChatSession> getSessionByIdAndUser(String sessionId, User user) {
         return chatSessionRepository.findBySessionIdAndUser(sessionId, user);
     }
@@ -38,24 +80,29 @@ public class ChatSessionService {
         return chatSessionRepository.save(session);
     }
 
-    public void saveMessage(ChatSession session, String role, String content, Integer order) {
-        ChatMessage message = new ChatMessage();
-        message.setChatSession(session);
-        message.setRole(role);
-        message.setContent(content);
-        message.setMessageOrder(order);
-        
-        chatMessageRepository.save(message);
-        
-        // Update session's updated_at timestamp
-        session.setUpdatedAt(java.time.LocalDateTime.now());
-        chatSessionRepository.save(session);
+    /**
+     * 保存消息，序号由写入器分配，等待批量写入提交后返回
+     */
+    public void saveMessage(ChatSession session, String role, String content) {
+        chatMessageWriter.await(chatMessageWriter.append(session.getId(), role, content));
     }
 
     public List<ChatMessage> getSessionMessages(ChatSession session) {
+        chatMessageWriter.awaitSession(session.getId());
         return chatMessageRepository.findByChatSessionOrderByMessageOrderAsc(session);
     }
 
+    /**
+     * 历史消息分页：取 beforeOrder 之前最近的 limit 条，按序号升序返回；beforeOrder 为空时取最新一页
+     */
+    public List<ChatMessage> getSessionMessages(ChatSession session, Integer beforeOrder, int limit) {
+        chatMessageWriter.awaitSession(session.getId());
+        List<ChatMessage> messages = new ArrayList<>(chatMessageRepository.findByChatSessionAndMessageOrderLessThanOrderByMessageOrderDesc(
+                session, Objects.isNull(beforeOrder) ? Integer.MAX_VALUE : beforeOrder, Limit.of(limit)));
+        Collections.reverse(messages);
+        return messages;
+    }
+
     @Transactional
     public void deleteSession(String sessionId, User user) {
         chatSessionRepository.findBySessionIdAndUser(sessionId, user).ifPresent(session -> {
@@ -71,9 +118,7 @@ public class ChatSessionService {
     public void saveAssistantMessage(String sessionId, String content) {
         Optional<ChatSession> sessionOpt = chatSessionRepository.findBySessionId(sessionId);
         if (sessionOpt.isPresent()) {
-            ChatSession session = sessionOpt.get();
-            int messageOrder = getSessionMessages(session).size();
-            saveMessage(session, "assistant", content, messageOrder);
+            saveMessage(sessionOpt.get(), "assistant", content);
         }
     }
 
@@ -1,30 +1,55 @@
 package com.jd.genie.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jd.genie.config.VectorConfig;
+import com.jd.genie.service.vector.QuantizedIndex;
+import com.jd.genie.service.vector.SegmentVectorStore;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.stream.Collectors;
 
+/**
+ * 本地文件向量库，底层为追加写的内存映射向量段（见 SegmentVectorStore）
+ * 启动时将旧版逐块 JSON 文件（vector_data/<chunkId>.json）导入向量段，原文件移至 vector_data/legacy
+ * 配置 vector.database.quantization 时搜索先扫描量化码初筛，再用 float32 原值精确重排（见 QuantizedIndex）
+ */
 @Slf4j
 @Service
 public class FileVectorDatabaseService {
     
+    private static final int MIGRATE_BATCH = 1000;
     private final String VECTOR_DATA_DIR = "./vector_data";
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SegmentVectorStore store;
+    private final QuantizedIndex index;
     
-    public FileVectorDatabaseService() {
-        // Create vector data directory if it doesn't exist
-        try {
-            Files.createDirectories(Paths.get(VECTOR_DATA_DIR));
-        } catch (IOException e) {
-            log.error("Failed to create vector data directory", e);
+    public FileVectorDatabaseService(VectorConfig vectorConfig) throws IOException {
+        Path dir = Paths.get(VECTOR_DATA_DIR, "segments");
+        VectorConfig.Quantization quantization = vectorConfig.getDatabase().getQuantization();
+        store = new SegmentVectorStore(dir);
+        index = new QuantizedIndex(store, dir, quantization.getMode(), quantization.getRerankFactor(),
+                quantization.getPqSubDimension(), quantization.getPqTrainSize());
+        index.load();
+        Integer dimension = vectorConfig.getEmbedding().getDimension();
+        if (store.dimension() > 0 && Objects.nonNull(dimension) && store.dimension() != dimension) {
+            log.warn("Vector store dimension {} differs from vector.embedding.dimension {}, new embeddings will be rejected",
+                    store.dimension(), dimension);
         }
+        migrateLegacyFiles();
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        index.close();
+        store.close();
     }
     
     /**
@@ -32,16 +57,7 @@ public class FileVectorDatabaseService {
      */
     public boolean addDocument(String chunkId, String content, List<Double> embedding, Map<String, Object> metadata) {
         try {
-            VectorDocument doc = new VectorDocument();
-            doc.setId(chunkId);
-            doc.setContent(content);
-            doc.setEmbedding(embedding);
-            doc.setMetadata(metadata);
-            doc.setTimestamp(System.currentTimeMillis());
-            
-            String filePath = VECTOR_DATA_DIR + "/" + chunkId + ".json";
-            objectMapper.writeValue(new File(filePath), doc);
-            
+            index.add(Collections.singletonList(new SegmentVectorStore.Entry(chunkId, content, toFloats(embedding), metadata)));
             log.info("Successfully saved document {} to file-based vector store", chunkId);
             return true;
         } catch (Exception e) {
@@ -51,16 +67,27 @@ public class FileVectorDatabaseService {
     }
     
     /**
-     * Batch add documents
+     * Batch add documents, written and flushed as one batch
      */
     public int addDocuments(List<VectorDocument> documents) {
-        int successCount = 0;
-        for (VectorDocument doc : documents) {
-            if (addDocument(doc.getId(), doc.getContent(), doc.getEmbedding(), doc.getMetadata())) {
-                successCount++;
+        try {
+            List<SegmentVectorStore.Entry> entries = new ArrayList<>(documents.size());
+            for (VectorDocument doc : documents) {
+                entries.add(new SegmentVectorStore.Entry(doc.getId(), doc.getContent(), toFloats(doc.getEmbedding()), doc.getMetadata()));
+            }
+            index.add(entries);
+            log.info("Successfully saved {} documents to file-based vector store", entries.size());
+            return entries.size();
+        } catch (Exception e) {
+            log.error("Failed to save {} documents to vector store, falling back to single writes", documents.size(), e);
+            int successCount = 0;
+            for (VectorDocument doc : documents) {
+                if (addDocument(doc.getId(), doc.getContent(), doc.getEmbedding(), doc.getMetadata())) {
+                    successCount++;
+                }
             }
+            return successCount;
         }
-        return successCount;
     }
     
     /**
@@ -69,47 +96,15 @@ public class FileVectorDatabaseService {
     public List<SearchResult> search(List<Double> queryEmbedding, int topK, Long knowledgeBaseId) {
         try {
             List<SearchResult> results = new ArrayList<>();
-            
-            File dataDir = new File(VECTOR_DATA_DIR);
-            File[] vectorFiles = dataDir.listFiles((dir, name) -> name.endsWith(".json"));
-            
-            if (vectorFiles == null) {
-                return results;
+            for (SegmentVectorStore.Hit hit : index.search(toFloats(queryEmbedding), topK, knowledgeBaseId)) {
+                SearchResult result = new SearchResult();
+                result.setId(hit.getId());
+                result.setContent(hit.getContent());
+                result.setScore(hit.getScore());
+                result.setMetadata(hit.getMetadata());
+                results.add(result);
             }
-            
-            for (File file : vectorFiles) {
-                try {
-                    VectorDocument doc = objectMapper.readValue(file, VectorDocument.class);
-                    
-                    // Filter by knowledge base if specified
-                    if (knowledgeBaseId != null) {
-                        Object kbId = doc.getMetadata().get("knowledge_base_id");
-                        if (!knowledgeBaseId.equals(kbId)) {
-                            continue;
-                        }
-                    }
-                    
-                    // Calculate cosine similarity
-                    double similarity = calculateCosineSimilarity(queryEmbedding, doc.getEmbedding());
-                    
-                    SearchResult result = new SearchResult();
-                    result.setId(doc.getId());
-                    result.setContent(doc.getContent());
-                    result.setScore(similarity);
-                    result.setMetadata(doc.getMetadata());
-                    
-                    results.add(result);
-                } catch (Exception e) {
-                    log.warn("Failed to process vector file {}", file.getName(), e);
-                }
-            }
-            
-            // Sort by similarity score and return top K
-            return results.stream()
-                    .sorted((a, b) -> Double.compare(b.getScore(), a.getScore()))
-                    .limit(topK)
-                    .collect(Collectors.toList());
-            
+            return results;
         } catch (Exception e) {
             log.error("Failed to search in vector database", e);
             return Collections.emptyList();
@@ -121,44 +116,63 @@ public class FileVectorDatabaseService {
      */
     public boolean deleteDocument(String chunkId) {
         try {
-            String filePath = VECTOR_DATA_DIR + "/" + chunkId + ".json";
-            File file = new File(filePath);
-            if (file.exists()) {
-                return file.delete();
-            }
+            index.delete(chunkId);
             return true;
         } catch (Exception e) {
             log.error("Failed to delete document {}", chunkId, e);
             return false;
         }
     }
-    
+
+    public Map<String, Object> getStats() {
+        return index.getStats();
+    }
+
+    private static float[] toFloats(List<Double> embedding) {
+        float[] vector = new float[embedding.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = embedding.get(i).floatValue();
+        }
+        return vector;
+    }
+
     /**
-     * Calculate cosine similarity between two vectors
+     * 导入旧版 JSON 文件
      */
-    private double calculateCosineSimilarity(List<Double> vec1, List<Double> vec2) {
-        if (vec1.size() != vec2.size()) {
-            return 0.0;
+    private void migrateLegacyFiles() throws IOException {
+        File[] legacyFiles = new File(VECTOR_DATA_DIR).listFiles((dir, name) -> name.endsWith(".json"));
+        if (legacyFiles == null || legacyFiles.length == 0) {
+            return;
         }
-        
-        double dotProduct = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
-        
-        for (int i = 0; i < vec1.size(); i++) {
-            double a = vec1.get(i);
-            double b = vec2.get(i);
-            
-            dotProduct += a * b;
-            normA += a * a;
-            normB += b * b;
+        Path legacyDir = Files.createDirectories(Paths.get(VECTOR_DATA_DIR, "legacy"));
+        List<SegmentVectorStore.Entry> batch = new ArrayList<>(MIGRATE_BATCH);
+        List<File> migrated = new ArrayList<>(MIGRATE_BATCH);
+        int total = 0;
+        for (File file : legacyFiles) {
+            try {
+                VectorDocument doc = objectMapper.readValue(file, VectorDocument.class);
+                batch.add(new SegmentVectorStore.Entry(doc.getId(), doc.getContent(), toFloats(doc.getEmbedding()), doc.getMetadata()));
+                migrated.add(file);
+            } catch (Exception e) {
+                log.warn("Failed to read legacy vector file {}", file.getName(), e);
+            }
+            if (batch.size() >= MIGRATE_BATCH) {
+                total += flushMigration(batch, migrated, legacyDir);
+            }
         }
-        
-        if (normA == 0.0 || normB == 0.0) {
-            return 0.0;
+        total += flushMigration(batch, migrated, legacyDir);
+        log.info("Migrated {} legacy vector files into segment store, originals moved to {}", total, legacyDir);
+    }
+
+    private int flushMigration(List<SegmentVectorStore.Entry> batch, List<File> migrated, Path legacyDir) throws IOException {
+        int size = batch.size();
+        index.add(batch);
+        for (File file : migrated) {
+            Files.move(file.toPath(), legacyDir.resolve(file.getName()), StandardCopyOption.REPLACE_EXISTING);
         }
-        
-        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+        batch.clear();
+        migrated.clear();
+        return size;
     }
     
     // Data classes
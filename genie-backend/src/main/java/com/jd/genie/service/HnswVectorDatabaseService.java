@@ -0,0 +1,155 @@
+package com.jd.genie.service;
+
+import com.jd.genie.config.VectorConfig;
+import com.jd.genie.service.vector.HnswIndex;
+import com.jd.genie.service.vector.SegmentVectorStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内 HNSW 向量库（vector.database.type: hnsw）
+ * 向量与元数据写入 vector_data/hnsw 下的向量段存储，图文件定期及关闭时保存
+ * 带知识库过滤的近似结果少于知识库的可返回条数时兜底：知识库不少于 topK 条时先放大候选集重试，
+ * 仍不足再在知识库内精确搜索；知识库不足 topK 条时直接精确搜索
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HnswVectorDatabaseService {
+    private static final String DATA_DIR = "./vector_data/hnsw";
+    private static final int RETRY_EF_FACTOR = 8;
+
+    private final VectorConfig vectorConfig;
+
+    private SegmentVectorStore store;
+    private HnswIndex index;
+    private ScheduledExecutorService saver;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!"hnsw".equalsIgnoreCase(vectorConfig.getDatabase().getType())) {
+            return;
+        }
+        VectorConfig.Hnsw config = vectorConfig.getDatabase().getHnsw();
+        Path dir = Paths.get(DATA_DIR);
+        store = new SegmentVectorStore(dir);
+        index = new HnswIndex(store, dir.resolve("hnsw.graph"), config.getM(), config.getEfConstruction());
+        index.load();
+        saver = Executors.newSingleThreadScheduledExecutor(
+                new BasicThreadFactory.Builder().namingPattern("hnsw-saver-%d").daemon(true).build());
+        saver.scheduleWithFixedDelay(this::save, config.getSaveIntervalMs(), config.getSaveIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        if (Objects.isNull(index)) {
+            return;
+        }
+        saver.shutdownNow();
+        save();
+        store.close();
+    }
+
+    public boolean addDocument(String chunkId, String content, List<Double> embedding, Map<String, Object> metadata) {
+        try {
+            index.add(Collections.singletonList(new SegmentVectorStore.Entry(chunkId, content, toFloats(embedding), metadata)));
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to save document {} to hnsw index", chunkId, e);
+            return false;
+        }
+    }
+
+    public int addDocuments(List<FileVectorDatabaseService.VectorDocument> documents) {
+        try {
+            List<SegmentVectorStore.Entry> entries = new ArrayList<>(documents.size());
+            for (FileVectorDatabaseService.VectorDocument doc : documents) {
+                entries.add(new SegmentVectorStore.Entry(doc.getId(), doc.getContent(), toFloats(doc.getEmbedding()), doc.getMetadata()));
+            }
+            index.add(entries);
+            log.info("Successfully saved {} documents to hnsw index", entries.size());
+            return entries.size();
+        } catch (Exception e) {
+            log.error("Failed to save {} documents to hnsw index", documents.size(), e);
+            return 0;
+        }
+    }
+
+    public List<FileVectorDatabaseService.SearchResult> search(List<Double> queryEmbedding, int topK, Long knowledgeBaseId) {
+        try {
+            float[] query = toFloats(queryEmbedding);
+            int efSearch = vectorConfig.getDatabase().getHnsw().getEfSearch();
+            List<SegmentVectorStore.Hit> hits = index.search(query, topK, efSearch, knowledgeBaseId);
+            if (Objects.nonNull(knowledgeBaseId)) {
+                int live = index.liveCount(knowledgeBaseId);
+                int expected = Math.min(topK, live);
+                if (hits.size() < expected && live >= topK) {
+                    hits = index.search(query, topK, efSearch * RETRY_EF_FACTOR, knowledgeBaseId);
+                }
+                if (hits.size() < expected) {
+                    hits = index.exactSearch(query, topK, knowledgeBaseId);
+                }
+            }
+            List<FileVectorDatabaseService.SearchResult> results = new ArrayList<>(hits.size());
+            for (SegmentVectorStore.Hit hit : hits) {
+                FileVectorDatabaseService.SearchResult result = new FileVectorDatabaseService.SearchResult();
+                result.setId(hit.getId());
+                result.setContent(hit.getContent());
+                result.setScore(hit.getScore());
+                result.setMetadata(hit.getMetadata());
+                results.add(result);
+            }
+            return results;
+        } catch (Exception e) {
+            log.error("Failed to search in hnsw index", e);
+            return Collections.emptyList();
+        }
+    }
+
+    public boolean deleteDocument(String chunkId) {
+        try {
+            index.delete(chunkId);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to delete document {} from hnsw index", chunkId, e);
+            return false;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        return Objects.isNull(index) ? new LinkedHashMap<>() : index.getStats();
+    }
+
+    private void save() {
+        try {
+            index.saveIfDirty();
+        } catch (Exception e) {
+            log.error("Failed to save hnsw graph", e);
+        }
+    }
+
+    private static float[] toFloats(List<Double> embedding) {
+        float[] vector = new float[embedding.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = embedding.get(i).floatValue();
+        }
+        return vector;
+    }
+}
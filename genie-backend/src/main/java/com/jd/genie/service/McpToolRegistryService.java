@@ -0,0 +1,166 @@
+package com.jd.genie.service;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.jd.genie.agent.dto.tool.McpToolInfo;
+import com.jd.genie.agent.tool.mcp.McpTool;
+import com.jd.genie.config.GenieConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MCP 工具注册中心
+ * 启动时发现工具并在后台按 TTL + 随机抖动刷新，各 MCP server 并行拉取；
+ * 某个 server 拉取失败时保留其上一次成功的工具列表，请求侧直接读取不可变快照
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class McpToolRegistryService {
+
+    private final GenieConfig genieConfig;
+
+    // 每个 server 最近一次成功拉取的工具列表
+    private final Map<String, List<McpToolInfo>> lastGood = new ConcurrentHashMap<>();
+
+    // 请求侧使用的不可变快照
+    private volatile Map<String, McpToolInfo> snapshot = Collections.emptyMap();
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService fetchPool;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                new BasicThreadFactory.Builder().namingPattern("mcp-registry-%d").daemon(true).build());
+        fetchPool = Executors.newFixedThreadPool(Math.max(1, getServers().size()),
+                new BasicThreadFactory.Builder().namingPattern("mcp-fetch-%d").daemon(true).build());
+        scheduler.execute(this::refreshAndReschedule);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+        fetchPool.shutdownNow();
+    }
+
+    /**
+     * 获取当前 MCP 工具快照
+     */
+    public Map<String, McpToolInfo> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 并行刷新所有 MCP server 的工具列表
+     */
+    public void refresh() {
+        long startTime = System.currentTimeMillis();
+        List<String> servers = getServers();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (String server : servers) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                List<McpToolInfo> tools = fetchTools(server);
+                if (Objects.nonNull(tools)) {
+                    lastGood.put(server, tools);
+                }
+            }, fetchPool));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        // 按配置顺序合并，同名工具以靠后的 server 为准
+        Map<String, McpToolInfo> merged = new LinkedHashMap<>();
+        for (String server : servers) {
+            for (McpToolInfo tool : lastGood.getOrDefault(server, Collections.emptyList())) {
+                merged.put(tool.getName(), tool);
+            }
+        }
+        snapshot = Collections.unmodifiableMap(merged);
+        log.info("mcp tool registry refreshed, servers:{} tools:{} cost:{}ms", servers.size(), merged.size(),
+                System.currentTimeMillis() - startTime);
+    }
+
+    private void refreshAndReschedule() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("mcp tool registry refresh failed", e);
+        } finally {
+            long ttl = genieConfig.getMcpToolRefreshTtl();
+            long jitter = genieConfig.getMcpToolRefreshJitter();
+            long delay = ttl + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+            if (!scheduler.isShutdown()) {
+                scheduler.schedule(this::refreshAndReschedule, delay, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * 拉取单个 server 的工具列表，失败返回 null
+     */
+    private List<McpToolInfo> fetchTools(String mcpServer) {
+        try {
+            String listToolResult = new McpTool().listTool(mcpServer);
+            if (StringUtils.isEmpty(listToolResult)) {
+                log.error("mcp server {} invalid", mcpServer);
+                return null;
+            }
+            JSONObject resp = JSON.parseObject(listToolResult);
+            if (resp.getIntValue("code") != 200) {
+                log.error("mcp server {} code: {}, message: {}", mcpServer, resp.getIntValue("code"), resp.getString("message"));
+                return null;
+            }
+            JSONArray data = resp.getJSONArray("data");
+            if (Objects.isNull(data) || data.isEmpty()) {
+                log.error("mcp server {} code: {}, message: {}", mcpServer, resp.getIntValue("code"), resp.getString("message"));
+                return null;
+            }
+            List<McpToolInfo> tools = new ArrayList<>();
+            for (int i = 0; i < data.size(); i++) {
+                JSONObject tool = data.getJSONObject(i);
+                tools.add(McpToolInfo.builder()
+                        .name(tool.getString("name"))
+                        .desc(tool.getString("description"))
+                        .parameters(tool.getString("inputSchema"))
+                        .mcpServerUrl(mcpServer)
+                        .build());
+            }
+            return tools;
+        } catch (Exception e) {
+            log.error("mcp server {} list tool failed", mcpServer, e);
+            return null;
+        }
+    }
+
+    private List<String> getServers() {
+        List<String> servers = new ArrayList<>();
+        if (Objects.nonNull(genieConfig.getMcpServerUrlArr())) {
+            for (String server : genieConfig.getMcpServerUrlArr()) {
+                if (StringUtils.isNotBlank(server)) {
+                    servers.add(server);
+                }
+            }
+        }
+        return servers;
+    }
+}
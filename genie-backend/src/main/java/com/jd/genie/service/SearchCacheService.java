@@ -0,0 +1,371 @@
+package com.jd.genie.service;
+
+import com.alibaba.fastjson.JSON;
+import com.jd.genie.agent.util.ThreadUtil;
+import com.jd.genie.config.GenieConfig;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * deep_search 结果语义缓存
+ * 1、以 query 向量为键，余弦相似度超过阈值即命中，完全相同的 query 无需计算向量
+ * 2、结果按 TTL 过期，可按搜索源失效
+ * 3、全部条目的向量常驻内存索引，完整事件序列落盘，最近使用的条目保留在内存热数据中
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchCacheService {
+
+    private final GenieConfig genieConfig;
+    private final EmbeddingService embeddingService;
+
+    // 全部条目的索引（不含事件）
+    private final Map<String, IndexEntry> index = new ConcurrentHashMap<>();
+    // 内存热数据，按访问顺序淘汰
+    private Map<String, SearchCacheEntry> hot;
+
+    private final AtomicLong exactHits = new AtomicLong();
+    private final AtomicLong semanticHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong embeddingErrors = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        int hotEntries = genieConfig.getDeepSearchCacheHotEntries();
+        hot = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SearchCacheEntry> eldest) {
+                return size() > hotEntries;
+            }
+        });
+        if (genieConfig.getDeepSearchCacheEnabled()) {
+            ThreadUtil.execute(this::loadIndex);
+        }
+    }
+
+    /**
+     * 查找缓存，scope 区分搜索源配置与输出方式，不同 scope 之间不复用
+     */
+    public Lookup lookup(String query, String scope) {
+        Lookup lookup = new Lookup(key(query, scope), scope);
+        if (!genieConfig.getDeepSearchCacheEnabled()) {
+            return lookup;
+        }
+        SearchCacheEntry entry = load(index.get(lookup.key));
+        if (Objects.nonNull(entry)) {
+            exactHits.incrementAndGet();
+            lookup.hit = entry;
+            return lookup;
+        }
+
+        lookup.vector = embed(query);
+        if (Objects.nonNull(lookup.vector)) {
+            IndexEntry best = null;
+            double bestScore = genieConfig.getDeepSearchCacheSimilarityThreshold();
+            for (IndexEntry indexEntry : index.values()) {
+                if (!scope.equals(indexEntry.scope) || indexEntry.vector.length != lookup.vector.length || isExpired(indexEntry.createdAt)) {
+                    continue;
+                }
+                double score = dot(lookup.vector, indexEntry.vector);
+                if (score >= bestScore) {
+                    best = indexEntry;
+                    bestScore = score;
+                }
+            }
+            entry = load(best);
+            if (Objects.nonNull(entry)) {
+                semanticHits.incrementAndGet();
+                log.info("deep search cache semantic hit, query:{} cached:{} score:{}", query, entry.getQuery(), bestScore);
+                lookup.hit = entry;
+                return lookup;
+            }
+        }
+        misses.incrementAndGet();
+        return lookup;
+    }
+
+    /**
+     * 写入缓存，落盘异步进行
+     */
+    public void put(Lookup lookup, String query, List<String> sources, String result, List<String> events) {
+        if (!genieConfig.getDeepSearchCacheEnabled()) {
+            return;
+        }
+        SearchCacheEntry entry = SearchCacheEntry.builder()
+                .id(lookup.key)
+                .query(query)
+                .scope(lookup.scope)
+                .sources(sources)
+                .vector(lookup.vector)
+                .createdAt(System.currentTimeMillis())
+                .result(result)
+                .events(events)
+                .build();
+        index.put(entry.getId(), IndexEntry.of(entry));
+        hot.put(entry.getId(), entry);
+        ThreadUtil.execute(() -> {
+            write(entry);
+            evictOverflow();
+        });
+    }
+
+    /**
+     * 按搜索源失效，返回失效条数
+     */
+    public int invalidateSource(String source) {
+        int count = 0;
+        for (IndexEntry indexEntry : index.values()) {
+            if (Objects.nonNull(indexEntry.sources) && indexEntry.sources.contains(source)) {
+                remove(indexEntry.id);
+                count++;
+            }
+        }
+        log.info("deep search cache invalidate source:{} count:{}", source, count);
+        return count;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public int invalidateAll() {
+        int count = index.size();
+        index.keySet().forEach(this::remove);
+        return count;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", index.size());
+        stats.put("hot", hot.size());
+        stats.put("exactHits", exactHits.get());
+        stats.put("semanticHits", semanticHits.get());
+        stats.put("misses", misses.get());
+        stats.put("embeddingErrors", embeddingErrors.get());
+        return stats;
+    }
+
+    private SearchCacheEntry load(IndexEntry indexEntry) {
+        if (Objects.isNull(indexEntry)) {
+            return null;
+        }
+        if (isExpired(indexEntry.createdAt)) {
+            remove(indexEntry.id);
+            return null;
+        }
+        SearchCacheEntry entry = hot.get(indexEntry.id);
+        if (Objects.nonNull(entry)) {
+            return entry;
+        }
+        try {
+            entry = JSON.parseObject(Files.readAllBytes(path(indexEntry.id)), SearchCacheEntry.class);
+            hot.put(indexEntry.id, entry);
+            return entry;
+        } catch (Exception e) {
+            log.warn("deep search cache read failed {}", indexEntry.id, e);
+            index.remove(indexEntry.id);
+            return null;
+        }
+    }
+
+    private void write(SearchCacheEntry entry) {
+        try {
+            Path target = path(entry.getId());
+            Files.createDirectories(target.getParent());
+            Path tmp = Paths.get(target + ".tmp");
+            Files.write(tmp, JSON.toJSONBytes(entry));
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            log.warn("deep search cache write failed {}", entry.getId(), e);
+        }
+    }
+
+    private void remove(String id) {
+        index.remove(id);
+        hot.remove(id);
+        try {
+            Files.deleteIfExists(path(id));
+        } catch (IOException e) {
+            log.warn("deep search cache delete failed {}", id, e);
+        }
+    }
+
+    /**
+     * 超出上限时淘汰最旧的条目
+     */
+    private void evictOverflow() {
+        while (index.size() > genieConfig.getDeepSearchCacheMaxEntries()) {
+            IndexEntry oldest = null;
+            for (IndexEntry indexEntry : index.values()) {
+                if (Objects.isNull(oldest) || indexEntry.createdAt < oldest.createdAt) {
+                    oldest = indexEntry;
+                }
+            }
+            if (Objects.isNull(oldest)) {
+                return;
+            }
+            remove(oldest.id);
+        }
+    }
+
+    /**
+     * 启动时从磁盘重建索引，过期条目直接删除
+     */
+    private void loadIndex() {
+        long startTime = System.currentTimeMillis();
+        try {
+            Files.createDirectories(Paths.get(genieConfig.getDeepSearchCacheDir()));
+            File[] files = new File(genieConfig.getDeepSearchCacheDir()).listFiles((dir, name) -> name.endsWith(".json"));
+            if (Objects.isNull(files)) {
+                return;
+            }
+            for (File file : files) {
+                try {
+                    SearchCacheEntry entry = JSON.parseObject(Files.readAllBytes(file.toPath()), SearchCacheEntry.class);
+                    if (isExpired(entry.getCreatedAt())) {
+                        Files.deleteIfExists(file.toPath());
+                        continue;
+                    }
+                    index.putIfAbsent(entry.getId(), IndexEntry.of(entry));
+                } catch (Exception e) {
+                    log.warn("deep search cache load failed {}", file.getName(), e);
+                }
+            }
+            evictOverflow();
+            log.info("deep search cache loaded, entries:{} cost:{}ms", index.size(), System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("deep search cache load index error", e);
+        }
+    }
+
+    /**
+     * 计算归一化的 query 向量，失败时仅做精确匹配
+     */
+    private float[] embed(String query) {
+        try {
+            List<Double> embedding = embeddingService.generateEmbedding(normalize(query));
+            if (Objects.isNull(embedding) || embedding.isEmpty()) {
+                return null;
+            }
+            float[] vector = new float[embedding.size()];
+            double norm = 0;
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = embedding.get(i).floatValue();
+                norm += vector[i] * vector[i];
+            }
+            norm = Math.sqrt(norm);
+            if (norm == 0) {
+                return null;
+            }
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] /= norm;
+            }
+            return vector;
+        } catch (Exception e) {
+            embeddingErrors.incrementAndGet();
+            log.warn("deep search cache embedding failed, fallback to exact match: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean isExpired(long createdAt) {
+        return System.currentTimeMillis() - createdAt > genieConfig.getDeepSearchCacheTtlSeconds() * 1000;
+    }
+
+    private Path path(String id) {
+        return Paths.get(genieConfig.getDeepSearchCacheDir(), id + ".json");
+    }
+
+    private static String key(String query, String scope) {
+        return DigestUtils.md5DigestAsHex((scope + "\n" + normalize(query)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String normalize(String query) {
+        return Objects.isNull(query) ? "" : query.trim().toLowerCase().replaceAll("\\s+", " ");
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 查找结果，未命中时携带已计算的 key 与向量供写入复用
+     */
+    public static class Lookup {
+        private final String key;
+        private final String scope;
+        private float[] vector;
+        private SearchCacheEntry hit;
+
+        Lookup(String key, String scope) {
+            this.key = key;
+            this.scope = scope;
+        }
+
+        public SearchCacheEntry getHit() {
+            return hit;
+        }
+    }
+
+    /**
+     * 缓存条目，events 为原始 deep_search 事件 JSON，命中时按序回放
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SearchCacheEntry {
+        private String id;
+        private String query;
+        private String scope;
+        private List<String> sources;
+        private float[] vector;
+        private long createdAt;
+        private String result;
+        private List<String> events;
+    }
+
+    private static class IndexEntry {
+        private String id;
+        private String scope;
+        private List<String> sources;
+        private float[] vector;
+        private long createdAt;
+
+        static IndexEntry of(SearchCacheEntry entry) {
+            IndexEntry indexEntry = new IndexEntry();
+            indexEntry.id = entry.getId();
+            indexEntry.scope = entry.getScope();
+            indexEntry.sources = entry.getSources();
+            indexEntry.vector = Objects.isNull(entry.getVector()) ? new float[0] : entry.getVector();
+            indexEntry.createdAt = entry.getCreatedAt();
+            return indexEntry;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.jd.genie.service;
 
 import com.jd.genie.entity.User;
 import com.jd.genie.repository.UserRepository;
+import com.jd.genie.security.AuthCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -18,10 +19,11 @@ public class UserService implements UserDetailsService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final AuthCache authCache;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username)
+        return authCache.getUser(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
     }
 
@@ -42,8 +44,11 @@ public class UserService implements UserDetailsService {
         return userRepository.save(user);
     }
 
+    /**
+     * 按用户名获取用户，经认证缓存，返回的实体为共享只读副本，修改请通过本类方法
+     */
     public Optional<User> findByUsername(String username) {
-        return userRepository.findByUsername(username);
+        return authCache.getUser(username);
     }
 
     public Optional<User> findByEmail(String email) {
@@ -55,6 +60,22 @@ public class UserService implements UserDetailsService {
             user.setLastLogin(LocalDateTime.now());
             userRepository.save(user);
         });
+        authCache.evictUser(username);
+    }
+
+    /**
+     * 修改密码，该用户此前签发的令牌全部失效
+     */
+    public boolean changePassword(String username, String oldPassword, String newPassword) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        if (!passwordEncoder.matches(oldPassword, user.getPassword())) {
+            return false;
+        }
+        user.setPassword(passwordEncoder.encode(newPassword));
+        userRepository.save(user);
+        authCache.invalidateUser(username);
+        return true;
     }
 
     public boolean existsByUsername(String username) {
@@ -21,6 +21,7 @@ public class VectorDatabaseService {
     private final VectorConfig vectorConfig;
     private final RestTemplate restTemplate = createRestTemplateWithoutProxy();
     private final FileVectorDatabaseService fileVectorService;
+    private final HnswVectorDatabaseService hnswVectorService;
     
     /**
      * 向向量数据库添加文档块
@@ -37,6 +38,8 @@ public class VectorDatabaseService {
             switch (config.getType().toLowerCase()) {
                 case "file":
                     return fileVectorService.addDocument(chunkId, content, embedding, metadata);
+                case "hnsw":
+                    return hnswVectorService.addDocument(chunkId, content, embedding, metadata);
                 case "chroma":
                     return addToChroma(chunkId, content, embedding, metadata, config);
                 case "qdrant":
@@ -60,7 +63,8 @@ public class VectorDatabaseService {
     public int addDocuments(List<VectorDocument> documents) {
         VectorConfig.Database config = vectorConfig.getDatabase();
         
-        if ("file".equals(config.getType().toLowerCase())) {
+        String type = config.getType().toLowerCase();
+        if ("file".equals(type) || "hnsw".equals(type)) {
             // Use file-based batch add for better performance
             List<FileVectorDatabaseService.VectorDocument> fileDocuments = new ArrayList<>();
             for (VectorDocument doc : documents) {
@@ -71,7 +75,7 @@ public class VectorDatabaseService {
                 fileDoc.setMetadata(doc.getMetadata());
                 fileDocuments.add(fileDoc);
             }
-            return fileVectorService.addDocuments(fileDocuments);
+            return "hnsw".equals(type) ? hnswVectorService.addDocuments(fileDocuments) : fileVectorService.addDocuments(fileDocuments);
         } else {
             // Fall back to individual adds for other database types
             int successCount = 0;
@@ -98,6 +102,8 @@ public class VectorDatabaseService {
             switch (config.getType().toLowerCase()) {
                 case "file":
                     return convertToSearchResults(fileVectorService.search(queryEmbedding, topK, knowledgeBaseId));
+                case "hnsw":
+                    return convertToSearchResults(hnswVectorService.search(queryEmbedding, topK, knowledgeBaseId));
                 case "chroma":
                     return searchInChroma(queryEmbedding, topK, knowledgeBaseId, config);
                 case "qdrant":
@@ -125,6 +131,8 @@ public class VectorDatabaseService {
             switch (config.getType().toLowerCase()) {
                 case "file":
                     return fileVectorService.deleteDocument(chunkId);
+                case "hnsw":
+                    return hnswVectorService.deleteDocument(chunkId);
                 case "chroma":
                     return deleteFromChroma(chunkId, config);
                 case "qdrant":
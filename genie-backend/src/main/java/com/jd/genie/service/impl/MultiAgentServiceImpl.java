@@ -1,10 +1,12 @@
 package com.jd.genie.service.impl;
 
 import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONObject;
 import com.jd.genie.agent.enums.AgentType;
 import com.jd.genie.agent.enums.AutoBotsResultStatus;
 import com.jd.genie.agent.enums.ResponseTypeEnum;
+import com.jd.genie.agent.printer.AgentEventListener;
+import com.jd.genie.agent.printer.EventPrinter;
+import com.jd.genie.agent.util.ThreadUtil;
 import com.jd.genie.config.GenieConfig;
 import com.jd.genie.handler.AgentResponseHandler;
 import com.jd.genie.model.dto.AutoBotsResult;
@@ -13,19 +15,18 @@ import com.jd.genie.model.req.AgentRequest;
 import com.jd.genie.model.req.GptQueryReq;
 import com.jd.genie.model.response.AgentResponse;
 import com.jd.genie.model.response.GptProcessResult;
+import com.jd.genie.service.AgentRunService;
 import com.jd.genie.service.IMultiAgentService;
 import com.jd.genie.util.ChateiUtils;
+import com.jd.genie.util.EncodedSseEvent;
+import com.jd.genie.util.SseHeartbeatScheduler;
+import com.jd.genie.util.TrackedSseEmitter;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
@@ -34,6 +35,10 @@ public class MultiAgentServiceImpl implements IMultiAgentService {
     private GenieConfig genieConfig;
     @Autowired
     private Map<AgentType, AgentResponseHandler> handlerMap;
+    @Autowired
+    private AgentRunService agentRunService;
+    @Autowired
+    private SseHeartbeatScheduler sseHeartbeatScheduler;
 
     @Override
     public AutoBotsResult searchForAgentRequest(GptQueryReq gptQueryReq, SseEmitter sseEmitter) {
@@ -51,91 +56,44 @@ public class MultiAgentServiceImpl implements IMultiAgentService {
         return ChateiUtils.toAutoBotsResult(agentRequest, AutoBotsResultStatus.loading.name());
     }
 
-    public void handleMultiAgentRequest(AgentRequest autoReq,SseEmitter sseEmitter) {
+    /**
+     * 进程内执行智能体，订阅输出事件并转换为增量协议
+     */
+    public void handleMultiAgentRequest(AgentRequest autoReq, SseEmitter sseEmitter) {
         long startTime = System.currentTimeMillis();
-        Request request = buildHttpRequest(autoReq);
-        log.info("{} agentRequest:{}", autoReq.getRequestId(), JSON.toJSONString(request));
-        OkHttpClient client = new OkHttpClient.Builder()
-                .connectTimeout(60, TimeUnit.SECONDS) // 设置连接超时时间为 60 秒
-                .readTimeout(genieConfig.getSseClientReadTimeout(), TimeUnit.SECONDS)    // 设置读取超时时间为 60 秒
-                .writeTimeout(1800, TimeUnit.SECONDS)   // 设置写入超时时间为 60 秒
-                .callTimeout(genieConfig.getSseClientConnectTimeout(), TimeUnit.SECONDS)    // 设置调用超时时间为 60 秒
-                .build();
-
-        client.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(Call call, IOException e) {
-                log.error("onFailure {}", e.getMessage(), e);
-            }
+        if (sseEmitter instanceof TrackedSseEmitter) {
+            // 心跳帧按增量协议预先编码
+            sseHeartbeatScheduler.register((TrackedSseEmitter) sseEmitter, autoReq.getRequestId(),
+                    EncodedSseEvent.of(SseEmitter.event().data(buildHeartbeatData(autoReq.getRequestId())).build()));
+        }
+        autoReq.setQuery(agentRunService.handleOutputStyle(autoReq));
 
+        AgentResponseHandler handler = handlerMap.get(AgentType.fromCode(autoReq.getAgentType()));
+        List<AgentResponse> agentRespList = new ArrayList<>();
+        EventResult eventResult = new EventResult();
+        EventPrinter printer = new EventPrinter(autoReq, autoReq.getAgentType());
+        printer.subscribe(new AgentEventListener() {
             @Override
-            public void onResponse(Call call, Response response) {
-                List<AgentResponse> agentRespList = new ArrayList<>();
-                EventResult eventResult = new EventResult();
-                ResponseBody responseBody = response.body();
-                if (responseBody == null) {
-                    log.error("{} auto agent empty response body", autoReq.getRequestId());
-                    return;
-                }
-
+            public void onEvent(AgentResponse agentResponse) {
                 try {
-                    if (!response.isSuccessful()) {
-                        log.error("{}, response body is failed: {}", autoReq.getRequestId(), responseBody.string());
-                        return;
+                    GptProcessResult result = handler.handle(autoReq, agentResponse, agentRespList, eventResult);
+                    sseEmitter.send(result);
+                    if (result.isFinished()) {
+                        // 记录任务执行时间
+                        log.info("{} task total cost time:{}ms", autoReq.getRequestId(), System.currentTimeMillis() - startTime);
+                        sseEmitter.complete();
                     }
-
-                    String line;
-                    BufferedReader reader = new BufferedReader(
-                            new InputStreamReader(responseBody.byteStream())
-                    );
-
-                    while ((line = reader.readLine()) != null) {
-                        if (!line.startsWith("data:")) {
-                            continue;
-                        }
-
-                        String data = line.substring(5);
-                        if (data.equals("[DONE]")) {
-                            log.info("{} data equals with [DONE] {}:", autoReq.getRequestId(), data);
-                            break;
-                        }
-
-                        if (data.startsWith("heartbeat")) {
-                            GptProcessResult result = buildHeartbeatData(autoReq.getRequestId());
-                            sseEmitter.send(result);
-                            log.info("{} heartbeat-data: {}", autoReq.getRequestId(), data);
-                            continue;
-                        }
-
-                        log.info("{} recv from autocontroller: {}", autoReq.getRequestId(), data);
-                        AgentResponse agentResponse = JSON.parseObject(data, AgentResponse.class);
-                        AgentType agentType = AgentType.fromCode(autoReq.getAgentType());
-                        AgentResponseHandler handler = handlerMap.get(agentType);
-                        GptProcessResult result = handler.handle(autoReq, agentResponse,agentRespList, eventResult);
-                        sseEmitter.send(result);
-                        if (result.isFinished()) {
-                            // 记录任务执行时间
-                            log.info("{} task total cost time:{}ms", autoReq.getRequestId(), System.currentTimeMillis() - startTime);
-                            sseEmitter.complete();
-                        }
-                    }
-                }catch (Exception e) {
-                    log.error("", e);
+                } catch (Exception e) {
+                    log.error("{} multi agent send error", autoReq.getRequestId(), e);
                 }
             }
-        });
-    }
 
-    private Request buildHttpRequest(AgentRequest autoReq) {
-        String reqId = autoReq.getRequestId();
-        autoReq.setRequestId(autoReq.getRequestId());
-        String url = "http://127.0.0.1:8080/AutoAgent";
-        RequestBody body = RequestBody.create(
-                MediaType.parse("application/json"),
-                JSONObject.toJSONString(autoReq)
-        );
-        autoReq.setRequestId(reqId);
-        return new Request.Builder().url(url).post(body).build();
+            @Override
+            public void onClose() {
+                sseHeartbeatScheduler.unregister(sseEmitter);
+            }
+        });
+        ThreadUtil.execute(() -> agentRunService.run(autoReq, printer));
     }
 
     private GptProcessResult buildDefaultAutobotsResult(AgentRequest autoReq, String errMsg) {
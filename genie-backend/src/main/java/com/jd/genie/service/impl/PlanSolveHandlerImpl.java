@@ -43,11 +43,15 @@ public class PlanSolveHandlerImpl implements AgentHandlerService {
         int stepIdx = 0;
         int maxStepNum = genieConfig.getPlannerMaxSteps();
         while (stepIdx <= maxStepNum) {
+            if (agentContext.isCancelled()) {
+                agentContext.getPrinter().send("result", "任务已取消。");
+                break;
+            }
             List<String> planningResults = Arrays.stream(planningResult.split("<sep>"))
                     .map(task -> "你的任务是：" + task)
                     .collect(Collectors.toList());
             String executorResult;
-            agentContext.getTaskProductFiles().clear();
+            agentContext.getArtifactRegistry().clearTasks();
             if (planningResults.size() == 1) {
                 executorResult = executor.run(planningResults.get(0));
             } else {
@@ -56,7 +60,8 @@ public class PlanSolveHandlerImpl implements AgentHandlerService {
                 int memoryIndex = executor.getMemory().size();
                 List<ExecutorAgent> slaveExecutors = new ArrayList<>();
                 for (String task : planningResults) {
-                    ExecutorAgent slaveExecutor = new ExecutorAgent(agentContext);
+                    // 并发任务使用独立的任务级上下文，避免数字员工与任务产物互相覆盖
+                    ExecutorAgent slaveExecutor = new ExecutorAgent(agentContext.forTask(task));
                     slaveExecutor.setState(executor.getState());
                     slaveExecutor.getMemory().addMessages(executor.getMemory().getMessages());
                     slaveExecutors.add(slaveExecutor);
@@ -31,6 +31,10 @@ public class ReactHandlerImpl implements AgentHandlerService {
         summary.setSystemPrompt(summary.getSystemPrompt().replace("{{query}}", request.getQuery()));
 
         executor.run(request.getQuery());
+        if (agentContext.isCancelled()) {
+            agentContext.getPrinter().send("result", "任务已取消。");
+            return "";
+        }
         TaskSummaryResult result = summary.summaryTaskResult(executor.getMemory().getMessages(), request.getQuery());
 
         Map<String, Object> taskResult = new HashMap<>();
@@ -0,0 +1,549 @@
+package com.jd.genie.service.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.jd.genie.service.vector.LongHeap.key;
+import static com.jd.genie.service.vector.LongHeap.node;
+import static com.jd.genie.service.vector.LongHeap.reverse;
+import static com.jd.genie.service.vector.LongHeap.score;
+
+/**
+ * HNSW 近似最近邻索引，向量与元数据存放在 SegmentVectorStore 中，图按存储序号组织
+ * 1、增量插入：写入存储后按序号依次插入图，邻居选择使用启发式裁剪
+ * 2、删除沿用存储的墓碑，已删除节点仍参与图遍历但不出现在结果中
+ * 3、图以二进制文件持久化（先写临时文件再原子替换），加载时以内存映射批量读取；
+ *    图文件缺失、损坏或参数变化时从存储重建，图落后于存储时补插缺失的序号
+ * 4、带知识库过滤时遍历全部节点，只收集满足过滤条件的结果
+ * 所有对存储的写入都经由本类，在本类写锁内完成；图的补插按段持写锁，搜索持读锁
+ */
+@Slf4j
+public class HnswIndex {
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 1;
+    private static final int MAX_LEVEL = 16;
+    // 补插时每次持写锁插入的节点数，段间释放写锁让搜索继续
+    private static final int INSERT_SLICE = 32;
+
+    private final SegmentVectorStore store;
+    private final Path graphFile;
+    private final int m;
+    private final int m0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // 写入与补插串行执行，补插期间不持有写锁
+    private final Object insertLock = new Object();
+    private final ThreadLocal<Visited> visitedLocal = ThreadLocal.withInitial(Visited::new);
+
+    // links[node][level] = {邻居数, 邻居...}
+    private int[][][] links = new int[1024][][];
+    // 已入图的节点数，节点即存储序号 0..size-1
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private volatile boolean dirty = false;
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong visitedNodes = new AtomicLong();
+
+    public HnswIndex(SegmentVectorStore store, Path graphFile, int m, int efConstruction) {
+        this.store = store;
+        this.graphFile = graphFile;
+        this.m = m;
+        this.m0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+    }
+
+    /**
+     * 加载图文件并补插存储中尚未入图的序号
+     */
+    public void load() {
+        synchronized (insertLock) {
+            long start = System.currentTimeMillis();
+            int loaded;
+            lock.writeLock().lock();
+            try {
+                if (Files.exists(graphFile)) {
+                    try {
+                        read();
+                    } catch (Exception e) {
+                        log.warn("hnsw graph {} unreadable, rebuilding from store: {}", graphFile, e.getMessage());
+                        reset();
+                    }
+                }
+                loaded = size;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            catchUp();
+            log.info("hnsw index loaded: nodes={}, fromGraph={}, inserted={}, maxLevel={}, cost={}ms",
+                    size, loaded, size - loaded, maxLevel, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 写入存储并插入图，写锁只在写入存储和插入每一段时持有，批量导入期间搜索不被阻塞
+     * 尚未入图的条目暂时只能由精确搜索命中
+     */
+    public void add(List<SegmentVectorStore.Entry> entries) throws IOException {
+        synchronized (insertLock) {
+            lock.writeLock().lock();
+            try {
+                store.add(entries);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            catchUp();
+        }
+    }
+
+    public boolean delete(String id) throws IOException {
+        lock.writeLock().lock();
+        try {
+            return store.delete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 近似 topK，ef 为搜索候选集大小，knowledgeBaseId 为空时不过滤
+     */
+    public List<SegmentVectorStore.Hit> search(float[] query, int topK, int ef, Long knowledgeBaseId) throws IOException {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || topK <= 0 || query.length != store.dimension()) {
+                return Collections.emptyList();
+            }
+            searches.incrementAndGet();
+            float[] q = SegmentVectorStore.normalize(query);
+            float[] scratch = new float[store.dimension()];
+            Visited visited = visitedLocal.get();
+
+            int ep = entryPoint;
+            float epScore = store.similarity(q, ep, scratch);
+            for (int level = maxLevel; level > 0; level--) {
+                long best = greedy(q, ep, epScore, level, scratch);
+                ep = node(best);
+                epScore = score(best);
+            }
+            LongHeap accepted = new LongHeap(topK + 1);
+            searchLayer(q, ep, Math.max(ef, topK), 0, visited, scratch, accepted, topK, knowledgeBaseId);
+
+            long[] keys = accepted.sortedDescending();
+            List<SegmentVectorStore.Hit> hits = new ArrayList<>(keys.length);
+            for (long key : keys) {
+                hits.add(store.hit(node(key), score(key)));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 知识库内的存活条数，knowledgeBaseId 为空时为全部存活条数
+     */
+    public int liveCount(Long knowledgeBaseId) {
+        lock.readLock().lock();
+        try {
+            return store.liveCount(knowledgeBaseId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 精确搜索，用于过滤后近似结果不足时兜底
+     */
+    public List<SegmentVectorStore.Hit> exactSearch(float[] query, int topK, Long knowledgeBaseId) throws IOException {
+        lock.readLock().lock();
+        try {
+            return store.search(query, topK, knowledgeBaseId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 有新增节点时保存图文件
+     */
+    public void saveIfDirty() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            dirty = false;
+            write();
+        } catch (IOException e) {
+            dirty = true;
+            throw e;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>(store.getStats());
+            stats.put("nodes", size);
+            stats.put("maxLevel", maxLevel);
+            stats.put("m", m);
+            stats.put("efConstruction", efConstruction);
+            stats.put("searches", searches.get());
+            long count = searches.get();
+            stats.put("avgVisited", count == 0 ? 0 : visitedNodes.get() / count);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 补插存储中尚未入图的序号，调用方持有 insertLock
+     */
+    private void catchUp() {
+        while (true) {
+            lock.writeLock().lock();
+            try {
+                int target = store.ordinalCount();
+                if (size >= target) {
+                    return;
+                }
+                float[] scratch = new float[store.dimension()];
+                int end = Math.min(target, size + INSERT_SLICE);
+                while (size < end) {
+                    insert(size, scratch);
+                    size++;
+                }
+                dirty = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void insert(int node, float[] scratch) {
+        ensureCapacity(node);
+        if (!store.isLive(node)) {
+            // 写入后已被覆盖或删除的序号不入图
+            links[node] = new int[][]{new int[1]};
+            return;
+        }
+        int level = Math.min(MAX_LEVEL, (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier));
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[1 + maxLinks(l)];
+        }
+        links[node] = nodeLinks;
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        float[] q = new float[store.dimension()];
+        store.vector(node, q);
+        int ep = entryPoint;
+        float epScore = store.similarity(q, ep, scratch);
+        for (int l = maxLevel; l > level; l--) {
+            long best = greedy(q, ep, epScore, l, scratch);
+            ep = node(best);
+            epScore = score(best);
+        }
+        Visited visited = visitedLocal.get();
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            LongHeap results = searchLayer(q, ep, efConstruction, l, visited, scratch, null, 0, null);
+            long[] candidates = results.sortedDescending();
+            int[] selected = selectNeighbors(candidates, maxLinks(l), scratch);
+            System.arraycopy(selected, 0, nodeLinks[l], 1, selected.length);
+            nodeLinks[l][0] = selected.length;
+            for (int neighbor : selected) {
+                link(neighbor, node, l, scratch);
+            }
+            ep = node(candidates[0]);
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * 在 neighbor 的 level 层加入 node，超出上限时按启发式重新裁剪
+     */
+    private void link(int neighbor, int node, int level, float[] scratch) {
+        int[] list = links[neighbor][level];
+        int count = list[0];
+        if (count < list.length - 1) {
+            list[count + 1] = node;
+            list[0] = count + 1;
+            return;
+        }
+        float[] base = new float[store.dimension()];
+        store.vector(neighbor, base);
+        long[] candidates = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            candidates[i] = key(store.similarity(base, list[i + 1], scratch), list[i + 1]);
+        }
+        candidates[count] = key(store.similarity(base, node, scratch), node);
+        Arrays.sort(candidates);
+        reverse(candidates);
+        int[] selected = selectNeighbors(candidates, list.length - 1, scratch);
+        System.arraycopy(selected, 0, list, 1, selected.length);
+        list[0] = selected.length;
+    }
+
+    /**
+     * 启发式邻居选择：候选按相似度从高到低，只保留比已选邻居更接近基准点的候选，使邻居分布在不同方向
+     */
+    private int[] selectNeighbors(long[] candidates, int max, float[] scratch) {
+        if (candidates.length <= max) {
+            int[] all = new int[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                all[i] = node(candidates[i]);
+            }
+            return all;
+        }
+        int[] selected = new int[max];
+        float[][] selectedVectors = new float[max][];
+        int count = 0;
+        for (long candidate : candidates) {
+            if (count == max) {
+                break;
+            }
+            int c = node(candidate);
+            float toBase = score(candidate);
+            float[] vector = new float[store.dimension()];
+            store.vector(c, vector);
+            boolean good = true;
+            for (int i = 0; i < count; i++) {
+                if (SegmentVectorStore.dot(vector, selectedVectors[i], 0) > toBase) {
+                    good = false;
+                    break;
+                }
+            }
+            if (good) {
+                selected[count] = c;
+                selectedVectors[count] = vector;
+                count++;
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * 在上层贪心移动到更近的节点
+     */
+    private long greedy(float[] q, int ep, float epScore, int level, float[] scratch) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] list = links[ep][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int n = list[i];
+                float s = store.similarity(q, n, scratch);
+                if (s > epScore) {
+                    epScore = s;
+                    ep = n;
+                    changed = true;
+                }
+            }
+        }
+        return key(epScore, ep);
+    }
+
+    /**
+     * 单层最佳优先搜索，返回最近的 ef 个节点（小顶堆）；accepted 不为空时同时收集满足过滤条件的 topK
+     */
+    private LongHeap searchLayer(float[] q, int ep, int ef, int level, Visited visited, float[] scratch,
+                                 LongHeap accepted, int topK, Long knowledgeBaseId) {
+        // 插入时当前节点序号为 size
+        visited.reset(size + 1);
+        LongHeap candidates = new LongHeap(ef * 2);
+        LongHeap results = new LongHeap(ef + 1);
+        float epScore = store.similarity(q, ep, scratch);
+        visited.visit(ep);
+        candidates.push(key(-epScore, ep));
+        results.push(key(epScore, ep));
+        accept(accepted, topK, ep, epScore, knowledgeBaseId);
+        int visitedCount = 1;
+        while (candidates.size() > 0) {
+            long current = candidates.pop();
+            if (results.size() >= ef && -score(current) < score(results.peek())) {
+                break;
+            }
+            int[][] nodeLinks = links[node(current)];
+            if (level >= nodeLinks.length) {
+                continue;
+            }
+            int[] list = nodeLinks[level];
+            for (int i = 1; i <= list[0]; i++) {
+                int n = list[i];
+                if (!visited.visit(n)) {
+                    continue;
+                }
+                visitedCount++;
+                float s = store.similarity(q, n, scratch);
+                if (results.size() < ef || s > score(results.peek())) {
+                    candidates.push(key(-s, n));
+                    results.push(key(s, n));
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+                accept(accepted, topK, n, s, knowledgeBaseId);
+            }
+        }
+        if (accepted != null) {
+            visitedNodes.addAndGet(visitedCount);
+        }
+        return results;
+    }
+
+    private void accept(LongHeap accepted, int topK, int node, float score, Long knowledgeBaseId) {
+        if (accepted == null || !store.accepts(node, knowledgeBaseId)) {
+            return;
+        }
+        if (accepted.size() < topK) {
+            accepted.push(key(score, node));
+        } else if (score > score(accepted.peek())) {
+            accepted.pop();
+            accepted.push(key(score, node));
+        }
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? m0 : m;
+    }
+
+    private void ensureCapacity(int node) {
+        if (node >= links.length) {
+            links = Arrays.copyOf(links, Math.max(node + 1, links.length * 2));
+        }
+    }
+
+    private void reset() {
+        links = new int[1024][][];
+        size = 0;
+        entryPoint = -1;
+        maxLevel = -1;
+    }
+
+    /**
+     * 图文件：magic、版本、M、节点数、入口点、最高层；之后每个节点为层数及各层邻居数与邻居
+     */
+    private void write() throws IOException {
+        Path tmp = graphFile.resolveSibling(graphFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(m);
+            out.writeInt(size);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (int node = 0; node < size; node++) {
+                int[][] nodeLinks = links[node];
+                out.writeInt(nodeLinks.length);
+                for (int[] list : nodeLinks) {
+                    out.writeInt(list[0]);
+                    for (int i = 1; i <= list[0]; i++) {
+                        out.writeInt(list[i]);
+                    }
+                }
+            }
+        }
+        Files.move(tmp, graphFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void read() throws IOException {
+        try (FileChannel channel = FileChannel.open(graphFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            IntBuffer ints = buffer.asIntBuffer();
+            if (ints.get() != MAGIC || ints.get() != VERSION) {
+                throw new IOException("not a hnsw graph file");
+            }
+            if (ints.get() != m) {
+                throw new IOException("M changed");
+            }
+            int nodes = ints.get();
+            if (nodes > store.ordinalCount()) {
+                throw new IOException("graph has more nodes than store");
+            }
+            int ep = ints.get();
+            int top = ints.get();
+            int[][][] loaded = new int[Math.max(1024, nodes)][][];
+            for (int node = 0; node < nodes; node++) {
+                int levels = ints.get();
+                int[][] nodeLinks = new int[levels][];
+                for (int l = 0; l < levels; l++) {
+                    int count = ints.get();
+                    int[] list = new int[1 + maxLinks(l)];
+                    list[0] = count;
+                    ints.get(list, 1, count);
+                    nodeLinks[l] = list;
+                }
+                loaded[node] = nodeLinks;
+            }
+            links = loaded;
+            size = nodes;
+            entryPoint = ep;
+            maxLevel = top;
+        }
+    }
+
+    /**
+     * 访问标记，按代次复用数组避免每次搜索清零
+     */
+    private static class Visited {
+        private int[] marks = new int[0];
+        private int generation = 0;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                generation = 0;
+            }
+            generation++;
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * 标记节点，首次访问返回 true
+         */
+        boolean visit(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.jd.genie.service.vector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * 乘积量化：向量按 subDimension 维切成若干子空间，每个子空间用 k-means 训练 256 个中心，
+ * 每个子空间编码为一个字节（最近中心的下标）
+ * 查询时先算查询子向量与各中心的内积表，估算内积为各子空间查表之和
+ */
+final class ProductQuantizer implements VectorQuantizer {
+    static final int CENTROIDS = 256;
+    private static final int MAGIC = 0x47565051;
+    private static final int VERSION = 1;
+    private static final int ITERATIONS = 10;
+    // 重新分配的样本少于该比例时提前结束迭代
+    private static final double CONVERGED = 0.005;
+
+    private final int dimension;
+    private final int subDimension;
+    private final int subvectors;
+    private final int centroids;
+    // 子空间 s 的第 c 个中心位于 (s * CENTROIDS + c) * subDimension
+    private final float[] codebook;
+
+    private ProductQuantizer(int dimension, int subDimension, int centroids, float[] codebook) {
+        this.dimension = dimension;
+        this.subDimension = subDimension;
+        this.subvectors = dimension / subDimension;
+        this.centroids = centroids;
+        this.codebook = codebook;
+    }
+
+    /**
+     * 在样本上按子空间并行训练码本，样本为归一化向量
+     */
+    static ProductQuantizer train(float[][] samples, int subDimension, long seed) {
+        int dimension = samples[0].length;
+        if (dimension % subDimension != 0) {
+            throw new IllegalArgumentException("子向量维度 " + subDimension + " 不能整除向量维度 " + dimension);
+        }
+        int centroids = Math.min(CENTROIDS, samples.length);
+        float[] codebook = new float[dimension * CENTROIDS];
+        IntStream.range(0, dimension / subDimension).parallel()
+                .forEach(s -> kmeans(samples, s, subDimension, centroids, codebook, new SplittableRandom(seed + s)));
+        return new ProductQuantizer(dimension, subDimension, centroids, codebook);
+    }
+
+    /**
+     * 子向量维度取不超过期望值、且能整除向量维度的最大值
+     */
+    static int subDimensionFor(int dimension, int preferred) {
+        for (int sub = Math.max(1, Math.min(preferred, dimension)); sub > 1; sub--) {
+            if (dimension % sub == 0) {
+                return sub;
+            }
+        }
+        return 1;
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    int subDimension() {
+        return subDimension;
+    }
+
+    @Override
+    public String name() {
+        return "pq";
+    }
+
+    @Override
+    public int codeBytes() {
+        return subvectors;
+    }
+
+    @Override
+    public void encode(float[] vector, byte[] dst, int offset) {
+        for (int s = 0; s < subvectors; s++) {
+            dst[offset + s] = (byte) nearest(vector, s * subDimension, s);
+        }
+    }
+
+    @Override
+    public Scorer scorer(float[] query) {
+        float[] table = new float[subvectors * CENTROIDS];
+        for (int s = 0; s < subvectors; s++) {
+            int from = s * subDimension;
+            for (int c = 0; c < centroids; c++) {
+                int base = (s * CENTROIDS + c) * subDimension;
+                float dot = 0f;
+                for (int d = 0; d < subDimension; d++) {
+                    dot += query[from + d] * codebook[base + d];
+                }
+                table[s * CENTROIDS + c] = dot;
+            }
+        }
+        return (codes, offset) -> {
+            float s0 = 0f, s1 = 0f;
+            int s = 0;
+            for (int end = subvectors & ~1; s < end; s += 2) {
+                s0 += table[(s << 8) | (codes[offset + s] & 0xff)];
+                s1 += table[((s + 1) << 8) | (codes[offset + s + 1] & 0xff)];
+            }
+            if (s < subvectors) {
+                s0 += table[(s << 8) | (codes[offset + s] & 0xff)];
+            }
+            return s0 + s1;
+        };
+    }
+
+    /**
+     * 码本文件：magic、版本、维度、子向量维度、中心数，之后为全部中心
+     */
+    void write(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dimension);
+            out.writeInt(subDimension);
+            out.writeInt(centroids);
+            for (float value : codebook) {
+                out.writeFloat(value);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static ProductQuantizer read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not a pq codebook file");
+            }
+            int dimension = in.readInt();
+            int subDimension = in.readInt();
+            int centroids = in.readInt();
+            if (subDimension <= 0 || dimension % subDimension != 0 || centroids <= 0 || centroids > CENTROIDS) {
+                throw new IOException("invalid pq codebook header");
+            }
+            float[] codebook = new float[dimension * CENTROIDS];
+            for (int i = 0; i < codebook.length; i++) {
+                codebook[i] = in.readFloat();
+            }
+            return new ProductQuantizer(dimension, subDimension, centroids, codebook);
+        }
+    }
+
+    private int nearest(float[] vector, int from, int s) {
+        int best = 0;
+        float bestDistance = Float.MAX_VALUE;
+        for (int c = 0; c < centroids; c++) {
+            float distance = distance(vector, from, codebook, (s * CENTROIDS + c) * subDimension, subDimension);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 单个子空间的 Lloyd 迭代，初始中心随机取样本，空簇重新随机取样本
+     */
+    private static void kmeans(float[][] samples, int s, int subDimension, int centroids, float[] codebook, SplittableRandom random) {
+        int n = samples.length;
+        int from = s * subDimension;
+        int base = s * CENTROIDS * subDimension;
+        int[] order = IntStream.range(0, n).toArray();
+        for (int i = 0; i < centroids; i++) {
+            int j = i + random.nextInt(n - i);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+            System.arraycopy(samples[order[i]], from, codebook, base + i * subDimension, subDimension);
+        }
+        int[] assignment = new int[n];
+        double[] sums = new double[centroids * subDimension];
+        int[] counts = new int[centroids];
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            int changed = 0;
+            for (int i = 0; i < n; i++) {
+                int best = 0;
+                float bestDistance = Float.MAX_VALUE;
+                for (int c = 0; c < centroids; c++) {
+                    float distance = distance(samples[i], from, codebook, base + c * subDimension, subDimension);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = c;
+                    }
+                }
+                if (iteration == 0 || assignment[i] != best) {
+                    assignment[i] = best;
+                    changed++;
+                }
+            }
+            if (iteration > 0 && changed <= n * CONVERGED) {
+                break;
+            }
+            Arrays.fill(sums, 0);
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                int c = assignment[i];
+                counts[c]++;
+                for (int d = 0; d < subDimension; d++) {
+                    sums[c * subDimension + d] += samples[i][from + d];
+                }
+            }
+            for (int c = 0; c < centroids; c++) {
+                if (counts[c] == 0) {
+                    System.arraycopy(samples[random.nextInt(n)], from, codebook, base + c * subDimension, subDimension);
+                    continue;
+                }
+                for (int d = 0; d < subDimension; d++) {
+                    codebook[base + c * subDimension + d] = (float) (sums[c * subDimension + d] / counts[c]);
+                }
+            }
+        }
+    }
+
+    private static float distance(float[] vector, int from, float[] codebook, int offset, int length) {
+        float sum = 0f;
+        for (int d = 0; d < length; d++) {
+            float diff = vector[from + d] - codebook[offset + d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,445 @@
+package com.jd.genie.service.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.jd.genie.service.vector.LongHeap.key;
+import static com.jd.genie.service.vector.LongHeap.node;
+import static com.jd.genie.service.vector.LongHeap.score;
+
+/**
+ * 量化索引，向量原值仍在 SegmentVectorStore 的 float32 段中，另存一份定长量化码供扫描
+ * 1、mode：none 直接精确扫描；int8 为逐向量缩放的标量量化；pq 为乘积量化，
+ *    存储中的向量数达到 trainSize 时抽样训练码本，训练前走精确扫描；
+ *    训练不持锁、已有向量在读锁内编码，只有安装码本时短暂持写锁
+ * 2、搜索先以查询原值与量化码估算相似度（非对称距离），保留 topK * rerankFactor 个候选，
+ *    再回读候选的 float32 向量精确打分重排，只有候选所在的页会被读入
+ * 3、量化码以内存映射段存放（codes-<mode>-N.bin），codes-<mode>.meta 记录已编码的序号数；
+ *    先提交存储再写量化码，启动时补编码落后的序号，码本重新训练时全部重编码
+ * 所有对存储的写入都经由本类，在本类写锁内完成；搜索持读锁
+ */
+@Slf4j
+public class QuantizedIndex {
+    private static final int MAGIC = 0x4756514D;
+    private static final int VERSION = 1;
+    private static final int META_BYTES = 20;
+    private static final long SEGMENT_BYTES = 1L << 28;
+    private static final int SCAN_BLOCK = 256;
+    private static final int TRAIN_SEED = 42;
+
+    private final SegmentVectorStore store;
+    private final Path dir;
+    private final String mode;
+    private final int rerankFactor;
+    private final int preferredSubDimension;
+    private final int trainSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // pq 训练前为空
+    private VectorQuantizer quantizer;
+    private FileChannel meta;
+    private final List<FileChannel> codeChannels = new ArrayList<>();
+    private final List<MappedByteBuffer> codeSegments = new ArrayList<>();
+    private int segmentCapacity;
+    // 已编码的序号数
+    private int coded;
+    private volatile boolean training = false;
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong approximateSearches = new AtomicLong();
+    private final AtomicLong rerankedCandidates = new AtomicLong();
+
+    public QuantizedIndex(SegmentVectorStore store, Path dir, String mode, int rerankFactor, int subDimension, int trainSize) {
+        this.store = store;
+        this.dir = dir;
+        this.mode = Objects.isNull(mode) ? "none" : mode.toLowerCase();
+        this.rerankFactor = Math.max(1, rerankFactor);
+        this.preferredSubDimension = Math.max(1, subDimension);
+        this.trainSize = Math.max(ProductQuantizer.CENTROIDS, trainSize);
+        if (!"none".equals(this.mode) && !"int8".equals(this.mode) && !"pq".equals(this.mode)) {
+            throw new IllegalArgumentException("不支持的量化模式: " + mode);
+        }
+    }
+
+    /**
+     * 加载码本与量化码，补编码落后于存储的序号
+     */
+    public void load() throws IOException {
+        float[][] samples;
+        lock.writeLock().lock();
+        try {
+            open();
+            samples = trainingSamples();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        train(samples);
+    }
+
+    /**
+     * 写入存储并编码；本次写入使向量数达到训练阈值时，由调用线程训练 pq 码本
+     */
+    public void add(List<SegmentVectorStore.Entry> entries) throws IOException {
+        float[][] samples;
+        lock.writeLock().lock();
+        try {
+            store.add(entries);
+            if (Objects.isNull(meta)) {
+                open();
+            } else {
+                catchUp();
+            }
+            samples = trainingSamples();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        train(samples);
+    }
+
+    public boolean delete(String id) throws IOException {
+        lock.writeLock().lock();
+        try {
+            return store.delete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 余弦相似度 topK，量化可用时先估算初筛再精确重排，knowledgeBaseId 为空时不过滤
+     */
+    public List<SegmentVectorStore.Hit> search(float[] query, int topK, Long knowledgeBaseId) throws IOException {
+        lock.readLock().lock();
+        try {
+            searches.incrementAndGet();
+            int count = store.ordinalCount();
+            if (Objects.isNull(quantizer) || coded < count) {
+                return store.search(query, topK, knowledgeBaseId);
+            }
+            if (count == 0 || topK <= 0 || query.length != store.dimension()) {
+                return Collections.emptyList();
+            }
+            approximateSearches.incrementAndGet();
+            float[] q = SegmentVectorStore.normalize(query);
+            VectorQuantizer.Scorer scorer = quantizer.scorer(q);
+            int codeBytes = quantizer.codeBytes();
+            int candidates = topK * rerankFactor;
+
+            LongHeap approximate = new LongHeap(candidates + 1);
+            byte[] block = new byte[SCAN_BLOCK * codeBytes];
+            for (int start = 0; start < count; start += SCAN_BLOCK) {
+                int n = Math.min(SCAN_BLOCK, count - start);
+                // 块不跨段：段容量为 SCAN_BLOCK 的整数倍
+                codeSegments.get(start / segmentCapacity).get(slot(start), block, 0, n * codeBytes);
+                for (int i = 0; i < n; i++) {
+                    int ordinal = start + i;
+                    if (!store.accepts(ordinal, knowledgeBaseId)) {
+                        continue;
+                    }
+                    offer(approximate, candidates, scorer.score(block, i * codeBytes), ordinal);
+                }
+            }
+
+            rerankedCandidates.addAndGet(approximate.size());
+            LongHeap exact = new LongHeap(topK + 1);
+            float[] scratch = new float[store.dimension()];
+            while (approximate.size() > 0) {
+                int ordinal = node(approximate.pop());
+                offer(exact, topK, store.similarity(q, ordinal, scratch), ordinal);
+            }
+            long[] keys = exact.sortedDescending();
+            List<SegmentVectorStore.Hit> hits = new ArrayList<>(keys.length);
+            for (long key : keys) {
+                hits.add(store.hit(node(key), score(key)));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            int dimension = store.dimension();
+            stats.put("mode", mode);
+            stats.put("quantizer", Objects.isNull(quantizer) ? "exact" : quantizer.name());
+            stats.put("coded", coded);
+            stats.put("floatBytesPerVector", dimension * Float.BYTES);
+            if (Objects.nonNull(quantizer)) {
+                stats.put("codeBytesPerVector", quantizer.codeBytes());
+                stats.put("compression", Math.round(dimension * Float.BYTES * 10.0 / quantizer.codeBytes()) / 10.0);
+                stats.put("codeBytes", (long) coded * quantizer.codeBytes());
+            }
+            if (quantizer instanceof ProductQuantizer) {
+                stats.put("pqSubDimension", ((ProductQuantizer) quantizer).subDimension());
+            } else if ("pq".equals(mode)) {
+                stats.put("pqTrainAt", trainSize);
+            }
+            stats.put("rerankFactor", rerankFactor);
+            stats.put("searches", searches.get());
+            long approximate = approximateSearches.get();
+            stats.put("approximateSearches", approximate);
+            stats.put("avgRerankCandidates", approximate == 0 ? 0 : rerankedCandidates.get() / approximate);
+            stats.put("store", store.getStats());
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closeCodes();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        int dimension = store.dimension();
+        if ("none".equals(mode) || dimension == 0) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Path codebookFile = dir.resolve("pq.codebook");
+        if ("int8".equals(mode)) {
+            quantizer = new ScalarQuantizer(dimension);
+        } else if (Files.exists(codebookFile)) {
+            try {
+                ProductQuantizer pq = ProductQuantizer.read(codebookFile);
+                int expected = ProductQuantizer.subDimensionFor(dimension, preferredSubDimension);
+                if (pq.dimension() == dimension && pq.subDimension() == expected) {
+                    quantizer = pq;
+                } else {
+                    log.warn("pq codebook {} does not match dimension {} / sub-dimension {}, retraining", codebookFile, dimension, expected);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to read pq codebook {}, retraining", codebookFile, e);
+            }
+        }
+        meta = FileChannel.open(dir.resolve("codes-" + mode + ".meta"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        coded = 0;
+        if (Objects.nonNull(quantizer)) {
+            coded = readMeta(dimension, quantizer.codeBytes());
+            openCodes();
+        }
+        catchUp();
+        log.info("quantized index {} loaded: mode={}, coded={}/{}, {}ms", dir, mode, coded, store.ordinalCount(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 编码存储中尚未编码的序号
+     */
+    private void catchUp() throws IOException {
+        int count = store.ordinalCount();
+        if (Objects.isNull(quantizer) || coded >= count) {
+            return;
+        }
+        int codeBytes = quantizer.codeBytes();
+        float[] vector = new float[store.dimension()];
+        byte[] code = new byte[codeBytes];
+        for (int ordinal = coded; ordinal < count; ordinal++) {
+            store.vector(ordinal, vector);
+            quantizer.encode(vector, code, 0);
+            codeSegment(ordinal).put(slot(ordinal), code);
+        }
+        forceCodes(coded, count);
+        coded = count;
+        writeMeta();
+    }
+
+    /**
+     * pq 码本未训练且存活向量数达到阈值时，在存活向量中等间隔抽样，否则返回空
+     */
+    private float[][] trainingSamples() {
+        if (!"pq".equals(mode) || Objects.nonNull(quantizer) || training || store.size() < trainSize) {
+            return null;
+        }
+        training = true;
+        int dimension = store.dimension();
+        int count = store.ordinalCount();
+        int stride = Math.max(1, store.size() / trainSize);
+        List<float[]> samples = new ArrayList<>(trainSize);
+        for (int ordinal = 0, seen = 0; ordinal < count && samples.size() < trainSize; ordinal++) {
+            if (store.isLive(ordinal) && seen++ % stride == 0) {
+                float[] vector = new float[dimension];
+                store.vector(ordinal, vector);
+                samples.add(vector);
+            }
+        }
+        return samples.toArray(new float[0][]);
+    }
+
+    /**
+     * 不持锁训练码本，读锁内编码已有向量，写锁内安装码本并补编码期间新写入的序号
+     */
+    private void train(float[][] samples) {
+        if (Objects.isNull(samples)) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            ProductQuantizer pq = ProductQuantizer.train(samples,
+                    ProductQuantizer.subDimensionFor(store.dimension(), preferredSubDimension), TRAIN_SEED);
+            long trained = System.currentTimeMillis();
+            int codeBytes = pq.codeBytes();
+            int encoded;
+            byte[] codes;
+            lock.readLock().lock();
+            try {
+                encoded = store.ordinalCount();
+                codes = new byte[encoded * codeBytes];
+                float[] vector = new float[store.dimension()];
+                for (int ordinal = 0; ordinal < encoded; ordinal++) {
+                    store.vector(ordinal, vector);
+                    pq.encode(vector, codes, ordinal * codeBytes);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            lock.writeLock().lock();
+            try {
+                install(pq, codes, encoded);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("pq codebook trained on {} samples: sub-dimension={}, code={} bytes, train={}ms, encode={}ms",
+                    samples.length, pq.subDimension(), codeBytes, trained - start, System.currentTimeMillis() - trained);
+        } catch (Exception e) {
+            log.error("Failed to train pq codebook in {}, searching exactly until next attempt", dir, e);
+        } finally {
+            training = false;
+        }
+    }
+
+    private void install(ProductQuantizer pq, byte[] codes, int encoded) throws IOException {
+        // 先作废旧码再落码本，中途失败时启动会按新码本全部重编码
+        closeCodes();
+        coded = 0;
+        quantizer = pq;
+        meta = FileChannel.open(dir.resolve("codes-" + mode + ".meta"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writeMeta();
+        pq.write(dir.resolve("pq.codebook"));
+        openCodes();
+        int codeBytes = pq.codeBytes();
+        for (int ordinal = 0; ordinal < encoded; ordinal++) {
+            codeSegment(ordinal).put(slot(ordinal), codes, ordinal * codeBytes, codeBytes);
+        }
+        forceCodes(0, encoded);
+        coded = encoded;
+        writeMeta();
+        catchUp();
+    }
+
+    /**
+     * meta：magic、版本、维度、码长、已编码序号数；与当前量化器不符时视为未编码
+     */
+    private int readMeta(int dimension, int codeBytes) throws IOException {
+        if (meta.size() < META_BYTES) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(META_BYTES);
+        meta.read(buffer, 0);
+        buffer.flip();
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getInt() != dimension || buffer.getInt() != codeBytes) {
+            log.warn("quantized codes in {} do not match current {} quantizer, re-encoding", dir, mode);
+            return 0;
+        }
+        return Math.min(buffer.getInt(), store.ordinalCount());
+    }
+
+    private void writeMeta() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(META_BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(store.dimension())
+                .putInt(Objects.isNull(quantizer) ? 0 : quantizer.codeBytes()).putInt(coded).flip();
+        meta.write(buffer, 0);
+        meta.force(false);
+    }
+
+    private void openCodes() throws IOException {
+        int codeBytes = quantizer.codeBytes();
+        // 段容量取 SCAN_BLOCK 的整数倍，扫描块不会跨段
+        segmentCapacity = (int) Math.max(SCAN_BLOCK, SEGMENT_BYTES / codeBytes / SCAN_BLOCK * SCAN_BLOCK);
+        int needed = coded == 0 ? 0 : (coded - 1) / segmentCapacity + 1;
+        for (int i = 0; i < needed; i++) {
+            openCodeSegment(i);
+        }
+    }
+
+    private void openCodeSegment(int index) throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(String.format("codes-%s-%05d.bin", mode, index)),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentCapacity * quantizer.codeBytes());
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        codeChannels.add(channel);
+        codeSegments.add(buffer);
+    }
+
+    private MappedByteBuffer codeSegment(int ordinal) throws IOException {
+        int index = ordinal / segmentCapacity;
+        while (codeSegments.size() <= index) {
+            openCodeSegment(codeSegments.size());
+        }
+        return codeSegments.get(index);
+    }
+
+    private void forceCodes(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        for (int index = from / segmentCapacity; index <= (to - 1) / segmentCapacity; index++) {
+            codeSegments.get(index).force();
+        }
+    }
+
+    private int slot(int ordinal) {
+        return (ordinal % segmentCapacity) * quantizer.codeBytes();
+    }
+
+    private void closeCodes() throws IOException {
+        for (MappedByteBuffer buffer : codeSegments) {
+            buffer.force();
+        }
+        for (FileChannel channel : codeChannels) {
+            channel.close();
+        }
+        codeSegments.clear();
+        codeChannels.clear();
+        if (Objects.nonNull(meta)) {
+            meta.close();
+            meta = null;
+        }
+    }
+
+    private static void offer(LongHeap heap, int limit, float score, int ordinal) {
+        if (heap.size() < limit) {
+            heap.push(key(score, ordinal));
+        } else if (score > score(heap.peek())) {
+            heap.pop();
+            heap.push(key(score, ordinal));
+        }
+    }
+}
@@ -0,0 +1,599 @@
+package com.jd.genie.service.vector;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 追加写的向量段存储
+ * 目录布局：
+ * records.dat    头部（magic、版本、维度）+ 长度前缀的 ADD/DELETE 记录，记录写入即为提交点
+ * vectors-N.f32  向量段，小端 float32 连续存放（写入时已归一化），每段固定容量，以内存映射方式读写
+ * 1、搜索直接扫描映射内存计算点积（归一化后即余弦相似度），只为 topK 结果回读内容与元数据
+ * 2、删除与同 id 覆盖写入以墓碑处理，启动时重放 records.dat 重建内存索引（id、知识库、记录偏移）
+ * 3、先写向量段再追加记录；records.dat 尾部不完整的记录视为未提交，启动时截断
+ * 读写由读写锁保护，写入按批次刷盘
+ */
+@Slf4j
+public class SegmentVectorStore implements Closeable {
+    private static final int MAGIC = 0x47564543;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final byte ADD = 1;
+    private static final byte DELETE = 2;
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final int SCAN_BLOCK = 256;
+    private static final long NO_KNOWLEDGE_BASE = Long.MIN_VALUE;
+    private static final String KNOWLEDGE_BASE_KEY = "knowledge_base_id";
+
+    private final Path dir;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FileChannel records;
+    private final List<FileChannel> segmentChannels = new ArrayList<>();
+    private final List<MappedByteBuffer> segmentBuffers = new ArrayList<>();
+    private final List<FloatBuffer> segments = new ArrayList<>();
+
+    private int dimension;
+    private int segmentCapacity;
+    // 已分配的序号数（含已删除）
+    private int count;
+    private long[] recordOffsets = new long[1024];
+    private long[] knowledgeBaseIds = new long[1024];
+    private final BitSet deleted = new BitSet();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    // 知识库 -> 存活条数
+    private final Map<Long, Integer> liveCounts = new HashMap<>();
+
+    public SegmentVectorStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        records = FileChannel.open(dir.resolve("records.dat"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (records.size() == 0) {
+            writeHeader(0);
+        } else {
+            replay();
+        }
+        if (dimension > 0) {
+            initSegments();
+        }
+    }
+
+    /**
+     * 批量写入，同 id 已存在时覆盖，返回第一条的序号（同批序号连续）
+     */
+    public int add(List<Entry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return count;
+        }
+        lock.writeLock().lock();
+        try {
+            if (dimension == 0) {
+                dimension = entries.get(0).vector.length;
+                writeHeader(dimension);
+                initSegments();
+            }
+            ByteArrayOutputStream batch = new ByteArrayOutputStream();
+            long base = records.size();
+            long[] offsets = new long[entries.size()];
+            long[] kbs = new long[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                if (entry.vector.length != dimension) {
+                    throw new IllegalArgumentException("向量维度不一致: " + entry.vector.length + " != " + dimension);
+                }
+                int ordinal = count + i;
+                segment(ordinal).put(slot(ordinal), normalize(entry.vector));
+                kbs[i] = knowledgeBaseId(entry.metadata);
+                offsets[i] = base + batch.size();
+                batch.write(addRecord(ordinal, kbs[i], entry));
+            }
+            // 向量先落盘，再追加记录作为提交
+            forceSegments(count, count + entries.size());
+            appendRecords(batch.toByteArray(), base);
+
+            for (int i = 0; i < entries.size(); i++) {
+                int ordinal = count + i;
+                ensureCapacity(ordinal);
+                recordOffsets[ordinal] = offsets[i];
+                knowledgeBaseIds[ordinal] = kbs[i];
+                markLive(ordinal, entries.get(i).id);
+            }
+            int first = count;
+            count += entries.size();
+            return first;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除，返回是否存在
+     */
+    public boolean delete(String id) throws IOException {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(id);
+            if (Objects.isNull(ordinal)) {
+                return false;
+            }
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(payload);
+            out.writeByte(DELETE);
+            out.writeInt(ordinal);
+            out.writeUTF(id);
+            appendRecords(frame(payload.toByteArray()), records.size());
+            markDeleted(ordinal, id);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 余弦相似度 topK，knowledgeBaseId 为空时不过滤
+     */
+    public List<Hit> search(float[] query, int topK, Long knowledgeBaseId) throws IOException {
+        lock.readLock().lock();
+        try {
+            if (count == 0 || topK <= 0 || query.length != dimension) {
+                return Collections.emptyList();
+            }
+            float[] q = normalize(query);
+            long kb = Objects.isNull(knowledgeBaseId) ? NO_KNOWLEDGE_BASE : knowledgeBaseId;
+            // 小顶堆保留当前最好的 topK
+            PriorityQueue<long[]> heap = new PriorityQueue<>(topK + 1,
+                    (a, b) -> Float.compare(Float.intBitsToFloat((int) a[0]), Float.intBitsToFloat((int) b[0])));
+            float[] block = new float[SCAN_BLOCK * dimension];
+            for (int start = 0; start < count; start += SCAN_BLOCK) {
+                int n = Math.min(SCAN_BLOCK, count - start);
+                if (kb == NO_KNOWLEDGE_BASE) {
+                    // 块不跨段：段容量为 SCAN_BLOCK 的整数倍
+                    segment(start).get(slot(start), block, 0, n * dimension);
+                }
+                for (int i = 0; i < n; i++) {
+                    int ordinal = start + i;
+                    if (deleted.get(ordinal) || (kb != NO_KNOWLEDGE_BASE && knowledgeBaseIds[ordinal] != kb)) {
+                        continue;
+                    }
+                    if (kb != NO_KNOWLEDGE_BASE) {
+                        // 按知识库过滤时只读取命中的向量，扫描开销取决于知识库大小而非整个存储
+                        segment(ordinal).get(slot(ordinal), block, i * dimension, dimension);
+                    }
+                    float score = dot(q, block, i * dimension);
+                    if (heap.size() < topK) {
+                        heap.add(new long[]{Float.floatToIntBits(score), ordinal});
+                    } else if (score > Float.intBitsToFloat((int) heap.peek()[0])) {
+                        heap.poll();
+                        heap.add(new long[]{Float.floatToIntBits(score), ordinal});
+                    }
+                }
+            }
+            List<Hit> hits = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) {
+                long[] top = heap.poll();
+                hits.add(readHit((int) top[1], Float.intBitsToFloat((int) top[0])));
+            }
+            Collections.reverse(hits);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 在 base 处追加记录并刷盘；失败时截断回 base，避免残留的半条记录使之后追加的记录在重放时无法解析
+     */
+    private void appendRecords(byte[] bytes, long base) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                records.write(buffer, base + buffer.position());
+            }
+            records.force(false);
+        } catch (IOException | RuntimeException e) {
+            try {
+                records.truncate(base);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("dimension", dimension);
+            stats.put("live", ordinals.size());
+            stats.put("tombstones", deleted.cardinality());
+            stats.put("segments", segments.size());
+            stats.put("recordBytes", records.size());
+            return stats;
+        } catch (IOException e) {
+            return Collections.emptyMap();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 知识库内的存活条数，knowledgeBaseId 为空时为全部存活条数
+     */
+    public int liveCount(Long knowledgeBaseId) {
+        lock.readLock().lock();
+        try {
+            return Objects.isNull(knowledgeBaseId) ? ordinals.size() : liveCounts.getOrDefault(knowledgeBaseId, 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (MappedByteBuffer buffer : segmentBuffers) {
+                buffer.force();
+            }
+            for (FileChannel channel : segmentChannels) {
+                channel.close();
+            }
+            records.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 以下按序号访问的方法不加锁，供索引在自身锁内调用，调用方需保证与写入互斥
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * 已分配的序号数（含已删除）
+     */
+    public int ordinalCount() {
+        return count;
+    }
+
+    /**
+     * 序号未删除且属于指定知识库（为空时不过滤）
+     */
+    public boolean accepts(int ordinal, Long knowledgeBaseId) {
+        return !deleted.get(ordinal) && (Objects.isNull(knowledgeBaseId) || knowledgeBaseIds[ordinal] == knowledgeBaseId);
+    }
+
+    public boolean isLive(int ordinal) {
+        return !deleted.get(ordinal);
+    }
+
+    /**
+     * 读取归一化后的向量
+     */
+    public void vector(int ordinal, float[] dst) {
+        segments.get(ordinal / segmentCapacity).get(slot(ordinal), dst, 0, dimension);
+    }
+
+    /**
+     * 与归一化查询向量的余弦相似度，scratch 为长度不小于维度的临时数组
+     */
+    public float similarity(float[] normalizedQuery, int ordinal, float[] scratch) {
+        vector(ordinal, scratch);
+        return dot(normalizedQuery, scratch, 0);
+    }
+
+    /**
+     * 回读序号对应的内容与元数据
+     */
+    public Hit hit(int ordinal, float score) throws IOException {
+        return readHit(ordinal, score);
+    }
+
+    /**
+     * 点积，4 路累加打断浮点加法的依赖链
+     */
+    public static float dot(float[] q, float[] block, int offset) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int d = 0;
+        for (int end = q.length & ~3; d < end; d += 4) {
+            s0 += q[d] * block[offset + d];
+            s1 += q[d + 1] * block[offset + d + 1];
+            s2 += q[d + 2] * block[offset + d + 2];
+            s3 += q[d + 3] * block[offset + d + 3];
+        }
+        for (; d < q.length; d++) {
+            s0 += q[d] * block[offset + d];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] result = Arrays.copyOf(vector, vector.length);
+        if (norm == 0) {
+            return result;
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < result.length; i++) {
+            result[i] *= inv;
+        }
+        return result;
+    }
+
+    private void writeHeader(int dim) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(dim).flip();
+        records.write(header, 0);
+        records.force(false);
+    }
+
+    /**
+     * 重放记录，重建内存索引；尾部不完整的记录截断
+     */
+    private void replay() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(records.position(0)), 1 << 16));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("不是向量段存储文件: " + dir.resolve("records.dat"));
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("不支持的向量段存储版本: " + version);
+        }
+        dimension = in.readInt();
+        long position = HEADER_BYTES;
+        long size = records.size();
+        while (position < size) {
+            int length;
+            byte[] payload;
+            try {
+                length = in.readInt();
+                if (length <= 0 || position + 4 + length > size) {
+                    break;
+                }
+                payload = in.readNBytes(length);
+                if (payload.length < length) {
+                    break;
+                }
+            } catch (EOFException e) {
+                break;
+            }
+            apply(payload, position);
+            position += 4 + length;
+        }
+        if (position < size) {
+            log.warn("vector store {} truncating {} bytes of incomplete records", dir, size - position);
+            records.truncate(position);
+        }
+        log.info("vector store {} loaded: dimension={}, live={}, tombstones={}", dir, dimension, ordinals.size(), deleted.cardinality());
+    }
+
+    private void apply(byte[] payload, long offset) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        int ordinal = in.readInt();
+        if (type == ADD) {
+            long kb = in.readLong();
+            String id = in.readUTF();
+            ensureCapacity(ordinal);
+            recordOffsets[ordinal] = offset;
+            knowledgeBaseIds[ordinal] = kb;
+            markLive(ordinal, id);
+            count = Math.max(count, ordinal + 1);
+        } else if (type == DELETE) {
+            markDeleted(ordinal, in.readUTF());
+        }
+    }
+
+    /**
+     * 序号成为 id 的当前版本，旧版本记为墓碑
+     */
+    private void markLive(int ordinal, String id) {
+        Integer previous = ordinals.put(id, ordinal);
+        if (Objects.nonNull(previous)) {
+            deleted.set(previous);
+            liveCounts.merge(knowledgeBaseIds[previous], -1, Integer::sum);
+        }
+        liveCounts.merge(knowledgeBaseIds[ordinal], 1, Integer::sum);
+    }
+
+    private void markDeleted(int ordinal, String id) {
+        deleted.set(ordinal);
+        if (ordinals.remove(id, ordinal)) {
+            liveCounts.merge(knowledgeBaseIds[ordinal], -1, Integer::sum);
+        }
+    }
+
+    private byte[] addRecord(int ordinal, long kb, Entry entry) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeByte(ADD);
+        out.writeInt(ordinal);
+        out.writeLong(kb);
+        out.writeUTF(entry.id);
+        byte[] content = Objects.isNull(entry.content) ? new byte[0] : entry.content.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(content.length);
+        out.write(content);
+        byte[] metadata = Objects.isNull(entry.metadata) ? new byte[0] : objectMapper.writeValueAsBytes(entry.metadata);
+        out.writeInt(metadata.length);
+        out.write(metadata);
+        return frame(payload.toByteArray());
+    }
+
+    private static byte[] frame(byte[] payload) {
+        return ByteBuffer.allocate(4 + payload.length).putInt(payload.length).put(payload).array();
+    }
+
+    private Hit readHit(int ordinal, float score) throws IOException {
+        long offset = recordOffsets[ordinal];
+        ByteBuffer length = ByteBuffer.allocate(4);
+        records.read(length, offset);
+        ByteBuffer payload = ByteBuffer.allocate(length.flip().getInt());
+        records.read(payload, offset + 4);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()));
+        in.readByte();
+        in.readInt();
+        in.readLong();
+        String id = in.readUTF();
+        String content = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+        byte[] metadataBytes = in.readNBytes(in.readInt());
+        Map<String, Object> metadata = metadataBytes.length == 0 ? new HashMap<>()
+                : objectMapper.readValue(metadataBytes, new TypeReference<Map<String, Object>>() {
+                });
+        return new Hit(id, content, score, metadata);
+    }
+
+    private void initSegments() throws IOException {
+        // 段容量取 SCAN_BLOCK 的整数倍，扫描块不会跨段
+        long perSegment = SEGMENT_BYTES / ((long) dimension * Float.BYTES);
+        segmentCapacity = (int) Math.max(SCAN_BLOCK, perSegment / SCAN_BLOCK * SCAN_BLOCK);
+        int needed = count == 0 ? 0 : (count - 1) / segmentCapacity + 1;
+        for (int i = 0; i < needed; i++) {
+            openSegment(i);
+        }
+    }
+
+    private void openSegment(int index) throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(String.format("vectors-%05d.f32", index)),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentCapacity * dimension * Float.BYTES);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        segmentChannels.add(channel);
+        segmentBuffers.add(buffer);
+        segments.add(buffer.asFloatBuffer());
+    }
+
+    private FloatBuffer segment(int ordinal) throws IOException {
+        int index = ordinal / segmentCapacity;
+        while (segments.size() <= index) {
+            openSegment(segments.size());
+        }
+        return segments.get(index);
+    }
+
+    private int slot(int ordinal) {
+        return (ordinal % segmentCapacity) * dimension;
+    }
+
+    /**
+     * 只刷写 [from, to) 的向量所在的字节区间，开销与批量大小成正比，与段大小无关
+     */
+    private void forceSegments(int from, int to) {
+        long vectorBytes = (long) dimension * Float.BYTES;
+        for (int index = from / segmentCapacity; index <= (to - 1) / segmentCapacity; index++) {
+            int start = Math.max(from, index * segmentCapacity) - index * segmentCapacity;
+            int end = Math.min(to, (index + 1) * segmentCapacity) - index * segmentCapacity;
+            segmentBuffers.get(index).force((int) (start * vectorBytes), (int) ((end - start) * vectorBytes));
+        }
+    }
+
+    private void ensureCapacity(int ordinal) {
+        if (ordinal >= recordOffsets.length) {
+            int size = Math.max(ordinal + 1, recordOffsets.length * 2);
+            recordOffsets = Arrays.copyOf(recordOffsets, size);
+            knowledgeBaseIds = Arrays.copyOf(knowledgeBaseIds, size);
+        }
+    }
+
+    private static long knowledgeBaseId(Map<String, Object> metadata) {
+        Object value = Objects.isNull(metadata) ? null : metadata.get(KNOWLEDGE_BASE_KEY);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException e) {
+                return NO_KNOWLEDGE_BASE;
+            }
+        }
+        return NO_KNOWLEDGE_BASE;
+    }
+
+    /**
+     * 写入项
+     */
+    public static class Entry {
+        private final String id;
+        private final String content;
+        private final float[] vector;
+        private final Map<String, Object> metadata;
+
+        public Entry(String id, String content, float[] vector, Map<String, Object> metadata) {
+            this.id = id;
+            this.content = content;
+            this.vector = vector;
+            this.metadata = metadata;
+        }
+    }
+
+    /**
+     * 搜索结果
+     */
+    public static class Hit {
+        private final String id;
+        private final String content;
+        private final float score;
+        private final Map<String, Object> metadata;
+
+        public Hit(String id, String content, float score, Map<String, Object> metadata) {
+            this.id = id;
+            this.content = content;
+            this.score = score;
+            this.metadata = metadata;
+        }
+
+        public String getId() { return id; }
+
+        public String getContent() { return content; }
+
+        public float getScore() { return score; }
+
+        public Map<String, Object> getMetadata() { return metadata; }
+    }
+}
@@ -0,0 +1,26 @@
+package com.jd.genie.service.vector;
+
+/**
+ * 向量量化器：把归一化向量编码为定长字节码
+ * 查询向量不量化，直接与码估算内积（非对称距离计算），估算结果只用于初筛候选
+ */
+interface VectorQuantizer {
+
+    String name();
+
+    /**
+     * 每条向量的编码字节数
+     */
+    int codeBytes();
+
+    void encode(float[] vector, byte[] dst, int offset);
+
+    /**
+     * 为归一化查询向量构造打分器，同一查询内复用
+     */
+    Scorer scorer(float[] query);
+
+    interface Scorer {
+        float score(byte[] codes, int offset);
+    }
+}
@@ -0,0 +1,126 @@
+package com.jd.genie.util;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 已编码好的 SSE 事件，直接输出帧数据，不再经过消息转换器序列化
+ * 实例不可变，可作为常量共享；构建器方法返回追加字段后的新事件：
+ * id/event/retry/注释行放在帧之前，data 行接在帧的 data 之后，与帧同属一个事件
+ */
+public class EncodedSseEvent implements SseEmitter.SseEventBuilder {
+    private final Set<ResponseBodyEmitter.DataWithMediaType> frame;
+    // 追加的字段行与 data 行，均为空时直接输出预编码帧
+    private final String fields;
+    private final List<ResponseBodyEmitter.DataWithMediaType> data;
+
+    private EncodedSseEvent(Set<ResponseBodyEmitter.DataWithMediaType> frame, String fields,
+                            List<ResponseBodyEmitter.DataWithMediaType> data) {
+        this.frame = frame;
+        this.fields = fields;
+        this.data = data;
+    }
+
+    /**
+     * 复用已构建好的事件数据
+     */
+    public static EncodedSseEvent of(Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+        return new EncodedSseEvent(frame, "", Collections.emptyList());
+    }
+
+    /**
+     * 完整的帧字节（含 data: 前缀与结尾空行）
+     */
+    public static EncodedSseEvent of(byte[] frame) {
+        return of(Collections.singleton(new ResponseBodyEmitter.DataWithMediaType(frame, MediaType.TEXT_PLAIN)));
+    }
+
+    @Override
+    public SseEmitter.SseEventBuilder id(String id) {
+        return withField("id:" + id);
+    }
+
+    @Override
+    public SseEmitter.SseEventBuilder name(String eventName) {
+        return withField("event:" + eventName);
+    }
+
+    @Override
+    public SseEmitter.SseEventBuilder reconnectTime(long reconnectTimeMillis) {
+        return withField("retry:" + reconnectTimeMillis);
+    }
+
+    @Override
+    public SseEmitter.SseEventBuilder comment(String comment) {
+        return withField(":" + comment);
+    }
+
+    @Override
+    public SseEmitter.SseEventBuilder data(Object object) {
+        return data(object, null);
+    }
+
+    @Override
+    public SseEmitter.SseEventBuilder data(Object object, MediaType mediaType) {
+        List<ResponseBodyEmitter.DataWithMediaType> appended = new ArrayList<>(data);
+        appended.add(text("data:"));
+        appended.add(new ResponseBodyEmitter.DataWithMediaType(object, mediaType));
+        appended.add(text("\n"));
+        return new EncodedSseEvent(frame, fields, appended);
+    }
+
+    @Override
+    public Set<ResponseBodyEmitter.DataWithMediaType> build() {
+        if (fields.isEmpty() && data.isEmpty()) {
+            return frame;
+        }
+        Set<ResponseBodyEmitter.DataWithMediaType> event = new LinkedHashSet<>();
+        if (!fields.isEmpty()) {
+            event.add(text(fields));
+        }
+        if (data.isEmpty()) {
+            event.addAll(frame);
+            return event;
+        }
+        // 去掉帧结尾的空行，追加的 data 行之后再结束事件
+        Iterator<ResponseBodyEmitter.DataWithMediaType> items = frame.iterator();
+        while (items.hasNext()) {
+            ResponseBodyEmitter.DataWithMediaType item = items.next();
+            event.add(items.hasNext() ? item : withoutTrailingNewline(item));
+        }
+        event.addAll(data);
+        event.add(text("\n"));
+        return event;
+    }
+
+    private EncodedSseEvent withField(String line) {
+        return new EncodedSseEvent(frame, fields + line + "\n", data);
+    }
+
+    private static ResponseBodyEmitter.DataWithMediaType text(String text) {
+        return new ResponseBodyEmitter.DataWithMediaType(text, MediaType.TEXT_PLAIN);
+    }
+
+    private static ResponseBodyEmitter.DataWithMediaType withoutTrailingNewline(ResponseBodyEmitter.DataWithMediaType item) {
+        Object value = item.getData();
+        if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            if (bytes.length > 0 && bytes[bytes.length - 1] == '\n') {
+                return new ResponseBodyEmitter.DataWithMediaType(Arrays.copyOf(bytes, bytes.length - 1), item.getMediaType());
+            }
+        } else if (value instanceof String && ((String) value).endsWith("\n")) {
+            String text = (String) value;
+            return new ResponseBodyEmitter.DataWithMediaType(text.substring(0, text.length() - 1), item.getMediaType());
+        }
+        return item;
+    }
+}
@@ -0,0 +1,225 @@
+package com.jd.genie.util;
+
+import com.jd.genie.agent.printer.ReplayBuffer;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于 Servlet 非阻塞 IO 的 SSE 输出
+ * 1、输出流可写时才向上游 request(1)，网络写不动时不再拉取事件，背压直接传到回放缓冲
+ * 2、不占用线程等待写出，写缓冲腾空后由容器回调 onWritePossible 继续
+ * 所有输出操作在 this 锁内，保证同一时间只有一个线程写输出流
+ */
+@Slf4j
+public class ServletFlowWriter implements Flow.Subscriber<ReplayBuffer.Frame>, WriteListener, AsyncListener {
+    private static final byte[] HEARTBEAT = ":heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(
+            new BasicThreadFactory.Builder().namingPattern("sse-flow-heartbeat-%d").daemon(true).build());
+
+    private static final AtomicLong opened = new AtomicLong();
+    private static final AtomicLong active = new AtomicLong();
+    private static final AtomicLong written = new AtomicLong();
+    private static final AtomicLong writtenBytes = new AtomicLong();
+    private static final AtomicLong notReady = new AtomicLong();
+
+    private final AsyncContext asyncContext;
+    private final String requestId;
+    private final long heartbeatIntervalMs;
+    private ServletOutputStream out;
+    private Flow.Subscription subscription;
+    private ScheduledFuture<?> heartbeat;
+    private ReplayBuffer.Frame held;
+    private boolean demanded = false;
+    private boolean upstreamDone = false;
+    private boolean closed = false;
+    private long lastWriteAt = System.currentTimeMillis();
+
+    public ServletFlowWriter(AsyncContext asyncContext, String requestId, long heartbeatIntervalMs) {
+        this.asyncContext = asyncContext;
+        this.requestId = requestId;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        opened.incrementAndGet();
+        active.incrementAndGet();
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("opened", opened.get());
+        stats.put("active", active.get());
+        stats.put("written", written.get());
+        stats.put("writtenBytes", writtenBytes.get());
+        stats.put("notReady", notReady.get());
+        return stats;
+    }
+
+    @Override
+    public synchronized void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        asyncContext.addListener(this);
+        try {
+            out = asyncContext.getResponse().getOutputStream();
+            // 设置后容器立即回调 onWritePossible，由此发出第一次 request
+            out.setWriteListener(this);
+        } catch (Exception e) {
+            onError(e);
+            return;
+        }
+        heartbeat = heartbeats.scheduleWithFixedDelay(this::beat, heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void onNext(ReplayBuffer.Frame frame) {
+        demanded = false;
+        if (closed) {
+            return;
+        }
+        if (!ready()) {
+            held = frame;
+            return;
+        }
+        write(frame.getBytes());
+        requestIfReady();
+    }
+
+    @Override
+    public synchronized void onComplete() {
+        upstreamDone = true;
+        if (Objects.isNull(held) && ready()) {
+            finish();
+        }
+    }
+
+    @Override
+    public synchronized void onError(Throwable throwable) {
+        log.info("{} sse flow error: {}", requestId, throwable.getMessage());
+        upstreamDone = true;
+        finish();
+    }
+
+    @Override
+    public synchronized void onWritePossible() {
+        if (closed) {
+            return;
+        }
+        if (Objects.nonNull(held)) {
+            write(held.getBytes());
+            held = null;
+        }
+        if (upstreamDone) {
+            if (ready()) {
+                finish();
+            }
+            return;
+        }
+        requestIfReady();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        release();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        log.info("{} sse flow timed out", requestId);
+        release();
+        event.getAsyncContext().complete();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        log.info("{} sse flow connection error: {}", requestId,
+                Objects.nonNull(event.getThrowable()) ? event.getThrowable().getMessage() : "");
+        release();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    private void requestIfReady() {
+        if (!demanded && !upstreamDone && !closed && ready()) {
+            demanded = true;
+            subscription.request(1);
+        }
+    }
+
+    private boolean ready() {
+        if (closed || Objects.isNull(out)) {
+            return false;
+        }
+        if (out.isReady()) {
+            return true;
+        }
+        // 不可写时容器会在写缓冲腾空后回调 onWritePossible
+        notReady.incrementAndGet();
+        return false;
+    }
+
+    private void write(byte[] bytes) {
+        try {
+            out.write(bytes);
+            if (out.isReady()) {
+                out.flush();
+            }
+            lastWriteAt = System.currentTimeMillis();
+            written.incrementAndGet();
+            writtenBytes.addAndGet(bytes.length);
+        } catch (IOException e) {
+            log.info("{} sse flow write failed: {}", requestId, e.getMessage());
+            finish();
+        }
+    }
+
+    private synchronized void beat() {
+        if (!closed && Objects.isNull(held) && System.currentTimeMillis() - lastWriteAt >= heartbeatIntervalMs && ready()) {
+            write(HEARTBEAT);
+        }
+    }
+
+    private void finish() {
+        if (closed) {
+            return;
+        }
+        release();
+        try {
+            asyncContext.complete();
+        } catch (Exception e) {
+            log.debug("{} sse flow complete failed", requestId, e);
+        }
+    }
+
+    /**
+     * 连接结束，取消上游订阅（任务继续执行，可通过 /AutoAgent/resume 重连）
+     */
+    private synchronized void release() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        active.decrementAndGet();
+        if (Objects.nonNull(heartbeat)) {
+            heartbeat.cancel(false);
+        }
+        if (Objects.nonNull(subscription) && !upstreamDone) {
+            subscription.cancel();
+        }
+    }
+}
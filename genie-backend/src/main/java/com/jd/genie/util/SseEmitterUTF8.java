@@ -3,11 +3,10 @@ package com.jd.genie.util;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.server.ServerHttpResponse;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.nio.charset.StandardCharsets;
 
-public class SseEmitterUTF8 extends SseEmitter {
+public class SseEmitterUTF8 extends TrackedSseEmitter {
     public SseEmitterUTF8(Long timeout) {
         super(timeout);
     }
@@ -0,0 +1,206 @@
+package com.jd.genie.util;
+
+import com.jd.genie.agent.printer.SseStreamSession;
+import com.jd.genie.config.GenieConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SSE 心跳调度 - 时间轮
+ * 1、单线程按 tick 推进时间轮，每个连接固定落在一个槽位，每转一圈（即一个心跳间隔）检查一次
+ * 2、近一个心跳间隔内有数据写出的连接跳过
+ * 3、挂载输出会话的连接，心跳交给会话中该连接的发送任务与数据帧串行写出，调度线程不做任何 IO；
+ *    未挂载会话的连接由独立线程池发送，每个连接至多一个待发心跳，写入中的连接不再发送
+ * 4、单次写入（数据或心跳）超过 write_timeout_ms 视为慢连接，标记失败后剔除，剔除不占用发送线程
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SseHeartbeatScheduler {
+    private final GenieConfig genieConfig;
+
+    private final Map<SseEmitter, Connection> connections = new ConcurrentHashMap<>();
+    private List<Set<Connection>> wheel;
+    private volatile int cursor = 0;
+    private long intervalMs;
+    private long writeTimeoutMs;
+
+    private ScheduledExecutorService ticker;
+    private ThreadPoolExecutor sender;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong stalled = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        intervalMs = genieConfig.getSseHeartbeatIntervalMs();
+        writeTimeoutMs = genieConfig.getSseWriteTimeoutMs();
+        long tickMs = genieConfig.getSseHeartbeatTickMs();
+        int slots = (int) Math.max(1, intervalMs / tickMs);
+        wheel = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            wheel.add(ConcurrentHashMap.newKeySet());
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(
+                new BasicThreadFactory.Builder().namingPattern("sse-heartbeat-wheel-%d").daemon(true).build());
+        // 每个连接至多一个待发心跳，队列长度不超过连接数
+        int threads = genieConfig.getSseHeartbeatSenderThreads();
+        sender = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new BasicThreadFactory.Builder().namingPattern("sse-heartbeat-send-%d").daemon(true).build());
+        sender.allowCoreThreadTimeOut(true);
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        ticker.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    /**
+     * 登记挂载在输出会话上的连接，心跳由会话的发送任务写出
+     */
+    public void register(TrackedSseEmitter emitter, String requestId, SseStreamSession session) {
+        register(new Connection(emitter, requestId, session, null));
+    }
+
+    /**
+     * 登记未挂载输出会话的连接，使用预编码的心跳帧
+     */
+    public void register(TrackedSseEmitter emitter, String requestId, SseEmitter.SseEventBuilder heartbeat) {
+        register(new Connection(emitter, requestId, null, heartbeat));
+    }
+
+    /**
+     * 连接结束时移除
+     */
+    public void unregister(SseEmitter emitter) {
+        Connection connection = connections.remove(emitter);
+        if (Objects.nonNull(connection)) {
+            wheel.get(connection.slot).remove(connection);
+        }
+    }
+
+    /**
+     * 放在当前槽位的前一个槽位，约一个心跳间隔后首次检查
+     */
+    private void register(Connection connection) {
+        connection.slot = (cursor + wheel.size() - 1) % wheel.size();
+        connections.put(connection.emitter, connection);
+        wheel.get(connection.slot).add(connection);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", connections.size());
+        stats.put("sent", sent.get());
+        stats.put("skipped", skipped.get());
+        stats.put("failed", failed.get());
+        stats.put("stalled", stalled.get());
+        stats.put("evicted", evicted.get());
+        stats.put("senderActive", sender.getActiveCount());
+        stats.put("senderQueued", sender.getQueue().size());
+        return stats;
+    }
+
+    private void tick() {
+        try {
+            int slot = cursor;
+            cursor = (slot + 1) % wheel.size();
+            long now = System.currentTimeMillis();
+            for (Connection connection : wheel.get(slot)) {
+                TrackedSseEmitter emitter = connection.emitter;
+                long writeStartedAt = emitter.getWriteStartedAt();
+                if (writeStartedAt > 0) {
+                    // 写入中的连接不发心跳，写入超过期限视为慢连接
+                    if (now - writeStartedAt >= writeTimeoutMs) {
+                        stalled.incrementAndGet();
+                        evict(connection, new IOException("sse write timed out after " + (now - writeStartedAt) + "ms"));
+                    }
+                    continue;
+                }
+                // 近期有数据写出，无需心跳
+                if (now - emitter.getLastWriteAt() < intervalMs) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                if (Objects.nonNull(connection.session)) {
+                    connection.session.heartbeat(emitter);
+                    sent.incrementAndGet();
+                } else if (connection.sending.compareAndSet(false, true)) {
+                    sender.execute(() -> beat(connection));
+                }
+            }
+        } catch (Exception e) {
+            log.error("sse heartbeat tick error", e);
+        }
+    }
+
+    private void beat(Connection connection) {
+        try {
+            connection.emitter.send(connection.heartbeat);
+            sent.incrementAndGet();
+            log.debug("{} send heartbeat", connection.requestId);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.warn("{} heartbeat failed, closing connection: {}", connection.requestId, e.getMessage());
+            evict(connection, e instanceof IOException ? (IOException) e : new IOException(e));
+        } finally {
+            connection.sending.set(false);
+        }
+    }
+
+    /**
+     * 标记连接失败：后续写入立即失败，连接空闲时直接结束，否则由卡住的写入返回后结束
+     */
+    private void evict(Connection connection, IOException e) {
+        unregister(connection.emitter);
+        evicted.incrementAndGet();
+        log.warn("{} evict sse connection: {}", connection.requestId, e.getMessage());
+        if (Objects.nonNull(connection.session)) {
+            connection.session.detach(connection.emitter);
+        }
+        connection.emitter.fail(e);
+    }
+
+    private static class Connection {
+        private final TrackedSseEmitter emitter;
+        private final String requestId;
+        // 挂载的输出会话，为空时心跳由发送线程池写出
+        private final SseStreamSession session;
+        private final SseEmitter.SseEventBuilder heartbeat;
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+        private int slot;
+
+        Connection(TrackedSseEmitter emitter, String requestId, SseStreamSession session, SseEmitter.SseEventBuilder heartbeat) {
+            this.emitter = emitter;
+            this.requestId = requestId;
+            this.session = session;
+            this.heartbeat = heartbeat;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.jd.genie.util;
+
+import com.jd.genie.agent.printer.ReplayBuffer;
+import com.jd.genie.agent.printer.SseStreamSession;
+import com.jd.genie.config.GenieConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * SSE 输出会话登记，支持断线重连
+ * 会话在任务结束后保留一段宽限期供客户端重连回放，过期后释放缓冲
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SseSessionRegistry {
+    private static final long CLEANUP_INTERVAL_MS = 30_000L;
+
+    private final GenieConfig genieConfig;
+
+    private final Map<String, SseStreamSession> sessions = new ConcurrentHashMap<>();
+    private ScheduledExecutorService cleaner;
+    private Path spillDir;
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong resumed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        spillDir = Paths.get(genieConfig.getSseReplayDir());
+        // 清理上次运行遗留的溢出文件
+        try (Stream<Path> files = Files.exists(spillDir) ? Files.list(spillDir) : Stream.empty()) {
+            files.filter(file -> file.getFileName().toString().startsWith("sse-replay-")).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (Exception e) {
+                    log.warn("sse replay cleanup failed {}", file, e);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("sse replay cleanup failed: {}", e.getMessage());
+        }
+        cleaner = Executors.newSingleThreadScheduledExecutor(
+                new BasicThreadFactory.Builder().namingPattern("sse-session-cleaner-%d").daemon(true).build());
+        cleaner.scheduleWithFixedDelay(this::cleanup, CLEANUP_INTERVAL_MS, CLEANUP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        cleaner.shutdownNow();
+        sessions.values().forEach(SseStreamSession::close);
+        sessions.clear();
+    }
+
+    /**
+     * 创建会话，同一用户同一 requestId 的旧会话直接释放；requestId 已被其他用户占用时拒绝
+     */
+    public SseStreamSession open(String requestId, String owner) {
+        try {
+            Files.createDirectories(spillDir);
+        } catch (Exception e) {
+            log.warn("{} create sse replay dir failed: {}", requestId, e.getMessage());
+        }
+        ReplayBuffer buffer = new ReplayBuffer(genieConfig.getSseReplayMaxFrames(), genieConfig.getSseReplayMaxMemoryBytes(),
+                genieConfig.getSseReplayMaxSpillBytes(), spillDir);
+        SseStreamSession session = new SseStreamSession(requestId, owner, buffer);
+        SseStreamSession[] previous = new SseStreamSession[1];
+        boolean[] occupied = new boolean[1];
+        sessions.compute(requestId, (key, existing) -> {
+            if (Objects.nonNull(existing) && !Objects.equals(existing.getOwner(), owner)) {
+                occupied[0] = true;
+                return existing;
+            }
+            previous[0] = existing;
+            return session;
+        });
+        if (occupied[0]) {
+            buffer.close();
+            rejected.incrementAndGet();
+            throw new RuntimeException("请求ID已被占用");
+        }
+        if (Objects.nonNull(previous[0])) {
+            previous[0].close();
+        }
+        opened.incrementAndGet();
+        return session;
+    }
+
+    /**
+     * 查找可重连的会话，不存在或不属于该用户时返回 null
+     */
+    public SseStreamSession resume(String requestId, String owner) {
+        SseStreamSession session = sessions.get(requestId);
+        if (Objects.isNull(session) || !Objects.equals(session.getOwner(), owner)) {
+            return null;
+        }
+        resumed.incrementAndGet();
+        return session;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long spillBytes = 0;
+        int subscribers = 0;
+        for (SseStreamSession session : sessions.values()) {
+            spillBytes += session.getSpillBytes();
+            subscribers += session.getSubscriberCount();
+        }
+        stats.put("sessions", sessions.size());
+        stats.put("subscribers", subscribers);
+        stats.put("spillBytes", spillBytes);
+        stats.put("opened", opened.get());
+        stats.put("resumed", resumed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("expired", expired.get());
+        return stats;
+    }
+
+    private void cleanup() {
+        try {
+            long now = System.currentTimeMillis();
+            sessions.forEach((requestId, session) -> {
+                if (session.isExpired(now, genieConfig.getSseReplayGraceMs(), genieConfig.getSseReplayMaxAgeMs())
+                        && sessions.remove(requestId, session)) {
+                    session.close();
+                    expired.incrementAndGet();
+                }
+            });
+        } catch (Exception e) {
+            log.error("sse session cleanup error", e);
+        }
+    }
+}
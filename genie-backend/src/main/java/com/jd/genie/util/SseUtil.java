@@ -1,12 +1,11 @@
 package com.jd.genie.util;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Slf4j
 public class SseUtil {
-    public static SseEmitter build(Long timeout, String requestId) {
-        SseEmitter sseEmitter = new SseEmitterUTF8(timeout);
+    public static SseEmitterUTF8 build(Long timeout, String requestId) {
+        SseEmitterUTF8 sseEmitter = new SseEmitterUTF8(timeout);
         sseEmitter.onError((err)-> {
             log.error("SseSession Error, msg: {}, requestId: {}", err.getMessage(), requestId);
             sseEmitter.completeWithError(err);
@@ -0,0 +1,88 @@
+package com.jd.genie.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 请求准备阶段计时
+ * 每个阶段作为独立的异步任务执行，记录排队等待与执行耗时，并汇总到全局统计
+ */
+public class StageTimer {
+    private static final Map<String, Stat> stats = new ConcurrentHashMap<>();
+
+    private final long startedAt = System.currentTimeMillis();
+    private final Map<String, Long> timings = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * 在 executor 中执行一个阶段
+     */
+    public <T> CompletableFuture<T> stage(String name, Supplier<T> supplier, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                return supplier.get();
+            } finally {
+                record(name, System.currentTimeMillis() - start);
+            }
+        }, executor);
+    }
+
+    /**
+     * 记录阶段耗时
+     */
+    public void record(String name, long costMs) {
+        timings.put(name, costMs);
+        stats.computeIfAbsent(name, k -> new Stat()).add(costMs);
+    }
+
+    /**
+     * 自开始以来的耗时
+     */
+    public long elapsed() {
+        return System.currentTimeMillis() - startedAt;
+    }
+
+    /**
+     * 各阶段耗时，如 user=3ms chat_session=5ms rag=420ms
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        synchronized (timings) {
+            timings.forEach((name, cost) -> builder.append(name).append('=').append(cost).append("ms "));
+        }
+        return builder.append("total=").append(elapsed()).append("ms").toString();
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        stats.forEach((name, stat) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            long count = stat.count.sum();
+            item.put("count", count);
+            item.put("avgMs", count == 0 ? 0 : stat.totalMs.sum() / count);
+            item.put("maxMs", stat.maxMs.get());
+            result.put(name, item);
+        });
+        return result;
+    }
+
+    private static class Stat {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMs = new LongAdder();
+        private final AtomicLong maxMs = new AtomicLong();
+
+        void add(long costMs) {
+            count.increment();
+            totalMs.add(costMs);
+            maxMs.accumulateAndGet(costMs, Math::max);
+        }
+    }
+}
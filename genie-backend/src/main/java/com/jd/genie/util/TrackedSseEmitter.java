@@ -0,0 +1,101 @@
+package com.jd.genie.util;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 记录写入状态的 SseEmitter
+ * 1、最近一次写入时间，心跳调度据此跳过近期有数据输出的连接
+ * 2、当前写入的开始时间，写入超过期限视为慢连接，由 {@link #fail(IOException)} 剔除
+ * 3、剔除后的写入立即失败，不再排队等待卡住的写入；结束连接由空闲时的剔除方或卡住的写入返回后完成，不占用额外线程
+ */
+public class TrackedSseEmitter extends SseEmitter {
+    private volatile long lastWriteAt = System.currentTimeMillis();
+    // 写入计数与计时，读写均在 state 锁内；不使用 emitter 自身的锁，卡住的写入不会阻塞检查
+    private final Object state = new Object();
+    private int writing = 0;
+    private long writeStartedAt = 0;
+    private volatile IOException failure;
+    private final AtomicBoolean failed = new AtomicBoolean(false);
+
+    public TrackedSseEmitter(Long timeout) {
+        super(timeout);
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+        synchronized (state) {
+            if (writing++ == 0) {
+                writeStartedAt = System.currentTimeMillis();
+            }
+        }
+        try {
+            if (Objects.nonNull(failure)) {
+                throw failure;
+            }
+            write(builder);
+            lastWriteAt = System.currentTimeMillis();
+        } finally {
+            boolean idle;
+            synchronized (state) {
+                // 还有等待中的写入时从现在起重新计时
+                idle = --writing == 0;
+                writeStartedAt = idle ? 0 : System.currentTimeMillis();
+            }
+            if (idle && Objects.nonNull(failure)) {
+                completeFailed();
+            }
+        }
+    }
+
+    /**
+     * 实际写出，写入状态的登记在 send 中完成
+     */
+    protected void write(SseEventBuilder builder) throws IOException {
+        super.send(builder);
+    }
+
+    /**
+     * 剔除连接：之后的写入直接抛出 cause；当前没有写入时立即结束连接，否则由最后一个写入返回后结束
+     */
+    public void fail(IOException cause) {
+        boolean idle;
+        synchronized (state) {
+            failure = cause;
+            idle = writing == 0;
+        }
+        if (idle) {
+            completeFailed();
+        }
+    }
+
+    public boolean isFailed() {
+        return Objects.nonNull(failure);
+    }
+
+    public long getLastWriteAt() {
+        return lastWriteAt;
+    }
+
+    /**
+     * 当前写入的开始时间，没有写入时为 0
+     */
+    public long getWriteStartedAt() {
+        synchronized (state) {
+            return writeStartedAt;
+        }
+    }
+
+    private void completeFailed() {
+        if (failed.compareAndSet(false, true)) {
+            try {
+                completeWithError(failure);
+            } catch (Exception ignored) {
+                // 连接已结束
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.jd.genie.websocket;
+
+import com.jd.genie.agent.printer.ReplayBuffer;
+import com.jd.genie.agent.printer.SseStreamSession;
+import com.jd.genie.agent.printer.StreamSink;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个 WebSocket 连接，承载多个通道（每个通道对应一个输出会话）
+ * 1、各通道的帧进入同一写出队列，同一时间只有一个异步写出，写完再发下一帧
+ * 2、待写出字节超过上限时各通道暂停读取回放缓冲，写出回落到一半以下后唤醒
+ */
+@Slf4j
+public class AgentSocketConnection {
+    static final AtomicLong framesSent = new AtomicLong();
+    static final AtomicLong bytesSent = new AtomicLong();
+    static final AtomicLong pauses = new AtomicLong();
+
+    private final Session ws;
+    private final String username;
+    private final long maxPendingBytes;
+    private final Map<Integer, Channel> channels = new ConcurrentHashMap<>();
+
+    // 读写均在 this 锁内
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    private long pendingBytes = 0;
+    private boolean sending = false;
+    private boolean paused = false;
+    private boolean closed = false;
+    private volatile long lastWriteAt = System.currentTimeMillis();
+
+    public AgentSocketConnection(Session ws, String username, long maxPendingBytes) {
+        this.ws = ws;
+        this.username = username;
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    public String getId() {
+        return ws.getId();
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public long getLastWriteAt() {
+        return lastWriteAt;
+    }
+
+    public int getChannelCount() {
+        return channels.size();
+    }
+
+    public Channel getChannel(int channelId) {
+        return channels.get(channelId);
+    }
+
+    /**
+     * 挂载通道，同一通道号的旧通道先卸载
+     */
+    public Channel attach(int channelId, SseStreamSession session, long lastEventId) {
+        Channel channel = new Channel(channelId, session);
+        detach(channelId);
+        channels.put(channelId, channel);
+        session.attach(channel, lastEventId);
+        return channel;
+    }
+
+    /**
+     * 卸载通道，不影响任务继续执行
+     */
+    public void detach(int channelId) {
+        Channel channel = channels.remove(channelId);
+        if (Objects.nonNull(channel)) {
+            channel.session.detach(channel);
+        }
+    }
+
+    public void send(ByteBuffer frame) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            outbound.addLast(frame);
+            pendingBytes += frame.remaining();
+            if (sending) {
+                return;
+            }
+            sending = true;
+        }
+        sendNext();
+    }
+
+    public void sendControl(byte type, int channelId, String message) {
+        send(AgentSocketFrame.control(type, channelId, 0, message));
+    }
+
+    /**
+     * 连接关闭，卸载全部通道
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            outbound.clear();
+            pendingBytes = 0;
+        }
+        for (Integer channelId : new ArrayList<>(channels.keySet())) {
+            detach(channelId);
+        }
+    }
+
+    private synchronized boolean writable() {
+        if (!closed && pendingBytes >= maxPendingBytes && !paused) {
+            paused = true;
+            pauses.incrementAndGet();
+        }
+        return !closed && !paused;
+    }
+
+    private void sendNext() {
+        ByteBuffer frame;
+        synchronized (this) {
+            frame = outbound.pollFirst();
+            if (Objects.isNull(frame) || closed) {
+                sending = false;
+                return;
+            }
+        }
+        int size = frame.remaining();
+        try {
+            ws.getAsyncRemote().sendBinary(frame, result -> onSent(result, size));
+        } catch (Exception e) {
+            onSent(new SendResult(e), size);
+        }
+    }
+
+    private void onSent(SendResult result, int size) {
+        List<Channel> resumed = null;
+        synchronized (this) {
+            pendingBytes -= size;
+            if (paused && pendingBytes <= maxPendingBytes / 2) {
+                paused = false;
+                resumed = new ArrayList<>(channels.values());
+            }
+        }
+        if (!result.isOK()) {
+            log.info("{} websocket send failed: {}", ws.getId(), result.getException().getMessage());
+            closeQuietly();
+            return;
+        }
+        lastWriteAt = System.currentTimeMillis();
+        framesSent.incrementAndGet();
+        bytesSent.addAndGet(size);
+        if (Objects.nonNull(resumed)) {
+            wakeAll(resumed);
+        }
+        sendNext();
+    }
+
+    private static void wakeAll(Collection<Channel> resumed) {
+        for (Channel channel : resumed) {
+            channel.session.wake(channel);
+        }
+    }
+
+    private void closeQuietly() {
+        close();
+        try {
+            ws.close(new CloseReason(CloseReason.CloseCodes.CLOSED_ABNORMALLY, "send failed"));
+        } catch (Exception e) {
+            log.debug("{} websocket close failed", ws.getId(), e);
+        }
+    }
+
+    /**
+     * 连接内的一个通道
+     */
+    public class Channel implements StreamSink {
+        private final int channelId;
+        private final SseStreamSession session;
+
+        Channel(int channelId, SseStreamSession session) {
+            this.channelId = channelId;
+            this.session = session;
+        }
+
+        public SseStreamSession getSession() {
+            return session;
+        }
+
+        @Override
+        public void send(ReplayBuffer.Frame frame) {
+            AgentSocketConnection.this.send(AgentSocketFrame.event(channelId, frame));
+        }
+
+        @Override
+        public boolean writable() {
+            return AgentSocketConnection.this.writable();
+        }
+
+        @Override
+        public void complete() {
+            channels.remove(channelId, this);
+            AgentSocketConnection.this.send(AgentSocketFrame.control(AgentSocketFrame.END, channelId,
+                    session.getLastId(), session.getRequestId()));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.jd.genie.websocket;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+
+import java.security.Principal;
+import java.util.Objects;
+
+/**
+ * 智能体 WebSocket 入口，握手经过 Spring Security 过滤链，连接建立时已完成认证
+ * 客户端以文本消息发送控制指令，服务端以二进制帧输出事件
+ */
+@Slf4j
+public class AgentSocketEndpoint extends Endpoint {
+    public static final String PATH = "/ws/agent";
+
+    private final AgentSocketHub hub;
+    private AgentSocketConnection connection;
+
+    public AgentSocketEndpoint(AgentSocketHub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        Principal principal = session.getUserPrincipal();
+        if (Objects.isNull(principal)) {
+            try {
+                session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "unauthorized"));
+            } catch (Exception e) {
+                log.debug("{} websocket close failed", session.getId(), e);
+            }
+            return;
+        }
+        connection = hub.open(session, principal.getName());
+        session.addMessageHandler(String.class, (MessageHandler.Whole<String>) text -> hub.handle(connection, text));
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        if (Objects.nonNull(connection)) {
+            hub.close(connection);
+        }
+    }
+
+    @Override
+    public void onError(Session session, Throwable throwable) {
+        log.info("{} websocket error: {}", session.getId(), throwable.getMessage());
+        if (Objects.nonNull(connection)) {
+            hub.close(connection);
+        }
+    }
+}
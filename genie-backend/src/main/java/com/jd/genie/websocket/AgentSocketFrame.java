@@ -0,0 +1,56 @@
+package com.jd.genie.websocket;
+
+import com.jd.genie.agent.printer.ReplayBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * WebSocket 二进制帧编码
+ * 帧头固定 13 字节：type(1) + channel(4) + eventId(8)，其后为 UTF-8 负载
+ * 事件帧负载即 SSE 帧中 data 部分的 json，直接从回放缓冲截取，不再重新序列化
+ */
+public final class AgentSocketFrame {
+    public static final byte EVENT = 1;
+    public static final byte END = 2;
+    public static final byte ERROR = 3;
+    public static final byte HEARTBEAT = 4;
+    public static final byte ACK = 5;
+
+    public static final int HEADER_BYTES = 13;
+    private static final int DATA_PREFIX_BYTES = "data:".length();
+    private static final int FRAME_END_BYTES = "\n\n".length();
+
+    private AgentSocketFrame() {
+    }
+
+    /**
+     * 事件帧，回放缓冲中的帧格式为 "id:N\ndata:json\n\n"
+     */
+    public static ByteBuffer event(int channel, ReplayBuffer.Frame frame) {
+        byte[] bytes = frame.getBytes();
+        int start = 0;
+        while (start < bytes.length && bytes[start] != '\n') {
+            start++;
+        }
+        start += 1 + DATA_PREFIX_BYTES;
+        int length = Math.max(bytes.length - FRAME_END_BYTES - start, 0);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + length);
+        buffer.put(EVENT).putInt(channel).putLong(frame.getId());
+        buffer.put(bytes, Math.min(start, bytes.length), length);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 控制帧：结束、错误、心跳、确认
+     */
+    public static ByteBuffer control(byte type, int channel, long eventId, String message) {
+        byte[] payload = Objects.isNull(message) ? new byte[0] : message.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        buffer.put(type).putInt(channel).putLong(eventId).put(payload);
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,195 @@
+package com.jd.genie.websocket;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.jd.genie.agent.printer.SseStreamSession;
+import com.jd.genie.agent.util.ThreadUtil;
+import com.jd.genie.config.GenieConfig;
+import com.jd.genie.model.req.AgentRequest;
+import com.jd.genie.service.AgentRunService;
+import com.jd.genie.util.SseSessionRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.Session;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WebSocket 连接管理与控制指令处理
+ * 控制指令（文本 json）：
+ * run    {"op":"run","channel":1,"request":{...AgentRequest}}  执行智能体，输出挂载到通道
+ * resume {"op":"resume","channel":2,"requestId":"...","lastEventId":10}  从断点续传
+ * cancel {"op":"cancel","channel":1}  取消通道对应的请求
+ * detach {"op":"detach","channel":1}  卸载通道，任务继续执行，可稍后 resume
+ * 输出会话与 SSE 共用 SseSessionRegistry，WebSocket 发起的请求也可通过 /AutoAgent/resume 重连，反之亦然
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "autobots.autoagent.ws.enabled", havingValue = "true")
+public class AgentSocketHub {
+    private final GenieConfig genieConfig;
+    private final AgentRunService agentRunService;
+    private final SseSessionRegistry sseSessionRegistry;
+
+    private final Map<String, AgentSocketConnection> connections = new ConcurrentHashMap<>();
+    private ScheduledExecutorService heartbeat;
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong resumes = new AtomicLong();
+    private final AtomicLong cancels = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        heartbeat = Executors.newSingleThreadScheduledExecutor(
+                new BasicThreadFactory.Builder().namingPattern("ws-heartbeat-%d").daemon(true).build());
+        long interval = genieConfig.getSseHeartbeatIntervalMs();
+        heartbeat.scheduleWithFixedDelay(this::beat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        heartbeat.shutdownNow();
+        connections.values().forEach(AgentSocketConnection::close);
+        connections.clear();
+    }
+
+    public AgentSocketConnection open(Session ws, String username) {
+        ws.setMaxTextMessageBufferSize(genieConfig.getWsMaxTextMessageBytes());
+        AgentSocketConnection connection = new AgentSocketConnection(ws, username, genieConfig.getWsMaxPendingBytes());
+        connections.put(connection.getId(), connection);
+        opened.incrementAndGet();
+        return connection;
+    }
+
+    public void close(AgentSocketConnection connection) {
+        if (connections.remove(connection.getId(), connection)) {
+            connection.close();
+        }
+    }
+
+    /**
+     * 控制指令在业务线程池中处理，不占用容器 IO 线程
+     */
+    public void handle(AgentSocketConnection connection, String text) {
+        ThreadUtil.execute(() -> {
+            int channelId = 0;
+            try {
+                JSONObject command = JSON.parseObject(text);
+                channelId = command.getIntValue("channel");
+                String op = command.getString("op");
+                switch (StringUtils.defaultString(op)) {
+                    case "run":
+                        run(connection, channelId, command.getObject("request", AgentRequest.class));
+                        break;
+                    case "resume":
+                        resume(connection, channelId, command.getString("requestId"), command.getLongValue("lastEventId"));
+                        break;
+                    case "cancel":
+                        cancel(connection, channelId);
+                        break;
+                    case "detach":
+                        connection.detach(channelId);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知指令: " + op);
+                }
+            } catch (Exception e) {
+                errors.incrementAndGet();
+                log.warn("{} websocket command failed: {}", connection.getId(), e.getMessage());
+                connection.sendControl(AgentSocketFrame.ERROR, channelId, e.getMessage());
+            }
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int channels = 0;
+        for (AgentSocketConnection connection : connections.values()) {
+            channels += connection.getChannelCount();
+        }
+        stats.put("connections", connections.size());
+        stats.put("channels", channels);
+        stats.put("opened", opened.get());
+        stats.put("runs", runs.get());
+        stats.put("resumes", resumes.get());
+        stats.put("cancels", cancels.get());
+        stats.put("errors", errors.get());
+        stats.put("framesSent", AgentSocketConnection.framesSent.get());
+        stats.put("bytesSent", AgentSocketConnection.bytesSent.get());
+        stats.put("pauses", AgentSocketConnection.pauses.get());
+        return stats;
+    }
+
+    private void run(AgentSocketConnection connection, int channelId, AgentRequest request) {
+        if (Objects.isNull(request) || StringUtils.isBlank(request.getRequestId())) {
+            throw new IllegalArgumentException("requestId不能为空");
+        }
+        checkChannels(connection, channelId);
+        log.info("{} websocket auto agent request: {}", request.getRequestId(), JSON.toJSONString(request));
+        SseStreamSession session = sseSessionRegistry.open(request.getRequestId(), connection.getUsername());
+        connection.sendControl(AgentSocketFrame.ACK, channelId, request.getRequestId());
+        connection.attach(channelId, session, 0);
+        agentRunService.start(request, connection.getUsername(), session);
+        runs.incrementAndGet();
+    }
+
+    private void resume(AgentSocketConnection connection, int channelId, String requestId, long lastEventId) {
+        checkChannels(connection, channelId);
+        SseStreamSession session = sseSessionRegistry.resume(requestId, connection.getUsername());
+        if (Objects.isNull(session)) {
+            throw new RuntimeException("会话不存在或已过期");
+        }
+        log.info("{} websocket auto agent resume after event {}", requestId, lastEventId);
+        connection.sendControl(AgentSocketFrame.ACK, channelId, requestId);
+        connection.attach(channelId, session, lastEventId);
+        resumes.incrementAndGet();
+    }
+
+    private void cancel(AgentSocketConnection connection, int channelId) {
+        AgentSocketConnection.Channel channel = connection.getChannel(channelId);
+        if (Objects.isNull(channel)) {
+            throw new RuntimeException("通道不存在");
+        }
+        agentRunService.cancel(channel.getSession().getRequestId(), connection.getUsername());
+        cancels.incrementAndGet();
+    }
+
+    private void checkChannels(AgentSocketConnection connection, int channelId) {
+        if (Objects.isNull(connection.getChannel(channelId)) && connection.getChannelCount() >= genieConfig.getWsMaxChannels()) {
+            throw new RuntimeException("通道数超过上限");
+        }
+    }
+
+    /**
+     * 一个间隔内没有写出的连接发送心跳帧
+     */
+    private void beat() {
+        try {
+            long now = System.currentTimeMillis();
+            long interval = genieConfig.getSseHeartbeatIntervalMs();
+            for (AgentSocketConnection connection : connections.values()) {
+                if (now - connection.getLastWriteAt() >= interval) {
+                    connection.sendControl(AgentSocketFrame.HEARTBEAT, 0, null);
+                }
+            }
+        } catch (Exception e) {
+            log.error("websocket heartbeat error", e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.jd.genie.agent.printer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReplayBufferTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void framesCarryIncreasingIds() {
+        try (ReplayBuffer buffer = new ReplayBuffer(16, 1 << 20, 1 << 20, dir)) {
+            assertEquals(0, buffer.lastId());
+            assertEquals(1, buffer.append(data(1)));
+            assertEquals(2, buffer.append(data(2)));
+
+            List<ReplayBuffer.Frame> frames = buffer.read(0, 10);
+            assertEquals(2, frames.size());
+            assertEquals("id:1\ndata:event-1\n\n", text(frames.get(0)));
+            assertEquals("id:2\ndata:event-2\n\n", text(frames.get(1)));
+            assertEquals(2, buffer.lastId());
+        }
+    }
+
+    @Test
+    public void framesBeyondMemoryLimitSpillAndReplayInOrder() throws Exception {
+        try (ReplayBuffer buffer = new ReplayBuffer(4, 1 << 20, 1 << 20, dir)) {
+            for (int i = 1; i <= 20; i++) {
+                buffer.append(data(i));
+            }
+            assertTrue(buffer.getSpillBytes() > 0);
+
+            List<ReplayBuffer.Frame> frames = buffer.read(0, 100);
+            assertEquals(20, frames.size());
+            for (int i = 0; i < 20; i++) {
+                assertEquals(i + 1, frames.get(i).getId());
+                assertEquals("id:" + (i + 1) + "\ndata:event-" + (i + 1) + "\n\n", text(frames.get(i)));
+            }
+        }
+        // 溢出文件不会遗留
+        assertEquals(0, spillFiles());
+    }
+
+    @Test
+    public void memoryByteLimitAlsoSpills() {
+        byte[] frame = data(1);
+        try (ReplayBuffer buffer = new ReplayBuffer(100, frame.length * 3L, 1 << 20, dir)) {
+            for (int i = 1; i <= 10; i++) {
+                buffer.append(data(i));
+            }
+            assertTrue(buffer.getSpillBytes() > 0);
+            assertEquals(10, buffer.read(0, 100).size());
+        }
+    }
+
+    @Test
+    public void resumeContinuesAfterLastEventId() {
+        try (ReplayBuffer buffer = new ReplayBuffer(4, 1 << 20, 1 << 20, dir)) {
+            for (int i = 1; i <= 12; i++) {
+                buffer.append(data(i));
+            }
+            // 断点落在溢出部分，续传跨越溢出文件与内存
+            List<ReplayBuffer.Frame> frames = buffer.read(5, 4);
+            assertEquals(List.of(6L, 7L, 8L, 9L), frames.stream().map(ReplayBuffer.Frame::getId).toList());
+            frames = buffer.read(9, 100);
+            assertEquals(List.of(10L, 11L, 12L), frames.stream().map(ReplayBuffer.Frame::getId).toList());
+            assertTrue(buffer.read(12, 100).isEmpty());
+        }
+    }
+
+    @Test
+    public void fullSpillDropsOldestFramesWithoutGaps() {
+        int frameBytes = "id:10\n".length() + data(10).length;
+        try (ReplayBuffer buffer = new ReplayBuffer(2, 1 << 20, frameBytes * 3L, dir)) {
+            for (int i = 1; i <= 30; i++) {
+                buffer.append(data(i));
+            }
+            List<ReplayBuffer.Frame> frames = buffer.read(0, 100);
+            assertTrue(frames.size() < 30);
+            long first = frames.get(0).getId();
+            for (int i = 0; i < frames.size(); i++) {
+                assertEquals(first + i, frames.get(i).getId());
+            }
+            assertEquals(30, frames.get(frames.size() - 1).getId());
+            // 早于最早可用事件的断点从最早可用事件开始
+            assertEquals(first, buffer.read(1, 1).get(0).getId());
+        }
+    }
+
+    @Test
+    public void closedBufferReturnsNothing() {
+        ReplayBuffer buffer = new ReplayBuffer(2, 1 << 20, 1 << 20, dir);
+        for (int i = 1; i <= 5; i++) {
+            buffer.append(data(i));
+        }
+        buffer.close();
+        assertTrue(buffer.read(0, 10).isEmpty());
+    }
+
+    private long spillFiles() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("sse-replay-")).count();
+        }
+    }
+
+    private static byte[] data(int i) {
+        return ("data:event-" + i + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(ReplayBuffer.Frame frame) {
+        return new String(frame.getBytes(), StandardCharsets.UTF_8);
+    }
+}
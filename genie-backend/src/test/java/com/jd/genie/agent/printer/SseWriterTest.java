@@ -0,0 +1,123 @@
+package com.jd.genie.agent.printer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jd.genie.agent.util.SpringContextHolder;
+import com.jd.genie.config.GenieConfig;
+import com.jd.genie.model.response.AgentResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * SSE 写入器：增量合并（不修改原事件）、积压上限（增量丢弃、其他事件超过两倍容量时结束输出）
+ */
+public class SseWriterTest {
+    private static final int CAPACITY = 4;
+
+    private final CountDownLatch publishing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> published = new CopyOnWriteArrayList<>();
+    private SseStreamSession session;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        GenieConfig genieConfig = mock(GenieConfig.class);
+        when(genieConfig.getSseWriterQueueSize()).thenReturn(CAPACITY);
+        when(genieConfig.getSseEncoderThreads()).thenReturn(1);
+        ObjectProvider<ObjectMapper> mapper = mock(ObjectProvider.class);
+        when(mapper.getIfAvailable(any())).thenReturn(new ObjectMapper());
+        ApplicationContext context = mock(ApplicationContext.class);
+        when(context.getBean(GenieConfig.class)).thenReturn(genieConfig);
+        when(context.getBeanProvider(ObjectMapper.class)).thenReturn(mapper);
+        new SpringContextHolder().setApplicationContext(context);
+
+        // 第一帧发布时卡住编码线程，后续事件在队列中积压
+        session = mock(SseStreamSession.class);
+        when(session.getRequestId()).thenReturn("req-1");
+        doAnswer(invocation -> {
+            published.add(new String((byte[]) invocation.getArgument(0), StandardCharsets.UTF_8));
+            publishing.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return (long) published.size();
+        }).when(session).publish(any());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    public void queuedDeltasAreCoalesced() throws Exception {
+        SseWriter writer = new SseWriter(session);
+        writer.onEvent(event("m0", "result", false, "start"));
+        assertTrue(publishing.await(5, TimeUnit.SECONDS));
+        AgentResponse first = event("m1", "agent_stream", false, "a");
+        writer.onEvent(first);
+        writer.onEvent(event("m1", "agent_stream", false, "b"));
+        writer.onEvent(event("m1", "agent_stream", false, "c"));
+        writer.onEvent(event("m1", "agent_stream", true, "abc"));
+        writer.onClose();
+        release.countDown();
+
+        verify(session, timeout(5000)).finish();
+        assertEquals(3, published.size());
+        assertTrue(published.get(1).contains("\"result\":\"abc\""), published.get(1));
+        assertTrue(published.get(2).contains("\"isFinal\":true"), published.get(2));
+        // 合并写在副本上，其他监听器持有的事件对象不变
+        assertEquals("a", first.getResult());
+    }
+
+    @Test
+    public void backlogBeyondHardBoundClosesStream() throws Exception {
+        long overflowed = ((Number) SseWriter.getStats().get("overflowed")).longValue();
+        SseWriter writer = new SseWriter(session);
+        writer.onEvent(event("m0", "result", false, "start"));
+        assertTrue(publishing.await(5, TimeUnit.SECONDS));
+
+        // 增量积压到容量后丢弃，其他事件积压到两倍容量
+        for (int i = 0; i < CAPACITY + 2; i++) {
+            writer.onEvent(event("d" + i, "agent_stream", false, "x"));
+        }
+        for (int i = 0; i < CAPACITY; i++) {
+            writer.onEvent(event("r" + i, "result", false, "y"));
+        }
+        assertEquals(overflowed, ((Number) SseWriter.getStats().get("overflowed")).longValue());
+        // 超出硬上限：丢弃积压并结束输出，之后的事件不再入队
+        writer.onEvent(event("r-over", "result", false, "z"));
+        writer.onEvent(event("r-late", "result", false, "z"));
+        assertEquals(overflowed + 1, ((Number) SseWriter.getStats().get("overflowed")).longValue());
+        release.countDown();
+
+        verify(session, timeout(5000)).finish();
+        assertEquals(1, published.size());
+    }
+
+    private static AgentResponse event(String messageId, String messageType, boolean isFinal, String result) {
+        return AgentResponse.builder()
+                .requestId("req-1")
+                .messageId(messageId)
+                .messageType(messageType)
+                .isFinal(isFinal)
+                .result(result)
+                .build();
+    }
+}
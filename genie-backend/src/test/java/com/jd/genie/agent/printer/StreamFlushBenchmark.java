@@ -0,0 +1,101 @@
+package com.jd.genie.agent.printer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jd.genie.model.response.AgentResponse;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 流式刷新策略对比：按条数（原 message_interval "1,3"）与按时间/字节微批
+ * 以虚拟时钟模拟不同的 token 速度，统计每秒事件数、平均每事件字节数，以及事件序列化的 CPU 耗时
+ * 运行：java -cp <test-classpath> com.jd.genie.agent.printer.StreamFlushBenchmark
+ */
+public class StreamFlushBenchmark {
+    private static final int TOKENS = 20000;
+    private static final int[] TOKENS_PER_SECOND = {10, 30, 100, 300, 1000};
+    private static final String[] SAMPLE_TOKENS = {"分析", "the", " market", "，", "数据", " growth", "显示", "2024", "年", " revenue"};
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        // 预热
+        for (int i = 0; i < 3; i++) {
+            run("warmup", 100, true);
+            run("warmup", 100, false);
+        }
+        System.out.printf("%-10s %-10s %12s %12s %14s %12s%n", "tok/s", "policy", "events/s", "bytes/event", "cpu us/token", "events");
+        for (int speed : TOKENS_PER_SECOND) {
+            print(run("count 1,3", speed, false), speed);
+            print(run("time", speed, true), speed);
+        }
+    }
+
+    private static Result run(String name, int tokensPerSecond, boolean timeBased) throws Exception {
+        long[] now = {0};
+        long stepNanos = 1_000_000_000L / tokensPerSecond;
+        StreamFlushPolicy policy = new StreamFlushPolicy(60, 512, true, () -> now[0] / 1_000_000);
+        StringBuilder buffer = new StringBuilder();
+        Result result = new Result(name);
+        long cpuStart = threadMXBean.getCurrentThreadCpuTime();
+        for (int index = 1; index <= TOKENS; index++) {
+            now[0] += stepNanos;
+            String token = SAMPLE_TOKENS[index % SAMPLE_TOKENS.length];
+            buffer.append(token);
+            boolean flush = timeBased ? policy.append(token) : (index == 1 || index % 3 == 0);
+            if (flush) {
+                result.bytes += encode(buffer.toString()).length;
+                result.events++;
+                buffer.setLength(0);
+                policy.flushed();
+            }
+        }
+        if (buffer.length() > 0) {
+            result.bytes += encode(buffer.toString()).length;
+            result.events++;
+        }
+        result.cpuNanos = threadMXBean.getCurrentThreadCpuTime() - cpuStart;
+        result.seconds = now[0] / 1e9;
+        return result;
+    }
+
+    /**
+     * 与 SseWriter 相同的编码方式
+     */
+    private static byte[] encode(String delta) throws Exception {
+        Map<String, Object> resultMap = new HashMap<>();
+        resultMap.put("agentType", 5);
+        AgentResponse response = AgentResponse.builder()
+                .requestId("bench-request")
+                .messageId("bench-message")
+                .messageType("agent_stream")
+                .messageTime(String.valueOf(System.currentTimeMillis()))
+                .resultMap(resultMap)
+                .finish(false)
+                .isFinal(false)
+                .result(delta)
+                .build();
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private static void print(Result result, int speed) {
+        System.out.printf("%-10d %-10s %12.1f %12.1f %14.2f %12d%n", speed, result.name,
+                result.events / result.seconds, (double) result.bytes / result.events,
+                result.cpuNanos / 1000.0 / TOKENS, result.events);
+    }
+
+    private static class Result {
+        private final String name;
+        private long events;
+        private long bytes;
+        private long cpuNanos;
+        private double seconds;
+
+        Result(String name) {
+            this.name = name;
+        }
+    }
+}
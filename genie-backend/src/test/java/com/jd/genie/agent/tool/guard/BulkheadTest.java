@@ -0,0 +1,63 @@
+package com.jd.genie.agent.tool.guard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BulkheadTest {
+
+    @Test
+    public void rejectsWhenQueueIsFull() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 0, 1000);
+        assertTrue(bulkhead.acquire());
+        assertEquals(1, bulkhead.getInflight());
+        assertFalse(bulkhead.acquire());
+        assertEquals(0, bulkhead.getWaiting());
+        bulkhead.release();
+        assertEquals(0, bulkhead.getInflight());
+    }
+
+    @Test
+    public void queuedCallerTimesOut() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 1, 50);
+        assertTrue(bulkhead.acquire());
+        long start = System.nanoTime();
+        assertFalse(bulkhead.acquire());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 40);
+        assertEquals(0, bulkhead.getWaiting());
+    }
+
+    @Test
+    public void queuedCallerGetsReleasedPermit() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 1, 5000);
+        assertTrue(bulkhead.acquire());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            Future<Boolean> queued = executor.submit(() -> {
+                started.countDown();
+                return bulkhead.acquire();
+            });
+            started.await();
+            while (bulkhead.getWaiting() == 0) {
+                Thread.sleep(1);
+            }
+            // 排队名额已被占用，再来的调用直接拒绝
+            assertFalse(bulkhead.acquire());
+            bulkhead.release();
+            assertTrue(queued.get(5, TimeUnit.SECONDS));
+            assertEquals(1, bulkhead.getInflight());
+            assertEquals(0, bulkhead.getWaiting());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.jd.genie.agent.tool.guard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void staysClosedBelowMinCalls() {
+        CircuitBreaker breaker = new CircuitBreaker(0.5, 4, 10, 60);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.allow());
+            breaker.record(false);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void opensWhenFailureRateReachesThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker(0.5, 4, 10, 60);
+        breaker.record(true);
+        breaker.record(true);
+        breaker.record(false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.record(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allow());
+        assertTrue(breaker.remainingOpenMs() > 0);
+    }
+
+    @Test
+    public void slidingWindowForgetsOldFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(0.5, 4, 4, 60);
+        breaker.record(false);
+        breaker.record(true);
+        breaker.record(true);
+        breaker.record(true);
+        // 窗口满后最早的失败被挤出
+        breaker.record(true);
+        assertEquals(0.0, breaker.failureRate());
+        breaker.record(false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenAllowsSingleTrialAndClosesOnSuccess() {
+        CircuitBreaker breaker = new CircuitBreaker(0.5, 2, 10, 0);
+        breaker.record(false);
+        breaker.record(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // 熔断时长为 0，下一次调用即进入半开试探
+        assertTrue(breaker.allow());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allow());
+        breaker.record(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0.0, breaker.failureRate());
+    }
+
+    @Test
+    public void failedTrialReopens() {
+        CircuitBreaker breaker = new CircuitBreaker(0.5, 2, 10, 0);
+        breaker.record(false);
+        breaker.record(false);
+        assertTrue(breaker.allow());
+        breaker.record(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void cancelReturnsTrialPermit() {
+        CircuitBreaker breaker = new CircuitBreaker(0.5, 2, 10, 0);
+        breaker.record(false);
+        breaker.record(false);
+        assertTrue(breaker.allow());
+        assertFalse(breaker.allow());
+        breaker.cancel();
+        assertTrue(breaker.allow());
+    }
+}
@@ -0,0 +1,159 @@
+package com.jd.genie.handler;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jd.genie.model.multi.EventMessage;
+import com.jd.genie.model.multi.EventResult;
+import com.jd.genie.model.req.AgentRequest;
+import com.jd.genie.model.response.AgentResponse;
+import com.jd.genie.model.response.GptProcessResult;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 增量协议转换对比：原 fastjson 序列化往返映射与按字段直接映射
+ * 模拟一次多智能体任务的事件序列（task + 流式 markdown/tool_thought + tool_result），
+ * 统计每事件耗时与分配字节，两种方式最终都按 SseEmitter 的方式以 Jackson 编码
+ * 运行：java -cp <test-classpath> com.jd.genie.handler.AgentResponseHandlerBenchmark
+ */
+public class AgentResponseHandlerBenchmark {
+    private static final int TASKS = 200;
+    private static final int DELTAS_PER_TASK = 50;
+    private static final int ROUNDS = 5;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        List<AgentResponse> events = buildEvents();
+        AgentRequest request = new AgentRequest();
+        request.setRequestId("bench-request");
+        ReactAgentResponseHandler handler = new ReactAgentResponseHandler();
+
+        // 预热
+        for (int i = 0; i < 3; i++) {
+            runLegacy(request, events);
+            runTyped(handler, request, events);
+        }
+        System.out.printf("%-8s %14s %16s %14s%n", "mode", "ns/event", "alloc B/event", "bytes/event");
+        for (int i = 0; i < ROUNDS; i++) {
+            print(runLegacy(request, events), events.size());
+            print(runTyped(handler, request, events), events.size());
+        }
+    }
+
+    private static Result runTyped(ReactAgentResponseHandler handler, AgentRequest request, List<AgentResponse> events) throws Exception {
+        Result result = new Result("typed");
+        EventResult eventResult = new EventResult();
+        long alloc = threadMXBean.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (AgentResponse event : events) {
+            GptProcessResult processResult = handler.handle(request, event, null, eventResult);
+            result.bytes += objectMapper.writeValueAsBytes(processResult).length;
+        }
+        result.nanos = System.nanoTime() - start;
+        result.alloc = threadMXBean.getCurrentThreadAllocatedBytes() - alloc;
+        return result;
+    }
+
+    /**
+     * 原实现中的映射方式：AgentResponse 与 EventMessage 各经一次 fastjson 序列化与解析
+     */
+    private static Result runLegacy(AgentRequest request, List<AgentResponse> events) throws Exception {
+        Result result = new Result("legacy");
+        Map<String, Object> replay = new HashMap<>();
+        List<Object> subTasks = new ArrayList<>();
+        replay.put("tasks", subTasks);
+        long alloc = threadMXBean.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (AgentResponse event : events) {
+            GptProcessResult processResult = new GptProcessResult();
+            processResult.setReqId(request.getRequestId());
+            processResult.setStatus("running");
+            EventMessage message = EventMessage.builder()
+                    .messageId(event.getMessageId())
+                    .messageType("task")
+                    .messageOrder(1)
+                    .build();
+            message.setResultMap(JSON.parseObject(JSONObject.toJSONString(event)));
+            if (Boolean.TRUE.equals(event.getIsFinal())) {
+                subTasks.add(message.getResultMap());
+            }
+            Map<String, Object> resultMap = new HashMap<>();
+            resultMap.put("agentType", "5");
+            resultMap.put("multiAgent", new HashMap<>());
+            resultMap.put("eventData", JSONObject.parseObject(JSON.toJSONString(message)));
+            processResult.setResultMap(resultMap);
+            result.bytes += objectMapper.writeValueAsBytes(processResult).length;
+        }
+        result.nanos = System.nanoTime() - start;
+        result.alloc = threadMXBean.getCurrentThreadAllocatedBytes() - alloc;
+        return result;
+    }
+
+    private static List<AgentResponse> buildEvents() {
+        List<AgentResponse> events = new ArrayList<>();
+        for (int task = 0; task < TASKS; task++) {
+            events.add(event("task", task, true).task("执行第" + task + "个任务：检索并整理市场数据").build());
+            for (int delta = 0; delta < DELTAS_PER_TASK; delta++) {
+                String type = delta % 2 == 0 ? "markdown" : "tool_thought";
+                AgentResponse.AgentResponseBuilder builder = event(type, task, false);
+                if ("tool_thought".equals(type)) {
+                    builder.toolThought("分析 the market growth 数据");
+                } else {
+                    Map<String, Object> resultMap = new HashMap<>();
+                    resultMap.put("agentType", 5);
+                    resultMap.put("data", "## 2024 年 revenue 增长");
+                    resultMap.put("isFinal", false);
+                    builder.resultMap(resultMap);
+                }
+                events.add(builder.build());
+            }
+            Map<String, Object> toolParam = new HashMap<>();
+            toolParam.put("query", "market growth 2024");
+            events.add(event("tool_result", task, true)
+                    .toolResult(AgentResponse.ToolResult.builder()
+                            .toolName("deep_search")
+                            .toolParam(toolParam)
+                            .toolResult("检索到 10 条相关结果")
+                            .build())
+                    .build());
+        }
+        return events;
+    }
+
+    private static AgentResponse.AgentResponseBuilder event(String messageType, int task, boolean isFinal) {
+        Map<String, Object> resultMap = new HashMap<>();
+        resultMap.put("agentType", 5);
+        return AgentResponse.builder()
+                .requestId("bench-request")
+                .messageId("bench-message-" + task + "-" + messageType)
+                .messageType(messageType)
+                .messageTime(String.valueOf(System.currentTimeMillis()))
+                .resultMap(resultMap)
+                .finish(false)
+                .isFinal(isFinal);
+    }
+
+    private static void print(Result result, int events) {
+        System.out.printf("%-8s %14.1f %16.1f %14.1f%n", result.name,
+                (double) result.nanos / events, (double) result.alloc / events, (double) result.bytes / events);
+    }
+
+    private static class Result {
+        private final String name;
+        private long nanos;
+        private long alloc;
+        private long bytes;
+
+        Result(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.jd.genie.model.multi;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jd.genie.model.response.AgentResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 增量消息按字段映射后的输出与原先 fastjson 转换后的输出一致，嵌套对象中的空字段不输出
+ */
+public class EventPayloadTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void nestedNullFieldsAreOmittedLikeFastjson() throws Exception {
+        Map<String, Object> toolParam = new HashMap<>();
+        toolParam.put("query", "genie");
+        toolParam.put("page", null);
+        Map<String, String> ext = new HashMap<>();
+        ext.put("trace", null);
+        AgentResponse response = AgentResponse.builder()
+                .requestId("req-1")
+                .messageId("m1")
+                .isFinal(true)
+                .messageType("tool_result")
+                .plan(AgentResponse.Plan.builder().title("plan").steps(Arrays.asList("a", "b")).build())
+                .toolResult(AgentResponse.ToolResult.builder().toolName("search").toolParam(toolParam).build())
+                .ext(ext)
+                .build();
+
+        EventMessage message = EventMessage.builder().messageId("m1").messageType("tool_result")
+                .resultMap(EventPayload.of(response)).build();
+        String json = objectMapper.writeValueAsString(message);
+
+        assertFalse(json.contains("null"), json);
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(baseline(message, response))),
+                objectMapper.readTree(json));
+    }
+
+    @Test
+    public void initialPlanOmitsNullFields() throws Exception {
+        AgentResponse.Plan plan = AgentResponse.Plan.builder().title("plan").steps(Arrays.asList("a", "b")).build();
+        EventMessage message = EventMessage.builder().messageId("m0").messageType("plan").messageOrder(1)
+                .resultMap(plan).build();
+        String json = objectMapper.writeValueAsString(message);
+
+        assertFalse(json.contains("null"), json);
+        assertEquals(objectMapper.readTree(JSON.toJSONString(message)), objectMapper.readTree(json));
+    }
+
+    /**
+     * 原实现：AgentResponse 与 EventMessage 各经一次 fastjson 序列化再解析
+     */
+    private static JSONObject baseline(EventMessage message, AgentResponse response) {
+        EventMessage copy = EventMessage.builder().messageId(message.getMessageId())
+                .messageType(message.getMessageType())
+                .resultMap(JSON.parseObject(JSONObject.toJSONString(response)))
+                .build();
+        return JSONObject.parseObject(JSON.toJSONString(copy));
+    }
+}
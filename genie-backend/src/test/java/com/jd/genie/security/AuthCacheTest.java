@@ -0,0 +1,193 @@
+package com.jd.genie.security;
+
+import com.jd.genie.entity.User;
+import com.jd.genie.repository.UserRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 认证缓存：令牌缓存命中、单令牌吊销、按签发时间吊销用户全部令牌、用户缓存
+ */
+public class AuthCacheTest {
+    private static final String SECRET = "auth-cache-test-secret-0123456789abcdef";
+
+    private JwtUtil jwtUtil;
+    private UserRepository userRepository;
+    private AuthCache authCache;
+
+    @BeforeEach
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3_600_000L);
+        userRepository = mock(UserRepository.class);
+        authCache = new AuthCache(jwtUtil, userRepository);
+        ReflectionTestUtils.setField(authCache, "tokenTtlMs", 300_000L);
+        ReflectionTestUtils.setField(authCache, "userTtlMs", 60_000L);
+        ReflectionTestUtils.setField(authCache, "maxEntries", 100);
+    }
+
+    @Test
+    public void validTokenIsCachedAfterFirstVerification() {
+        String token = token("alice", 0, 3600);
+        assertEquals("alice", authCache.verify(token));
+        assertEquals("alice", authCache.verify(token));
+        assertEquals(1L, authCache.getStats().get("tokenMisses"));
+        assertEquals(1L, authCache.getStats().get("tokenHits"));
+    }
+
+    @Test
+    public void invalidOrExpiredTokenIsRejected() {
+        assertNull(authCache.verify("not-a-jwt"));
+        assertNull(authCache.verify(token("alice", -7200, -3600)));
+        String forged = Jwts.builder().setSubject("alice").setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000L))
+                .signWith(Keys.hmacShaKeyFor("another-secret-0123456789abcdefghijklmn".getBytes(StandardCharsets.UTF_8)),
+                        SignatureAlgorithm.HS256)
+                .compact();
+        assertNull(authCache.verify(forged));
+        assertEquals(3L, authCache.getStats().get("tokenRejected"));
+    }
+
+    @Test
+    public void revokedTokenIsRejectedEvenWhenCached() {
+        String revoked = token("alice", -2, 3600);
+        String other = token("alice", -1, 3600);
+        assertEquals("alice", authCache.verify(revoked));
+        assertEquals("alice", authCache.verify(other));
+
+        authCache.revokeToken(revoked);
+
+        assertNull(authCache.verify(revoked));
+        // 只吊销该令牌，同一用户的其他令牌不受影响
+        assertEquals("alice", authCache.verify(other));
+        assertEquals(1, authCache.getStats().get("revokedTokens"));
+    }
+
+    @Test
+    public void invalidateUserRejectsTokensIssuedBefore() {
+        String before = token("alice", -10, 3600);
+        String otherUser = token("bob", -10, 3600);
+        assertEquals("alice", authCache.verify(before));
+
+        authCache.invalidateUser("alice");
+
+        assertNull(authCache.verify(before));
+        assertEquals("bob", authCache.verify(otherUser));
+        // 修改密码后重新签发的令牌有效
+        assertEquals("alice", authCache.verify(token("alice", 1, 3600)));
+    }
+
+    @Test
+    public void tokenIssuedEarlierInSameSecondIsRejected() throws Exception {
+        User alice = new User();
+        alice.setUsername("alice");
+        String earlier = jwtUtil.generateToken(alice);
+        // 只有秒级 iat 的令牌，签发秒与吊销时间相同
+        String secondsOnly = token("alice", 0, 3600);
+        Thread.sleep(2);
+
+        authCache.invalidateUser("alice");
+
+        assertNull(authCache.verify(earlier));
+        assertNull(authCache.verify(secondsOnly));
+        Thread.sleep(2);
+        // 同一秒内修改密码后重新登录签发的令牌有效
+        assertEquals("alice", authCache.verify(jwtUtil.generateToken(alice)));
+    }
+
+    @Test
+    public void loadRacingWithPasswordChangeIsNotCached() {
+        User stale = new User();
+        stale.setUsername("alice");
+        User fresh = new User();
+        fresh.setUsername("alice");
+        // 查库读到旧数据后、放入缓存前，另一线程修改了密码
+        when(userRepository.findByUsername("alice")).thenAnswer(invocation -> {
+            authCache.invalidateUser("alice");
+            return Optional.of(stale);
+        }).thenReturn(Optional.of(fresh));
+
+        assertSame(stale, authCache.getUser("alice").orElseThrow());
+        assertEquals(0, authCache.getStats().get("users"));
+        assertSame(fresh, authCache.getUser("alice").orElseThrow());
+        assertSame(fresh, authCache.getUser("alice").orElseThrow());
+        verify(userRepository, times(2)).findByUsername("alice");
+    }
+
+    @Test
+    public void userIsLoadedOnceUntilEvicted() {
+        User alice = new User();
+        alice.setUsername("alice");
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(alice));
+
+        assertSame(alice, authCache.getUser("alice").orElseThrow());
+        assertSame(alice, authCache.getUser("alice").orElseThrow());
+        verify(userRepository, times(1)).findByUsername("alice");
+
+        authCache.invalidateUser("alice");
+        authCache.getUser("alice");
+        verify(userRepository, times(2)).findByUsername("alice");
+
+        authCache.evictUser("alice");
+        authCache.getUser("alice");
+        verify(userRepository, times(3)).findByUsername("alice");
+    }
+
+    @Test
+    public void missingUserIsNotCached() {
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+        assertEquals(Optional.empty(), authCache.getUser("ghost"));
+        assertEquals(Optional.empty(), authCache.getUser("ghost"));
+        verify(userRepository, times(2)).findByUsername("ghost");
+    }
+
+    @Test
+    public void leastRecentlyUsedTokenIsEvicted() {
+        ReflectionTestUtils.setField(authCache, "maxEntries", 2);
+        String first = token("a", 0, 3600);
+        String second = token("b", 0, 3600);
+        String third = token("c", 0, 3600);
+        authCache.verify(first);
+        authCache.verify(second);
+        authCache.verify(first);
+        authCache.verify(third);
+        assertEquals(2, authCache.getStats().get("tokens"));
+
+        long misses = (Long) authCache.getStats().get("tokenMisses");
+        authCache.verify(first);
+        assertEquals(misses, authCache.getStats().get("tokenMisses"));
+        // second 最久未访问，已被淘汰
+        authCache.verify(second);
+        assertEquals(misses + 1, authCache.getStats().get("tokenMisses"));
+    }
+
+    /**
+     * 以相对当前时间的秒数签发令牌
+     */
+    private static String token(String username, long issuedAtOffsetSeconds, long expiresInSeconds) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setSubject(username)
+                .setIssuedAt(new Date(now + issuedAtOffsetSeconds * 1000))
+                .setExpiration(new Date(now + expiresInSeconds * 1000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()), SignatureAlgorithm.HS256)
+                .compact();
+    }
+}
@@ -0,0 +1,309 @@
+package com.jd.genie.service;
+
+import com.jd.genie.config.GenieConfig;
+import com.jd.genie.repository.ChatMessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 聊天消息批量写入：序号分配、失败重试与逐条隔离、会话计数与时间单调更新、未确认写入上报、关闭交给写入线程，使用 H2 内存库
+ */
+public class ChatMessageWriterTest {
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private GenieConfig genieConfig;
+    private ChatMessageRepository repository;
+    private FlakyJdbcTemplate writerJdbc;
+    private ChatMessageWriter writer;
+
+    @BeforeEach
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE chat_sessions (id BIGINT PRIMARY KEY, message_count INT, "
+                + "last_message_at TIMESTAMP, updated_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE chat_messages (id BIGINT AUTO_INCREMENT PRIMARY KEY, session_id BIGINT NOT NULL, "
+                + "role VARCHAR(32) NOT NULL, content VARCHAR(1024) NOT NULL, message_order INT, created_at TIMESTAMP, "
+                + "UNIQUE (session_id, message_order))");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        writerJdbc = new FlakyJdbcTemplate(dataSource);
+
+        genieConfig = mock(GenieConfig.class);
+        when(genieConfig.getChatStoreBatchSize()).thenReturn(200);
+        when(genieConfig.getChatStoreFlushIntervalMs()).thenReturn(20L);
+        when(genieConfig.getChatStoreMaxRetries()).thenReturn(2);
+        when(genieConfig.getChatStoreAwaitTimeoutMs()).thenReturn(5000L);
+
+        repository = mock(ChatMessageRepository.class);
+        when(repository.backfillSessionCounters()).thenReturn(0);
+        when(repository.findMaxMessageOrder(anyLong())).thenAnswer(invocation -> jdbcTemplate.queryForObject(
+                "SELECT MAX(message_order) FROM chat_messages WHERE session_id = ?", Integer.class, (Long) invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (writer != null) {
+            writer.destroy();
+        }
+    }
+
+    @Test
+    public void ordersContinueFromStoredMaximum() {
+        createSession(1L, 3);
+        for (int i = 0; i < 3; i++) {
+            jdbcTemplate.update("INSERT INTO chat_messages (session_id, role, content, message_order, created_at) VALUES (?, ?, ?, ?, ?)",
+                    1L, "user", "old-" + i, i, Timestamp.valueOf(LocalDateTime.now()));
+        }
+        startWriter();
+
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < 3; i++) {
+            last = writer.append(1L, "assistant", "new-" + i);
+        }
+        writer.await(last);
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), orders(1L));
+        assertEquals(List.of("new-0", "new-1", "new-2"), jdbcTemplate.queryForList(
+                "SELECT content FROM chat_messages WHERE session_id = 1 AND message_order >= 3 ORDER BY message_order", String.class));
+        assertEquals(6, messageCount(1L));
+    }
+
+    @Test
+    public void concurrentAppendsGetDistinctContiguousOrders() throws Exception {
+        createSession(1L, 0);
+        createSession(2L, 0);
+        startWriter();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<CompletableFuture<Void>>>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long sessionId = t % 2 + 1;
+                futures.add(executor.submit(() -> {
+                    List<CompletableFuture<Void>> acks = new ArrayList<>();
+                    for (int i = 0; i < 50; i++) {
+                        acks.add(writer.append(sessionId, "user", "m" + i));
+                    }
+                    return acks;
+                }));
+            }
+            for (Future<List<CompletableFuture<Void>>> future : futures) {
+                CompletableFuture.allOf(future.get().toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Integer> expected = IntStream.range(0, 200).boxed().toList();
+        assertEquals(expected, orders(1L));
+        assertEquals(expected, orders(2L));
+        assertEquals(200, messageCount(1L));
+        assertEquals(200, messageCount(2L));
+    }
+
+    @Test
+    public void failedBatchIsRetried() {
+        createSession(1L, 0);
+        writerJdbc.failures.set(2);
+        startWriter();
+
+        CompletableFuture<Void> first = writer.append(1L, "user", "a");
+        CompletableFuture<Void> second = writer.append(1L, "assistant", "b");
+        writer.await(second);
+
+        assertEquals(true, first.isDone() && !first.isCompletedExceptionally());
+        assertEquals(List.of(0, 1), orders(1L));
+        assertEquals(2, messageCount(1L));
+        assertEquals(2L, writer.getStats().get("retries"));
+        assertEquals(0L, writer.getStats().get("failed"));
+    }
+
+    @Test
+    public void failingMessageIsIsolatedAfterRetries() throws Exception {
+        createSession(1L, 0);
+        // 攒批窗口足够长，三条消息进入同一批
+        when(genieConfig.getChatStoreFlushIntervalMs()).thenReturn(200L);
+        when(genieConfig.getChatStoreBatchSize()).thenReturn(3);
+        writerJdbc.poison = "bad";
+        startWriter();
+
+        CompletableFuture<Void> ok1 = writer.append(1L, "user", "ok-1");
+        CompletableFuture<Void> bad = writer.append(1L, "assistant", "bad");
+        CompletableFuture<Void> ok2 = writer.append(1L, "user", "ok-2");
+
+        ok1.get(10, TimeUnit.SECONDS);
+        ok2.get(10, TimeUnit.SECONDS);
+        ExecutionException error = assertThrows(ExecutionException.class, () -> bad.get(10, TimeUnit.SECONDS));
+        assertEquals("poisoned row", error.getCause().getMessage());
+        assertThrows(RuntimeException.class, () -> writer.await(bad));
+
+        assertEquals(List.of(0, 2), orders(1L));
+        assertEquals(2, messageCount(1L));
+        assertEquals(1L, writer.getStats().get("failed"));
+    }
+
+    @Test
+    public void updatedAtNeverMovesBackwards() {
+        // 模拟重命名等操作把 updated_at 写成了比消息更晚的时间
+        LocalDateTime renamedAt = LocalDateTime.now().plusDays(1).withNano(0);
+        createSession(1L, 0);
+        jdbcTemplate.update("UPDATE chat_sessions SET updated_at = ? WHERE id = 1", Timestamp.valueOf(renamedAt));
+        createSession(2L, 0);
+        startWriter();
+
+        writer.await(writer.append(1L, "user", "a"));
+        writer.await(writer.append(2L, "user", "b"));
+
+        Map<String, Object> renamed = session(1L);
+        assertEquals(Timestamp.valueOf(renamedAt), renamed.get("UPDATED_AT"));
+        assertEquals(1, ((Number) renamed.get("MESSAGE_COUNT")).intValue());
+        assertEquals(true, ((Timestamp) renamed.get("LAST_MESSAGE_AT")).before(Timestamp.valueOf(renamedAt)));
+
+        // 原先为空或更早的 updated_at 前进到最后一条消息的时间
+        Map<String, Object> touched = session(2L);
+        assertEquals(touched.get("LAST_MESSAGE_AT"), touched.get("UPDATED_AT"));
+    }
+
+    @Test
+    public void lastMessageAtNeverMovesBackwards() {
+        // 模拟更晚的消息已由其他写入（如逐条重写前的批次）推进了 last_message_at
+        LocalDateTime laterMessageAt = LocalDateTime.now().plusDays(1).withNano(0);
+        createSession(1L, 0);
+        jdbcTemplate.update("UPDATE chat_sessions SET last_message_at = ? WHERE id = 1", Timestamp.valueOf(laterMessageAt));
+        startWriter();
+
+        writer.await(writer.append(1L, "user", "a"));
+
+        Map<String, Object> row = session(1L);
+        assertEquals(Timestamp.valueOf(laterMessageAt), row.get("LAST_MESSAGE_AT"));
+        assertEquals(1, ((Number) row.get("MESSAGE_COUNT")).intValue());
+    }
+
+    @Test
+    public void unconfirmedWriteIsReportedToCaller() throws Exception {
+        createSession(1L, 0);
+        when(genieConfig.getChatStoreAwaitTimeoutMs()).thenReturn(100L);
+        writerJdbc.gate = new CountDownLatch(1);
+        startWriter();
+
+        CompletableFuture<Void> ack = writer.append(1L, "user", "slow");
+        RuntimeException error = assertThrows(RuntimeException.class, () -> writer.await(ack));
+        assertEquals("消息保存超时，写入尚未确认", error.getMessage());
+
+        // 超时不丢消息，写入恢复后仍会提交
+        writerJdbc.gate.countDown();
+        ack.get(10, TimeUnit.SECONDS);
+        assertEquals(List.of(0), orders(1L));
+    }
+
+    @Test
+    public void shutdownWaitsForFlusherInsteadOfWritingConcurrently() throws Exception {
+        createSession(1L, 0);
+        writerJdbc.gate = new CountDownLatch(1);
+        startWriter();
+
+        List<CompletableFuture<Void>> acks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            acks.add(writer.append(1L, "user", "m" + i));
+        }
+        Thread closer = new Thread(writer::destroy);
+        closer.start();
+        closer.join(300);
+        // 写入线程卡住时关闭方等待，不另行写入
+        assertTrue(closer.isAlive());
+        assertEquals(List.of(), orders(1L));
+
+        writerJdbc.gate.countDown();
+        closer.join(10_000);
+        assertFalse(closer.isAlive());
+        CompletableFuture.allOf(acks.toArray(new CompletableFuture[0])).get(1, TimeUnit.SECONDS);
+        assertEquals(List.of(0, 1, 2, 3, 4), orders(1L));
+        assertEquals(5, messageCount(1L));
+        writer = null;
+    }
+
+    private void startWriter() {
+        writer = new ChatMessageWriter(genieConfig, writerJdbc, transactionTemplate, repository);
+        writer.init();
+    }
+
+    private void createSession(long id, int messageCount) {
+        jdbcTemplate.update("INSERT INTO chat_sessions (id, message_count) VALUES (?, ?)", id, messageCount);
+    }
+
+    private List<Integer> orders(long sessionId) {
+        return jdbcTemplate.queryForList("SELECT message_order FROM chat_messages WHERE session_id = ? ORDER BY message_order",
+                Integer.class, sessionId);
+    }
+
+    private int messageCount(long sessionId) {
+        return jdbcTemplate.queryForObject("SELECT message_count FROM chat_sessions WHERE id = ?", Integer.class, sessionId);
+    }
+
+    private Map<String, Object> session(long sessionId) {
+        return jdbcTemplate.queryForMap("SELECT * FROM chat_sessions WHERE id = ?", sessionId);
+    }
+
+    /**
+     * 可注入失败的 JdbcTemplate：前 failures 次批量写入失败，或批量中含 poison 内容的消息时失败；gate 不为空时写入等待放行
+     */
+    private static class FlakyJdbcTemplate extends JdbcTemplate {
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile String poison;
+        private volatile CountDownLatch gate;
+
+        FlakyJdbcTemplate(DriverManagerDataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            if (sql.startsWith("INSERT INTO chat_messages")) {
+                if (gate != null) {
+                    try {
+                        gate.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (failures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    throw new IllegalStateException("injected failure");
+                }
+                if (poison != null && batchArgs.stream().anyMatch(row -> poison.equals(row[2]))) {
+                    throw new IllegalStateException("poisoned row");
+                }
+            }
+            return super.batchUpdate(sql, batchArgs);
+        }
+    }
+}
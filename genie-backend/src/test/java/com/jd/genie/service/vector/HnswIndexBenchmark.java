@@ -0,0 +1,143 @@
+package com.jd.genie.service.vector;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * HNSW 索引与精确搜索对比：合成聚类语料（若干簇中心 + 高斯噪声），统计建图耗时、图文件加载耗时，
+ * 以及不同 efSearch 下的 recall@k 与查询延迟（平均、p99），精确结果取自 SegmentVectorStore 全量扫描
+ * 运行：java -Xmx4g -cp <test-classpath> com.jd.genie.service.vector.HnswIndexBenchmark [向量数] [维度] [M] [efConstruction]
+ */
+public class HnswIndexBenchmark {
+    private static final int QUERIES = 200;
+    private static final int TOP_K = 10;
+    private static final int CLUSTERS = 100;
+    private static final int BATCH = 1000;
+    private static final int[] EF_SEARCH = {16, 32, 64, 128, 256};
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+        int m = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int efConstruction = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+
+        Random random = new Random(42);
+        float[][] centers = new float[CLUSTERS][];
+        for (int i = 0; i < CLUSTERS; i++) {
+            centers[i] = gaussian(random, dimension, 1.0f);
+        }
+        float[][] queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = sample(random, centers);
+        }
+
+        Path dir = Files.createTempDirectory("hnsw-bench");
+        try {
+            SegmentVectorStore store = new SegmentVectorStore(dir);
+            HnswIndex index = new HnswIndex(store, dir.resolve("hnsw.graph"), m, efConstruction);
+            index.load();
+            long start = System.nanoTime();
+            List<SegmentVectorStore.Entry> batch = new ArrayList<>(BATCH);
+            for (int i = 0; i < n; i++) {
+                Map<String, Object> metadata = new HashMap<>();
+                metadata.put("knowledge_base_id", (long) (i % 4));
+                batch.add(new SegmentVectorStore.Entry("chunk-" + i, "content " + i, sample(random, centers), metadata));
+                if (batch.size() == BATCH) {
+                    index.add(batch);
+                    batch.clear();
+                }
+            }
+            index.add(batch);
+            double buildSec = (System.nanoTime() - start) / 1e9;
+            start = System.nanoTime();
+            index.saveIfDirty();
+            double saveMs = (System.nanoTime() - start) / 1e6;
+            store.close();
+
+            start = System.nanoTime();
+            store = new SegmentVectorStore(dir);
+            index = new HnswIndex(store, dir.resolve("hnsw.graph"), m, efConstruction);
+            index.load();
+            double loadMs = (System.nanoTime() - start) / 1e6;
+            System.out.printf("vectors=%d dim=%d M=%d efConstruction=%d build=%.1fs (%.0f/s) save=%.0fms load=%.0fms graph=%.1fMB%n",
+                    n, dimension, m, efConstruction, buildSec, n / buildSec, saveMs, loadMs,
+                    Files.size(dir.resolve("hnsw.graph")) / 1024.0 / 1024.0);
+
+            // 精确结果
+            List<Set<String>> truth = new ArrayList<>();
+            for (float[] query : queries) {
+                store.search(query, TOP_K, null);
+            }
+            long[] exactNanos = new long[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                long t = System.nanoTime();
+                List<SegmentVectorStore.Hit> hits = store.search(queries[i], TOP_K, null);
+                exactNanos[i] = System.nanoTime() - t;
+                Set<String> ids = new HashSet<>();
+                hits.forEach(hit -> ids.add(hit.getId()));
+                truth.add(ids);
+            }
+            System.out.printf("%-10s %10s %12s %12s%n", "mode", "recall@" + TOP_K, "avg ms", "p99 ms");
+            print("exact", 1.0, exactNanos);
+
+            for (int ef : EF_SEARCH) {
+                for (float[] query : queries) {
+                    index.search(query, TOP_K, ef, null);
+                }
+                long[] nanos = new long[QUERIES];
+                long found = 0;
+                for (int i = 0; i < QUERIES; i++) {
+                    long t = System.nanoTime();
+                    List<SegmentVectorStore.Hit> hits = index.search(queries[i], TOP_K, ef, null);
+                    nanos[i] = System.nanoTime() - t;
+                    for (SegmentVectorStore.Hit hit : hits) {
+                        if (truth.get(i).contains(hit.getId())) {
+                            found++;
+                        }
+                    }
+                }
+                print("ef=" + ef, found / (double) (QUERIES * TOP_K), nanos);
+            }
+            store.close();
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void print(String mode, double recall, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double avg = Arrays.stream(sorted).average().orElse(0) / 1e6;
+        double p99 = sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * 0.99) - 1)] / 1e6;
+        System.out.printf("%-10s %10.4f %12.3f %12.3f%n", mode, recall, avg, p99);
+    }
+
+    private static float[] sample(Random random, float[][] centers) {
+        float[] center = centers[random.nextInt(centers.length)];
+        float[] noise = gaussian(random, center.length, 0.5f);
+        for (int i = 0; i < noise.length; i++) {
+            noise[i] += center[i];
+        }
+        return noise;
+    }
+
+    private static float[] gaussian(Random random, int dimension, float scale) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,184 @@
+package com.jd.genie.service.vector;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HNSW 索引：以精确扫描为基准的召回率（含知识库过滤）、删除、图文件持久化与补插、批量写入期间的并发搜索
+ */
+public class HnswIndexTest {
+    private static final int DIMENSION = 32;
+    private static final int VECTORS = 3000;
+    private static final int QUERIES = 50;
+    private static final int TOP_K = 10;
+    private static final int EF = 100;
+
+    @TempDir
+    Path dir;
+
+    private final Random random = new Random(7);
+    private final Map<String, float[]> vectors = new HashMap<>();
+    private SegmentVectorStore store;
+    private HnswIndex index;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        store = new SegmentVectorStore(dir);
+        index = new HnswIndex(store, dir.resolve("hnsw.graph"), 16, 100);
+        index.load();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        store.close();
+    }
+
+    @Test
+    public void recallMatchesExactSearch() throws Exception {
+        index.add(corpus(VECTORS, 0, i -> i % 2 == 0 ? 1L : 2L));
+        assertTrue(recall(null) >= 0.95, "unfiltered recall");
+    }
+
+    @Test
+    public void knowledgeBaseFilterKeepsRecallAndOnlyReturnsThatKnowledgeBase() throws Exception {
+        // 知识库 3 约占 20%，过滤后仍应保持召回率
+        index.add(corpus(VECTORS, 0, i -> i % 5 == 0 ? 3L : 1L));
+        assertEquals(VECTORS / 5, index.liveCount(3L));
+        assertTrue(recall(3L) >= 0.9, "filtered recall");
+        for (SegmentVectorStore.Hit hit : index.search(gaussian(), TOP_K, EF, 3L)) {
+            assertEquals(3, ((Number) hit.getMetadata().get("knowledge_base_id")).intValue());
+        }
+    }
+
+    @Test
+    public void smallKnowledgeBaseIsFullyCoveredByExactSearch() throws Exception {
+        index.add(corpus(VECTORS, 0, i -> i < 5 ? 9L : 1L));
+        assertEquals(5, index.liveCount(9L));
+        List<SegmentVectorStore.Hit> hits = index.exactSearch(gaussian(), TOP_K, 9L);
+        assertEquals(Set.of("chunk-0", "chunk-1", "chunk-2", "chunk-3", "chunk-4"), idSet(hits));
+    }
+
+    @Test
+    public void deletedChunksAreNotReturned() throws Exception {
+        index.add(corpus(500, 0, i -> 1L));
+        float[] query = vectors.get("chunk-42");
+        assertEquals("chunk-42", index.search(query, 1, EF, null).get(0).getId());
+
+        assertTrue(index.delete("chunk-42"));
+        assertFalse(idSet(index.search(query, TOP_K, EF, null)).contains("chunk-42"));
+        assertFalse(idSet(index.search(query, TOP_K, EF, 1L)).contains("chunk-42"));
+        assertEquals(499, index.liveCount(1L));
+    }
+
+    @Test
+    public void savedGraphIsReloadedAndCaughtUp() throws Exception {
+        index.add(corpus(1000, 0, i -> 1L));
+        index.saveIfDirty();
+        float[] query = gaussian();
+        List<SegmentVectorStore.Hit> before = index.search(query, TOP_K, EF, null);
+        // 图文件保存后继续写入，重启时补插
+        index.add(corpus(200, 1000, i -> 2L));
+        store.close();
+
+        store = new SegmentVectorStore(dir);
+        index = new HnswIndex(store, dir.resolve("hnsw.graph"), 16, 100);
+        index.load();
+        assertEquals(1200, ((Number) index.getStats().get("nodes")).intValue());
+        List<SegmentVectorStore.Hit> after = index.search(query, TOP_K, EF, 1L);
+        assertEquals(idSet(before), idSet(after));
+        for (int i = 1000; i < 1200; i += 20) {
+            assertEquals("chunk-" + i, index.search(vectors.get("chunk-" + i), 1, EF, 2L).get(0).getId());
+        }
+    }
+
+    @Test
+    public void searchesProceedDuringBulkInsert() throws Exception {
+        index.add(corpus(200, 0, i -> 1L));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicInteger searches = new AtomicInteger();
+        try {
+            Future<?> searcher = executor.submit(() -> {
+                Random local = new Random(1);
+                while (!done.get()) {
+                    float[] query = new float[DIMENSION];
+                    for (int d = 0; d < DIMENSION; d++) {
+                        query[d] = (float) local.nextGaussian();
+                    }
+                    assertEquals(TOP_K, index.search(query, TOP_K, EF, null).size());
+                    searches.incrementAndGet();
+                }
+                return null;
+            });
+            index.add(corpus(VECTORS, 200, i -> 1L));
+            done.set(true);
+            searcher.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        // 补插按段释放写锁，批量写入期间搜索能够穿插执行
+        assertTrue(searches.get() > 1, "searches during insert: " + searches.get());
+        assertEquals(VECTORS + 200, ((Number) index.getStats().get("nodes")).intValue());
+    }
+
+    private double recall(Long knowledgeBaseId) throws Exception {
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = gaussian();
+            Set<String> truth = idSet(index.exactSearch(query, TOP_K, knowledgeBaseId));
+            for (String id : idSet(index.search(query, TOP_K, EF, knowledgeBaseId))) {
+                if (truth.contains(id)) {
+                    found++;
+                }
+            }
+        }
+        return found / (double) (QUERIES * TOP_K);
+    }
+
+    private List<SegmentVectorStore.Entry> corpus(int n, int from, IntFunction<Long> knowledgeBase) {
+        List<SegmentVectorStore.Entry> entries = new ArrayList<>(n);
+        for (int i = from; i < from + n; i++) {
+            float[] vector = gaussian();
+            vectors.put("chunk-" + i, vector);
+            entries.add(new SegmentVectorStore.Entry("chunk-" + i, "content " + i, vector,
+                    Map.of("knowledge_base_id", knowledgeBase.apply(i))));
+        }
+        return entries;
+    }
+
+    private float[] gaussian() {
+        float[] vector = new float[DIMENSION];
+        for (int d = 0; d < DIMENSION; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static Set<String> idSet(List<SegmentVectorStore.Hit> hits) {
+        Set<String> ids = new HashSet<>();
+        hits.forEach(hit -> ids.add(hit.getId()));
+        return ids;
+    }
+}
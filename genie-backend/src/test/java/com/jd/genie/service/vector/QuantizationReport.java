@@ -0,0 +1,175 @@
+package com.jd.genie.service.vector;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * 量化精度与内存报告：对比 none / int8 / pq 三种模式下的每向量扫描字节数、recall@k（以 float32 精确扫描为基准）
+ * 与查询延迟，rerank=1 即只做估算不做精确重排
+ * 语料默认为合成聚类向量；指定 --store 时读取已有向量段存储（如 vector_data/segments 的副本）中的存活向量，
+ * 查询取语料中的向量加少量噪声
+ * 运行：java -Xmx4g -cp <test-classpath> com.jd.genie.service.vector.QuantizationReport [向量数] [维度]
+ *      java -Xmx4g -cp <test-classpath> com.jd.genie.service.vector.QuantizationReport --store <目录>
+ */
+public class QuantizationReport {
+    private static final int QUERIES = 200;
+    private static final int TOP_K = 10;
+    private static final int CLUSTERS = 100;
+    private static final int BATCH = 1000;
+    private static final int PQ_SUB_DIMENSION = 8;
+    private static final int[] RERANK_FACTORS = {1, 4, 10};
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(42);
+        float[][] corpus;
+        String source;
+        if (args.length > 1 && "--store".equals(args[0])) {
+            corpus = load(Paths.get(args[1]));
+            source = args[1];
+        } else {
+            int n = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+            int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 768;
+            corpus = synthetic(random, n, dimension);
+            source = "synthetic";
+        }
+        int dimension = corpus[0].length;
+        float[][] queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            float[] base = corpus[random.nextInt(corpus.length)];
+            float[] query = gaussian(random, dimension, 0.3f / (float) Math.sqrt(dimension));
+            float[] normalized = SegmentVectorStore.normalize(base);
+            for (int d = 0; d < dimension; d++) {
+                query[d] += normalized[d];
+            }
+            queries[i] = query;
+        }
+        System.out.printf("corpus=%s vectors=%d dim=%d queries=%d top%d%n", source, corpus.length, dimension, QUERIES, TOP_K);
+        System.out.printf("%-6s %7s %10s %8s %10s %10s %10s %10s%n",
+                "mode", "rerank", "bytes/vec", "ratio", "build s", "recall", "avg ms", "p99 ms");
+
+        List<Set<String>> truth = null;
+        for (String mode : new String[]{"none", "int8", "pq"}) {
+            Path dir = Files.createTempDirectory("quantization-report");
+            try {
+                SegmentVectorStore store = new SegmentVectorStore(dir);
+                QuantizedIndex index = new QuantizedIndex(store, dir, mode, 1, PQ_SUB_DIMENSION, corpus.length);
+                index.load();
+                long start = System.nanoTime();
+                List<SegmentVectorStore.Entry> batch = new ArrayList<>(BATCH);
+                for (int i = 0; i < corpus.length; i++) {
+                    Map<String, Object> metadata = new HashMap<>();
+                    metadata.put("knowledge_base_id", 1L);
+                    batch.add(new SegmentVectorStore.Entry("chunk-" + i, "content " + i, corpus[i], metadata));
+                    if (batch.size() == BATCH) {
+                        index.add(batch);
+                        batch.clear();
+                    }
+                }
+                index.add(batch);
+                double buildSec = (System.nanoTime() - start) / 1e9;
+                Object codeBytes = index.getStats().getOrDefault("codeBytesPerVector", dimension * Float.BYTES);
+                int bytesPerVector = ((Number) codeBytes).intValue();
+                index.close();
+
+                for (int rerank : "none".equals(mode) ? new int[]{1} : RERANK_FACTORS) {
+                    index = new QuantizedIndex(store, dir, mode, rerank, PQ_SUB_DIMENSION, corpus.length);
+                    index.load();
+                    for (float[] query : queries) {
+                        index.search(query, TOP_K, null);
+                    }
+                    long[] nanos = new long[QUERIES];
+                    List<Set<String>> results = new ArrayList<>();
+                    for (int i = 0; i < QUERIES; i++) {
+                        long t = System.nanoTime();
+                        List<SegmentVectorStore.Hit> hits = index.search(queries[i], TOP_K, null);
+                        nanos[i] = System.nanoTime() - t;
+                        Set<String> ids = new HashSet<>();
+                        hits.forEach(hit -> ids.add(hit.getId()));
+                        results.add(ids);
+                    }
+                    if (truth == null) {
+                        truth = results;
+                    }
+                    long found = 0;
+                    for (int i = 0; i < QUERIES; i++) {
+                        for (String id : results.get(i)) {
+                            if (truth.get(i).contains(id)) {
+                                found++;
+                            }
+                        }
+                    }
+                    print(mode, rerank, bytesPerVector, dimension * Float.BYTES / (double) bytesPerVector, buildSec,
+                            found / (double) (QUERIES * TOP_K), nanos);
+                    index.close();
+                }
+                store.close();
+            } finally {
+                try (Stream<Path> files = Files.walk(dir)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+    }
+
+    private static float[][] load(Path dir) throws Exception {
+        try (SegmentVectorStore store = new SegmentVectorStore(dir)) {
+            List<float[]> vectors = new ArrayList<>();
+            for (int ordinal = 0; ordinal < store.ordinalCount(); ordinal++) {
+                if (store.isLive(ordinal)) {
+                    float[] vector = new float[store.dimension()];
+                    store.vector(ordinal, vector);
+                    vectors.add(vector);
+                }
+            }
+            if (vectors.isEmpty()) {
+                throw new IllegalStateException("向量段存储为空: " + dir);
+            }
+            return vectors.toArray(new float[0][]);
+        }
+    }
+
+    private static void print(String mode, int rerank, int bytesPerVector, double ratio, double buildSec, double recall, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double avg = Arrays.stream(sorted).average().orElse(0) / 1e6;
+        double p99 = sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * 0.99) - 1)] / 1e6;
+        System.out.printf("%-6s %7s %10d %8.1f %10.2f %10.4f %10.3f %10.3f%n",
+                mode, "none".equals(mode) ? "-" : "x" + rerank, bytesPerVector, ratio, buildSec, recall, avg, p99);
+    }
+
+    private static float[][] synthetic(Random random, int n, int dimension) {
+        float[][] centers = new float[CLUSTERS][];
+        for (int i = 0; i < CLUSTERS; i++) {
+            centers[i] = gaussian(random, dimension, 1.0f);
+        }
+        float[][] corpus = new float[n][];
+        for (int i = 0; i < n; i++) {
+            float[] center = centers[random.nextInt(CLUSTERS)];
+            float[] vector = gaussian(random, dimension, 0.5f);
+            for (int d = 0; d < dimension; d++) {
+                vector[d] += center[d];
+            }
+            corpus[i] = vector;
+        }
+        return corpus;
+    }
+
+    private static float[] gaussian(Random random, int dimension, float scale) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,198 @@
+package com.jd.genie.service.vector;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 量化索引：int8 / pq 以精确扫描为基准的召回率与重排收益、知识库过滤、未训练时回退精确扫描、重启后复用量化码
+ */
+public class QuantizedIndexTest {
+    private static final int DIMENSION = 32;
+    private static final int VECTORS = 2000;
+    private static final int QUERIES = 50;
+    private static final int TOP_K = 10;
+    private static final int TRAIN_AT = 500;
+
+    @TempDir
+    Path dir;
+
+    private final Random random = new Random(11);
+    private SegmentVectorStore store;
+    private final List<QuantizedIndex> indexes = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        store = new SegmentVectorStore(dir.resolve("store"));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (QuantizedIndex index : indexes) {
+            index.close();
+        }
+        store.close();
+    }
+
+    @Test
+    public void int8RecallMatchesExactSearch() throws Exception {
+        QuantizedIndex index = open("int8", "int8", 4);
+        index.add(corpus(VECTORS, 0, i -> 1L));
+        assertEquals("int8", index.getStats().get("quantizer"));
+        assertEquals(VECTORS, index.getStats().get("coded"));
+        assertTrue(recall(index, null) >= 0.95, "int8 recall");
+        assertTrue(((Number) index.getStats().get("approximateSearches")).longValue() > 0);
+    }
+
+    @Test
+    public void pqRerankImprovesRecall() throws Exception {
+        QuantizedIndex wide = open("pq", "pq-wide", 10);
+        wide.add(corpus(VECTORS, 0, i -> 1L));
+        // 同一存储上另开 rerankFactor=1 的索引，码本训练种子固定，两者量化码一致
+        QuantizedIndex narrow = open("pq", "pq-narrow", 1);
+        assertEquals("pq", wide.getStats().get("quantizer"));
+        assertEquals("pq", narrow.getStats().get("quantizer"));
+        assertTrue(((Number) wide.getStats().get("codeBytesPerVector")).intValue() < DIMENSION * Float.BYTES);
+
+        double rerankedRecall = recall(wide, null);
+        double rawRecall = recall(narrow, null);
+        assertTrue(rerankedRecall >= rawRecall, "reranked " + rerankedRecall + " < raw " + rawRecall);
+        assertTrue(rerankedRecall >= 0.8, "pq reranked recall " + rerankedRecall);
+    }
+
+    @Test
+    public void knowledgeBaseFilterOnlyReturnsThatKnowledgeBase() throws Exception {
+        QuantizedIndex index = open("pq", "pq", 10);
+        index.add(corpus(VECTORS, 0, i -> i % 4 == 0 ? 3L : 1L));
+        assertEquals("pq", index.getStats().get("quantizer"));
+        for (int q = 0; q < 10; q++) {
+            List<SegmentVectorStore.Hit> hits = index.search(gaussian(), TOP_K, 3L);
+            assertEquals(TOP_K, hits.size());
+            for (SegmentVectorStore.Hit hit : hits) {
+                assertEquals(3, ((Number) hit.getMetadata().get("knowledge_base_id")).intValue());
+            }
+        }
+        assertTrue(recall(index, 3L) >= 0.8, "filtered recall");
+        assertTrue(index.search(gaussian(), TOP_K, 99L).isEmpty());
+    }
+
+    @Test
+    public void pqFallsBackToExactSearchUntilTrained() throws Exception {
+        QuantizedIndex index = open("pq", "pq", 1);
+        index.add(corpus(TRAIN_AT - 1, 0, i -> 1L));
+        // 未达训练阈值：无码本，搜索走精确扫描
+        assertEquals("exact", index.getStats().get("quantizer"));
+        assertEquals(TRAIN_AT, index.getStats().get("pqTrainAt"));
+        float[] query = gaussian();
+        assertEquals(ids(store.search(query, TOP_K, null)), ids(index.search(query, TOP_K, null)));
+        assertEquals(0L, index.getStats().get("approximateSearches"));
+        assertFalse(Files.exists(dir.resolve("pq").resolve("pq.codebook")));
+
+        // 达到阈值的那次写入训练码本，之后走近似搜索
+        index.add(corpus(1, TRAIN_AT - 1, i -> 1L));
+        assertEquals("pq", index.getStats().get("quantizer"));
+        assertEquals(TRAIN_AT, index.getStats().get("coded"));
+        assertTrue(Files.exists(dir.resolve("pq").resolve("pq.codebook")));
+        index.search(query, TOP_K, null);
+        assertEquals(1L, index.getStats().get("approximateSearches"));
+    }
+
+    @Test
+    public void noneModeSearchesExactly() throws Exception {
+        QuantizedIndex index = open("none", "none", 4);
+        index.add(corpus(VECTORS, 0, i -> 1L));
+        assertEquals("exact", index.getStats().get("quantizer"));
+        float[] query = gaussian();
+        assertEquals(ids(store.search(query, TOP_K, null)), ids(index.search(query, TOP_K, null)));
+        assertEquals(0L, index.getStats().get("approximateSearches"));
+    }
+
+    @Test
+    public void codesAreReloadedAndCaughtUp() throws Exception {
+        QuantizedIndex index = open("pq", "pq", 10);
+        index.add(corpus(VECTORS, 0, i -> 1L));
+        float[] query = gaussian();
+        List<String> before = ids(index.search(query, TOP_K, null));
+        long codebookModified = Files.getLastModifiedTime(dir.resolve("pq").resolve("pq.codebook")).toMillis();
+        index.close();
+        indexes.clear();
+        store.close();
+
+        // 存储在量化码之外多写一批，重启时只补编码落后的序号，不重新训练
+        store = new SegmentVectorStore(dir.resolve("store"));
+        store.add(corpus(100, VECTORS, i -> 2L));
+        index = open("pq", "pq", 10);
+        assertEquals("pq", index.getStats().get("quantizer"));
+        assertEquals(VECTORS + 100, index.getStats().get("coded"));
+        assertEquals(codebookModified, Files.getLastModifiedTime(dir.resolve("pq").resolve("pq.codebook")).toMillis());
+        assertEquals(before, ids(index.search(query, TOP_K, 1L)));
+        assertEquals(TOP_K, index.search(query, TOP_K, 2L).size());
+    }
+
+    @Test
+    public void unknownModeIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new QuantizedIndex(store, dir, "fp16", 4, 4, TRAIN_AT));
+    }
+
+    private QuantizedIndex open(String mode, String name, int rerankFactor) throws Exception {
+        Path path = Files.createDirectories(dir.resolve(name));
+        QuantizedIndex index = new QuantizedIndex(store, path, mode, rerankFactor, 4, TRAIN_AT);
+        index.load();
+        indexes.add(index);
+        return index;
+    }
+
+    private double recall(QuantizedIndex index, Long knowledgeBaseId) throws Exception {
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = gaussian();
+            Set<String> truth = new HashSet<>(ids(store.search(query, TOP_K, knowledgeBaseId)));
+            for (String id : ids(index.search(query, TOP_K, knowledgeBaseId))) {
+                if (truth.contains(id)) {
+                    found++;
+                }
+            }
+        }
+        return found / (double) (QUERIES * TOP_K);
+    }
+
+    private List<SegmentVectorStore.Entry> corpus(int n, int from, IntFunction<Long> knowledgeBase) {
+        List<SegmentVectorStore.Entry> entries = new ArrayList<>(n);
+        for (int i = from; i < from + n; i++) {
+            entries.add(new SegmentVectorStore.Entry("chunk-" + i, "content " + i, gaussian(),
+                    Map.of("knowledge_base_id", knowledgeBase.apply(i))));
+        }
+        return entries;
+    }
+
+    private float[] gaussian() {
+        float[] vector = new float[DIMENSION];
+        for (int d = 0; d < DIMENSION; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static List<String> ids(List<SegmentVectorStore.Hit> hits) {
+        List<String> ids = new ArrayList<>(hits.size());
+        hits.forEach(hit -> ids.add(hit.getId()));
+        return ids;
+    }
+}
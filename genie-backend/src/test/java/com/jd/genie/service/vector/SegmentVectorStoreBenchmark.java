@@ -0,0 +1,204 @@
+package com.jd.genie.service.vector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jd.genie.service.FileVectorDatabaseService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * 本地向量库对比：原逐块 JSON 文件存储与内存映射向量段存储
+ * 统计写入耗时、磁盘占用、重启加载耗时与单次查询延迟，并校验两者 top10 结果一致
+ * JSON 存储每次查询都要遍历目录并反序列化全部文件，规模超过 -Djson.max（默认 100000）时跳过
+ * 运行：java -Xmx4g -cp <test-classpath> com.jd.genie.service.vector.SegmentVectorStoreBenchmark [规模列表] [维度]
+ * 例如：... SegmentVectorStoreBenchmark 10000,100000,1000000 768
+ */
+public class SegmentVectorStoreBenchmark {
+    private static final int QUERIES = 20;
+    private static final int TOP_K = 10;
+    private static final int BATCH = 1000;
+    private static final int KNOWLEDGE_BASES = 4;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        String[] sizes = (args.length > 0 ? args[0] : "10000,100000,1000000").split(",");
+        int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 768;
+        int jsonMax = Integer.getInteger("json.max", 100000);
+
+        System.out.printf("%-8s %9s %12s %12s %12s %12s %8s%n",
+                "store", "vectors", "write ms", "disk MB", "load ms", "query ms", "recall");
+        for (String size : sizes) {
+            int n = Integer.parseInt(size.trim());
+            Random random = new Random(42);
+            float[][] queries = new float[QUERIES][];
+            for (int i = 0; i < QUERIES; i++) {
+                queries[i] = randomVector(random, dimension);
+            }
+            List<List<String>> segmentTop = runSegment(n, dimension, queries);
+            if (n <= jsonMax) {
+                runJson(n, dimension, queries, segmentTop);
+            } else {
+                System.out.printf("%-8s %9d %12s%n", "json", n, "skipped");
+            }
+        }
+    }
+
+    private static List<List<String>> runSegment(int n, int dimension, float[][] queries) throws IOException {
+        Path dir = Files.createTempDirectory("segment-bench");
+        try {
+            Random random = new Random(7);
+            long start = System.nanoTime();
+            try (SegmentVectorStore store = new SegmentVectorStore(dir)) {
+                List<SegmentVectorStore.Entry> batch = new ArrayList<>(BATCH);
+                for (int i = 0; i < n; i++) {
+                    batch.add(new SegmentVectorStore.Entry("chunk-" + i, "content " + i, randomVector(random, dimension), metadata(i)));
+                    if (batch.size() == BATCH) {
+                        store.add(batch);
+                        batch.clear();
+                    }
+                }
+                store.add(batch);
+            }
+            long writeMs = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            try (SegmentVectorStore store = new SegmentVectorStore(dir)) {
+                long loadMs = (System.nanoTime() - start) / 1_000_000;
+                // 预热
+                for (float[] query : queries) {
+                    store.search(query, TOP_K, null);
+                }
+                List<List<String>> tops = new ArrayList<>();
+                start = System.nanoTime();
+                for (float[] query : queries) {
+                    List<String> ids = new ArrayList<>();
+                    for (SegmentVectorStore.Hit hit : store.search(query, TOP_K, null)) {
+                        ids.add(hit.getId());
+                    }
+                    tops.add(ids);
+                }
+                double queryMs = (System.nanoTime() - start) / 1e6 / queries.length;
+                System.out.printf("%-8s %9d %12d %12.1f %12d %12.2f %8s%n",
+                        "segment", n, writeMs, diskMb(dir), loadMs, queryMs, "-");
+                return tops;
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * 原实现：每块一个 JSON 文件，查询时遍历目录逐个反序列化
+     */
+    private static void runJson(int n, int dimension, float[][] queries, List<List<String>> expected) throws IOException {
+        Path dir = Files.createTempDirectory("json-bench");
+        try {
+            Random random = new Random(7);
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                FileVectorDatabaseService.VectorDocument doc = new FileVectorDatabaseService.VectorDocument();
+                doc.setId("chunk-" + i);
+                doc.setContent("content " + i);
+                doc.setEmbedding(toDoubles(randomVector(random, dimension)));
+                doc.setMetadata(metadata(i));
+                doc.setTimestamp(System.currentTimeMillis());
+                objectMapper.writeValue(dir.resolve(doc.getId() + ".json").toFile(), doc);
+            }
+            long writeMs = (System.nanoTime() - start) / 1_000_000;
+
+            long hits = 0;
+            start = System.nanoTime();
+            for (int q = 0; q < queries.length; q++) {
+                List<Double> query = toDoubles(queries[q]);
+                List<Map.Entry<String, Double>> scored = new ArrayList<>();
+                File[] files = dir.toFile().listFiles((d, name) -> name.endsWith(".json"));
+                for (File file : files) {
+                    FileVectorDatabaseService.VectorDocument doc = objectMapper.readValue(file, FileVectorDatabaseService.VectorDocument.class);
+                    scored.add(Map.entry(doc.getId(), cosine(query, doc.getEmbedding())));
+                }
+                scored.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+                for (int i = 0; i < TOP_K && i < scored.size(); i++) {
+                    if (expected.get(q).contains(scored.get(i).getKey())) {
+                        hits++;
+                    }
+                }
+            }
+            double queryMs = (System.nanoTime() - start) / 1e6 / queries.length;
+            System.out.printf("%-8s %9d %12d %12.1f %12s %12.2f %8.3f%n",
+                    "json", n, writeMs, diskMb(dir), "-", queryMs, hits / (double) (queries.length * TOP_K));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static Map<String, Object> metadata(int i) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("knowledge_base_id", (long) (i % KNOWLEDGE_BASES));
+        metadata.put("chunk_index", i);
+        return metadata;
+    }
+
+    private static float[] randomVector(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static List<Double> toDoubles(float[] vector) {
+        List<Double> list = new ArrayList<>(vector.length);
+        for (float v : vector) {
+            list.add((double) v);
+        }
+        return list;
+    }
+
+    private static double cosine(List<Double> a, List<Double> b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.size(); i++) {
+            dot += a.get(i) * b.get(i);
+            normA += a.get(i) * a.get(i);
+            normB += b.get(i) * b.get(i);
+        }
+        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    /**
+     * 按实际占用的磁盘块统计（向量段文件预分配为稀疏文件），du 不可用时按文件大小统计
+     */
+    private static double diskMb(Path dir) throws IOException {
+        try {
+            Process process = new ProcessBuilder("du", "-sk", dir.toString()).start();
+            String out = new String(process.getInputStream().readAllBytes()).trim();
+            if (process.waitFor() == 0) {
+                return Long.parseLong(out.split("\\s+")[0]) / 1024.0;
+            }
+        } catch (Exception e) {
+            // 回退到按文件大小统计
+        }
+        long bytes = 0;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                bytes += Files.size(file);
+            }
+        }
+        return bytes / 1024.0 / 1024.0;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.jd.genie.service.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 向量段存储：重放重建、尾部残缺记录截断、追加失败回滚
+ */
+public class SegmentVectorStoreTest {
+    private static final int DIMENSION = 8;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void replayRestoresAddsOverwritesAndDeletes() throws Exception {
+        try (SegmentVectorStore store = new SegmentVectorStore(dir)) {
+            store.add(List.of(entry("a", 0, 1L), entry("b", 1, 1L), entry("c", 2, 2L)));
+            store.delete("b");
+            // 同 id 覆盖写入并换到另一个知识库
+            store.add(List.of(entry("c", 3, 1L)));
+        }
+        try (SegmentVectorStore store = new SegmentVectorStore(dir)) {
+            assertEquals(2, store.size());
+            assertEquals(4, store.ordinalCount());
+            assertEquals(2, store.liveCount(1L));
+            assertEquals(0, store.liveCount(2L));
+
+            List<SegmentVectorStore.Hit> hits = store.search(axis(3), 10, 1L);
+            assertEquals(List.of("c", "a"), ids(hits));
+            assertEquals("content-c-3", hits.get(0).getContent());
+            assertEquals(1, ((Number) hits.get(0).getMetadata().get("knowledge_base_id")).intValue());
+            assertEquals(1.0f, hits.get(0).getScore(), 1e-5);
+            assertTrue(store.search(axis(2), 10, 2L).isEmpty());
+        }
+    }
+
+    @Test
+    public void tornTailIsTruncatedOnReplay() throws Exception {
+        try (SegmentVectorStore store = new SegmentVectorStore(dir)) {
+            store.add(List.of(entry("a", 0, 1L), entry("b", 1, 1L)));
+        }
+        Path records = dir.resolve("records.dat");
+        long committed = Files.size(records);
+        // 模拟写到一半崩溃：长度前缀声明 100 字节，实际只写了 10 字节
+        try (FileChannel channel = FileChannel.open(records, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer torn = ByteBuffer.allocate(14).putInt(100).put(new byte[10]);
+            torn.flip();
+            channel.write(torn);
+        }
+
+        try (SegmentVectorStore store = new SegmentVectorStore(dir)) {
+            assertEquals(2, store.size());
+            assertEquals(committed, Files.size(records));
+            store.add(List.of(entry("c", 2, 1L)));
+        }
+        try (SegmentVectorStore store = new SegmentVectorStore(dir)) {
+            assertEquals(3, store.size());
+            assertEquals(List.of("c"), ids(store.search(axis(2), 1, null)));
+        }
+    }
+
+    @Test
+    public void failedAppendIsRolledBack() throws Exception {
+        Path records = dir.resolve("records.dat");
+        long committed;
+        try (SegmentVectorStore store = new SegmentVectorStore(dir)) {
+            store.add(List.of(entry("a", 0, 1L)));
+            committed = Files.size(records);
+
+            FailingChannel failing = injectFailingChannel(store);
+            failing.failAfterBytes = 7;
+            assertThrows(IOException.class, () -> store.add(List.of(entry("b", 1, 1L), entry("c", 2, 1L))));
+            // 已写入的半条记录被截断，内存索引不变
+            assertEquals(committed, Files.size(records));
+            assertEquals(1, store.size());
+            assertEquals(1, store.ordinalCount());
+
+            failing.failAfterBytes = 3;
+            assertThrows(IOException.class, () -> store.delete("a"));
+            assertEquals(committed, Files.size(records));
+            assertEquals(1, store.size());
+
+            failing.failAfterBytes = -1;
+            store.add(List.of(entry("d", 3, 1L)));
+        }
+        try (SegmentVectorStore store = new SegmentVectorStore(dir)) {
+            assertEquals(2, store.size());
+            assertEquals(List.of("d"), ids(store.search(axis(3), 1, 1L)));
+            assertEquals(List.of("a"), ids(store.search(axis(0), 1, 1L)));
+        }
+    }
+
+    private static SegmentVectorStore.Entry entry(String id, int axis, long knowledgeBaseId) {
+        return new SegmentVectorStore.Entry(id, "content-" + id + "-" + axis, axis(axis), Map.of("knowledge_base_id", knowledgeBaseId));
+    }
+
+    private static float[] axis(int axis) {
+        float[] vector = new float[DIMENSION];
+        vector[axis] = 1f;
+        // 其余维度给一点权重，使各向量的相似度可区分
+        for (int d = 0; d < DIMENSION; d++) {
+            vector[d] += 0.01f * d;
+        }
+        return vector;
+    }
+
+    private static List<String> ids(List<SegmentVectorStore.Hit> hits) {
+        List<String> ids = new ArrayList<>();
+        hits.forEach(hit -> ids.add(hit.getId()));
+        return ids;
+    }
+
+    private static FailingChannel injectFailingChannel(SegmentVectorStore store) throws Exception {
+        Field field = SegmentVectorStore.class.getDeclaredField("records");
+        field.setAccessible(true);
+        FailingChannel failing = new FailingChannel((FileChannel) field.get(store));
+        field.set(store, failing);
+        return failing;
+    }
+
+    /**
+     * 定位写入时只写出 failAfterBytes 字节后抛出异常，模拟磁盘写满；为负数时正常写入
+     */
+    private static class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+        private volatile int failAfterBytes = -1;
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            if (failAfterBytes < 0) {
+                return delegate.write(src, position);
+            }
+            ByteBuffer partial = src.duplicate();
+            partial.limit(Math.min(src.limit(), src.position() + failAfterBytes));
+            delegate.write(partial, position);
+            throw new IOException("injected write failure");
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.jd.genie.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 预编码 SSE 事件：直接输出帧，构建器方法追加的字段与帧同属一个事件，原事件不受影响
+ */
+public class EncodedSseEventTest {
+    private static final byte[] FRAME = "data:{\"a\":1}\n\n".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void buildReturnsEncodedFrame() {
+        EncodedSseEvent event = EncodedSseEvent.of(FRAME);
+        assertSame(event.build(), event.build());
+        assertEquals("data:{\"a\":1}\n\n", render(event.build()));
+    }
+
+    @Test
+    public void builderFieldsWrapTheFrame() {
+        SseEmitter.SseEventBuilder event = EncodedSseEvent.of(FRAME)
+                .id("7")
+                .name("message")
+                .reconnectTime(3000)
+                .comment("replay");
+        assertEquals("id:7\nevent:message\nretry:3000\n:replay\ndata:{\"a\":1}\n\n", render(event.build()));
+    }
+
+    @Test
+    public void appendedDataStaysInTheSameEvent() {
+        SseEmitter.SseEventBuilder event = EncodedSseEvent.of(FRAME).id("8").data("more");
+        assertEquals("id:8\ndata:{\"a\":1}\ndata:more\n\n", render(event.build()));
+
+        // 由 SseEmitter 构建器生成的帧同样适用
+        SseEmitter.SseEventBuilder built = EncodedSseEvent.of(SseEmitter.event().data("x").build()).data("y");
+        assertEquals("data:x\ndata:y\n\n", render(built.build()));
+    }
+
+    @Test
+    public void sharedInstanceIsNotModified() {
+        EncodedSseEvent shared = EncodedSseEvent.of(FRAME);
+        shared.id("1").data("extra");
+        assertEquals("data:{\"a\":1}\n\n", render(shared.build()));
+    }
+
+    private static String render(Set<ResponseBodyEmitter.DataWithMediaType> items) {
+        StringBuilder text = new StringBuilder();
+        for (ResponseBodyEmitter.DataWithMediaType item : items) {
+            Object data = item.getData();
+            text.append(data instanceof byte[] ? new String((byte[]) data, StandardCharsets.UTF_8) : data);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,182 @@
+package com.jd.genie.util;
+
+import com.jd.genie.agent.printer.ReplayBuffer;
+import com.jd.genie.agent.printer.SseStreamSession;
+import com.jd.genie.agent.util.SpringContextHolder;
+import com.jd.genie.config.GenieConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationContext;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * SSE 心跳调度：经输出会话发送心跳、写入卡住的连接按期限剔除且不占用发送线程
+ */
+public class SseHeartbeatSchedulerTest {
+    private static final SseEmitter.SseEventBuilder HEARTBEAT = EncodedSseEvent.of("data:ping\n\n".getBytes(StandardCharsets.UTF_8));
+
+    @TempDir
+    Path dir;
+
+    private SseHeartbeatScheduler scheduler;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<Thread> writers = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        GenieConfig genieConfig = mock(GenieConfig.class);
+        when(genieConfig.getSseHeartbeatIntervalMs()).thenReturn(200L);
+        when(genieConfig.getSseHeartbeatTickMs()).thenReturn(20L);
+        when(genieConfig.getSseHeartbeatSenderThreads()).thenReturn(1);
+        when(genieConfig.getSseWriteTimeoutMs()).thenReturn(300L);
+        when(genieConfig.getSseSenderThreads()).thenReturn(2);
+        ApplicationContext context = mock(ApplicationContext.class);
+        when(context.getBean(GenieConfig.class)).thenReturn(genieConfig);
+        new SpringContextHolder().setApplicationContext(context);
+
+        scheduler = new SseHeartbeatScheduler(genieConfig);
+        scheduler.init();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        release.countDown();
+        for (Thread writer : writers) {
+            writer.join(1000);
+        }
+        scheduler.destroy();
+    }
+
+    @Test
+    public void idleSessionConnectionGetsHeartbeatFromSession() throws Exception {
+        try (ReplayBuffer buffer = new ReplayBuffer(16, 1 << 20, 1 << 20, dir)) {
+            SseStreamSession session = new SseStreamSession("req-1", "alice", buffer);
+            RecordingEmitter emitter = new RecordingEmitter(false);
+            session.attach(emitter, 0);
+            scheduler.register(emitter, "req-1", session);
+
+            await(() -> emitter.frames.contains("data:heartbeat\n\n"));
+            // 会话连接不经过心跳发送线程池
+            assertEquals(0L, ((Number) scheduler.getStats().get("senderQueued")).longValue());
+            assertEquals(0, emitter.errors.get());
+        }
+    }
+
+    @Test
+    public void recentlyWrittenConnectionIsSkipped() throws Exception {
+        RecordingEmitter busy = new RecordingEmitter(false);
+        RecordingEmitter idle = new RecordingEmitter(false);
+        scheduler.register(busy, "busy", HEARTBEAT);
+        scheduler.register(idle, "idle", HEARTBEAT);
+        long deadline = System.currentTimeMillis() + 600;
+        while (System.currentTimeMillis() < deadline) {
+            busy.send(SseEmitter.event().data("x"));
+            Thread.sleep(20);
+        }
+        assertTrue(idle.frames.contains("data:ping\n\n"));
+        assertTrue(busy.frames.stream().noneMatch("data:ping\n\n"::equals));
+    }
+
+    @Test
+    public void stuckWritesAreEvictedWithoutStarvingOtherConnections() throws Exception {
+        // 发送线程只有 1 个，5 个连接的数据写入卡住
+        List<RecordingEmitter> stuck = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            RecordingEmitter emitter = new RecordingEmitter(true);
+            scheduler.register(emitter, "stuck-" + i, HEARTBEAT);
+            stuck.add(emitter);
+            Thread writer = new Thread(() -> {
+                try {
+                    emitter.send(SseEmitter.event().data("payload"));
+                } catch (IOException ignored) {
+                    // 剔除后写入失败
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        RecordingEmitter healthy = new RecordingEmitter(false);
+        scheduler.register(healthy, "healthy", HEARTBEAT);
+
+        await(() -> ((Number) scheduler.getStats().get("evicted")).longValue() == 5);
+        await(() -> healthy.frames.contains("data:ping\n\n"));
+        assertEquals(0, healthy.errors.get());
+
+        RecordingEmitter first = stuck.get(0);
+        // 剔除后的写入立即失败，不再等待卡住的写入
+        long start = System.currentTimeMillis();
+        assertThrows(IOException.class, () -> first.send(SseEmitter.event().data("late")));
+        assertTrue(System.currentTimeMillis() - start < 100);
+        assertTrue(first.isFailed());
+        // 卡住的写入返回后由写入线程结束连接，每个连接只结束一次
+        assertEquals(0, first.errors.get());
+        release.countDown();
+        for (RecordingEmitter emitter : stuck) {
+            await(() -> emitter.errors.get() == 1);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 3000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 记录写出的帧，可模拟写入卡住的慢连接；与真实实现一样在 emitter 锁内写入
+     */
+    private class RecordingEmitter extends TrackedSseEmitter {
+        private final boolean blocking;
+        private final List<String> frames = new CopyOnWriteArrayList<>();
+        private final AtomicInteger errors = new AtomicInteger();
+
+        RecordingEmitter(boolean blocking) {
+            super(60000L);
+            this.blocking = blocking;
+        }
+
+        @Override
+        protected synchronized void write(SseEventBuilder builder) {
+            StringBuilder frame = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType item : builder.build()) {
+                Object data = item.getData();
+                frame.append(data instanceof byte[] ? new String((byte[]) data, StandardCharsets.UTF_8) : data);
+            }
+            frames.add(frame.toString());
+            if (blocking) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            errors.incrementAndGet();
+        }
+    }
+}
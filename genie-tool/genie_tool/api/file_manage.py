@@ -5,7 +5,7 @@ from urllib.parse import quote, unquote
 from fastapi import APIRouter, File, Form, UploadFile
 from fastapi.responses import JSONResponse, Response, FileResponse
 
-from genie_tool.model.protocal import FileRequest, FileListRequest, FileUploadRequest, get_file_id
+from genie_tool.model.protocal import FileRequest, FileListRequest, FileUploadRequest, FileBatchUploadRequest, get_file_id
 from genie_tool.util.middleware_util import RequestHandlerRoute
 from genie_tool.db.file_table_op import FileInfoOp, get_file_preview_url, get_file_download_url
 
@@ -39,6 +39,21 @@ async def upload_file(
     download_url = get_file_download_url(file_id=file_info.request_id, file_name=file_info.filename)
     return JSONResponse(content={"ossUrl": download_url, "downloadUrl": download_url, "domainUrl": preview_url, "fileSize": file_info.file_size})
 
+@router.post("/upload_files")
+async def upload_files(
+        body: FileBatchUploadRequest
+):
+    results = []
+    for file in body.files:
+        file_info = await FileInfoOp.add_by_content(
+            filename=file.file_name, content=file.content, file_id=file.file_id, description=file.description,
+            request_id=file.request_id)
+        preview_url = get_file_preview_url(file_id=file_info.request_id, file_name=file_info.filename)
+        download_url = get_file_download_url(file_id=file_info.request_id, file_name=file_info.filename)
+        results.append({"ossUrl": download_url, "downloadUrl": download_url, "domainUrl": preview_url,
+                        "fileSize": file_info.file_size})
+    return JSONResponse(content={"results": results})
+
 @router.post("/upload_file_data")
 async def upload_file_data(file: UploadFile = File(...), request_id: str = Form(alias="requestId")):
     file.filename = unquote(file.filename)
@@ -63,6 +63,10 @@ class FileUploadRequest(FileRequest):
     content: str = Field(description="返回的生成的文件内容")
 
 
+class FileBatchUploadRequest(BaseModel):
+    files: List[FileUploadRequest] = Field(description="批量上传的文件")
+
+
 class DeepSearchRequest(BaseModel):
     request_id: str = Field(description="Request ID")
     query: str = Field(description="搜索查询")